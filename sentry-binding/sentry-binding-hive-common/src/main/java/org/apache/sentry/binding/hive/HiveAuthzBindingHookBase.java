@@ -57,6 +57,7 @@ import org.apache.sentry.binding.hive.authz.HiveAuthzBinding;
 import org.apache.sentry.binding.hive.authz.HiveAuthzPrivileges;
 import org.apache.sentry.binding.hive.authz.HiveAuthzPrivileges.HiveOperationScope;
 import org.apache.sentry.binding.hive.authz.HiveAuthzPrivileges.HiveOperationType;
+import org.apache.sentry.binding.hive.authz.HivePrivilegeSnapshot;
 import org.apache.sentry.binding.hive.conf.HiveAuthzConf;
 import org.apache.sentry.core.common.Subject;
 import org.apache.sentry.core.common.utils.PathUtils;
@@ -67,9 +68,6 @@ import org.apache.sentry.core.model.db.DBModelAuthorizable;
 import org.apache.sentry.core.model.db.DBModelAuthorizable.AuthorizableType;
 import org.apache.sentry.core.model.db.Database;
 import org.apache.sentry.core.model.db.Table;
-import org.apache.sentry.provider.cache.PrivilegeCache;
-import org.apache.sentry.provider.cache.SimplePrivilegeCache;
-import org.apache.sentry.provider.common.AuthorizationProvider;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -100,6 +98,13 @@ public abstract class HiveAuthzBindingHookBase extends AbstractSemanticAnalyzerH
           .setOperationScope(HiveOperationScope.COLUMN).setOperationType(HiveOperationType.INFO)
           .build();
 
+  protected final static HiveAuthzPrivileges tableMetaDataPrivilege =
+      new HiveAuthzPrivileges.AuthzPrivilegeBuilder()
+          .addInputObjectPriviledge(AuthorizableType.Column,
+              EnumSet.of(DBModelAction.SELECT, DBModelAction.INSERT))
+          .setOperationScope(HiveOperationScope.TABLE).setOperationType(HiveOperationType.INFO)
+          .build();
+
   // True if this is a basic DESCRIBE <table> operation. False for other DESCRIBE variants
   // like DESCRIBE [FORMATTED|EXTENDED]. Required because Hive treats these stmts as the same
   // HiveOperationType, but we want to enforces different privileges on each statement.
@@ -578,75 +583,36 @@ public abstract class HiveAuthzBindingHookBase extends AbstractSemanticAnalyzerH
       HiveAuthzBinding hiveAuthzBinding, List<String> queryResult,
       HiveOperation operation, String userName, String dbName)
           throws SemanticException {
-    List<String> filteredResult = new ArrayList<String>();
-    Subject subject = new Subject(userName);
-    HiveAuthzPrivileges tableMetaDataPrivilege = new HiveAuthzPrivileges.AuthzPrivilegeBuilder().
-        addInputObjectPriviledge(AuthorizableType.Column, EnumSet.of(DBModelAction.SELECT, DBModelAction.INSERT)).
-        setOperationScope(HiveOperationScope.TABLE).
-        setOperationType(HiveOperationType.INFO).
-        build();
-
-    HiveAuthzBinding hiveBindingWithPrivilegeCache = getHiveBindingWithPrivilegeCache(hiveAuthzBinding, userName);
-
-    for (String tableName : queryResult) {
-      // if user has privileges on table, add to filtered list, else discard
-      Table table = new Table(tableName);
-      Database database;
-      database = new Database(dbName);
-
-      List<List<DBModelAuthorizable>> inputHierarchy = new ArrayList<List<DBModelAuthorizable>>();
-      List<List<DBModelAuthorizable>> outputHierarchy = new ArrayList<List<DBModelAuthorizable>>();
-      List<DBModelAuthorizable> externalAuthorizableHierarchy = new ArrayList<DBModelAuthorizable>();
-      externalAuthorizableHierarchy.add(hiveAuthzBinding.getAuthServer());
-      externalAuthorizableHierarchy.add(database);
-      externalAuthorizableHierarchy.add(table);
-      externalAuthorizableHierarchy.add(Column.ALL);
-      inputHierarchy.add(externalAuthorizableHierarchy);
+    return filterShowTables(HivePrivilegeSnapshot.get(hiveAuthzBinding, userName), queryResult,
+        operation, dbName);
+  }
 
-      try {
-        // do the authorization by new HiveAuthzBinding with PrivilegeCache
-        hiveBindingWithPrivilegeCache.authorize(operation, tableMetaDataPrivilege, subject,
-            inputHierarchy, outputHierarchy);
-        filteredResult.add(table.getName());
-      } catch (AuthorizationException e) {
-        // squash the exception, user doesn't have privileges, so the table is
-        // not added to
-        // filtered list.
-      }
-    }
-    return filteredResult;
+  /**
+   * Same as {@link #filterShowTables(HiveAuthzBinding, List, HiveOperation, String, String)},
+   * with the privileges of the user in the given snapshot.
+   */
+  public static List<String> filterShowTables(HivePrivilegeSnapshot snapshot,
+      List<String> queryResult, HiveOperation operation, String dbName) {
+    // if user has privileges on table, add to filtered list, else discard
+    return snapshot.filterTables(operation, tableMetaDataPrivilege, dbName, queryResult);
   }
 
   public static List<FieldSchema> filterShowColumns(
       HiveAuthzBinding hiveAuthzBinding, List<FieldSchema> cols,
       HiveOperation operation, String userName, String tableName, String dbName)
           throws SemanticException {
+    List<String> colNames = new ArrayList<String>(cols.size());
+    for (FieldSchema col : cols) {
+      colNames.add(col.getName());
+    }
+    // if user has privileges on column, add to filtered list, else discard
+    Set<String> filteredColNames = Sets.newHashSet(
+        HivePrivilegeSnapshot.get(hiveAuthzBinding, userName).filterColumns(operation,
+            columnMetaDataPrivilege, dbName, tableName, colNames));
     List<FieldSchema> filteredResult = new ArrayList<FieldSchema>();
-    Subject subject = new Subject(userName);
-    HiveAuthzBinding hiveBindingWithPrivilegeCache = getHiveBindingWithPrivilegeCache(hiveAuthzBinding, userName);
-
-    Database database = new Database(dbName);
-    Table table = new Table(tableName);
     for (FieldSchema col : cols) {
-      // if user has privileges on column, add to filtered list, else discard
-      List<List<DBModelAuthorizable>> inputHierarchy = new ArrayList<List<DBModelAuthorizable>>();
-      List<List<DBModelAuthorizable>> outputHierarchy = new ArrayList<List<DBModelAuthorizable>>();
-      List<DBModelAuthorizable> externalAuthorizableHierarchy = new ArrayList<DBModelAuthorizable>();
-      externalAuthorizableHierarchy.add(hiveAuthzBinding.getAuthServer());
-      externalAuthorizableHierarchy.add(database);
-      externalAuthorizableHierarchy.add(table);
-      externalAuthorizableHierarchy.add(new Column(col.getName()));
-      inputHierarchy.add(externalAuthorizableHierarchy);
-
-      try {
-        // do the authorization by new HiveAuthzBinding with PrivilegeCache
-        hiveBindingWithPrivilegeCache.authorize(operation, columnMetaDataPrivilege, subject,
-            inputHierarchy, outputHierarchy);
+      if (filteredColNames.contains(col.getName())) {
         filteredResult.add(col);
-      } catch (AuthorizationException e) {
-        // squash the exception, user doesn't have privileges, so the column is
-        // not added to
-        // filtered list.
       }
     }
     return filteredResult;
@@ -655,10 +621,6 @@ public abstract class HiveAuthzBindingHookBase extends AbstractSemanticAnalyzerH
   public static List<String> filterShowDatabases(
       HiveAuthzBinding hiveAuthzBinding, List<String> queryResult,
       HiveOperation operation, String userName) throws SemanticException {
-    List<String> filteredResult = new ArrayList<String>();
-    Subject subject = new Subject(userName);
-    HiveAuthzBinding hiveBindingWithPrivilegeCache = getHiveBindingWithPrivilegeCache(hiveAuthzBinding, userName);
-
     HiveAuthzPrivileges anyPrivilege = new HiveAuthzPrivileges.AuthzPrivilegeBuilder().
         addInputObjectPriviledge(AuthorizableType.Column, EnumSet.of(DBModelAction.SELECT, DBModelAction.INSERT)).
         addInputObjectPriviledge(AuthorizableType.URI, EnumSet.of(DBModelAction.SELECT)).
@@ -666,42 +628,30 @@ public abstract class HiveAuthzBindingHookBase extends AbstractSemanticAnalyzerH
         setOperationType(HiveOperationType.QUERY).
         build();
 
-    for (String dbName:queryResult) {
-      // if user has privileges on database, add to filtered list, else discard
-      Database database = null;
-
-      // if default is not restricted, continue
-      if (DEFAULT_DATABASE_NAME.equalsIgnoreCase(dbName) && "false".equalsIgnoreCase(
+    // if default is not restricted, it is not checked
+    boolean restrictDefaultDb = !"false".equalsIgnoreCase(
         hiveAuthzBinding.getAuthzConf().get(
-              HiveAuthzConf.AuthzConfVars.AUTHZ_RESTRICT_DEFAULT_DB.getVar(),
-              "false"))) {
-        filteredResult.add(DEFAULT_DATABASE_NAME);
-        continue;
+            HiveAuthzConf.AuthzConfVars.AUTHZ_RESTRICT_DEFAULT_DB.getVar(),
+            "false"));
+    List<String> dbNames = new ArrayList<String>(queryResult.size());
+    for (String dbName : queryResult) {
+      if (restrictDefaultDb || !DEFAULT_DATABASE_NAME.equalsIgnoreCase(dbName)) {
+        dbNames.add(dbName);
       }
+    }
 
-      database = new Database(dbName);
-
-      List<List<DBModelAuthorizable>> inputHierarchy = new ArrayList<List<DBModelAuthorizable>>();
-      List<List<DBModelAuthorizable>> outputHierarchy = new ArrayList<List<DBModelAuthorizable>>();
-      List<DBModelAuthorizable> externalAuthorizableHierarchy = new ArrayList<DBModelAuthorizable>();
-      externalAuthorizableHierarchy.add(hiveAuthzBinding.getAuthServer());
-      externalAuthorizableHierarchy.add(database);
-      externalAuthorizableHierarchy.add(Table.ALL);
-      externalAuthorizableHierarchy.add(Column.ALL);
-      inputHierarchy.add(externalAuthorizableHierarchy);
-
-      try {
-        // do the authorization by new HiveAuthzBinding with PrivilegeCache
-        hiveBindingWithPrivilegeCache.authorize(operation, anyPrivilege, subject,
-            inputHierarchy, outputHierarchy);
-        filteredResult.add(database.getName());
-      } catch (AuthorizationException e) {
-        // squash the exception, user doesn't have privileges, so the table is
-        // not added to
-        // filtered list.
+    // if user has privileges on database, add to filtered list, else discard
+    Set<String> filteredDbNames = Sets.newHashSet(
+        HivePrivilegeSnapshot.get(hiveAuthzBinding, userName).filterDatabases(operation,
+            anyPrivilege, dbNames));
+    List<String> filteredResult = new ArrayList<String>();
+    for (String dbName : queryResult) {
+      if (!restrictDefaultDb && DEFAULT_DATABASE_NAME.equalsIgnoreCase(dbName)) {
+        filteredResult.add(DEFAULT_DATABASE_NAME);
+      } else if (filteredDbNames.contains(dbName)) {
+        filteredResult.add(dbName);
       }
     }
-
     return filteredResult;
   }
 
@@ -768,23 +718,7 @@ public abstract class HiveAuthzBindingHookBase extends AbstractSemanticAnalyzerH
   // create hiveBinding with PrivilegeCache
   private static HiveAuthzBinding getHiveBindingWithPrivilegeCache(HiveAuthzBinding hiveAuthzBinding,
       String userName) throws SemanticException {
-    // get the original HiveAuthzBinding, and get the user's privileges by AuthorizationProvider
-    AuthorizationProvider authProvider = hiveAuthzBinding.getCurrentAuthProvider();
-    Set<String> userPrivileges =
-        authProvider.getPolicyEngine().getPrivileges(
-            authProvider.getGroupMapping().getGroups(userName), Sets.newHashSet(userName),
-            hiveAuthzBinding.getActiveRoleSet(), hiveAuthzBinding.getAuthServer());
-
-    // create PrivilegeCache using user's privileges
-    PrivilegeCache privilegeCache = new SimplePrivilegeCache(userPrivileges);
-    try {
-      // create new instance of HiveAuthzBinding whose backend provider should be SimpleCacheProviderBackend
-      return new HiveAuthzBinding(HiveAuthzBinding.HiveHook.HiveServer2, hiveAuthzBinding.getHiveConf(),
-              hiveAuthzBinding.getAuthzConf(), privilegeCache);
-    } catch (Exception e) {
-      LOG.error("Can not create HiveAuthzBinding with privilege cache.");
-      throw new SemanticException(e);
-    }
+    return HivePrivilegeSnapshot.create(hiveAuthzBinding, userName).getBinding();
   }
 
   private static boolean hasPrefixMatch(List<String> prefixList, final String str) {
@@ -17,6 +17,8 @@
 package org.apache.sentry.binding.hive.authz;
 
 import java.lang.reflect.Constructor;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.EnumSet;
 import java.util.HashSet;
 import java.util.List;
@@ -88,8 +90,7 @@ public class HiveAuthzBinding {
     this.authServer = new Server(authzConf.get(AuthzConfVars.AUTHZ_SERVER_NAME.getVar()));
     this.authProvider = getAuthProvider(hiveConf, authzConf, authServer.getName());
     this.open = true;
-    this.activeRoleSet = parseActiveRoleSet(hiveConf.get(HiveAuthzConf.SENTRY_ACTIVE_ROLE_SET,
-        authzConf.get(HiveAuthzConf.SENTRY_ACTIVE_ROLE_SET, "")).trim());
+    this.activeRoleSet = parseActiveRoleSet(hiveConf, authzConf);
   }
 
   public HiveAuthzBinding (HiveHook hiveHook, HiveConf hiveConf, HiveAuthzConf authzConf,
@@ -100,8 +101,16 @@ public class HiveAuthzBinding {
     this.authServer = new Server(authzConf.get(AuthzConfVars.AUTHZ_SERVER_NAME.getVar()));
     this.authProvider = getAuthProviderWithPrivilegeCache(authzConf, authServer.getName(), privilegeCache);
     this.open = true;
-    this.activeRoleSet = parseActiveRoleSet(hiveConf.get(HiveAuthzConf.SENTRY_ACTIVE_ROLE_SET,
-            authzConf.get(HiveAuthzConf.SENTRY_ACTIVE_ROLE_SET, "")).trim());
+    this.activeRoleSet = parseActiveRoleSet(hiveConf, authzConf);
+  }
+
+  /**
+   * Returns the active role set of a session, as set in its configuration.
+   */
+  public static ActiveRoleSet parseActiveRoleSet(HiveConf hiveConf, HiveAuthzConf authzConf)
+      throws SentryUserException {
+    return parseActiveRoleSet(hiveConf.get(HiveAuthzConf.SENTRY_ACTIVE_ROLE_SET,
+        authzConf.get(HiveAuthzConf.SENTRY_ACTIVE_ROLE_SET, "")).trim());
   }
 
   private static ActiveRoleSet parseActiveRoleSet(String name)
@@ -301,6 +310,89 @@ public class HiveAuthzBinding {
       Subject subject, List<List<DBModelAuthorizable>> inputHierarchyList,
       List<List<DBModelAuthorizable>> outputHierarchyList)
           throws AuthorizationException {
+    authorize(hiveOp, stmtAuthPrivileges, subject, activeRoleSet, inputHierarchyList,
+        outputHierarchyList);
+  }
+
+  /**
+   * Same as {@link #authorize(HiveOperation, HiveAuthzPrivileges, Subject, List, List)},
+   * with the given active roles rather than the ones of the binding. It lets
+   * the sessions share a binding.
+   */
+  public void authorize(HiveOperation hiveOp, HiveAuthzPrivileges stmtAuthPrivileges,
+      Subject subject, ActiveRoleSet roleSet, List<List<DBModelAuthorizable>> inputHierarchyList,
+      List<List<DBModelAuthorizable>> outputHierarchyList)
+          throws AuthorizationException {
+    String error = checkPrivileges(hiveOp, stmtAuthPrivileges, subject, roleSet,
+        inputHierarchyList, outputHierarchyList);
+    if (error != null) {
+      throw new AuthorizationException(error);
+    }
+  }
+
+  /**
+   * Returns, for each of the input hierarchies, whether {@link #authorize}
+   * would grant the operation with that hierarchy as its only input and no
+   * output. The privileges are checked for all the hierarchies at once and
+   * nothing is thrown for the denied ones, which makes it suited to filtering
+   * metadata.
+   */
+  public boolean[] filterAuthorized(HiveOperation hiveOp, HiveAuthzPrivileges stmtAuthPrivileges,
+      Subject subject, List<List<DBModelAuthorizable>> inputHierarchyList) {
+    return filterAuthorized(hiveOp, stmtAuthPrivileges, subject, activeRoleSet,
+        inputHierarchyList);
+  }
+
+  /**
+   * Same as {@link #filterAuthorized(HiveOperation, HiveAuthzPrivileges, Subject, List)},
+   * with the given active roles rather than the ones of the binding.
+   */
+  public boolean[] filterAuthorized(HiveOperation hiveOp, HiveAuthzPrivileges stmtAuthPrivileges,
+      Subject subject, ActiveRoleSet roleSet, List<List<DBModelAuthorizable>> inputHierarchyList) {
+    if (!open) {
+      throw new IllegalStateException("Binding has been closed");
+    }
+    boolean[] granted = new boolean[inputHierarchyList.size()];
+    // without output, only optional output privileges can be granted
+    for (AuthorizableType key : stmtAuthPrivileges.getOutputPrivileges().keySet()) {
+      if (!key.equals(AuthorizableType.URI) && !hiveOp.equals(HiveOperation.QUERY)) {
+        return granted;
+      }
+    }
+    Arrays.fill(granted, true);
+    for (Map.Entry<AuthorizableType, EnumSet<DBModelAction>> entry :
+        stmtAuthPrivileges.getInputPrivileges().entrySet()) {
+      AuthorizableType key = entry.getKey();
+      boolean optional = key.equals(AuthorizableType.URI) || hiveOp.equals(HiveOperation.QUERY)
+          || hiveOp.equals(HiveOperation.CREATETABLE_AS_SELECT);
+      List<Integer> indexes = new ArrayList<Integer>();
+      List<List<DBModelAuthorizable>> inputHierarchies = new ArrayList<List<DBModelAuthorizable>>();
+      for (int i = 0; i < granted.length; i++) {
+        if (!granted[i]) {
+          continue;
+        }
+        if (getAuthzType(inputHierarchyList.get(i)).equals(key)) {
+          indexes.add(i);
+          inputHierarchies.add(inputHierarchyList.get(i));
+        } else if (!optional) {
+          granted[i] = false;
+        }
+      }
+      if (!inputHierarchies.isEmpty()) {
+        boolean[] results = authProvider.hasAccessBatch(subject, inputHierarchies,
+            entry.getValue(), roleSet);
+        for (int j = 0; j < results.length; j++) {
+          granted[indexes.get(j)] &= results[j];
+        }
+      }
+    }
+    return granted;
+  }
+
+  // Returns the reason the privileges are not granted, or null if they are
+  private String checkPrivileges(HiveOperation hiveOp, HiveAuthzPrivileges stmtAuthPrivileges,
+      Subject subject, ActiveRoleSet roleSet, List<List<DBModelAuthorizable>> inputHierarchyList,
+      List<List<DBModelAuthorizable>> outputHierarchyList) {
     if (!open) {
       throw new IllegalStateException("Binding has been closed");
     }
@@ -332,19 +424,15 @@ public class HiveAuthzBinding {
       LOG.debug("outputHierarchyList = " + outputHierarchyList);
     }
 
-    boolean found = false;
     for (Map.Entry<AuthorizableType, EnumSet<DBModelAction>> entry : requiredInputPrivileges.entrySet()) {
       AuthorizableType key = entry.getKey();
-      for (List<DBModelAuthorizable> inputHierarchy : inputHierarchyList) {
-        if (getAuthzType(inputHierarchy).equals(key)) {
-          found = true;
-          if (!authProvider.hasAccess(subject, inputHierarchy, entry.getValue(), activeRoleSet)) {
-            throw new AuthorizationException("User " + subject.getName() +
-                " does not have privileges for " + hiveOp.name());
-          }
+      List<List<DBModelAuthorizable>> inputHierarchies = getHierarchies(inputHierarchyList, key);
+      if (!inputHierarchies.isEmpty()) {
+        if (!hasAccess(subject, roleSet, inputHierarchies, entry.getValue())) {
+          return "User " + subject.getName() +
+              " does not have privileges for " + hiveOp.name();
         }
-      }
-      if (!found && !key.equals(AuthorizableType.URI) && !(hiveOp.equals(HiveOperation.QUERY))
+      } else if (!key.equals(AuthorizableType.URI) && !(hiveOp.equals(HiveOperation.QUERY))
           && !(hiveOp.equals(HiveOperation.CREATETABLE_AS_SELECT))) {
         //URI privileges are optional for some privileges: anyPrivilege, tableDDLAndOptionalUriPrivilege
         //Query can mean select/insert/analyze where all of them have different required privileges.
@@ -352,33 +440,28 @@ public class HiveAuthzBinding {
         //For these alone we skip if there is no equivalent input privilege
         //TODO: Even this case should be handled to make sure we do not skip the privilege check if we did not build
         //the input privileges correctly
-        throw new AuthorizationException("Required privilege( " + key.name() + ") not available in input privileges");
+        return "Required privilege( " + key.name() + ") not available in input privileges";
       }
-      found = false;
     }
 
     for (Map.Entry<AuthorizableType, EnumSet<DBModelAction>> entry : requiredOutputPrivileges.entrySet()) {
       AuthorizableType key = entry.getKey();
-      for (List<DBModelAuthorizable> outputHierarchy : outputHierarchyList) {
-        if (getAuthzType(outputHierarchy).equals(key)) {
-          found = true;
-          if (!authProvider.hasAccess(subject, outputHierarchy, entry.getValue(), activeRoleSet)) {
-            throw new AuthorizationException("User " + subject.getName() +
-                " does not have privileges for " + hiveOp.name());
-          }
+      List<List<DBModelAuthorizable>> outputHierarchies = getHierarchies(outputHierarchyList, key);
+      if (!outputHierarchies.isEmpty()) {
+        if (!hasAccess(subject, roleSet, outputHierarchies, entry.getValue())) {
+          return "User " + subject.getName() +
+              " does not have privileges for " + hiveOp.name();
         }
-      }
-      if(!found && !(key.equals(AuthorizableType.URI)) &&  !(hiveOp.equals(HiveOperation.QUERY))) {
+      } else if (!(key.equals(AuthorizableType.URI)) &&  !(hiveOp.equals(HiveOperation.QUERY))) {
         //URI privileges are optional for some privileges: tableInsertPrivilege
         //Query can mean select/insert/analyze where all of them have different required privileges.
         //For these alone we skip if there is no equivalent output privilege
         //TODO: Even this case should be handled to make sure we do not skip the privilege check if we did not build
         //the output privileges correctly
-        throw new AuthorizationException("Required privilege( " + key.name() + ") not available in output privileges");
+        return "Required privilege( " + key.name() + ") not available in output privileges";
       }
-      found = false;
     }
-
+    return null;
   }
 
   public void setActiveRoleSet(String activeRoleSet,
@@ -410,6 +493,28 @@ public class HiveAuthzBinding {
     return hiveConf;
   }
 
+  private List<List<DBModelAuthorizable>> getHierarchies(
+      List<List<DBModelAuthorizable>> hierarchyList, AuthorizableType type) {
+    List<List<DBModelAuthorizable>> hierarchies = new ArrayList<List<DBModelAuthorizable>>();
+    for (List<DBModelAuthorizable> hierarchy : hierarchyList) {
+      if (getAuthzType(hierarchy).equals(type)) {
+        hierarchies.add(hierarchy);
+      }
+    }
+    return hierarchies;
+  }
+
+  // Checks all the hierarchies with a single resolution of the privileges
+  private boolean hasAccess(Subject subject, ActiveRoleSet roleSet,
+      List<List<DBModelAuthorizable>> hierarchies, EnumSet<DBModelAction> actions) {
+    for (boolean granted : authProvider.hasAccessBatch(subject, hierarchies, actions, roleSet)) {
+      if (!granted) {
+        return false;
+      }
+    }
+    return true;
+  }
+
   private AuthorizableType getAuthzType (List<DBModelAuthorizable> hierarchy){
     return hierarchy.get(hierarchy.size() -1).getAuthzType();
   }
@@ -0,0 +1,204 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.sentry.binding.hive.authz;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+
+import org.apache.hadoop.hive.ql.parse.SemanticException;
+import org.apache.hadoop.hive.ql.plan.HiveOperation;
+import org.apache.sentry.binding.hive.conf.HiveAuthzConf.AuthzConfVars;
+import org.apache.sentry.core.common.ActiveRoleSet;
+import org.apache.sentry.core.common.Subject;
+import org.apache.sentry.core.model.db.Column;
+import org.apache.sentry.core.model.db.DBModelAuthorizable;
+import org.apache.sentry.core.model.db.Database;
+import org.apache.sentry.core.model.db.Table;
+import org.apache.sentry.provider.cache.PrivilegeCache;
+import org.apache.sentry.provider.cache.SimplePrivilegeCache;
+import org.apache.sentry.provider.common.AuthorizationProvider;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.collect.Sets;
+
+/**
+ * The privileges of a user on the server, fetched from the provider once and
+ * then checked locally by a {@link HiveAuthzBinding} backed by a
+ * {@link SimplePrivilegeCache}. It is used to filter the results of the
+ * metadata commands, like SHOW TABLES, which check many objects at once.
+ *
+ * The snapshots are shared by the sessions of a user with the same active
+ * roles for {@link AuthzConfVars#AUTHZ_PRIVILEGE_SNAPSHOT_TTL_MS}, so the
+ * filtering sees grants and revokes after at most that long. With a TTL of 0
+ * the privileges are fetched for every command. Thread safe.
+ */
+public class HivePrivilegeSnapshot {
+  private static final Logger LOG = LoggerFactory
+      .getLogger(HivePrivilegeSnapshot.class);
+  private static final int MAX_CACHED_SNAPSHOTS = 1000;
+
+  // (server, user, all roles, active roles) -> snapshot
+  private static final Cache<List<Object>, HivePrivilegeSnapshot> snapshots =
+      CacheBuilder.newBuilder().maximumSize(MAX_CACHED_SNAPSHOTS).build();
+
+  private final HiveAuthzBinding binding;
+  private final Subject subject;
+  private final long createTimeMs;
+
+  private HivePrivilegeSnapshot(HiveAuthzBinding binding, Subject subject) {
+    this.binding = binding;
+    this.subject = subject;
+    this.createTimeMs = System.currentTimeMillis();
+  }
+
+  /**
+   * Returns the snapshot of the privileges of the user with the active roles
+   * of the binding, taking a new one if the cached one is older than the TTL.
+   */
+  public static HivePrivilegeSnapshot get(HiveAuthzBinding hiveAuthzBinding,
+      String userName) throws SemanticException {
+    long ttlMs = getTtlMs(hiveAuthzBinding);
+    if (ttlMs <= 0) {
+      return create(hiveAuthzBinding, userName);
+    }
+    ActiveRoleSet roleSet = hiveAuthzBinding.getActiveRoleSet();
+    List<Object> key = Arrays.<Object>asList(hiveAuthzBinding.getAuthServer().getName(),
+        userName, roleSet.isAll(), roleSet.getRoles());
+    HivePrivilegeSnapshot snapshot = snapshots.getIfPresent(key);
+    if (snapshot == null || System.currentTimeMillis() - snapshot.createTimeMs >= ttlMs) {
+      snapshot = create(hiveAuthzBinding, userName);
+      snapshots.put(key, snapshot);
+    }
+    return snapshot;
+  }
+
+  /**
+   * Returns how long the snapshots taken for the binding are shared, they are
+   * not shared if this is not positive.
+   */
+  public static long getTtlMs(HiveAuthzBinding hiveAuthzBinding) {
+    return hiveAuthzBinding.getAuthzConf().getLong(
+        AuthzConfVars.AUTHZ_PRIVILEGE_SNAPSHOT_TTL_MS.getVar(),
+        Long.parseLong(AuthzConfVars.AUTHZ_PRIVILEGE_SNAPSHOT_TTL_MS.getDefault()));
+  }
+
+  /**
+   * Takes a new snapshot of the privileges of the user with the active roles
+   * of the binding, it is not cached.
+   */
+  public static HivePrivilegeSnapshot create(HiveAuthzBinding hiveAuthzBinding,
+      String userName) throws SemanticException {
+    // get the original HiveAuthzBinding, and get the user's privileges by AuthorizationProvider
+    AuthorizationProvider authProvider = hiveAuthzBinding.getCurrentAuthProvider();
+    Set<String> userPrivileges =
+        authProvider.getPolicyEngine().getPrivileges(
+            authProvider.getGroupMapping().getGroups(userName), Sets.newHashSet(userName),
+            hiveAuthzBinding.getActiveRoleSet(), hiveAuthzBinding.getAuthServer());
+
+    // create PrivilegeCache using user's privileges
+    PrivilegeCache privilegeCache = new SimplePrivilegeCache(userPrivileges);
+    try {
+      // create new instance of HiveAuthzBinding whose backend provider should be SimpleCacheProviderBackend
+      return new HivePrivilegeSnapshot(new HiveAuthzBinding(HiveAuthzBinding.HiveHook.HiveServer2,
+          hiveAuthzBinding.getHiveConf(), hiveAuthzBinding.getAuthzConf(), privilegeCache),
+          new Subject(userName));
+    } catch (Exception e) {
+      LOG.error("Can not create HiveAuthzBinding with privilege cache.");
+      throw new SemanticException(e);
+    }
+  }
+
+  /**
+   * @return the binding checking the privileges of the snapshot
+   */
+  public HiveAuthzBinding getBinding() {
+    return binding;
+  }
+
+  /**
+   * Returns whether the user is granted the privileges of the operation on
+   * each of the hierarchies, each of them taken as the only input of the
+   * operation. The hierarchies are checked in one pass.
+   */
+  public boolean[] filter(HiveOperation operation, HiveAuthzPrivileges privileges,
+      List<List<DBModelAuthorizable>> inputHierarchies) {
+    return binding.filterAuthorized(operation, privileges, subject, inputHierarchies);
+  }
+
+  /**
+   * Returns the databases on which the user is granted the privileges of the
+   * operation, for all their tables and columns.
+   */
+  public List<String> filterDatabases(HiveOperation operation, HiveAuthzPrivileges privileges,
+      List<String> dbNames) {
+    List<List<DBModelAuthorizable>> hierarchies =
+        new ArrayList<List<DBModelAuthorizable>>(dbNames.size());
+    for (String dbName : dbNames) {
+      hierarchies.add(Arrays.<DBModelAuthorizable>asList(binding.getAuthServer(),
+          new Database(dbName), Table.ALL, Column.ALL));
+    }
+    return select(dbNames, filter(operation, privileges, hierarchies));
+  }
+
+  /**
+   * Returns the tables of the database on which the user is granted the
+   * privileges of the operation, for all their columns.
+   */
+  public List<String> filterTables(HiveOperation operation, HiveAuthzPrivileges privileges,
+      String dbName, List<String> tableNames) {
+    Database database = new Database(dbName);
+    List<List<DBModelAuthorizable>> hierarchies =
+        new ArrayList<List<DBModelAuthorizable>>(tableNames.size());
+    for (String tableName : tableNames) {
+      hierarchies.add(Arrays.<DBModelAuthorizable>asList(binding.getAuthServer(),
+          database, new Table(tableName), Column.ALL));
+    }
+    return select(tableNames, filter(operation, privileges, hierarchies));
+  }
+
+  /**
+   * Returns the columns of the table on which the user is granted the
+   * privileges of the operation.
+   */
+  public List<String> filterColumns(HiveOperation operation, HiveAuthzPrivileges privileges,
+      String dbName, String tableName, List<String> columnNames) {
+    Database database = new Database(dbName);
+    Table table = new Table(tableName);
+    List<List<DBModelAuthorizable>> hierarchies =
+        new ArrayList<List<DBModelAuthorizable>>(columnNames.size());
+    for (String columnName : columnNames) {
+      hierarchies.add(Arrays.<DBModelAuthorizable>asList(binding.getAuthServer(),
+          database, table, new Column(columnName)));
+    }
+    return select(columnNames, filter(operation, privileges, hierarchies));
+  }
+
+  private static List<String> select(List<String> names, boolean[] granted) {
+    List<String> selected = new ArrayList<String>();
+    for (int i = 0; i < granted.length; i++) {
+      if (granted[i]) {
+        selected.add(names.get(i));
+      }
+    }
+    return selected;
+  }
+}
@@ -105,6 +105,7 @@ public class HiveAuthzConf extends Configuration {
     AUTHZ_SYNC_ALTER_WITH_POLICY_STORE("sentry.hive.sync.alter", "true"),
     AUTHZ_SYNC_CREATE_WITH_POLICY_STORE("sentry.hive.sync.create", "false"),
     AUTHZ_SYNC_DROP_WITH_POLICY_STORE("sentry.hive.sync.drop", "true"),
+    AUTHZ_PRIVILEGE_SNAPSHOT_TTL_MS("sentry.hive.privilege.snapshot.ttl.ms", "5000"),
 
     AUTHZ_PROVIDER_DEPRECATED("hive.sentry.provider",
       "org.apache.sentry.provider.file.ResourceAuthorizationProvider"),
@@ -0,0 +1,180 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.sentry.binding.metastore;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.hadoop.hive.ql.parse.SemanticException;
+import org.apache.hadoop.hive.ql.plan.HiveOperation;
+import org.apache.sentry.binding.hive.HiveAuthzBindingHookBase;
+import org.apache.sentry.binding.hive.authz.HiveAuthzBinding;
+import org.apache.sentry.binding.hive.authz.HivePrivilegeSnapshot;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.Weigher;
+import com.google.common.collect.Sets;
+
+/**
+ * Whether users may access tables, as decided by the metastore object stores.
+ * The metastore clients, like the catalog loaders, check the same tables over
+ * and over, one call per table or partition request. The tables not decided
+ * yet are checked together, in one pass over the privileges of the user.
+ *
+ * The decisions are taken from the {@link HivePrivilegeSnapshot} of the user
+ * and are only used along with it, so they see grants and revokes as soon as
+ * SHOW TABLES does. They expire with the snapshot TTL of the first binding,
+ * the bindings of an object store are expected to share it, and their total
+ * size is bounded, whatever the number of users and tables.
+ * Thread safe.
+ */
+public class TableAccessCache {
+  private static final Logger LOGGER = LoggerFactory.getLogger(TableAccessCache.class);
+  // The approximate size of the cached decisions, in bytes
+  private static final long MAX_CACHED_WEIGHT = 64L * 1024 * 1024;
+  // The approximate size of a decision, without its names
+  private static final int DECISION_WEIGHT = 128;
+
+  private static final Weigher<List<String>, Decision> DECISION_WEIGHER =
+      new Weigher<List<String>, Decision>() {
+        @Override
+        public int weigh(List<String> key, Decision decision) {
+          int chars = 0;
+          for (String name : key) {
+            chars += name == null ? 0 : name.length();
+          }
+          return DECISION_WEIGHT + 2 * chars;
+        }
+      };
+
+  // (user, db, table) -> decision, built on first use
+  private volatile Cache<List<String>, Decision> decisions;
+  private volatile long decisionsTtlMs;
+  private volatile boolean ttlMismatchLogged;
+  // the number of tables decided from the privileges of the users
+  private final AtomicLong decidedTables = new AtomicLong();
+
+  private static class Decision {
+    private final HivePrivilegeSnapshot snapshot;
+    private final boolean granted;
+
+    Decision(HivePrivilegeSnapshot snapshot, boolean granted) {
+      this.snapshot = snapshot;
+      this.granted = granted;
+    }
+  }
+
+  /**
+   * Returns the tables of the database the user may access, in their order,
+   * like {@link HiveAuthzBindingHookBase#filterShowTables} does.
+   */
+  public List<String> filterTables(HiveAuthzBinding hiveAuthzBinding, String userName,
+      String dbName, List<String> tableNames) throws SemanticException {
+    HivePrivilegeSnapshot snapshot = HivePrivilegeSnapshot.get(hiveAuthzBinding, userName);
+    Cache<List<String>, Decision> cache = getDecisions(hiveAuthzBinding);
+
+    Map<String, Boolean> granted = new HashMap<String, Boolean>();
+    List<String> undecided = new ArrayList<String>();
+    for (String tableName : tableNames) {
+      Decision decision = (cache == null) ? null
+          : cache.getIfPresent(Arrays.asList(userName, dbName, tableName));
+      if (decision != null && decision.snapshot == snapshot) {
+        granted.put(tableName, decision.granted);
+      } else {
+        undecided.add(tableName);
+      }
+    }
+    if (!undecided.isEmpty()) {
+      decidedTables.addAndGet(undecided.size());
+      Set<String> filtered = Sets.newHashSet(HiveAuthzBindingHookBase.filterShowTables(
+          snapshot, undecided, HiveOperation.SHOWTABLES, dbName));
+      for (String tableName : undecided) {
+        boolean isGranted = filtered.contains(tableName);
+        granted.put(tableName, isGranted);
+        if (cache != null) {
+          cache.put(Arrays.asList(userName, dbName, tableName),
+              new Decision(snapshot, isGranted));
+        }
+      }
+    }
+
+    List<String> filteredResult = new ArrayList<String>();
+    for (String tableName : tableNames) {
+      if (Boolean.TRUE.equals(granted.get(tableName))) {
+        filteredResult.add(tableName);
+      }
+    }
+    return filteredResult;
+  }
+
+  /**
+   * Returns the number of tables which were not found in the cache, and were
+   * decided from the privileges of the user.
+   */
+  @VisibleForTesting
+  public long getDecidedTables() {
+    return decidedTables.get();
+  }
+
+  /**
+   * Returns the cached decisions, or null if the snapshots of the binding are
+   * not shared, in which case a decision is never used again. The decisions
+   * keep the TTL of the first binding. As they are only used along with the
+   * snapshot they were taken from, a different TTL only changes how long they
+   * are kept, which is logged once.
+   */
+  private Cache<List<String>, Decision> getDecisions(HiveAuthzBinding hiveAuthzBinding) {
+    long ttlMs = HivePrivilegeSnapshot.getTtlMs(hiveAuthzBinding);
+    if (ttlMs <= 0) {
+      return null;
+    }
+    Cache<List<String>, Decision> cache = decisions;
+    if (cache == null) {
+      synchronized (this) {
+        cache = decisions;
+        if (cache == null) {
+          cache = CacheBuilder.newBuilder()
+              .maximumWeight(MAX_CACHED_WEIGHT)
+              .weigher(DECISION_WEIGHER)
+              .expireAfterWrite(ttlMs, TimeUnit.MILLISECONDS)
+              .build();
+          decisionsTtlMs = ttlMs;
+          decisions = cache;
+        }
+      }
+    }
+    if (ttlMs != decisionsTtlMs && !ttlMismatchLogged) {
+      ttlMismatchLogged = true;
+      LOGGER.warn("Table access decisions are kept for " + decisionsTtlMs
+          + " ms, while the privilege snapshots of a binding expire after "
+          + ttlMs + " ms");
+    }
+    return cache;
+  }
+}
@@ -18,9 +18,12 @@ import static org.apache.hadoop.hive.metastore.MetaStoreUtils.DEFAULT_DATABASE_N
 
 import java.security.CodeSource;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.EnumSet;
 import java.util.List;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 import org.apache.hadoop.hive.conf.HiveConf;
 import org.apache.hadoop.hive.ql.metadata.AuthorizationException;
@@ -43,6 +46,7 @@ import org.apache.sentry.binding.hive.conf.HiveAuthzConf;
 import org.apache.sentry.binding.hive.v2.HiveAuthzPrivilegesMapV2;
 import org.apache.sentry.binding.hive.v2.util.SentryAuthorizerUtil;
 import org.apache.sentry.binding.hive.v2.util.SimpleSemanticAnalyzer;
+import org.apache.sentry.core.common.ActiveRoleSet;
 import org.apache.sentry.core.common.Subject;
 import org.apache.sentry.core.model.db.AccessURI;
 import org.apache.sentry.core.model.db.Column;
@@ -51,6 +55,7 @@ import org.apache.sentry.core.model.db.DBModelAuthorizable;
 import org.apache.sentry.core.model.db.DBModelAuthorizable.AuthorizableType;
 import org.apache.sentry.core.model.db.Database;
 import org.apache.sentry.core.model.db.Table;
+import org.apache.sentry.provider.db.SimpleDBProviderBackend;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -60,6 +65,9 @@ import com.google.common.collect.Sets;
 
 /**
  * This class used to do authorization. Check if current user has privileges to do the operation.
+ * With the Sentry service as the provider backend, the validators of the sessions share one
+ * {@link HiveAuthzBinding} per HiveServer2, only the user and the active roles of the session are
+ * passed on each check.
  */
 public class DefaultSentryValidator extends SentryHiveAuthorizationValidator {
 
@@ -92,9 +100,17 @@ public class DefaultSentryValidator extends SentryHiveAuthorizationValidator {
     this.conf = conf;
     this.authzConf = authzConf;
     this.authenticator = authenticator;
+    // the other backends, like the policy file, load the privileges when the binding is built
+    this.shareBinding = SimpleDBProviderBackend.class.getName().equals(
+        authzConf.get(HiveAuthzConf.AuthzConfVars.AUTHZ_PROVIDER_BACKEND.getVar()));
   }
 
   private HiveHook hiveHook;
+  private boolean shareBinding;
+
+  // (hook, server, provider, resource, backend, policy engine) -> binding shared by the sessions
+  private static final ConcurrentMap<List<Object>, HiveAuthzBinding> sharedBindings =
+      new ConcurrentHashMap<List<Object>, HiveAuthzBinding>();
 
   // all operations need to extend at DB scope
   private static final Set<HiveOperation> EX_DB_ALL = Sets.newHashSet(HiveOperation.DROPDATABASE,
@@ -165,6 +181,7 @@ public class DefaultSentryValidator extends SentryHiveAuthorizationValidator {
     HiveAuthzBinding hiveAuthzBinding = null;
     try {
       hiveAuthzBinding = getAuthzBinding();
+      ActiveRoleSet activeRoleSet = HiveAuthzBinding.parseActiveRoleSet(conf, authzConf);
       if (stmtAuthPrivileges == null) {
         // We don't handle authorizing this statement
         return;
@@ -182,7 +199,8 @@ public class DefaultSentryValidator extends SentryHiveAuthorizationValidator {
           context.getCommandString(), hiveAuthzBinding);
 
       hiveAuthzBinding.authorize(hiveOp, stmtAuthPrivileges,
-          new Subject(authenticator.getUserName()), inputHierarchyList, outputHierarchyList);
+          new Subject(authenticator.getUserName()), activeRoleSet, inputHierarchyList,
+          outputHierarchyList);
     } catch (AuthorizationException e) {
       Database db = null;
       Table tab = null;
@@ -223,9 +241,7 @@ public class DefaultSentryValidator extends SentryHiveAuthorizationValidator {
     } catch (Exception e) {
       throw new HiveAuthzPluginException(e.getClass()+ ": " + e.getMessage(), e);
     } finally {
-      if (hiveAuthzBinding != null) {
-        hiveAuthzBinding.close();
-      }
+      releaseAuthzBinding(hiveAuthzBinding);
     }
 
     if ("true".equalsIgnoreCase(SessionState.get().getConf()
@@ -236,9 +252,41 @@ public class DefaultSentryValidator extends SentryHiveAuthorizationValidator {
     }
   }
 
+  /**
+   * Returns the binding shared by the sessions with the same authorization settings, creating
+   * it on first use, or a new binding if it cannot be shared. The shared binding is kept open
+   * for the lifetime of the HiveServer2, so callers must not change its active roles, and
+   * release it with {@link #releaseAuthzBinding(HiveAuthzBinding)} rather than closing it.
+   */
   @VisibleForTesting
   public HiveAuthzBinding getAuthzBinding() throws Exception {
-    return new HiveAuthzBinding(hiveHook, conf, authzConf);
+    if (!shareBinding) {
+      return new HiveAuthzBinding(hiveHook, conf, authzConf);
+    }
+    List<Object> key = Arrays.<Object>asList(hiveHook,
+        authzConf.get(HiveAuthzConf.AuthzConfVars.AUTHZ_SERVER_NAME.getVar()),
+        authzConf.get(HiveAuthzConf.AuthzConfVars.AUTHZ_PROVIDER.getVar()),
+        authzConf.get(HiveAuthzConf.AuthzConfVars.AUTHZ_PROVIDER_RESOURCE.getVar()),
+        authzConf.get(HiveAuthzConf.AuthzConfVars.AUTHZ_PROVIDER_BACKEND.getVar()),
+        authzConf.get(HiveAuthzConf.AuthzConfVars.AUTHZ_POLICY_ENGINE.getVar()));
+    HiveAuthzBinding binding = sharedBindings.get(key);
+    if (binding == null) {
+      // copy the session conf, the sessions may change theirs afterwards
+      HiveAuthzBinding newBinding = new HiveAuthzBinding(hiveHook, new HiveConf(conf), authzConf);
+      binding = sharedBindings.putIfAbsent(key, newBinding);
+      if (binding == null) {
+        binding = newBinding;
+      } else {
+        newBinding.close();
+      }
+    }
+    return binding;
+  }
+
+  private void releaseAuthzBinding(HiveAuthzBinding hiveAuthzBinding) {
+    if (hiveAuthzBinding != null && !shareBinding) {
+      hiveAuthzBinding.close();
+    }
   }
 
   private void addExtendHierarchy(HiveOperation hiveOp, HiveAuthzPrivileges stmtAuthPrivileges,
@@ -363,27 +411,26 @@ public class DefaultSentryValidator extends SentryHiveAuthorizationValidator {
         switch (pType) {
           case DATABASE:
             hiveAuthzBinding = getAuthzBinding();
-            listObjs = filterShowDatabases(listObjs, authenticator.getUserName(), hiveAuthzBinding);
+            listObjs = filterShowDatabases(listObjs, authenticator.getUserName(),
+                hiveAuthzBinding, HiveAuthzBinding.parseActiveRoleSet(conf, authzConf));
             break;
           case TABLE_OR_VIEW:
             hiveAuthzBinding = getAuthzBinding();
-            listObjs = filterShowTables(listObjs, authenticator.getUserName(), hiveAuthzBinding);
+            listObjs = filterShowTables(listObjs, authenticator.getUserName(),
+                hiveAuthzBinding, HiveAuthzBinding.parseActiveRoleSet(conf, authzConf));
             break;
         }
       } catch (Exception e) {
         LOG.debug(e.getMessage(),e);
       } finally {
-        if (hiveAuthzBinding != null) {
-          hiveAuthzBinding.close();
-        }
+        releaseAuthzBinding(hiveAuthzBinding);
       }
     }
     return listObjs;
   }
 
   private List<HivePrivilegeObject> filterShowTables(List<HivePrivilegeObject> listObjs,
-      String userName, HiveAuthzBinding hiveAuthzBinding) {
-    List<HivePrivilegeObject> filteredResult = new ArrayList<HivePrivilegeObject>();
+      String userName, HiveAuthzBinding hiveAuthzBinding, ActiveRoleSet activeRoleSet) {
     Subject subject = new Subject(userName);
     HiveAuthzPrivileges tableMetaDataPrivilege =
         new HiveAuthzPrivileges.AuthzPrivilegeBuilder()
@@ -394,38 +441,31 @@ public class DefaultSentryValidator extends SentryHiveAuthorizationValidator {
                 org.apache.sentry.binding.hive.authz.HiveAuthzPrivileges.HiveOperationType.INFO)
             .build();
 
+    List<List<DBModelAuthorizable>> inputHierarchy = new ArrayList<List<DBModelAuthorizable>>();
     for (HivePrivilegeObject obj : listObjs) {
-      // if user has privileges on table, add to filtered list, else discard
-      Table table = new Table(obj.getObjectName());
-      Database database;
-      database = new Database(obj.getDbname());
-
-      List<List<DBModelAuthorizable>> inputHierarchy = new ArrayList<List<DBModelAuthorizable>>();
-      List<List<DBModelAuthorizable>> outputHierarchy = new ArrayList<List<DBModelAuthorizable>>();
       List<DBModelAuthorizable> externalAuthorizableHierarchy =
           new ArrayList<DBModelAuthorizable>();
       externalAuthorizableHierarchy.add(hiveAuthzBinding.getAuthServer());
-      externalAuthorizableHierarchy.add(database);
-      externalAuthorizableHierarchy.add(table);
+      externalAuthorizableHierarchy.add(new Database(obj.getDbname()));
+      externalAuthorizableHierarchy.add(new Table(obj.getObjectName()));
       externalAuthorizableHierarchy.add(Column.ALL);
       inputHierarchy.add(externalAuthorizableHierarchy);
+    }
 
-      try {
-        hiveAuthzBinding.authorize(HiveOperation.SHOWTABLES, tableMetaDataPrivilege, subject,
-            inputHierarchy, outputHierarchy);
-        filteredResult.add(obj);
-      } catch (AuthorizationException e) {
-        // squash the exception, user doesn't have privileges, so the table is
-        // not added to
-        // filtered list.
+    // if user has privileges on table, add to filtered list, else discard
+    boolean[] granted = hiveAuthzBinding.filterAuthorized(HiveOperation.SHOWTABLES,
+        tableMetaDataPrivilege, subject, activeRoleSet, inputHierarchy);
+    List<HivePrivilegeObject> filteredResult = new ArrayList<HivePrivilegeObject>();
+    for (int i = 0; i < granted.length; i++) {
+      if (granted[i]) {
+        filteredResult.add(listObjs.get(i));
       }
     }
     return filteredResult;
   }
 
   private List<HivePrivilegeObject> filterShowDatabases(List<HivePrivilegeObject> listObjs,
-      String userName, HiveAuthzBinding hiveAuthzBinding) {
-    List<HivePrivilegeObject> filteredResult = new ArrayList<HivePrivilegeObject>();
+      String userName, HiveAuthzBinding hiveAuthzBinding, ActiveRoleSet activeRoleSet) {
     Subject subject = new Subject(userName);
     HiveAuthzPrivileges anyPrivilege =
         new HiveAuthzPrivileges.AuthzPrivilegeBuilder()
@@ -439,38 +479,28 @@ public class DefaultSentryValidator extends SentryHiveAuthorizationValidator {
                 org.apache.sentry.binding.hive.authz.HiveAuthzPrivileges.HiveOperationType.QUERY)
             .build();
 
+    boolean restrictDefaultDb = !"false".equalsIgnoreCase(authzConf.get(
+        HiveAuthzConf.AuthzConfVars.AUTHZ_RESTRICT_DEFAULT_DB.getVar(), "false"));
+    List<List<DBModelAuthorizable>> inputHierarchy = new ArrayList<List<DBModelAuthorizable>>();
     for (HivePrivilegeObject obj : listObjs) {
-      // if user has privileges on database, add to filtered list, else discard
-      Database database = null;
-
-      // if default is not restricted, continue
-      if (DEFAULT_DATABASE_NAME.equalsIgnoreCase(obj.getObjectName())
-          && "false".equalsIgnoreCase(hiveAuthzBinding.getAuthzConf().get(
-              HiveAuthzConf.AuthzConfVars.AUTHZ_RESTRICT_DEFAULT_DB.getVar(), "false"))) {
-        filteredResult.add(obj);
-        continue;
-      }
-
-      database = new Database(obj.getObjectName());
-
-      List<List<DBModelAuthorizable>> inputHierarchy = new ArrayList<List<DBModelAuthorizable>>();
-      List<List<DBModelAuthorizable>> outputHierarchy = new ArrayList<List<DBModelAuthorizable>>();
       List<DBModelAuthorizable> externalAuthorizableHierarchy =
           new ArrayList<DBModelAuthorizable>();
       externalAuthorizableHierarchy.add(hiveAuthzBinding.getAuthServer());
-      externalAuthorizableHierarchy.add(database);
+      externalAuthorizableHierarchy.add(new Database(obj.getObjectName()));
       externalAuthorizableHierarchy.add(Table.ALL);
       externalAuthorizableHierarchy.add(Column.ALL);
       inputHierarchy.add(externalAuthorizableHierarchy);
+    }
 
-      try {
-        hiveAuthzBinding.authorize(HiveOperation.SHOWDATABASES, anyPrivilege, subject,
-            inputHierarchy, outputHierarchy);
-        filteredResult.add(obj);
-      } catch (AuthorizationException e) {
-        // squash the exception, user doesn't have privileges, so the table is
-        // not added to
-        // filtered list.
+    // if user has privileges on database, add to filtered list, else discard
+    boolean[] granted = hiveAuthzBinding.filterAuthorized(HiveOperation.SHOWDATABASES,
+        anyPrivilege, subject, activeRoleSet, inputHierarchy);
+    List<HivePrivilegeObject> filteredResult = new ArrayList<HivePrivilegeObject>();
+    for (int i = 0; i < granted.length; i++) {
+      // if default is not restricted, it is always listed
+      if (granted[i] || (!restrictDefaultDb
+          && DEFAULT_DATABASE_NAME.equalsIgnoreCase(listObjs.get(i).getObjectName()))) {
+        filteredResult.add(listObjs.get(i));
       }
     }
     return filteredResult;
@@ -44,6 +44,7 @@ import org.apache.sentry.binding.hive.HiveAuthzBindingHookBase;
 import org.apache.sentry.binding.hive.authz.HiveAuthzBinding;
 import org.apache.sentry.binding.hive.conf.HiveAuthzConf;
 import org.apache.sentry.binding.hive.conf.HiveAuthzConf.AuthzConfVars;
+import org.apache.sentry.binding.metastore.TableAccessCache;
 
 import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.Lists;
@@ -65,6 +66,7 @@ public class AuthorizingObjectStoreV2 extends ObjectStore {
   private static HiveConf hiveConf;
   private static HiveAuthzConf authzConf;
   private static HiveAuthzBinding hiveAuthzBinding;
+  private static final TableAccessCache tableAccessCache = new TableAccessCache();
   private static String NO_ACCESS_MESSAGE_TABLE = "Table does not exist or insufficient privileges to access: ";
   private static String NO_ACCESS_MESSAGE_DATABASE = "Database does not exist or insufficient privileges to access: ";
 
@@ -304,10 +306,11 @@ public class AuthorizingObjectStoreV2 extends ObjectStore {
    */
   protected List<String> filterTables(String dbName, List<String> tabList)
       throws MetaException {
-    if (needsAuthorization(getUserName())) {
+    String userName = getUserName();
+    if (needsAuthorization(userName)) {
       try {
-        return HiveAuthzBindingHookBase.filterShowTables(getHiveAuthzBinding(),
-            tabList, HiveOperation.SHOWTABLES, getUserName(), dbName);
+        return tableAccessCache.filterTables(getHiveAuthzBinding(), userName, dbName,
+            tabList);
       } catch (SemanticException e) {
         throw new MetaException("Error getting Table list " + e.getMessage());
       }
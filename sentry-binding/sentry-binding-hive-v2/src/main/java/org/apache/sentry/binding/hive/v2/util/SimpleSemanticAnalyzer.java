@@ -14,7 +14,9 @@
  */
 package org.apache.sentry.binding.hive.v2.util;
 
-import java.util.HashMap;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.List;
 import java.util.Map;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
@@ -24,12 +26,26 @@ import org.apache.hadoop.hive.ql.security.authorization.plugin.HiveAuthzPluginEx
 import org.apache.hadoop.hive.ql.session.SessionState;
 import org.apache.sentry.core.model.db.Table;
 
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+
 /**
  * Currently hive complier doesn't create read/write entities for some operations, e.g. create
  * table, drop table. This class is a simple semantic analyzer using regex, it is a workaround
- * approach to extract db_name and tb_name from those operations.
+ * approach to extract db_name and tb_name from those operations. The patterns are compiled once,
+ * and the names extracted from the most recent commands are cached, as clients tend to repeat
+ * the same metadata commands.
  */
 public class SimpleSemanticAnalyzer {
+  private static final int MAX_CACHED_COMMANDS = 1000;
+  // longer commands, like CREATE TABLE AS SELECT, are seldom repeated
+  private static final int MAX_CACHED_COMMAND_LENGTH = 1024;
+
+  // (operation, command) -> names extracted from the command
+  private static final Cache<List<Object>, ParseResult> parseResults =
+      CacheBuilder.newBuilder().maximumSize(MAX_CACHED_COMMANDS).build();
+
   private String currentDb;
   private String currentTb;
 
@@ -149,67 +165,115 @@ public class SimpleSemanticAnalyzer {
    */
   private static final String TRUNCATETABLE = "^TRUNCATE\\s+" + "TABLE\\s+" + "([A-Za-z0-9._]+)";
 
-  private static Map<HiveOperation, String> OP_REGEX_MAP = new HashMap<HiveOperation, String>();
+  private static final Pattern SHOW_INDEX_PATTERN = compile(SHOW_INDEX_REGEX);
+  private static final Pattern CREATE_FUNCTION_PATTERN = compile(CREATE_FUNCTION_REGEX);
+  private static final Pattern SHOW_TABLESTATUS_PATTERN = compile(SHOW_TABLESTATUS);
+  private static final Pattern LOAD_PATTERN = compile(LOAD);
+
+  private static final Map<HiveOperation, Pattern> OP_PATTERN_MAP =
+      new EnumMap<HiveOperation, Pattern>(HiveOperation.class);
   static {
+    Map<HiveOperation, String> opRegexMap = new EnumMap<HiveOperation, String>(HiveOperation.class);
     // database metadata
-    OP_REGEX_MAP.put(HiveOperation.DROPDATABASE, DROP_DB_REGEX);
-    OP_REGEX_MAP.put(HiveOperation.DESCDATABASE, DESCRIBE_DB_REGEX);
+    opRegexMap.put(HiveOperation.DROPDATABASE, DROP_DB_REGEX);
+    opRegexMap.put(HiveOperation.DESCDATABASE, DESCRIBE_DB_REGEX);
 
     // table metadata
-    OP_REGEX_MAP.put(HiveOperation.CREATETABLE, CREATE_TABLE_REGEX);
-    OP_REGEX_MAP.put(HiveOperation.DROPTABLE, DROP_TABLE_REGEX);
-    OP_REGEX_MAP.put(HiveOperation.DROPVIEW, DROP_VIEW_REGEX);
-    OP_REGEX_MAP.put(HiveOperation.DESCTABLE, DESCRIBE_TABLE_REGEX);
-    OP_REGEX_MAP.put(HiveOperation.SHOW_TBLPROPERTIES, SHOW_TBLPROPERTIES_REGEX);
-    OP_REGEX_MAP.put(HiveOperation.ALTERTABLE_PROPERTIES, ALTER_TABLE_REGEX);
-    OP_REGEX_MAP.put(HiveOperation.ALTERTABLE_SERDEPROPERTIES, ALTER_TABLE_REGEX);
-    OP_REGEX_MAP.put(HiveOperation.ALTERTABLE_CLUSTER_SORT, ALTER_TABLE_REGEX);
-    OP_REGEX_MAP.put(HiveOperation.ALTERTABLE_FILEFORMAT, ALTER_TABLE_REGEX);
-    OP_REGEX_MAP.put(HiveOperation.ALTERTABLE_TOUCH, ALTER_TABLE_REGEX);
-    OP_REGEX_MAP.put(HiveOperation.ALTERTABLE_RENAMECOL, ALTER_TABLE_REGEX);
-    OP_REGEX_MAP.put(HiveOperation.ALTERTABLE_ADDCOLS, ALTER_TABLE_REGEX);
-    OP_REGEX_MAP.put(HiveOperation.ALTERTABLE_REPLACECOLS, ALTER_TABLE_REGEX);
-    OP_REGEX_MAP.put(HiveOperation.ALTERTABLE_RENAMEPART, ALTER_TABLE_REGEX);
-    OP_REGEX_MAP.put(HiveOperation.ALTERTABLE_ARCHIVE, ALTER_TABLE_REGEX);
-    OP_REGEX_MAP.put(HiveOperation.ALTERTABLE_UNARCHIVE, ALTER_TABLE_REGEX);
-    OP_REGEX_MAP.put(HiveOperation.ALTERTABLE_SERIALIZER, ALTER_TABLE_REGEX);
-    OP_REGEX_MAP.put(HiveOperation.ALTERTABLE_MERGEFILES, ALTER_TABLE_REGEX);
-    OP_REGEX_MAP.put(HiveOperation.ALTERTABLE_SKEWED, ALTER_TABLE_REGEX);
-    OP_REGEX_MAP.put(HiveOperation.ALTERTABLE_DROPPARTS, ALTER_TABLE_REGEX);
-    OP_REGEX_MAP.put(HiveOperation.ALTERTABLE_ADDPARTS, ALTER_TABLE_REGEX);
-    OP_REGEX_MAP.put(HiveOperation.ALTERTABLE_RENAME, ALTER_TABLE_REGEX);
-    OP_REGEX_MAP.put(HiveOperation.ALTERTABLE_LOCATION, ALTER_TABLE_REGEX);
-    OP_REGEX_MAP.put(HiveOperation.ALTERPARTITION_FILEFORMAT, ALTER_TABLE_REGEX);
-    OP_REGEX_MAP.put(HiveOperation.ALTERPARTITION_SERDEPROPERTIES, ALTER_TABLE_REGEX);
-    OP_REGEX_MAP.put(HiveOperation.ALTERPARTITION_SERIALIZER, ALTER_TABLE_REGEX);
-    OP_REGEX_MAP.put(HiveOperation.ALTERPARTITION_MERGEFILES, ALTER_TABLE_REGEX);
-    OP_REGEX_MAP.put(HiveOperation.ALTERPARTITION_LOCATION, ALTER_TABLE_REGEX);
-    OP_REGEX_MAP.put(HiveOperation.ALTERTBLPART_SKEWED_LOCATION, ALTER_TABLE_REGEX);
-    OP_REGEX_MAP.put(HiveOperation.ALTERVIEW_PROPERTIES, ALTER_VIEW_REGEX);
-    OP_REGEX_MAP.put(HiveOperation.MSCK, MSCK_REGEX);
-    OP_REGEX_MAP.put(HiveOperation.ALTERINDEX_REBUILD, ALTER_INDEX_REGEX);
-    OP_REGEX_MAP.put(HiveOperation.ALTERINDEX_PROPS, ALTER_INDEX_REGEX);
-    OP_REGEX_MAP.put(HiveOperation.LOCKDB, LOCKDB);
-    OP_REGEX_MAP.put(HiveOperation.UNLOCKDB, UNLOCKDB);
-    OP_REGEX_MAP.put(HiveOperation.LOCKTABLE, LOCKTABLE);
-    OP_REGEX_MAP.put(HiveOperation.UNLOCKTABLE, UNLOCKTABLE);
-    OP_REGEX_MAP.put(HiveOperation.SHOWCOLUMNS, SHOWCOLUMNS);
-    OP_REGEX_MAP.put(HiveOperation.SHOW_TABLESTATUS, SHOW_TABLESTATUS);
-    OP_REGEX_MAP.put(HiveOperation.TRUNCATETABLE, TRUNCATETABLE);
+    opRegexMap.put(HiveOperation.CREATETABLE, CREATE_TABLE_REGEX);
+    opRegexMap.put(HiveOperation.DROPTABLE, DROP_TABLE_REGEX);
+    opRegexMap.put(HiveOperation.DROPVIEW, DROP_VIEW_REGEX);
+    opRegexMap.put(HiveOperation.DESCTABLE, DESCRIBE_TABLE_REGEX);
+    opRegexMap.put(HiveOperation.SHOW_TBLPROPERTIES, SHOW_TBLPROPERTIES_REGEX);
+    opRegexMap.put(HiveOperation.ALTERTABLE_PROPERTIES, ALTER_TABLE_REGEX);
+    opRegexMap.put(HiveOperation.ALTERTABLE_SERDEPROPERTIES, ALTER_TABLE_REGEX);
+    opRegexMap.put(HiveOperation.ALTERTABLE_CLUSTER_SORT, ALTER_TABLE_REGEX);
+    opRegexMap.put(HiveOperation.ALTERTABLE_FILEFORMAT, ALTER_TABLE_REGEX);
+    opRegexMap.put(HiveOperation.ALTERTABLE_TOUCH, ALTER_TABLE_REGEX);
+    opRegexMap.put(HiveOperation.ALTERTABLE_RENAMECOL, ALTER_TABLE_REGEX);
+    opRegexMap.put(HiveOperation.ALTERTABLE_ADDCOLS, ALTER_TABLE_REGEX);
+    opRegexMap.put(HiveOperation.ALTERTABLE_REPLACECOLS, ALTER_TABLE_REGEX);
+    opRegexMap.put(HiveOperation.ALTERTABLE_RENAMEPART, ALTER_TABLE_REGEX);
+    opRegexMap.put(HiveOperation.ALTERTABLE_ARCHIVE, ALTER_TABLE_REGEX);
+    opRegexMap.put(HiveOperation.ALTERTABLE_UNARCHIVE, ALTER_TABLE_REGEX);
+    opRegexMap.put(HiveOperation.ALTERTABLE_SERIALIZER, ALTER_TABLE_REGEX);
+    opRegexMap.put(HiveOperation.ALTERTABLE_MERGEFILES, ALTER_TABLE_REGEX);
+    opRegexMap.put(HiveOperation.ALTERTABLE_SKEWED, ALTER_TABLE_REGEX);
+    opRegexMap.put(HiveOperation.ALTERTABLE_DROPPARTS, ALTER_TABLE_REGEX);
+    opRegexMap.put(HiveOperation.ALTERTABLE_ADDPARTS, ALTER_TABLE_REGEX);
+    opRegexMap.put(HiveOperation.ALTERTABLE_RENAME, ALTER_TABLE_REGEX);
+    opRegexMap.put(HiveOperation.ALTERTABLE_LOCATION, ALTER_TABLE_REGEX);
+    opRegexMap.put(HiveOperation.ALTERPARTITION_FILEFORMAT, ALTER_TABLE_REGEX);
+    opRegexMap.put(HiveOperation.ALTERPARTITION_SERDEPROPERTIES, ALTER_TABLE_REGEX);
+    opRegexMap.put(HiveOperation.ALTERPARTITION_SERIALIZER, ALTER_TABLE_REGEX);
+    opRegexMap.put(HiveOperation.ALTERPARTITION_MERGEFILES, ALTER_TABLE_REGEX);
+    opRegexMap.put(HiveOperation.ALTERPARTITION_LOCATION, ALTER_TABLE_REGEX);
+    opRegexMap.put(HiveOperation.ALTERTBLPART_SKEWED_LOCATION, ALTER_TABLE_REGEX);
+    opRegexMap.put(HiveOperation.ALTERVIEW_PROPERTIES, ALTER_VIEW_REGEX);
+    opRegexMap.put(HiveOperation.MSCK, MSCK_REGEX);
+    opRegexMap.put(HiveOperation.ALTERINDEX_REBUILD, ALTER_INDEX_REGEX);
+    opRegexMap.put(HiveOperation.ALTERINDEX_PROPS, ALTER_INDEX_REGEX);
+    opRegexMap.put(HiveOperation.LOCKDB, LOCKDB);
+    opRegexMap.put(HiveOperation.UNLOCKDB, UNLOCKDB);
+    opRegexMap.put(HiveOperation.LOCKTABLE, LOCKTABLE);
+    opRegexMap.put(HiveOperation.UNLOCKTABLE, UNLOCKTABLE);
+    opRegexMap.put(HiveOperation.SHOWCOLUMNS, SHOWCOLUMNS);
+    opRegexMap.put(HiveOperation.SHOW_TABLESTATUS, SHOW_TABLESTATUS);
+    opRegexMap.put(HiveOperation.TRUNCATETABLE, TRUNCATETABLE);
+    for (Map.Entry<HiveOperation, String> entry : opRegexMap.entrySet()) {
+      OP_PATTERN_MAP.put(entry.getKey(), compile(entry.getValue()));
+    }
+  }
+
+  /**
+   * The names extracted from a command, a null database standing for the current database of
+   * the session.
+   */
+  private static class ParseResult {
+    private final String db;
+    private final String tb;
+
+    ParseResult(String db, String tb) {
+      this.db = db;
+      this.tb = tb;
+    }
   }
 
   public SimpleSemanticAnalyzer(HiveOperation hiveOp, String cmd) throws HiveAuthzPluginException {
-    currentDb = SessionState.get().getCurrentDatabase();
-    parse(hiveOp, cmd);
+    this(hiveOp, cmd, SessionState.get().getCurrentDatabase());
+  }
+
+  @VisibleForTesting
+  SimpleSemanticAnalyzer(HiveOperation hiveOp, String cmd, String sessionDb)
+      throws HiveAuthzPluginException {
+    String normalizedCmd = cmd.trim();
+    boolean cacheable = normalizedCmd.length() <= MAX_CACHED_COMMAND_LENGTH;
+    List<Object> key = Arrays.<Object>asList(hiveOp, normalizedCmd);
+    ParseResult result = cacheable ? parseResults.getIfPresent(key) : null;
+    if (result == null) {
+      parse(hiveOp, normalizedCmd);
+      result = new ParseResult(currentDb, currentTb);
+      if (cacheable) {
+        parseResults.put(key, result);
+      }
+    }
+    currentDb = result.db == null ? sessionDb : result.db;
+    currentTb = result.tb;
+  }
+
+  private static Pattern compile(String regex) {
+    return Pattern.compile(regex, Pattern.CASE_INSENSITIVE);
   }
 
   private void parse(HiveOperation hiveOp, String cmd) throws HiveAuthzPluginException {
+    // the database is left null when it is the current one of the session
+    currentDb = null;
+    currentTb = null;
     switch (hiveOp) {
       case DROPDATABASE:
       case DESCDATABASE:
       case LOCKDB:
       case UNLOCKDB:
-        parseDbMeta(cmd, OP_REGEX_MAP.get(hiveOp));
+        parseDbMeta(cmd, OP_PATTERN_MAP.get(hiveOp));
         break;
       case DESCTABLE:
       case CREATETABLE:
@@ -253,27 +317,26 @@ public class SimpleSemanticAnalyzer {
       case UNLOCKTABLE:
       case SHOWCOLUMNS:
       case TRUNCATETABLE:
-        parseTableMeta(cmd, OP_REGEX_MAP.get(hiveOp));
+        parseTableMeta(cmd, OP_PATTERN_MAP.get(hiveOp));
         break;
       case SHOWINDEXES:
-        parseShowIndex(cmd, SHOW_INDEX_REGEX);
+        parseShowIndex(cmd, SHOW_INDEX_PATTERN);
         break;
       case CREATEFUNCTION:
-        parseFunction(cmd, CREATE_FUNCTION_REGEX);
+        parseFunction(cmd, CREATE_FUNCTION_PATTERN);
         break;
       case SHOW_TABLESTATUS:
-        parseTableExtend(cmd, SHOW_TABLESTATUS);
+        parseTableExtend(cmd, SHOW_TABLESTATUS_PATTERN);
         break;
       case LOAD:
-        parseLoadTable(cmd, LOAD);
+        parseLoadTable(cmd, LOAD_PATTERN);
         break;
       default:
         break;
     }
   }
 
-  private void parseLoadTable(String cmd, String load) throws HiveAuthzPluginException {
-    Pattern pattern = Pattern.compile(load, Pattern.CASE_INSENSITIVE);
+  private void parseLoadTable(String cmd, Pattern pattern) throws HiveAuthzPluginException {
     Matcher matcher = pattern.matcher(cmd);
     if (matcher.find()) {
       String tbName = matcher.group(matcher.groupCount());
@@ -283,8 +346,7 @@ public class SimpleSemanticAnalyzer {
     }
   }
 
-  private void parseTableExtend(String cmd, String showTablestatus) throws HiveAuthzPluginException {
-    Pattern pattern = Pattern.compile(showTablestatus, Pattern.CASE_INSENSITIVE);
+  private void parseTableExtend(String cmd, Pattern pattern) throws HiveAuthzPluginException {
     Matcher matcher = pattern.matcher(cmd);
     if (matcher.find()) {
       String dbName = matcher.group(matcher.groupCount());
@@ -301,13 +363,12 @@ public class SimpleSemanticAnalyzer {
       currentDb = tb[0];
       currentTb = tb[1];
     } else {
-      currentDb = SessionState.get().getCurrentDatabase();
+      currentDb = null;
       currentTb = tableName;
     }
   }
 
-  private void parseDbMeta(String cmd, String regex) throws HiveAuthzPluginException {
-    Pattern pattern = Pattern.compile(regex, Pattern.CASE_INSENSITIVE);
+  private void parseDbMeta(String cmd, Pattern pattern) throws HiveAuthzPluginException {
     Matcher matcher = pattern.matcher(cmd);
     if (matcher.find()) {
       currentDb = matcher.group(matcher.groupCount());
@@ -317,8 +378,7 @@ public class SimpleSemanticAnalyzer {
     }
   }
 
-  private void parseTableMeta(String cmd, String regex) throws HiveAuthzPluginException {
-    Pattern pattern = Pattern.compile(regex, Pattern.CASE_INSENSITIVE);
+  private void parseTableMeta(String cmd, Pattern pattern) throws HiveAuthzPluginException {
     Matcher matcher = pattern.matcher(cmd);
     if (matcher.find()) {
       String tbName = matcher.group(matcher.groupCount());
@@ -328,8 +388,7 @@ public class SimpleSemanticAnalyzer {
     }
   }
 
-  private void parseShowIndex(String cmd, String regex) throws HiveAuthzPluginException {
-    Pattern pattern = Pattern.compile(regex, Pattern.CASE_INSENSITIVE);
+  private void parseShowIndex(String cmd, Pattern pattern) throws HiveAuthzPluginException {
     Matcher matcher = pattern.matcher(cmd);
     if (matcher.find()) {
       String dbName = matcher.group(matcher.groupCount());
@@ -345,8 +404,7 @@ public class SimpleSemanticAnalyzer {
     }
   }
 
-  private void parseFunction(String cmd, String regex) throws HiveAuthzPluginException {
-    Pattern pattern = Pattern.compile(regex, Pattern.CASE_INSENSITIVE);
+  private void parseFunction(String cmd, Pattern pattern) throws HiveAuthzPluginException {
     Matcher matcher = pattern.matcher(cmd);
     if (matcher.find()) {
       String udfClass = matcher.group(matcher.groupCount());
@@ -369,4 +427,9 @@ public class SimpleSemanticAnalyzer {
     return currentTb;
   }
 
+  @VisibleForTesting
+  static long getCachedCommandCount() {
+    return parseResults.size();
+  }
+
 }
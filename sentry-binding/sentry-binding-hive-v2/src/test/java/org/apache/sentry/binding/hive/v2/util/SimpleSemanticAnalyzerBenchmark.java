@@ -0,0 +1,125 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work for additional information regarding
+ * copyright ownership. The ASF licenses this file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License. You may obtain a
+ * copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.apache.sentry.binding.hive.v2.util;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.hadoop.hive.ql.plan.HiveOperation;
+import org.apache.hadoop.hive.ql.security.authorization.plugin.HiveAuthzPluginException;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Measures the throughput of {@link SimpleSemanticAnalyzer} on a mix of the commands it supports,
+ * naming a few tables, as dashboards repeating the same commands do, or many more tables than
+ * the analyzer caches.
+ *
+ * It is not run as part of the unit tests, run {@link #main(String[])} with the test classpath
+ * of this module instead.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SimpleSemanticAnalyzerBenchmark {
+
+  private static final String SESSION_DB = "default";
+  private static final int NUM_SAMPLED_COMMANDS = 10000;
+
+  // %1$s is a database, %2$s a table
+  private static final Object[][] COMMANDS = {
+      {HiveOperation.DESCTABLE, "DESCRIBE FORMATTED %1$s.%2$s"},
+      {HiveOperation.DESCTABLE, "describe %2$s"},
+      {HiveOperation.DESCDATABASE, "DESCRIBE DATABASE EXTENDED %1$s"},
+      {HiveOperation.SHOWCOLUMNS, "SHOW COLUMNS IN %1$s.%2$s"},
+      {HiveOperation.SHOW_TBLPROPERTIES, "SHOW TBLPROPERTIES %1$s.%2$s"},
+      {HiveOperation.SHOWINDEXES, "SHOW FORMATTED INDEXES ON %2$s IN %1$s"},
+      {HiveOperation.SHOW_TABLESTATUS, "SHOW TABLE EXTENDED IN %1$s LIKE '%2$s'"},
+      {HiveOperation.CREATETABLE,
+          "CREATE TABLE IF NOT EXISTS %1$s.%2$s (id INT, name STRING) STORED AS PARQUET"},
+      {HiveOperation.DROPTABLE, "DROP TABLE IF EXISTS %1$s.%2$s"},
+      {HiveOperation.DROPVIEW, "DROP VIEW %1$s.%2$s_view"},
+      {HiveOperation.DROPDATABASE, "DROP DATABASE IF EXISTS %1$s CASCADE"},
+      {HiveOperation.ALTERTABLE_PROPERTIES,
+          "ALTER TABLE %1$s.%2$s SET TBLPROPERTIES ('comment' = 'benchmark')"},
+      {HiveOperation.ALTERVIEW_PROPERTIES,
+          "ALTER VIEW %1$s.%2$s_view SET TBLPROPERTIES ('comment' = 'benchmark')"},
+      {HiveOperation.ALTERINDEX_REBUILD, "ALTER INDEX %2$s_idx ON %1$s.%2$s REBUILD"},
+      {HiveOperation.MSCK, "MSCK REPAIR TABLE %1$s.%2$s"},
+      {HiveOperation.LOAD, "LOAD DATA INPATH 'hdfs:///tmp/%2$s' INTO TABLE %1$s.%2$s"},
+      {HiveOperation.LOCKDB, "LOCK DATABASE %1$s SHARED"},
+      {HiveOperation.UNLOCKDB, "UNLOCK DATABASE %1$s"},
+      {HiveOperation.LOCKTABLE, "LOCK TABLE %1$s.%2$s SHARED"},
+      {HiveOperation.UNLOCKTABLE, "UNLOCK TABLE %1$s.%2$s"},
+      {HiveOperation.TRUNCATETABLE, "TRUNCATE TABLE %1$s.%2$s"},
+      {HiveOperation.CREATEFUNCTION,
+          "CREATE FUNCTION %1$s.%2$s_udf AS 'org.apache.hadoop.hive.ql.udf.UDFLength'"},
+  };
+
+  @Param({"16", "100000"})
+  private int numTables;
+
+  private HiveOperation[] sampledOps;
+  private String[] sampledCommands;
+  private final AtomicLong requests = new AtomicLong();
+
+  @Setup
+  public void setup() {
+    Random random = new Random(0);
+    sampledOps = new HiveOperation[NUM_SAMPLED_COMMANDS];
+    sampledCommands = new String[NUM_SAMPLED_COMMANDS];
+    for (int i = 0; i < NUM_SAMPLED_COMMANDS; i++) {
+      Object[] command = COMMANDS[i % COMMANDS.length];
+      int table = random.nextInt(numTables);
+      sampledOps[i] = (HiveOperation) command[0];
+      sampledCommands[i] = String.format((String) command[1], "db" + (table % 10), "tbl" + table);
+    }
+  }
+
+  @Benchmark
+  public String analyze() throws HiveAuthzPluginException {
+    int request = (int) (requests.incrementAndGet() % NUM_SAMPLED_COMMANDS);
+    SimpleSemanticAnalyzer analyzer = new SimpleSemanticAnalyzer(sampledOps[request],
+        sampledCommands[request], SESSION_DB);
+    return analyzer.getCurrentTb();
+  }
+
+  public static void main(String[] args) throws RunnerException {
+    for (int threads : new int[] {1, 8}) {
+      Options opt = new OptionsBuilder()
+          .include(SimpleSemanticAnalyzerBenchmark.class.getSimpleName())
+          .threads(threads)
+          .build();
+      new Runner(opt).run();
+    }
+  }
+}
@@ -0,0 +1,68 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work for additional information regarding
+ * copyright ownership. The ASF licenses this file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License. You may obtain a
+ * copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.apache.sentry.binding.hive.v2.util;
+
+import org.apache.hadoop.hive.ql.plan.HiveOperation;
+import org.apache.hadoop.hive.ql.security.authorization.plugin.HiveAuthzPluginException;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class TestSimpleSemanticAnalyzer {
+
+  /**
+   * The same command run in sessions on different databases is parsed once, and resolves to the
+   * current database of each session.
+   */
+  @Test
+  public void testCachedCommandUsesSessionDb() throws Exception {
+    String cmd = "DESCRIBE FORMATTED tbl_session";
+    long cached = SimpleSemanticAnalyzer.getCachedCommandCount();
+    SimpleSemanticAnalyzer first = new SimpleSemanticAnalyzer(HiveOperation.DESCTABLE, cmd, "db1");
+    Assert.assertEquals("db1", first.getCurrentDb());
+    Assert.assertEquals("tbl_session", first.getCurrentTb());
+    Assert.assertEquals(cached + 1, SimpleSemanticAnalyzer.getCachedCommandCount());
+
+    SimpleSemanticAnalyzer second = new SimpleSemanticAnalyzer(HiveOperation.DESCTABLE, cmd, "db2");
+    Assert.assertEquals("db2", second.getCurrentDb());
+    Assert.assertEquals("tbl_session", second.getCurrentTb());
+    Assert.assertEquals(cached + 1, SimpleSemanticAnalyzer.getCachedCommandCount());
+  }
+
+  @Test
+  public void testCachedCommandKeepsItsDb() throws Exception {
+    String cmd = "DROP TABLE IF EXISTS db3.tbl_qualified";
+    for (String sessionDb : new String[] {"db1", "db2"}) {
+      SimpleSemanticAnalyzer analyzer =
+          new SimpleSemanticAnalyzer(HiveOperation.DROPTABLE, cmd, sessionDb);
+      Assert.assertEquals("db3", analyzer.getCurrentDb());
+      Assert.assertEquals("tbl_qualified", analyzer.getCurrentTb());
+    }
+  }
+
+  @Test
+  public void testUnparseableCommandNotCached() throws Exception {
+    String cmd = "DROP INDEX idx_unparseable ON tbl_unparseable";
+    long cached = SimpleSemanticAnalyzer.getCachedCommandCount();
+    for (int i = 0; i < 2; i++) {
+      try {
+        new SimpleSemanticAnalyzer(HiveOperation.DROPTABLE, cmd, "db1");
+        Assert.fail("Expected a HiveAuthzPluginException for " + cmd);
+      } catch (HiveAuthzPluginException e) {
+        // expected, on every attempt
+      }
+    }
+    Assert.assertEquals(cached, SimpleSemanticAnalyzer.getCachedCommandCount());
+  }
+}
@@ -65,6 +65,7 @@ public class AuthorizingObjectStore extends ObjectStore {
   private static HiveConf hiveConf;
   private static HiveAuthzConf authzConf;
   private static HiveAuthzBinding hiveAuthzBinding;
+  private static final TableAccessCache tableAccessCache = new TableAccessCache();
   private static final String NO_ACCESS_MESSAGE_TABLE = "Table does not exist or insufficient privileges to access: ";
   private static final String NO_ACCESS_MESSAGE_DATABASE = "Database does not exist or insufficient privileges to access: ";
 
@@ -304,10 +305,11 @@ public class AuthorizingObjectStore extends ObjectStore {
    */
   protected List<String> filterTables(String dbName, List<String> tabList)
       throws MetaException {
-    if (needsAuthorization(getUserName())) {
+    String userName = getUserName();
+    if (needsAuthorization(userName)) {
       try {
-        return HiveAuthzBindingHookBase.filterShowTables(getHiveAuthzBinding(),
-            tabList, HiveOperation.SHOWTABLES, getUserName(), dbName);
+        return tableAccessCache.filterTables(getHiveAuthzBinding(), userName, dbName,
+            tabList);
       } catch (SemanticException e) {
         throw new MetaException("Error getting Table list " + e.getMessage());
       }
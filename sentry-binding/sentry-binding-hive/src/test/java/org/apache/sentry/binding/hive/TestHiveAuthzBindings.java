@@ -19,6 +19,7 @@ package org.apache.sentry.binding.hive;
 import java.io.File;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.HashSet;
 import java.util.List;
 
 import org.junit.Assert;
@@ -31,9 +32,12 @@ import org.apache.hadoop.hive.ql.plan.HiveOperation;
 import org.apache.sentry.binding.hive.authz.HiveAuthzBinding;
 import org.apache.sentry.binding.hive.authz.HiveAuthzPrivileges;
 import org.apache.sentry.binding.hive.authz.HiveAuthzPrivilegesMap;
+import org.apache.sentry.binding.hive.authz.HivePrivilegeSnapshot;
 import org.apache.sentry.binding.hive.conf.HiveAuthzConf;
 import org.apache.sentry.binding.hive.conf.HiveAuthzConf.AuthzConfVars;
 import org.apache.sentry.binding.hive.conf.InvalidConfigurationException;
+import org.apache.sentry.binding.metastore.TableAccessCache;
+import org.apache.sentry.core.common.ActiveRoleSet;
 import org.apache.sentry.core.common.Subject;
 import org.apache.sentry.core.model.db.AccessConstants;
 import org.apache.sentry.core.model.db.AccessURI;
@@ -157,6 +161,25 @@ public class TestHiveAuthzBindings {
         inputTabHierarcyList, outputTabHierarcyList);
   }
 
+  /**
+   * validate that the active roles given on a call apply to that call only
+   */
+  @Test
+  public void testValidateSelectPrivilegesWithActiveRoles() throws Exception {
+    inputTabHierarcyList.add(buildObjectHierarchy(SERVER1, CUSTOMER_DB, PURCHASES_TAB));
+    try {
+      testAuth.authorize(HiveOperation.QUERY, queryPrivileges, ANALYST_SUBJECT,
+          new ActiveRoleSet(new HashSet<String>()), inputTabHierarcyList, outputTabHierarcyList);
+      Assert.fail("Expected AuthorizationException without active roles");
+    } catch (AuthorizationException e) {
+      // expected
+    }
+    testAuth.authorize(HiveOperation.QUERY, queryPrivileges, ANALYST_SUBJECT,
+        ActiveRoleSet.ALL, inputTabHierarcyList, outputTabHierarcyList);
+    testAuth.authorize(HiveOperation.QUERY, queryPrivileges, ANALYST_SUBJECT,
+        inputTabHierarcyList, outputTabHierarcyList);
+  }
+
   /**
    * validate create table permissions for admin in customer db
    */
@@ -389,6 +412,61 @@ public class TestHiveAuthzBindings {
         inputTabHierarcyList, outputTabHierarcyList);
   }
 
+  /**
+   * validate that the metadata filters only keep the objects the user has
+   * privileges on, and that the privilege snapshot is reused within its TTL
+   */
+  @Test
+  public void testFilterWithPrivilegeSnapshot() throws Exception {
+    List<String> tables = Arrays.asList(PURCHASES_TAB, "payments");
+    Assert.assertEquals(tables, HiveAuthzBindingHookBase.filterShowTables(testAuth, tables,
+        HiveOperation.SHOWTABLES, ADMIN_SUBJECT.getName(), CUSTOMER_DB));
+    Assert.assertEquals(Arrays.asList(PURCHASES_TAB), HiveAuthzBindingHookBase.filterShowTables(
+        testAuth, tables, HiveOperation.SHOWTABLES, ANALYST_SUBJECT.getName(), CUSTOMER_DB));
+    Assert.assertTrue(HiveAuthzBindingHookBase.filterShowTables(testAuth, tables,
+        HiveOperation.SHOWTABLES, JUNIOR_ANALYST_SUBJECT.getName(), CUSTOMER_DB).isEmpty());
+    List<String> dbs = Arrays.asList(CUSTOMER_DB, ANALYST_DB, JUNIOR_ANALYST_DB);
+    Assert.assertEquals(Arrays.asList(JUNIOR_ANALYST_DB), HiveAuthzBindingHookBase.filterShowDatabases(
+        testAuth, dbs, HiveOperation.SHOWDATABASES, JUNIOR_ANALYST_SUBJECT.getName()));
+
+    Assert.assertSame(HivePrivilegeSnapshot.get(testAuth, ANALYST_SUBJECT.getName()),
+        HivePrivilegeSnapshot.get(testAuth, ANALYST_SUBJECT.getName()));
+    authzConf.set(AuthzConfVars.AUTHZ_PRIVILEGE_SNAPSHOT_TTL_MS.getVar(), "0");
+    Assert.assertNotSame(HivePrivilegeSnapshot.get(testAuth, ANALYST_SUBJECT.getName()),
+        HivePrivilegeSnapshot.get(testAuth, ANALYST_SUBJECT.getName()));
+  }
+
+  /**
+   * validate that the table access decisions of the metastore are cached
+   * with the privilege snapshot, and the undecided tables checked together
+   */
+  @Test
+  public void testTableAccessCache() throws Exception {
+    authzConf.set(AuthzConfVars.AUTHZ_PRIVILEGE_SNAPSHOT_TTL_MS.getVar(), "60000");
+    TableAccessCache cache = new TableAccessCache();
+    List<String> tables = Arrays.asList("payments", PURCHASES_TAB);
+    Assert.assertEquals(Arrays.asList(PURCHASES_TAB), cache.filterTables(testAuth,
+        ANALYST_SUBJECT.getName(), CUSTOMER_DB, Arrays.asList(PURCHASES_TAB)));
+    Assert.assertEquals(Arrays.asList(PURCHASES_TAB), cache.filterTables(testAuth,
+        ANALYST_SUBJECT.getName(), CUSTOMER_DB, tables));
+    Assert.assertEquals(tables, cache.filterTables(testAuth,
+        ADMIN_SUBJECT.getName(), CUSTOMER_DB, tables));
+    Assert.assertTrue(cache.filterTables(testAuth,
+        JUNIOR_ANALYST_SUBJECT.getName(), CUSTOMER_DB, tables).isEmpty());
+    // only the tables not checked before for the user were decided
+    Assert.assertEquals(6, cache.getDecidedTables());
+
+    // the decisions are taken from the cache
+    Assert.assertEquals(Arrays.asList(PURCHASES_TAB), cache.filterTables(testAuth,
+        ANALYST_SUBJECT.getName(), CUSTOMER_DB, tables));
+    Assert.assertEquals(6, cache.getDecidedTables());
+
+    authzConf.set(AuthzConfVars.AUTHZ_PRIVILEGE_SNAPSHOT_TTL_MS.getVar(), "0");
+    Assert.assertEquals(Arrays.asList(PURCHASES_TAB), cache.filterTables(testAuth,
+        ANALYST_SUBJECT.getName(), CUSTOMER_DB, tables));
+    Assert.assertEquals(8, cache.getDecidedTables());
+  }
+
   private List <DBModelAuthorizable>  buildObjectHierarchy(String server, String db, String table) {
     List <DBModelAuthorizable> authList = new ArrayList<DBModelAuthorizable> ();
     authList.add(new Server(server));
@@ -22,7 +22,9 @@ import java.util.Arrays;
 import java.util.EnumSet;
 import java.util.List;
 import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
 
+import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.Sets;
 import junit.framework.Assert;
 
@@ -31,6 +33,7 @@ import org.apache.sentry.core.common.Action;
 import org.apache.sentry.core.common.ActiveRoleSet;
 import org.apache.sentry.core.common.Authorizable;
 import org.apache.sentry.core.common.Subject;
+import org.apache.sentry.core.common.exception.SentryConfigurationException;
 import org.apache.sentry.core.model.db.AccessConstants;
 import org.apache.sentry.core.model.db.DBModelAction;
 import org.apache.sentry.core.model.db.Database;
@@ -38,6 +41,8 @@ import org.apache.sentry.core.model.db.HivePrivilegeModel;
 import org.apache.sentry.core.model.db.Server;
 import org.apache.sentry.core.model.db.Table;
 import org.apache.sentry.core.common.service.GroupMappingService;
+import org.apache.sentry.policy.common.PolicyEngine;
+import org.apache.sentry.policy.common.PrivilegeFactory;
 import org.apache.sentry.provider.common.ResourceAuthorizationProvider;
 import org.apache.sentry.provider.file.HadoopGroupResourceAuthorizationProvider;
 import org.apache.sentry.provider.file.PolicyFiles;
@@ -87,14 +92,15 @@ public class TestResourceAuthorizationProviderGeneralCases {
   }
 
   private final ResourceAuthorizationProvider authzProvider;
+  private final PolicyEngine policyEngine;
   private File baseDir;
 
   public TestResourceAuthorizationProviderGeneralCases() throws IOException {
     baseDir = Files.createTempDir();
     PolicyFiles.copyToDir(baseDir, "hive-policy-test-authz-provider.ini", "hive-policy-test-authz-provider-other-group.ini");
-    authzProvider = new HadoopGroupResourceAuthorizationProvider(
-            DBPolicyTestUtil.createPolicyEngineForTest("server1",
-        new File(baseDir, "hive-policy-test-authz-provider.ini").getPath()),
+    policyEngine = DBPolicyTestUtil.createPolicyEngineForTest("server1",
+        new File(baseDir, "hive-policy-test-authz-provider.ini").getPath());
+    authzProvider = new HadoopGroupResourceAuthorizationProvider(policyEngine,
         new MockGroupMappingServiceProvider(USER_TO_GROUP_MAP), HivePrivilegeModel.getInstance());
 
   }
@@ -180,6 +186,126 @@ public class TestResourceAuthorizationProviderGeneralCases {
     doTestResourceAuthorizationProvider(SUB_JUNIOR_ANALYST, SVR_ALL, DB_JR_ANALYST, TBL_PURCHASES, SELECT, true);
   }
 
+  @Test
+  public void testBatch() throws Exception {
+    List<List<Authorizable>> hierarchies = Arrays.asList(
+        Arrays.<Authorizable>asList(SVR_SERVER1, DB_CUSTOMERS, TBL_PURCHASES),
+        Arrays.<Authorizable>asList(SVR_SERVER1, DB_ANALYST, TBL_PURCHASES),
+        Arrays.<Authorizable>asList(SVR_SERVER1, DB_JR_ANALYST, TBL_PURCHASES),
+        Arrays.<Authorizable>asList(SVR_ALL, DB_CUSTOMERS, TBL_PURCHASES),
+        Arrays.<Authorizable>asList(SVR_SERVER1, DB_CUSTOMERS, TBL_PURCHASES));
+    for (Subject subject : Arrays.asList(SUB_ADMIN, SUB_MANAGER, SUB_ANALYST, SUB_JUNIOR_ANALYST)) {
+      for (Set<? extends Action> actions : Arrays.asList(ALL, SELECT, INSERT)) {
+        boolean[] results = authzProvider.hasAccessBatch(subject, hierarchies, actions,
+            ActiveRoleSet.ALL);
+        Assert.assertEquals(hierarchies.size(), results.length);
+        for (int i = 0; i < results.length; i++) {
+          Assert.assertEquals(subject + " " + hierarchies.get(i) + " " + actions,
+              authzProvider.hasAccess(subject, hierarchies.get(i), actions, ActiveRoleSet.ALL),
+              results[i]);
+        }
+      }
+    }
+  }
+
+  @Test
+  public void testBatchFetchesCommonPrefix() throws Exception {
+    List<List<Authorizable>> hierarchies = Arrays.asList(
+        Arrays.<Authorizable>asList(SVR_SERVER1, DB_CUSTOMERS, TBL_PURCHASES),
+        Arrays.<Authorizable>asList(SVR_SERVER1, DB_ANALYST, TBL_PURCHASES),
+        Arrays.<Authorizable>asList(SVR_SERVER1, DB_JR_ANALYST, TBL_PURCHASES),
+        Arrays.<Authorizable>asList(SVR_SERVER1, DB_JR_ANALYST));
+    CountingPolicyEngine prefixEngine = new CountingPolicyEngine(policyEngine, true);
+    CountingPolicyEngine hierarchyEngine = new CountingPolicyEngine(policyEngine, false);
+    ResourceAuthorizationProvider prefixProvider = new HadoopGroupResourceAuthorizationProvider(
+        prefixEngine, new MockGroupMappingServiceProvider(USER_TO_GROUP_MAP),
+        HivePrivilegeModel.getInstance());
+    ResourceAuthorizationProvider hierarchyProvider = new HadoopGroupResourceAuthorizationProvider(
+        hierarchyEngine, new MockGroupMappingServiceProvider(USER_TO_GROUP_MAP),
+        HivePrivilegeModel.getInstance());
+    for (Subject subject : Arrays.asList(SUB_ADMIN, SUB_MANAGER, SUB_ANALYST, SUB_JUNIOR_ANALYST)) {
+      prefixEngine.calls.set(0);
+      hierarchyEngine.calls.set(0);
+      boolean[] prefixResults = prefixProvider.hasAccessBatch(subject, hierarchies, SELECT,
+          ActiveRoleSet.ALL);
+      boolean[] hierarchyResults = hierarchyProvider.hasAccessBatch(subject, hierarchies, SELECT,
+          ActiveRoleSet.ALL);
+      // one call for server1, one per hierarchy otherwise
+      Assert.assertEquals(1, prefixEngine.calls.get());
+      Assert.assertEquals(hierarchies.size(), hierarchyEngine.calls.get());
+      for (int i = 0; i < hierarchies.size(); i++) {
+        boolean expected = authzProvider.hasAccess(subject, hierarchies.get(i), SELECT,
+            ActiveRoleSet.ALL);
+        Assert.assertEquals(subject + " " + hierarchies.get(i), expected, prefixResults[i]);
+        Assert.assertEquals(subject + " " + hierarchies.get(i), expected, hierarchyResults[i]);
+      }
+    }
+  }
+
+  /**
+   * Counts the calls for the privileges of a hierarchy. When it supports prefix
+   * queries it returns all the privileges of the subject, a superset of those
+   * on the objects under the hierarchy.
+   */
+  private static class CountingPolicyEngine implements PolicyEngine {
+    private final PolicyEngine delegate;
+    private final boolean prefixQuerySupported;
+    private final AtomicInteger calls = new AtomicInteger();
+
+    CountingPolicyEngine(PolicyEngine delegate, boolean prefixQuerySupported) {
+      this.delegate = delegate;
+      this.prefixQuerySupported = prefixQuerySupported;
+    }
+
+    @Override
+    public PrivilegeFactory getPrivilegeFactory() {
+      return delegate.getPrivilegeFactory();
+    }
+
+    @Override
+    public ImmutableSet<String> getAllPrivileges(Set<String> groups, ActiveRoleSet roleSet)
+        throws SentryConfigurationException {
+      return delegate.getAllPrivileges(groups, roleSet);
+    }
+
+    @Override
+    public ImmutableSet<String> getAllPrivileges(Set<String> groups, Set<String> users,
+        ActiveRoleSet roleSet) throws SentryConfigurationException {
+      return delegate.getAllPrivileges(groups, users, roleSet);
+    }
+
+    @Override
+    public ImmutableSet<String> getPrivileges(Set<String> groups, ActiveRoleSet roleSet,
+        Authorizable... authorizableHierarchy) throws SentryConfigurationException {
+      return getPrivileges(groups, Sets.<String>newHashSet(), roleSet, authorizableHierarchy);
+    }
+
+    @Override
+    public ImmutableSet<String> getPrivileges(Set<String> groups, Set<String> users,
+        ActiveRoleSet roleSet, Authorizable... authorizableHierarchy)
+        throws SentryConfigurationException {
+      calls.incrementAndGet();
+      if (prefixQuerySupported) {
+        return delegate.getAllPrivileges(groups, users, roleSet);
+      }
+      return delegate.getPrivileges(groups, users, roleSet, authorizableHierarchy);
+    }
+
+    @Override
+    public boolean isPrefixQuerySupported() {
+      return prefixQuerySupported;
+    }
+
+    @Override
+    public void close() {
+    }
+
+    @Override
+    public void validatePolicy(boolean strictValidation) throws SentryConfigurationException {
+      delegate.validatePolicy(strictValidation);
+    }
+  }
+
   public class MockGroupMappingServiceProvider implements GroupMappingService {
     private final Multimap<String, String> userToGroupMap;
 
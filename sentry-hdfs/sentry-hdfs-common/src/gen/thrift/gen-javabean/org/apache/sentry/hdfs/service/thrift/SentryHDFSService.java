@@ -43,7 +43,7 @@ public class SentryHDFSService {
 
     public long check_hms_seq_num(long pathSeqNum) throws org.apache.thrift.TException;
 
-    public TAuthzUpdateResponse get_all_authz_updates_from(long permSeqNum, long pathSeqNum) throws org.apache.thrift.TException;
+    public TAuthzUpdateResponse get_all_authz_updates_from(long permSeqNum, long pathSeqNum, int pathsDumpFromId, int pathsDumpChunkSize, int waitTimeoutMs) throws org.apache.thrift.TException;
 
     public Map<String,List<String>> get_all_related_paths(String path, boolean exactMatch) throws org.apache.thrift.TException;
 
@@ -55,7 +55,7 @@ public class SentryHDFSService {
 
     public void check_hms_seq_num(long pathSeqNum, org.apache.thrift.async.AsyncMethodCallback resultHandler) throws org.apache.thrift.TException;
 
-    public void get_all_authz_updates_from(long permSeqNum, long pathSeqNum, org.apache.thrift.async.AsyncMethodCallback resultHandler) throws org.apache.thrift.TException;
+    public void get_all_authz_updates_from(long permSeqNum, long pathSeqNum, int pathsDumpFromId, int pathsDumpChunkSize, int waitTimeoutMs, org.apache.thrift.async.AsyncMethodCallback resultHandler) throws org.apache.thrift.TException;
 
     public void get_all_related_paths(String path, boolean exactMatch, org.apache.thrift.async.AsyncMethodCallback resultHandler) throws org.apache.thrift.TException;
 
@@ -124,17 +124,20 @@ public class SentryHDFSService {
       throw new org.apache.thrift.TApplicationException(org.apache.thrift.TApplicationException.MISSING_RESULT, "check_hms_seq_num failed: unknown result");
     }
 
-    public TAuthzUpdateResponse get_all_authz_updates_from(long permSeqNum, long pathSeqNum) throws org.apache.thrift.TException
+    public TAuthzUpdateResponse get_all_authz_updates_from(long permSeqNum, long pathSeqNum, int pathsDumpFromId, int pathsDumpChunkSize, int waitTimeoutMs) throws org.apache.thrift.TException
     {
-      send_get_all_authz_updates_from(permSeqNum, pathSeqNum);
+      send_get_all_authz_updates_from(permSeqNum, pathSeqNum, pathsDumpFromId, pathsDumpChunkSize, waitTimeoutMs);
       return recv_get_all_authz_updates_from();
     }
 
-    public void send_get_all_authz_updates_from(long permSeqNum, long pathSeqNum) throws org.apache.thrift.TException
+    public void send_get_all_authz_updates_from(long permSeqNum, long pathSeqNum, int pathsDumpFromId, int pathsDumpChunkSize, int waitTimeoutMs) throws org.apache.thrift.TException
     {
       get_all_authz_updates_from_args args = new get_all_authz_updates_from_args();
       args.setPermSeqNum(permSeqNum);
       args.setPathSeqNum(pathSeqNum);
+      args.setPathsDumpFromId(pathsDumpFromId);
+      args.setPathsDumpChunkSize(pathsDumpChunkSize);
+      args.setWaitTimeoutMs(waitTimeoutMs);
       sendBase("get_all_authz_updates_from", args);
     }
 
@@ -254,9 +257,9 @@ public class SentryHDFSService {
       }
     }
 
-    public void get_all_authz_updates_from(long permSeqNum, long pathSeqNum, org.apache.thrift.async.AsyncMethodCallback resultHandler) throws org.apache.thrift.TException {
+    public void get_all_authz_updates_from(long permSeqNum, long pathSeqNum, int pathsDumpFromId, int pathsDumpChunkSize, int waitTimeoutMs, org.apache.thrift.async.AsyncMethodCallback resultHandler) throws org.apache.thrift.TException {
       checkReady();
-      get_all_authz_updates_from_call method_call = new get_all_authz_updates_from_call(permSeqNum, pathSeqNum, resultHandler, this, ___protocolFactory, ___transport);
+      get_all_authz_updates_from_call method_call = new get_all_authz_updates_from_call(permSeqNum, pathSeqNum, pathsDumpFromId, pathsDumpChunkSize, waitTimeoutMs, resultHandler, this, ___protocolFactory, ___transport);
       this.___currentMethod = method_call;
       ___manager.call(method_call);
     }
@@ -264,10 +267,16 @@ public class SentryHDFSService {
     public static class get_all_authz_updates_from_call extends org.apache.thrift.async.TAsyncMethodCall {
       private long permSeqNum;
       private long pathSeqNum;
-      public get_all_authz_updates_from_call(long permSeqNum, long pathSeqNum, org.apache.thrift.async.AsyncMethodCallback resultHandler, org.apache.thrift.async.TAsyncClient client, org.apache.thrift.protocol.TProtocolFactory protocolFactory, org.apache.thrift.transport.TNonblockingTransport transport) throws org.apache.thrift.TException {
+      private int pathsDumpFromId;
+      private int pathsDumpChunkSize;
+      private int waitTimeoutMs;
+      public get_all_authz_updates_from_call(long permSeqNum, long pathSeqNum, int pathsDumpFromId, int pathsDumpChunkSize, int waitTimeoutMs, org.apache.thrift.async.AsyncMethodCallback resultHandler, org.apache.thrift.async.TAsyncClient client, org.apache.thrift.protocol.TProtocolFactory protocolFactory, org.apache.thrift.transport.TNonblockingTransport transport) throws org.apache.thrift.TException {
         super(client, protocolFactory, transport, resultHandler, false);
         this.permSeqNum = permSeqNum;
         this.pathSeqNum = pathSeqNum;
+        this.pathsDumpFromId = pathsDumpFromId;
+        this.pathsDumpChunkSize = pathsDumpChunkSize;
+        this.waitTimeoutMs = waitTimeoutMs;
       }
 
       public void write_args(org.apache.thrift.protocol.TProtocol prot) throws org.apache.thrift.TException {
@@ -275,6 +284,9 @@ public class SentryHDFSService {
         get_all_authz_updates_from_args args = new get_all_authz_updates_from_args();
         args.setPermSeqNum(permSeqNum);
         args.setPathSeqNum(pathSeqNum);
+        args.setPathsDumpFromId(pathsDumpFromId);
+        args.setPathsDumpChunkSize(pathsDumpChunkSize);
+        args.setWaitTimeoutMs(waitTimeoutMs);
         args.write(prot);
         prot.writeMessageEnd();
       }
@@ -400,7 +412,7 @@ public class SentryHDFSService {
 
       public get_all_authz_updates_from_result getResult(I iface, get_all_authz_updates_from_args args) throws org.apache.thrift.TException {
         get_all_authz_updates_from_result result = new get_all_authz_updates_from_result();
-        result.success = iface.get_all_authz_updates_from(args.permSeqNum, args.pathSeqNum);
+        result.success = iface.get_all_authz_updates_from(args.permSeqNum, args.pathSeqNum, args.pathsDumpFromId, args.pathsDumpChunkSize, args.waitTimeoutMs);
         return result;
       }
     }
@@ -594,7 +606,7 @@ public class SentryHDFSService {
       }
 
       public void start(I iface, get_all_authz_updates_from_args args, org.apache.thrift.async.AsyncMethodCallback<TAuthzUpdateResponse> resultHandler) throws TException {
-        iface.get_all_authz_updates_from(args.permSeqNum, args.pathSeqNum,resultHandler);
+        iface.get_all_authz_updates_from(args.permSeqNum, args.pathSeqNum, args.pathsDumpFromId, args.pathsDumpChunkSize, args.waitTimeoutMs,resultHandler);
       }
     }
 
@@ -1979,6 +1991,9 @@ public class SentryHDFSService {
 
     private static final org.apache.thrift.protocol.TField PERM_SEQ_NUM_FIELD_DESC = new org.apache.thrift.protocol.TField("permSeqNum", org.apache.thrift.protocol.TType.I64, (short)1);
     private static final org.apache.thrift.protocol.TField PATH_SEQ_NUM_FIELD_DESC = new org.apache.thrift.protocol.TField("pathSeqNum", org.apache.thrift.protocol.TType.I64, (short)2);
+    private static final org.apache.thrift.protocol.TField PATHS_DUMP_FROM_ID_FIELD_DESC = new org.apache.thrift.protocol.TField("pathsDumpFromId", org.apache.thrift.protocol.TType.I32, (short)3);
+    private static final org.apache.thrift.protocol.TField PATHS_DUMP_CHUNK_SIZE_FIELD_DESC = new org.apache.thrift.protocol.TField("pathsDumpChunkSize", org.apache.thrift.protocol.TType.I32, (short)4);
+    private static final org.apache.thrift.protocol.TField WAIT_TIMEOUT_MS_FIELD_DESC = new org.apache.thrift.protocol.TField("waitTimeoutMs", org.apache.thrift.protocol.TType.I32, (short)5);
 
     private static final Map<Class<? extends IScheme>, SchemeFactory> schemes = new HashMap<Class<? extends IScheme>, SchemeFactory>();
     static {
@@ -1988,11 +2003,17 @@ public class SentryHDFSService {
 
     private long permSeqNum; // required
     private long pathSeqNum; // required
+    private int pathsDumpFromId; // required
+    private int pathsDumpChunkSize; // required
+    private int waitTimeoutMs; // required
 
     /** The set of fields this struct contains, along with convenience methods for finding and manipulating them. */
     public enum _Fields implements org.apache.thrift.TFieldIdEnum {
       PERM_SEQ_NUM((short)1, "permSeqNum"),
-      PATH_SEQ_NUM((short)2, "pathSeqNum");
+      PATH_SEQ_NUM((short)2, "pathSeqNum"),
+      PATHS_DUMP_FROM_ID((short)3, "pathsDumpFromId"),
+      PATHS_DUMP_CHUNK_SIZE((short)4, "pathsDumpChunkSize"),
+      WAIT_TIMEOUT_MS((short)5, "waitTimeoutMs");
 
       private static final Map<String, _Fields> byName = new HashMap<String, _Fields>();
 
@@ -2011,6 +2032,12 @@ public class SentryHDFSService {
             return PERM_SEQ_NUM;
           case 2: // PATH_SEQ_NUM
             return PATH_SEQ_NUM;
+          case 3: // PATHS_DUMP_FROM_ID
+            return PATHS_DUMP_FROM_ID;
+          case 4: // PATHS_DUMP_CHUNK_SIZE
+            return PATHS_DUMP_CHUNK_SIZE;
+          case 5: // WAIT_TIMEOUT_MS
+            return WAIT_TIMEOUT_MS;
           default:
             return null;
         }
@@ -2053,6 +2080,9 @@ public class SentryHDFSService {
     // isset id assignments
     private static final int __PERMSEQNUM_ISSET_ID = 0;
     private static final int __PATHSEQNUM_ISSET_ID = 1;
+    private static final int __PATHSDUMPFROMID_ISSET_ID = 2;
+    private static final int __PATHSDUMPCHUNKSIZE_ISSET_ID = 3;
+    private static final int __WAITTIMEOUTMS_ISSET_ID = 4;
     private byte __isset_bitfield = 0;
     public static final Map<_Fields, org.apache.thrift.meta_data.FieldMetaData> metaDataMap;
     static {
@@ -2061,6 +2091,12 @@ public class SentryHDFSService {
           new org.apache.thrift.meta_data.FieldValueMetaData(org.apache.thrift.protocol.TType.I64)));
       tmpMap.put(_Fields.PATH_SEQ_NUM, new org.apache.thrift.meta_data.FieldMetaData("pathSeqNum", org.apache.thrift.TFieldRequirementType.DEFAULT, 
           new org.apache.thrift.meta_data.FieldValueMetaData(org.apache.thrift.protocol.TType.I64)));
+      tmpMap.put(_Fields.PATHS_DUMP_FROM_ID, new org.apache.thrift.meta_data.FieldMetaData("pathsDumpFromId", org.apache.thrift.TFieldRequirementType.DEFAULT, 
+          new org.apache.thrift.meta_data.FieldValueMetaData(org.apache.thrift.protocol.TType.I32)));
+      tmpMap.put(_Fields.PATHS_DUMP_CHUNK_SIZE, new org.apache.thrift.meta_data.FieldMetaData("pathsDumpChunkSize", org.apache.thrift.TFieldRequirementType.DEFAULT, 
+          new org.apache.thrift.meta_data.FieldValueMetaData(org.apache.thrift.protocol.TType.I32)));
+      tmpMap.put(_Fields.WAIT_TIMEOUT_MS, new org.apache.thrift.meta_data.FieldMetaData("waitTimeoutMs", org.apache.thrift.TFieldRequirementType.DEFAULT, 
+          new org.apache.thrift.meta_data.FieldValueMetaData(org.apache.thrift.protocol.TType.I32)));
       metaDataMap = Collections.unmodifiableMap(tmpMap);
       org.apache.thrift.meta_data.FieldMetaData.addStructMetaDataMap(get_all_authz_updates_from_args.class, metaDataMap);
     }
@@ -2070,13 +2106,22 @@ public class SentryHDFSService {
 
     public get_all_authz_updates_from_args(
       long permSeqNum,
-      long pathSeqNum)
+      long pathSeqNum,
+      int pathsDumpFromId,
+      int pathsDumpChunkSize,
+      int waitTimeoutMs)
     {
       this();
       this.permSeqNum = permSeqNum;
       setPermSeqNumIsSet(true);
       this.pathSeqNum = pathSeqNum;
       setPathSeqNumIsSet(true);
+      this.pathsDumpFromId = pathsDumpFromId;
+      setPathsDumpFromIdIsSet(true);
+      this.pathsDumpChunkSize = pathsDumpChunkSize;
+      setPathsDumpChunkSizeIsSet(true);
+      this.waitTimeoutMs = waitTimeoutMs;
+      setWaitTimeoutMsIsSet(true);
     }
 
     /**
@@ -2086,6 +2131,9 @@ public class SentryHDFSService {
       __isset_bitfield = other.__isset_bitfield;
       this.permSeqNum = other.permSeqNum;
       this.pathSeqNum = other.pathSeqNum;
+      this.pathsDumpFromId = other.pathsDumpFromId;
+      this.pathsDumpChunkSize = other.pathsDumpChunkSize;
+      this.waitTimeoutMs = other.waitTimeoutMs;
     }
 
     public get_all_authz_updates_from_args deepCopy() {
@@ -2098,6 +2146,12 @@ public class SentryHDFSService {
       this.permSeqNum = 0;
       setPathSeqNumIsSet(false);
       this.pathSeqNum = 0;
+      setPathsDumpFromIdIsSet(false);
+      this.pathsDumpFromId = 0;
+      setPathsDumpChunkSizeIsSet(false);
+      this.pathsDumpChunkSize = 0;
+      setWaitTimeoutMsIsSet(false);
+      this.waitTimeoutMs = 0;
     }
 
     public long getPermSeqNum() {
@@ -2144,6 +2198,72 @@ public class SentryHDFSService {
       __isset_bitfield = EncodingUtils.setBit(__isset_bitfield, __PATHSEQNUM_ISSET_ID, value);
     }
 
+    public int getPathsDumpFromId() {
+      return this.pathsDumpFromId;
+    }
+
+    public void setPathsDumpFromId(int pathsDumpFromId) {
+      this.pathsDumpFromId = pathsDumpFromId;
+      setPathsDumpFromIdIsSet(true);
+    }
+
+    public void unsetPathsDumpFromId() {
+      __isset_bitfield = EncodingUtils.clearBit(__isset_bitfield, __PATHSDUMPFROMID_ISSET_ID);
+    }
+
+    /** Returns true if field pathsDumpFromId is set (has been assigned a value) and false otherwise */
+    public boolean isSetPathsDumpFromId() {
+      return EncodingUtils.testBit(__isset_bitfield, __PATHSDUMPFROMID_ISSET_ID);
+    }
+
+    public void setPathsDumpFromIdIsSet(boolean value) {
+      __isset_bitfield = EncodingUtils.setBit(__isset_bitfield, __PATHSDUMPFROMID_ISSET_ID, value);
+    }
+
+    public int getPathsDumpChunkSize() {
+      return this.pathsDumpChunkSize;
+    }
+
+    public void setPathsDumpChunkSize(int pathsDumpChunkSize) {
+      this.pathsDumpChunkSize = pathsDumpChunkSize;
+      setPathsDumpChunkSizeIsSet(true);
+    }
+
+    public void unsetPathsDumpChunkSize() {
+      __isset_bitfield = EncodingUtils.clearBit(__isset_bitfield, __PATHSDUMPCHUNKSIZE_ISSET_ID);
+    }
+
+    /** Returns true if field pathsDumpChunkSize is set (has been assigned a value) and false otherwise */
+    public boolean isSetPathsDumpChunkSize() {
+      return EncodingUtils.testBit(__isset_bitfield, __PATHSDUMPCHUNKSIZE_ISSET_ID);
+    }
+
+    public void setPathsDumpChunkSizeIsSet(boolean value) {
+      __isset_bitfield = EncodingUtils.setBit(__isset_bitfield, __PATHSDUMPCHUNKSIZE_ISSET_ID, value);
+    }
+
+    public int getWaitTimeoutMs() {
+      return this.waitTimeoutMs;
+    }
+
+    public void setWaitTimeoutMs(int waitTimeoutMs) {
+      this.waitTimeoutMs = waitTimeoutMs;
+      setWaitTimeoutMsIsSet(true);
+    }
+
+    public void unsetWaitTimeoutMs() {
+      __isset_bitfield = EncodingUtils.clearBit(__isset_bitfield, __WAITTIMEOUTMS_ISSET_ID);
+    }
+
+    /** Returns true if field waitTimeoutMs is set (has been assigned a value) and false otherwise */
+    public boolean isSetWaitTimeoutMs() {
+      return EncodingUtils.testBit(__isset_bitfield, __WAITTIMEOUTMS_ISSET_ID);
+    }
+
+    public void setWaitTimeoutMsIsSet(boolean value) {
+      __isset_bitfield = EncodingUtils.setBit(__isset_bitfield, __WAITTIMEOUTMS_ISSET_ID, value);
+    }
+
     public void setFieldValue(_Fields field, Object value) {
       switch (field) {
       case PERM_SEQ_NUM:
@@ -2162,6 +2282,30 @@ public class SentryHDFSService {
         }
         break;
 
+      case PATHS_DUMP_FROM_ID:
+        if (value == null) {
+          unsetPathsDumpFromId();
+        } else {
+          setPathsDumpFromId((Integer)value);
+        }
+        break;
+
+      case PATHS_DUMP_CHUNK_SIZE:
+        if (value == null) {
+          unsetPathsDumpChunkSize();
+        } else {
+          setPathsDumpChunkSize((Integer)value);
+        }
+        break;
+
+      case WAIT_TIMEOUT_MS:
+        if (value == null) {
+          unsetWaitTimeoutMs();
+        } else {
+          setWaitTimeoutMs((Integer)value);
+        }
+        break;
+
       }
     }
 
@@ -2173,6 +2317,15 @@ public class SentryHDFSService {
       case PATH_SEQ_NUM:
         return getPathSeqNum();
 
+      case PATHS_DUMP_FROM_ID:
+        return getPathsDumpFromId();
+
+      case PATHS_DUMP_CHUNK_SIZE:
+        return getPathsDumpChunkSize();
+
+      case WAIT_TIMEOUT_MS:
+        return getWaitTimeoutMs();
+
       }
       throw new IllegalStateException();
     }
@@ -2188,6 +2341,12 @@ public class SentryHDFSService {
         return isSetPermSeqNum();
       case PATH_SEQ_NUM:
         return isSetPathSeqNum();
+      case PATHS_DUMP_FROM_ID:
+        return isSetPathsDumpFromId();
+      case PATHS_DUMP_CHUNK_SIZE:
+        return isSetPathsDumpChunkSize();
+      case WAIT_TIMEOUT_MS:
+        return isSetWaitTimeoutMs();
       }
       throw new IllegalStateException();
     }
@@ -2223,6 +2382,33 @@ public class SentryHDFSService {
           return false;
       }
 
+      boolean this_present_pathsDumpFromId = true;
+      boolean that_present_pathsDumpFromId = true;
+      if (this_present_pathsDumpFromId || that_present_pathsDumpFromId) {
+        if (!(this_present_pathsDumpFromId && that_present_pathsDumpFromId))
+          return false;
+        if (this.pathsDumpFromId != that.pathsDumpFromId)
+          return false;
+      }
+
+      boolean this_present_pathsDumpChunkSize = true;
+      boolean that_present_pathsDumpChunkSize = true;
+      if (this_present_pathsDumpChunkSize || that_present_pathsDumpChunkSize) {
+        if (!(this_present_pathsDumpChunkSize && that_present_pathsDumpChunkSize))
+          return false;
+        if (this.pathsDumpChunkSize != that.pathsDumpChunkSize)
+          return false;
+      }
+
+      boolean this_present_waitTimeoutMs = true;
+      boolean that_present_waitTimeoutMs = true;
+      if (this_present_waitTimeoutMs || that_present_waitTimeoutMs) {
+        if (!(this_present_waitTimeoutMs && that_present_waitTimeoutMs))
+          return false;
+        if (this.waitTimeoutMs != that.waitTimeoutMs)
+          return false;
+      }
+
       return true;
     }
 
@@ -2240,6 +2426,21 @@ public class SentryHDFSService {
       if (present_pathSeqNum)
         list.add(pathSeqNum);
 
+      boolean present_pathsDumpFromId = true;
+      list.add(present_pathsDumpFromId);
+      if (present_pathsDumpFromId)
+        list.add(pathsDumpFromId);
+
+      boolean present_pathsDumpChunkSize = true;
+      list.add(present_pathsDumpChunkSize);
+      if (present_pathsDumpChunkSize)
+        list.add(pathsDumpChunkSize);
+
+      boolean present_waitTimeoutMs = true;
+      list.add(present_waitTimeoutMs);
+      if (present_waitTimeoutMs)
+        list.add(waitTimeoutMs);
+
       return list.hashCode();
     }
 
@@ -2271,6 +2472,36 @@ public class SentryHDFSService {
           return lastComparison;
         }
       }
+      lastComparison = Boolean.valueOf(isSetPathsDumpFromId()).compareTo(other.isSetPathsDumpFromId());
+      if (lastComparison != 0) {
+        return lastComparison;
+      }
+      if (isSetPathsDumpFromId()) {
+        lastComparison = org.apache.thrift.TBaseHelper.compareTo(this.pathsDumpFromId, other.pathsDumpFromId);
+        if (lastComparison != 0) {
+          return lastComparison;
+        }
+      }
+      lastComparison = Boolean.valueOf(isSetPathsDumpChunkSize()).compareTo(other.isSetPathsDumpChunkSize());
+      if (lastComparison != 0) {
+        return lastComparison;
+      }
+      if (isSetPathsDumpChunkSize()) {
+        lastComparison = org.apache.thrift.TBaseHelper.compareTo(this.pathsDumpChunkSize, other.pathsDumpChunkSize);
+        if (lastComparison != 0) {
+          return lastComparison;
+        }
+      }
+      lastComparison = Boolean.valueOf(isSetWaitTimeoutMs()).compareTo(other.isSetWaitTimeoutMs());
+      if (lastComparison != 0) {
+        return lastComparison;
+      }
+      if (isSetWaitTimeoutMs()) {
+        lastComparison = org.apache.thrift.TBaseHelper.compareTo(this.waitTimeoutMs, other.waitTimeoutMs);
+        if (lastComparison != 0) {
+          return lastComparison;
+        }
+      }
       return 0;
     }
 
@@ -2298,6 +2529,18 @@ public class SentryHDFSService {
       sb.append("pathSeqNum:");
       sb.append(this.pathSeqNum);
       first = false;
+      if (!first) sb.append(", ");
+      sb.append("pathsDumpFromId:");
+      sb.append(this.pathsDumpFromId);
+      first = false;
+      if (!first) sb.append(", ");
+      sb.append("pathsDumpChunkSize:");
+      sb.append(this.pathsDumpChunkSize);
+      first = false;
+      if (!first) sb.append(", ");
+      sb.append("waitTimeoutMs:");
+      sb.append(this.waitTimeoutMs);
+      first = false;
       sb.append(")");
       return sb.toString();
     }
@@ -2359,6 +2602,30 @@ public class SentryHDFSService {
                 org.apache.thrift.protocol.TProtocolUtil.skip(iprot, schemeField.type);
               }
               break;
+            case 3: // PATHS_DUMP_FROM_ID
+              if (schemeField.type == org.apache.thrift.protocol.TType.I32) {
+                struct.pathsDumpFromId = iprot.readI32();
+                struct.setPathsDumpFromIdIsSet(true);
+              } else { 
+                org.apache.thrift.protocol.TProtocolUtil.skip(iprot, schemeField.type);
+              }
+              break;
+            case 4: // PATHS_DUMP_CHUNK_SIZE
+              if (schemeField.type == org.apache.thrift.protocol.TType.I32) {
+                struct.pathsDumpChunkSize = iprot.readI32();
+                struct.setPathsDumpChunkSizeIsSet(true);
+              } else { 
+                org.apache.thrift.protocol.TProtocolUtil.skip(iprot, schemeField.type);
+              }
+              break;
+            case 5: // WAIT_TIMEOUT_MS
+              if (schemeField.type == org.apache.thrift.protocol.TType.I32) {
+                struct.waitTimeoutMs = iprot.readI32();
+                struct.setWaitTimeoutMsIsSet(true);
+              } else { 
+                org.apache.thrift.protocol.TProtocolUtil.skip(iprot, schemeField.type);
+              }
+              break;
             default:
               org.apache.thrift.protocol.TProtocolUtil.skip(iprot, schemeField.type);
           }
@@ -2378,6 +2645,15 @@ public class SentryHDFSService {
         oprot.writeFieldBegin(PATH_SEQ_NUM_FIELD_DESC);
         oprot.writeI64(struct.pathSeqNum);
         oprot.writeFieldEnd();
+        oprot.writeFieldBegin(PATHS_DUMP_FROM_ID_FIELD_DESC);
+        oprot.writeI32(struct.pathsDumpFromId);
+        oprot.writeFieldEnd();
+        oprot.writeFieldBegin(PATHS_DUMP_CHUNK_SIZE_FIELD_DESC);
+        oprot.writeI32(struct.pathsDumpChunkSize);
+        oprot.writeFieldEnd();
+        oprot.writeFieldBegin(WAIT_TIMEOUT_MS_FIELD_DESC);
+        oprot.writeI32(struct.waitTimeoutMs);
+        oprot.writeFieldEnd();
         oprot.writeFieldStop();
         oprot.writeStructEnd();
       }
@@ -2402,19 +2678,37 @@ public class SentryHDFSService {
         if (struct.isSetPathSeqNum()) {
           optionals.set(1);
         }
-        oprot.writeBitSet(optionals, 2);
+        if (struct.isSetPathsDumpFromId()) {
+          optionals.set(2);
+        }
+        if (struct.isSetPathsDumpChunkSize()) {
+          optionals.set(3);
+        }
+        if (struct.isSetWaitTimeoutMs()) {
+          optionals.set(4);
+        }
+        oprot.writeBitSet(optionals, 5);
         if (struct.isSetPermSeqNum()) {
           oprot.writeI64(struct.permSeqNum);
         }
         if (struct.isSetPathSeqNum()) {
           oprot.writeI64(struct.pathSeqNum);
         }
+        if (struct.isSetPathsDumpFromId()) {
+          oprot.writeI32(struct.pathsDumpFromId);
+        }
+        if (struct.isSetPathsDumpChunkSize()) {
+          oprot.writeI32(struct.pathsDumpChunkSize);
+        }
+        if (struct.isSetWaitTimeoutMs()) {
+          oprot.writeI32(struct.waitTimeoutMs);
+        }
       }
 
       @Override
       public void read(org.apache.thrift.protocol.TProtocol prot, get_all_authz_updates_from_args struct) throws org.apache.thrift.TException {
         TTupleProtocol iprot = (TTupleProtocol) prot;
-        BitSet incoming = iprot.readBitSet(2);
+        BitSet incoming = iprot.readBitSet(5);
         if (incoming.get(0)) {
           struct.permSeqNum = iprot.readI64();
           struct.setPermSeqNumIsSet(true);
@@ -2423,6 +2717,18 @@ public class SentryHDFSService {
           struct.pathSeqNum = iprot.readI64();
           struct.setPathSeqNumIsSet(true);
         }
+        if (incoming.get(2)) {
+          struct.pathsDumpFromId = iprot.readI32();
+          struct.setPathsDumpFromIdIsSet(true);
+        }
+        if (incoming.get(3)) {
+          struct.pathsDumpChunkSize = iprot.readI32();
+          struct.setPathsDumpChunkSizeIsSet(true);
+        }
+        if (incoming.get(4)) {
+          struct.waitTimeoutMs = iprot.readI32();
+          struct.setWaitTimeoutMsIsSet(true);
+        }
       }
     }
 
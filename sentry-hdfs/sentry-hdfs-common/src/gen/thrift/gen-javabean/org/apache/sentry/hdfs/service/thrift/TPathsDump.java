@@ -40,6 +40,7 @@ public class TPathsDump implements org.apache.thrift.TBase<TPathsDump, TPathsDum
 
   private static final org.apache.thrift.protocol.TField ROOT_ID_FIELD_DESC = new org.apache.thrift.protocol.TField("rootId", org.apache.thrift.protocol.TType.I32, (short)1);
   private static final org.apache.thrift.protocol.TField NODE_MAP_FIELD_DESC = new org.apache.thrift.protocol.TField("nodeMap", org.apache.thrift.protocol.TType.MAP, (short)2);
+  private static final org.apache.thrift.protocol.TField NEXT_CHUNK_ID_FIELD_DESC = new org.apache.thrift.protocol.TField("nextChunkId", org.apache.thrift.protocol.TType.I32, (short)3);
 
   private static final Map<Class<? extends IScheme>, SchemeFactory> schemes = new HashMap<Class<? extends IScheme>, SchemeFactory>();
   static {
@@ -49,11 +50,13 @@ public class TPathsDump implements org.apache.thrift.TBase<TPathsDump, TPathsDum
 
   private int rootId; // required
   private Map<Integer,TPathEntry> nodeMap; // required
+  private int nextChunkId; // optional
 
   /** The set of fields this struct contains, along with convenience methods for finding and manipulating them. */
   public enum _Fields implements org.apache.thrift.TFieldIdEnum {
     ROOT_ID((short)1, "rootId"),
-    NODE_MAP((short)2, "nodeMap");
+    NODE_MAP((short)2, "nodeMap"),
+    NEXT_CHUNK_ID((short)3, "nextChunkId");
 
     private static final Map<String, _Fields> byName = new HashMap<String, _Fields>();
 
@@ -72,6 +75,8 @@ public class TPathsDump implements org.apache.thrift.TBase<TPathsDump, TPathsDum
           return ROOT_ID;
         case 2: // NODE_MAP
           return NODE_MAP;
+        case 3: // NEXT_CHUNK_ID
+          return NEXT_CHUNK_ID;
         default:
           return null;
       }
@@ -113,7 +118,9 @@ public class TPathsDump implements org.apache.thrift.TBase<TPathsDump, TPathsDum
 
   // isset id assignments
   private static final int __ROOTID_ISSET_ID = 0;
+  private static final int __NEXTCHUNKID_ISSET_ID = 1;
   private byte __isset_bitfield = 0;
+  private static final _Fields optionals[] = {_Fields.NEXT_CHUNK_ID};
   public static final Map<_Fields, org.apache.thrift.meta_data.FieldMetaData> metaDataMap;
   static {
     Map<_Fields, org.apache.thrift.meta_data.FieldMetaData> tmpMap = new EnumMap<_Fields, org.apache.thrift.meta_data.FieldMetaData>(_Fields.class);
@@ -123,6 +130,8 @@ public class TPathsDump implements org.apache.thrift.TBase<TPathsDump, TPathsDum
         new org.apache.thrift.meta_data.MapMetaData(org.apache.thrift.protocol.TType.MAP, 
             new org.apache.thrift.meta_data.FieldValueMetaData(org.apache.thrift.protocol.TType.I32), 
             new org.apache.thrift.meta_data.StructMetaData(org.apache.thrift.protocol.TType.STRUCT, TPathEntry.class))));
+    tmpMap.put(_Fields.NEXT_CHUNK_ID, new org.apache.thrift.meta_data.FieldMetaData("nextChunkId", org.apache.thrift.TFieldRequirementType.OPTIONAL, 
+        new org.apache.thrift.meta_data.FieldValueMetaData(org.apache.thrift.protocol.TType.I32)));
     metaDataMap = Collections.unmodifiableMap(tmpMap);
     org.apache.thrift.meta_data.FieldMetaData.addStructMetaDataMap(TPathsDump.class, metaDataMap);
   }
@@ -161,6 +170,7 @@ public class TPathsDump implements org.apache.thrift.TBase<TPathsDump, TPathsDum
       }
       this.nodeMap = __this__nodeMap;
     }
+    this.nextChunkId = other.nextChunkId;
   }
 
   public TPathsDump deepCopy() {
@@ -172,6 +182,8 @@ public class TPathsDump implements org.apache.thrift.TBase<TPathsDump, TPathsDum
     setRootIdIsSet(false);
     this.rootId = 0;
     this.nodeMap = null;
+    setNextChunkIdIsSet(false);
+    this.nextChunkId = 0;
   }
 
   public int getRootId() {
@@ -230,6 +242,28 @@ public class TPathsDump implements org.apache.thrift.TBase<TPathsDump, TPathsDum
     }
   }
 
+  public int getNextChunkId() {
+    return this.nextChunkId;
+  }
+
+  public void setNextChunkId(int nextChunkId) {
+    this.nextChunkId = nextChunkId;
+    setNextChunkIdIsSet(true);
+  }
+
+  public void unsetNextChunkId() {
+    __isset_bitfield = EncodingUtils.clearBit(__isset_bitfield, __NEXTCHUNKID_ISSET_ID);
+  }
+
+  /** Returns true if field nextChunkId is set (has been assigned a value) and false otherwise */
+  public boolean isSetNextChunkId() {
+    return EncodingUtils.testBit(__isset_bitfield, __NEXTCHUNKID_ISSET_ID);
+  }
+
+  public void setNextChunkIdIsSet(boolean value) {
+    __isset_bitfield = EncodingUtils.setBit(__isset_bitfield, __NEXTCHUNKID_ISSET_ID, value);
+  }
+
   public void setFieldValue(_Fields field, Object value) {
     switch (field) {
     case ROOT_ID:
@@ -248,6 +282,14 @@ public class TPathsDump implements org.apache.thrift.TBase<TPathsDump, TPathsDum
       }
       break;
 
+    case NEXT_CHUNK_ID:
+      if (value == null) {
+        unsetNextChunkId();
+      } else {
+        setNextChunkId((Integer)value);
+      }
+      break;
+
     }
   }
 
@@ -259,6 +301,9 @@ public class TPathsDump implements org.apache.thrift.TBase<TPathsDump, TPathsDum
     case NODE_MAP:
       return getNodeMap();
 
+    case NEXT_CHUNK_ID:
+      return getNextChunkId();
+
     }
     throw new IllegalStateException();
   }
@@ -274,6 +319,8 @@ public class TPathsDump implements org.apache.thrift.TBase<TPathsDump, TPathsDum
       return isSetRootId();
     case NODE_MAP:
       return isSetNodeMap();
+    case NEXT_CHUNK_ID:
+      return isSetNextChunkId();
     }
     throw new IllegalStateException();
   }
@@ -309,6 +356,15 @@ public class TPathsDump implements org.apache.thrift.TBase<TPathsDump, TPathsDum
         return false;
     }
 
+    boolean this_present_nextChunkId = true && this.isSetNextChunkId();
+    boolean that_present_nextChunkId = true && that.isSetNextChunkId();
+    if (this_present_nextChunkId || that_present_nextChunkId) {
+      if (!(this_present_nextChunkId && that_present_nextChunkId))
+        return false;
+      if (this.nextChunkId != that.nextChunkId)
+        return false;
+    }
+
     return true;
   }
 
@@ -326,6 +382,11 @@ public class TPathsDump implements org.apache.thrift.TBase<TPathsDump, TPathsDum
     if (present_nodeMap)
       list.add(nodeMap);
 
+    boolean present_nextChunkId = true && (isSetNextChunkId());
+    list.add(present_nextChunkId);
+    if (present_nextChunkId)
+      list.add(nextChunkId);
+
     return list.hashCode();
   }
 
@@ -357,6 +418,16 @@ public class TPathsDump implements org.apache.thrift.TBase<TPathsDump, TPathsDum
         return lastComparison;
       }
     }
+    lastComparison = Boolean.valueOf(isSetNextChunkId()).compareTo(other.isSetNextChunkId());
+    if (lastComparison != 0) {
+      return lastComparison;
+    }
+    if (isSetNextChunkId()) {
+      lastComparison = org.apache.thrift.TBaseHelper.compareTo(this.nextChunkId, other.nextChunkId);
+      if (lastComparison != 0) {
+        return lastComparison;
+      }
+    }
     return 0;
   }
 
@@ -388,6 +459,12 @@ public class TPathsDump implements org.apache.thrift.TBase<TPathsDump, TPathsDum
       sb.append(this.nodeMap);
     }
     first = false;
+    if (isSetNextChunkId()) {
+      if (!first) sb.append(", ");
+      sb.append("nextChunkId:");
+      sb.append(this.nextChunkId);
+      first = false;
+    }
     sb.append(")");
     return sb.toString();
   }
@@ -470,6 +547,14 @@ public class TPathsDump implements org.apache.thrift.TBase<TPathsDump, TPathsDum
               org.apache.thrift.protocol.TProtocolUtil.skip(iprot, schemeField.type);
             }
             break;
+          case 3: // NEXT_CHUNK_ID
+            if (schemeField.type == org.apache.thrift.protocol.TType.I32) {
+              struct.nextChunkId = iprot.readI32();
+              struct.setNextChunkIdIsSet(true);
+            } else { 
+              org.apache.thrift.protocol.TProtocolUtil.skip(iprot, schemeField.type);
+            }
+            break;
           default:
             org.apache.thrift.protocol.TProtocolUtil.skip(iprot, schemeField.type);
         }
@@ -499,6 +584,11 @@ public class TPathsDump implements org.apache.thrift.TBase<TPathsDump, TPathsDum
         }
         oprot.writeFieldEnd();
       }
+      if (struct.isSetNextChunkId()) {
+        oprot.writeFieldBegin(NEXT_CHUNK_ID_FIELD_DESC);
+        oprot.writeI32(struct.nextChunkId);
+        oprot.writeFieldEnd();
+      }
       oprot.writeFieldStop();
       oprot.writeStructEnd();
     }
@@ -525,6 +615,14 @@ public class TPathsDump implements org.apache.thrift.TBase<TPathsDump, TPathsDum
           _iter53.getValue().write(oprot);
         }
       }
+      BitSet optionals = new BitSet();
+      if (struct.isSetNextChunkId()) {
+        optionals.set(0);
+      }
+      oprot.writeBitSet(optionals, 1);
+      if (struct.isSetNextChunkId()) {
+        oprot.writeI32(struct.nextChunkId);
+      }
     }
 
     @Override
@@ -546,6 +644,11 @@ public class TPathsDump implements org.apache.thrift.TBase<TPathsDump, TPathsDum
         }
       }
       struct.setNodeMapIsSet(true);
+      BitSet incoming = iprot.readBitSet(1);
+      if (incoming.get(0)) {
+        struct.nextChunkId = iprot.readI32();
+        struct.setNextChunkIdIsSet(true);
+      }
     }
   }
 
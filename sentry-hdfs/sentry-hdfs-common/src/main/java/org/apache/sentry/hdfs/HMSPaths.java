@@ -18,12 +18,16 @@
 package org.apache.sentry.hdfs;
 
 import java.util.*;
+import java.util.concurrent.atomic.AtomicLong;
 
 import com.google.common.base.Joiner;
 import org.apache.hadoop.fs.Path;
 
 import com.google.common.annotations.VisibleForTesting;
 import com.google.common.base.Preconditions;
+import com.google.common.collect.Interner;
+import com.google.common.collect.Interners;
+import com.google.common.collect.Iterators;
 import com.google.common.collect.Lists;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -33,11 +37,41 @@ import org.slf4j.LoggerFactory;
  * core data-structures used to efficiently handle request from clients of 
  * the {@link AuthzPaths} paths. All updates to this class is handled by the
  * thread safe {@link UpdateableAuthzPaths} class
+ *
+ * A {@link #copy()} shares all its entries with the original paths, an entry
+ * is only copied when one of them modifies it. Paths which are not modified
+ * anymore can therefore be read without locking while their copy is updated.
+ *
+ * The entries are kept small as there is one per path of every table and
+ * partition: the path elements are interned, the children are held in a
+ * sorted array until there are too many of them for a binary search, and
+ * the sets of authorizable objects are immutable and shared by the entries
+ * added together for the same object.
  */
 public class HMSPaths implements AuthzPaths {
 
   private static final Logger LOG = LoggerFactory.getLogger(HMSPaths.class);
 
+  // Generations of the copies, the entries of a tree can only be modified by
+  // the tree of the same generation. The trees which are never copied keep
+  // the generation 0.
+  private static final AtomicLong GENERATIONS = new AtomicLong(0);
+
+  // Identifiers of the entries, shared by an entry and its copies.
+  private static final AtomicLong ENTRY_IDS = new AtomicLong(0);
+
+  // The children of an entry are held in a map beyond this number.
+  private static final int MAX_ARRAY_CHILDREN = 8;
+
+  // Partition path elements, eg. 'ds=2017-01-01', repeat across the tables.
+  private static final Interner<String> PATH_ELEMENTS = Interners.newWeakInterner();
+
+  private static final Set<String> NO_AUTHZ_OBJS = Collections.emptySet();
+
+  // The set of the last single authorizable object, shared by the entries
+  // of the paths which are added together for that object.
+  private static volatile SingleAuthzObj lastSingleAuthzObj;
+
   @VisibleForTesting
   static List<String> getPathElements(String path) {
     String trimmedPath = path.trim();
@@ -110,58 +144,249 @@ public class HMSPaths implements AuthzPaths {
     private EntryType type;
     private String pathElement;
 
-    // A set of authorizable objects associated with this entry. Authorizable
-    // object should be case insensitive.
+    // An immutable set of authorizable objects associated with this entry.
+    // Authorizable object should be case insensitive.
     private Set<String> authzObjs;
 
-    // Path of child element to the path entry mapping.
-    // e.g. 'b' -> '/a/b'
-    private final Map<String, Entry> children;
+    // The children of the entry by path element, e.g. 'b' -> '/a/b'. This
+    // is null without children, the child itself for a single child, an
+    // array sorted by path element up to MAX_ARRAY_CHILDREN children and a
+    // map of the path elements to the children beyond.
+    private Object children;
+
+    // The generation of the tree which owns the entry. The parent of an
+    // entry shared between trees is the latest copy of its parent, so that
+    // the older copies are not retained by the shared entries.
+    private final long generation;
+
+    // The identifier of the entry, shared with its copies.
+    private final long id;
+
+    // Whether the entry was removed from the tree which owns it. The parent
+    // is kept as a shared child re-parented to this entry still resolves
+    // its path through it.
+    private boolean removed;
 
     Entry(Entry parent, String pathElement, EntryType type,
         String authzObj) {
       this.parent = parent;
       this.type = type;
-      this.pathElement = pathElement;
-      this.authzObjs = new TreeSet<String>(String.CASE_INSENSITIVE_ORDER);
-      addAuthzObj(authzObj);
-      children = new HashMap<String, Entry>();
+      this.pathElement = PATH_ELEMENTS.intern(pathElement);
+      this.authzObjs = (authzObj != null) ? singleAuthzObj(authzObj) : NO_AUTHZ_OBJS;
+      generation = (parent != null) ? parent.generation : 0;
+      id = ENTRY_IDS.incrementAndGet();
     }
 
     Entry(Entry parent, String pathElement, EntryType type,
           Set<String> authzObjs) {
       this.parent = parent;
       this.type = type;
-      this.pathElement = pathElement;
-      this.authzObjs = new TreeSet<String>(String.CASE_INSENSITIVE_ORDER);
+      this.pathElement = PATH_ELEMENTS.intern(pathElement);
+      this.authzObjs = NO_AUTHZ_OBJS;
       addAuthzObjs(authzObjs);
-      children = new HashMap<String, Entry>();
+      generation = (parent != null) ? parent.generation : 0;
+      id = ENTRY_IDS.incrementAndGet();
+    }
+
+    // Copies the entry into the tree of the given generation, the children
+    // are shared until they are modified. The shared children are moved
+    // under the copy, the entry copied is then only retained by the trees
+    // of the older generations.
+    private Entry(Entry parent, Entry entry, long generation) {
+      this.parent = parent;
+      this.type = entry.type;
+      this.pathElement = entry.pathElement;
+      this.authzObjs = entry.authzObjs;
+      if (entry.children instanceof Entry[]) {
+        children = ((Entry[]) entry.children).clone();
+      } else if (entry.children instanceof Map) {
+        children = new HashMap<String, Entry>(getChildrenMap(entry.children));
+      } else {
+        children = entry.children;
+      }
+      this.generation = generation;
+      id = entry.id;
+      for (Entry child : getChildren()) {
+        child.parent = this;
+      }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Map<String, Entry> getChildrenMap(Object children) {
+      return (Map<String, Entry>) children;
+    }
+
+    // Index of the child of the path element in the sorted children, or
+    // (-(insertion point) - 1) if there is none.
+    private static int indexOf(Entry[] children, String pathElement) {
+      int low = 0;
+      int high = children.length - 1;
+      while (low <= high) {
+        int mid = (low + high) >>> 1;
+        int cmp = children[mid].pathElement.compareTo(pathElement);
+        if (cmp < 0) {
+          low = mid + 1;
+        } else if (cmp > 0) {
+          high = mid - 1;
+        } else {
+          return mid;
+        }
+      }
+      return -(low + 1);
+    }
+
+    // Get all the children entries.
+    public Collection<Entry> getChildren() {
+      if (children == null) {
+        return Collections.emptyList();
+      } else if (children instanceof Entry) {
+        return Collections.singletonList((Entry) children);
+      } else if (children instanceof Entry[]) {
+        return Collections.unmodifiableList(Arrays.asList((Entry[]) children));
+      } else {
+        return Collections.unmodifiableCollection(getChildrenMap(children).values());
+      }
+    }
+
+    boolean hasChildren() {
+      return children != null;
+    }
+
+    /**
+     * Get the child entry of the path element.
+     *
+     * @return  Returns the child entry, or null if there is none.
+     */
+    public Entry getChild(String pathElement) {
+      if (children instanceof Entry) {
+        Entry child = (Entry) children;
+        return child.pathElement.equals(pathElement) ? child : null;
+      } else if (children instanceof Entry[]) {
+        Entry[] array = (Entry[]) children;
+        int index = indexOf(array, pathElement);
+        return (index >= 0) ? array[index] : null;
+      } else if (children != null) {
+        return getChildrenMap(children).get(pathElement);
+      }
+      return null;
+    }
+
+    /**
+     * Add a child entry, replacing the child of the same path element.
+     */
+    void putChild(Entry child) {
+      if (children == null) {
+        children = child;
+      } else if (children instanceof Entry) {
+        Entry other = (Entry) children;
+        int cmp = other.pathElement.compareTo(child.pathElement);
+        if (cmp == 0) {
+          children = child;
+        } else {
+          children = (cmp < 0) ? new Entry[] {other, child} : new Entry[] {child, other};
+        }
+      } else if (children instanceof Entry[]) {
+        Entry[] array = (Entry[]) children;
+        int index = indexOf(array, child.pathElement);
+        if (index >= 0) {
+          array[index] = child;
+        } else if (array.length < MAX_ARRAY_CHILDREN) {
+          index = -index - 1;
+          Entry[] newArray = new Entry[array.length + 1];
+          System.arraycopy(array, 0, newArray, 0, index);
+          newArray[index] = child;
+          System.arraycopy(array, index, newArray, index + 1, array.length - index);
+          children = newArray;
+        } else {
+          Map<String, Entry> map = new HashMap<String, Entry>();
+          for (Entry entry : array) {
+            map.put(entry.pathElement, entry);
+          }
+          map.put(child.pathElement, child);
+          children = map;
+        }
+      } else {
+        getChildrenMap(children).put(child.pathElement, child);
+      }
     }
 
-    // Get all the mapping of the children element to
-    // the path entries.
-    public Map<String, Entry> getChildren() {
-      return children;
+    /**
+     * Remove the child entry of the path element, if any.
+     */
+    void removeChild(String pathElement) {
+      if (children instanceof Entry) {
+        if (((Entry) children).pathElement.equals(pathElement)) {
+          children = null;
+        }
+      } else if (children instanceof Entry[]) {
+        Entry[] array = (Entry[]) children;
+        int index = indexOf(array, pathElement);
+        if (index >= 0) {
+          if (array.length == 2) {
+            children = array[1 - index];
+          } else {
+            Entry[] newArray = new Entry[array.length - 1];
+            System.arraycopy(array, 0, newArray, 0, index);
+            System.arraycopy(array, index + 1, newArray, index, newArray.length - index);
+            children = newArray;
+          }
+        }
+      } else if (children != null) {
+        Map<String, Entry> map = getChildrenMap(children);
+        map.remove(pathElement);
+        if (map.isEmpty()) {
+          children = null;
+        }
+      }
+    }
+
+    /**
+     * Get the child entry of the path element so that it can be modified. If
+     * the child is shared with the tree of another generation, it is replaced
+     * by a copy owned by the tree of this entry.
+     *
+     * @param  pathElement the path element of the child.
+     * @return  Returns the child entry, or null if there is none.
+     */
+    private Entry getOwnedChild(String pathElement) {
+      Entry child = getChild(pathElement);
+      if (child != null && child.generation != generation) {
+        child = new Entry(this, child, generation);
+        putChild(child);
+      }
+      return child;
     }
 
     void clearAuthzObjs() {
-      authzObjs = new HashSet<String>();
+      authzObjs = NO_AUTHZ_OBJS;
     }
 
     void removeAuthzObj(String authzObj) {
-      authzObjs.remove(authzObj);
+      if (authzObjs.contains(authzObj)) {
+        SortedSet<String> newAuthzObjs = new TreeSet<String>(String.CASE_INSENSITIVE_ORDER);
+        newAuthzObjs.addAll(authzObjs);
+        newAuthzObjs.remove(authzObj);
+        authzObjs = toAuthzObjs(newAuthzObjs);
+      }
     }
 
     void addAuthzObj(String authzObj) {
-      if (authzObj != null) {
-        authzObjs.add(authzObj);
+      if (authzObj != null && !authzObjs.contains(authzObj)) {
+        if (authzObjs.isEmpty()) {
+          authzObjs = singleAuthzObj(authzObj);
+        } else {
+          SortedSet<String> newAuthzObjs = new TreeSet<String>(String.CASE_INSENSITIVE_ORDER);
+          newAuthzObjs.addAll(authzObjs);
+          newAuthzObjs.add(authzObj);
+          authzObjs = toAuthzObjs(newAuthzObjs);
+        }
       }
     }
 
     void addAuthzObjs(Set<String> authzObjs) {
       if (authzObjs != null) {
         for (String authObj : authzObjs) {
-          this.authzObjs.add(authObj);
+          addAuthzObj(authObj);
         }
       }
     }
@@ -174,6 +399,11 @@ public class HMSPaths implements AuthzPaths {
       parent = null;
     }
 
+    // Whether the entry is the root of its tree or was removed from it.
+    private boolean isDetached() {
+      return parent == null || removed;
+    }
+
     public String toString() {
       return String.format("Entry[fullPath: %s, type: %s, authObject: %s]",
           getFullPath(), type, Joiner.on(",").join(authzObjs));
@@ -198,18 +428,18 @@ public class HMSPaths implements AuthzPaths {
       // direct parent.
       for (int i = 0; i < pathElements.size() - 1; i++) {
         String pathElement = pathElements.get(i);
-        Entry child = entryParent.getChildren().get(pathElement);
+        Entry child = entryParent.getOwnedChild(pathElement);
 
         if (child == null) {
           child = new Entry(entryParent, pathElement, EntryType.DIR, (String) null);
-          entryParent.getChildren().put(pathElement, child);
+          entryParent.putChild(child);
         }
 
         entryParent = child;
       }
 
       String lastPathElement = pathElements.get(pathElements.size() - 1);
-      Entry child = entryParent.getChildren().get(lastPathElement);
+      Entry child = entryParent.getOwnedChild(lastPathElement);
 
       // Create the child entry if not found. If found and the entry is
       // already a prefix or authzObj type, then only add the authzObj.
@@ -217,7 +447,7 @@ public class HMSPaths implements AuthzPaths {
       // and add the authzObj.
       if (child == null) {
         child = new Entry(entryParent, lastPathElement, type, authzObj);
-        entryParent.getChildren().put(lastPathElement, child);
+        entryParent.putChild(child);
       } else if (type == EntryType.AUTHZ_OBJECT &&
           (child.getType() == EntryType.PREFIX || child.getType() == EntryType.AUTHZ_OBJECT)) {
         child.addAuthzObj(authzObj);
@@ -267,17 +497,17 @@ public class HMSPaths implements AuthzPaths {
     }
 
     public void deleteAuthzObject(String authzObj) {
-      if (getParent() != null) {
-        if (getChildren().isEmpty()) {
+      if (!isDetached()) {
+        if (!hasChildren()) {
 
           // Remove the authzObj on the path entry. If the path
           // entry no longer maps to any authzObj, removes the
           // entry recursively.
-          authzObjs.remove(authzObj);
+          removeAuthzObj(authzObj);
           if (authzObjs.size() == 0) {
-            getParent().getChildren().remove(getPathElement());
+            getParent().removeChild(getPathElement());
             getParent().deleteIfDangling();
-            parent = null;
+            removed = true;
           }
         } else {
 
@@ -286,7 +516,7 @@ public class HMSPaths implements AuthzPaths {
           // the path entry.
           if (getType() == EntryType.AUTHZ_OBJECT) {
             setType(EntryType.DIR);
-            authzObjs.remove(authzObj);
+            removeAuthzObj(authzObj);
           }
         }
       }
@@ -294,11 +524,11 @@ public class HMSPaths implements AuthzPaths {
 
 
     public void delete() {
-      if (getParent() != null) {
-        if (getChildren().isEmpty()) {
-          getParent().getChildren().remove(getPathElement());
+      if (!isDetached()) {
+        if (!hasChildren()) {
+          getParent().removeChild(getPathElement());
           getParent().deleteIfDangling();
-          parent = null;
+          removed = true;
         } else {
           // if the entry was for an authz object and has children, we
           // change it to be a dir entry.
@@ -311,7 +541,7 @@ public class HMSPaths implements AuthzPaths {
     }
 
     private void deleteIfDangling() {
-      if (getChildren().isEmpty() && getType().isRemoveIfDangling()) {
+      if (!hasChildren() && getType().isRemoveIfDangling()) {
         delete();
       }
     }
@@ -346,7 +576,7 @@ public class HMSPaths implements AuthzPaths {
       if (index == pathElements.size()) {
         prefixEntry = null;
       } else {
-        Entry child = getChildren().get(pathElements.get(index));
+        Entry child = getChild(pathElements.get(index));
         if (child != null) {
           if (child.getType() == EntryType.PREFIX) {
             prefixEntry = child;
@@ -373,7 +603,7 @@ public class HMSPaths implements AuthzPaths {
           found = this;
         }
       } else {
-        Entry child = getChildren().get(pathElements[index]);
+        Entry child = getChild(pathElements[index]);
         if (child != null) {
           if (index == pathElements.length - 1) {
             found = (child.getAuthzObjs().size() != 0) ? child : lastAuthObj;
@@ -406,14 +636,85 @@ public class HMSPaths implements AuthzPaths {
       return sb;
     }
 
+    /**
+     * Get the path elements of the entry from the root. The path of an entry
+     * never changes, the entry may however have been removed from the tree
+     * of any generation.
+     */
+    private List<String> getPathElements() {
+      LinkedList<String> pathElements = new LinkedList<String>();
+      Entry entry = this;
+      while (entry.getParent() != null) {
+        pathElements.addFirst(entry.getPathElement());
+        entry = entry.getParent();
+      }
+      return pathElements;
+    }
+
+  }
+
+  /**
+   * Get the immutable set of a single authorizable object. The set is shared
+   * with the previous entries created for the same object.
+   */
+  private static Set<String> singleAuthzObj(String authzObj) {
+    SingleAuthzObj single = lastSingleAuthzObj;
+    if (single == null || !single.authzObj.equals(authzObj)) {
+      single = new SingleAuthzObj(authzObj);
+      lastSingleAuthzObj = single;
+    }
+    return single;
+  }
+
+  /**
+   * Get an immutable copy of a case insensitive set of authorizable objects.
+   */
+  private static Set<String> toAuthzObjs(SortedSet<String> authzObjs) {
+    switch (authzObjs.size()) {
+    case 0:
+      return NO_AUTHZ_OBJS;
+    case 1:
+      return singleAuthzObj(authzObjs.first());
+    default:
+      return Collections.unmodifiableSortedSet(authzObjs);
+    }
+  }
+
+  // An immutable set of a single authorizable object, which is case insensitive.
+  private static final class SingleAuthzObj extends AbstractSet<String> {
+    private final String authzObj;
+
+    SingleAuthzObj(String authzObj) {
+      this.authzObj = authzObj;
+    }
+
+    @Override
+    public boolean contains(Object o) {
+      return (o instanceof String) && authzObj.equalsIgnoreCase((String) o);
+    }
+
+    @Override
+    public Iterator<String> iterator() {
+      return Iterators.singletonIterator(authzObj);
+    }
+
+    @Override
+    public int size() {
+      return 1;
+    }
   }
 
   private volatile Entry root;
   private String[] prefixes;
 
   // The hive authorized objects to path entries mapping.
-  // One authorized object can map to a set of path entries.
-  private Map<String, Set<Entry>> authzObjToPath;
+  // One authorized object can map to a set of path entries. The mapping
+  // shares its buckets with the copies until they are modified.
+  private SharedCaseInsensitiveMap<Set<Entry>> authzObjToPath;
+
+  // The authorized objects whose set of path entries is owned by these paths,
+  // null if the sets were never shared with a copy.
+  private Set<String> ownedAuthzObjs;
 
   public HMSPaths(String[] pathPrefixes) {
     boolean rootPrefix = false;
@@ -433,7 +734,78 @@ public class HMSPaths implements AuthzPaths {
       }
     }
 
-    authzObjToPath = new TreeMap<String, Set<Entry>>(String.CASE_INSENSITIVE_ORDER);
+    authzObjToPath = new SharedCaseInsensitiveMap<Set<Entry>>();
+  }
+
+  private HMSPaths(HMSPaths other) {
+    prefixes = other.prefixes;
+    root = new Entry(null, other.root, GENERATIONS.incrementAndGet());
+    authzObjToPath = other.authzObjToPath.copy();
+    ownedAuthzObjs = new TreeSet<String>(String.CASE_INSENSITIVE_ORDER);
+  }
+
+  /**
+   * Returns a copy of these paths. The entries and the authorized objects
+   * mapping are shared until either the copy or these paths modify them, the
+   * copy only takes a copy of the root entry and of the mapping buckets.
+   */
+  HMSPaths copy() {
+    HMSPaths copy = new HMSPaths(this);
+    // these paths stop modifying the shared entries as well, the mapping
+    // stops modifying its shared buckets when copied
+    root = new Entry(null, root, GENERATIONS.incrementAndGet());
+    ownedAuthzObjs = new TreeSet<String>(String.CASE_INSENSITIVE_ORDER);
+    return copy;
+  }
+
+  /**
+   * Get the entry of these paths which is the given entry or a copy of it,
+   * the given entry may be shared with a copy. The entries along its path are
+   * copied so that the returned entry can be modified.
+   *
+   * @return Returns the entry, or null if it was removed from these paths.
+   */
+  private Entry getOwnedEntry(Entry entry) {
+    if (entry.generation == root.generation) {
+      return entry;
+    }
+    Entry owned = root;
+    for (String pathElement : entry.getPathElements()) {
+      owned = owned.getOwnedChild(pathElement);
+      if (owned == null) {
+        return null;
+      }
+    }
+    // the entry may have been removed and another one created at its path
+    return (owned.id == entry.id) ? owned : null;
+  }
+
+  /**
+   * Get the path entries of the authorized object so that they can be
+   * modified. A set shared with a copy is replaced by a set of owned entries.
+   */
+  private Set<Entry> getOwnedEntries(String authzObj) {
+    Set<Entry> entries = authzObjToPath.get(authzObj);
+    if (entries != null && ownedAuthzObjs != null
+        && !ownedAuthzObjs.contains(authzObj)) {
+      Set<Entry> ownedEntries = new HashSet<Entry>(entries.size());
+      for (Entry entry : entries) {
+        Entry owned = getOwnedEntry(entry);
+        if (owned != null) {
+          ownedEntries.add(owned);
+        }
+      }
+      putEntries(authzObj, ownedEntries);
+      entries = ownedEntries;
+    }
+    return entries;
+  }
+
+  private void putEntries(String authzObj, Set<Entry> entries) {
+    authzObjToPath.put(authzObj, entries);
+    if (ownedAuthzObjs != null) {
+      ownedAuthzObjs.add(authzObj);
+    }
   }
 
   void _addAuthzObject(String authzObj, List<String> authzObjPaths) {
@@ -441,7 +813,7 @@ public class HMSPaths implements AuthzPaths {
   }
 
   void addAuthzObject(String authzObj, List<List<String>> authzObjPathElements) {
-    Set<Entry> previousEntries = authzObjToPath.get(authzObj);
+    Set<Entry> previousEntries = getOwnedEntries(authzObj);
     Set<Entry> newEntries = new HashSet<Entry>(authzObjPathElements.size());
     for (List<String> pathElements : authzObjPathElements) {
       Entry e = root.createAuthzObjPath(pathElements, authzObj);
@@ -451,7 +823,7 @@ public class HMSPaths implements AuthzPaths {
         LOG.warn("Ignoring path, no prefix");
       }
     }
-    authzObjToPath.put(authzObj, newEntries);
+    putEntries(authzObj, newEntries);
     if (previousEntries != null) {
       previousEntries.removeAll(newEntries);
       if (!previousEntries.isEmpty()) {
@@ -464,7 +836,7 @@ public class HMSPaths implements AuthzPaths {
 
   void addPathsToAuthzObject(String authzObj,
       List<List<String>> authzObjPathElements, boolean createNew) {
-    Set<Entry> entries = authzObjToPath.get(authzObj);
+    Set<Entry> entries = getOwnedEntries(authzObj);
     if (entries != null) {
       Set<Entry> newEntries = new HashSet<Entry>(authzObjPathElements.size());
       for (List<String> pathElements : authzObjPathElements) {
@@ -501,13 +873,14 @@ public class HMSPaths implements AuthzPaths {
    */
   void deletePathsFromAuthzObject(String authzObj,
       List<List<String>> authzObjPathElements) {
-    Set<Entry> entries = authzObjToPath.get(authzObj);
+    Set<Entry> entries = getOwnedEntries(authzObj);
     if (entries != null) {
       Set<Entry> toDelEntries = new HashSet<Entry>(authzObjPathElements.size());
       for (List<String> pathElements : authzObjPathElements) {
         Entry entry = root.find(
             pathElements.toArray(new String[pathElements.size()]), false);
         if (entry != null) {
+          entry = getOwnedEntry(entry);
           entry.deleteAuthzObject(authzObj);
           toDelEntries.add(entry);
         } else {
@@ -522,7 +895,8 @@ public class HMSPaths implements AuthzPaths {
   }
 
   void deleteAuthzObject(String authzObj) {
-    Set<Entry> entries = authzObjToPath.remove(authzObj);
+    Set<Entry> entries = getOwnedEntries(authzObj);
+    authzObjToPath.remove(authzObj);
     if (entries != null) {
       for (Entry entry : entries) {
         entry.deleteAuthzObject(authzObj);
@@ -593,12 +967,12 @@ public class HMSPaths implements AuthzPaths {
       }
     }
     if(samePaths) {
-      Set<Entry> eSet = authzObjToPath.get(oldName);
+      Set<Entry> eSet = getOwnedEntries(oldName);
       if (eSet == null) {
         LOG.warn("Unexpected state in renameAuthzObject, cannot find oldName in authzObjToPath: oldName=" + oldName + " newName=" + newName +
                 " oldPath=" + oldPathElems + " newPath=" + newPathElems);
       } else {
-        authzObjToPath.put(newName, eSet);
+        putEntries(newName, eSet);
         for (Entry e : eSet) {
           if (e.getAuthzObjs().contains(oldName)) {
             e.addAuthzObj(newName);
@@ -633,7 +1007,9 @@ public class HMSPaths implements AuthzPaths {
   }
 
   void setAuthzObjToPathMapping(Map<String, Set<Entry>> mapping) {
-    authzObjToPath = mapping;
+    authzObjToPath = new SharedCaseInsensitiveMap<Set<Entry>>();
+    authzObjToPath.putAll(mapping);
+    ownedAuthzObjs = null;
   }
 
   @Override
@@ -17,10 +17,14 @@
  */
 package org.apache.sentry.hdfs;
 
+import java.util.ArrayDeque;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedList;
 import java.util.Map;
 import java.util.Set;
+import java.util.TreeMap;
 import java.util.concurrent.atomic.AtomicInteger;
 
 import org.apache.sentry.hdfs.HMSPaths.Entry;
@@ -28,6 +32,8 @@ import org.apache.sentry.hdfs.HMSPaths.EntryType;
 import org.apache.sentry.hdfs.service.thrift.TPathEntry;
 import org.apache.sentry.hdfs.service.thrift.TPathsDump;
 
+import com.google.common.base.Preconditions;
+
 public class HMSPathsDumper implements AuthzPathsDumper<HMSPaths> {
 
   private final HMSPaths hmsPaths;
@@ -58,7 +64,7 @@ public class HMSPathsDumper implements AuthzPathsDumper<HMSPaths> {
 
   private void cloneToTPathEntry(Entry parent, TPathEntry tParent,
       AtomicInteger counter, Map<Integer, TPathEntry> idMap) {
-    for (Entry child : parent.getChildren().values()) {
+    for (Entry child : parent.getChildren()) {
       Tuple childTuple = createTPathEntry(child, counter, idMap);
       tParent.getChildren().add(childTuple.id);
       cloneToTPathEntry(child, childTuple.entry, counter, idMap);
@@ -82,7 +88,8 @@ public class HMSPathsDumper implements AuthzPathsDumper<HMSPaths> {
     HMSPaths newHmsPaths = new HMSPaths(this.hmsPaths.getPrefixes());
     TPathEntry tRootEntry = pathDump.getNodeMap().get(pathDump.getRootId());
     Entry rootEntry = newHmsPaths.getRootEntry();
-    Map<String, Set<Entry>> authzObjToPath = new HashMap<String, Set<Entry>>();
+    Map<String, Set<Entry>> authzObjToPath =
+        new TreeMap<String, Set<Entry>>(String.CASE_INSENSITIVE_ORDER);
     cloneToEntry(tRootEntry, rootEntry, pathDump.getNodeMap(), authzObjToPath,
         rootEntry.getType() == EntryType.PREFIX);
     newHmsPaths.setRootEntry(rootEntry);
@@ -91,42 +98,252 @@ public class HMSPathsDumper implements AuthzPathsDumper<HMSPaths> {
     return newHmsPaths;
   }
 
+  /**
+   * Returns the paths dump of a copy of these paths, which is produced chunk
+   * by chunk when it is read. The copy shares the entries of these paths, so
+   * this must not be called concurrently with the updates of these paths.
+   */
+  public ChunkedDump newChunkedDump() {
+    return new ChunkedDump(hmsPaths.copy().getRootEntry());
+  }
+
+  /**
+   * Returns a loader of a paths dump which is received in chunks into new
+   * paths with the prefixes of these paths.
+   */
+  public DumpLoader newDumpLoader() {
+    return new DumpLoader(new HMSPaths(hmsPaths.getPrefixes()));
+  }
+
   private void cloneToEntry(TPathEntry tParent, Entry parent,
       Map<Integer, TPathEntry> idMap, Map<String,
       Set<Entry>> authzObjToPath, boolean hasCrossedPrefix) {
     for (Integer id : tParent.getChildren()) {
       TPathEntry tChild = idMap.get(id);
-      Entry child = null;
-      boolean isChildPrefix = hasCrossedPrefix;
-      if (!hasCrossedPrefix) {
-        child = parent.getChildren().get(tChild.getPathElement());
-        // If we havn't reached a prefix entry yet, then child should
-        // already exists.. else it is not part of the prefix
-        if (child == null) {
-          continue;
+      Entry child = cloneToChild(tChild, parent, authzObjToPath, hasCrossedPrefix);
+      if (child != null) {
+        cloneToEntry(tChild, child, idMap, authzObjToPath,
+            hasCrossedPrefix || child.getType() == EntryType.PREFIX);
+      }
+    }
+  }
+
+  // Adds the entry of the dump to the children of its parent, returns the
+  // added entry or null if the entry is not under the path prefixes.
+  private static Entry cloneToChild(TPathEntry tChild, Entry parent,
+      Map<String, Set<Entry>> authzObjToPath, boolean hasCrossedPrefix) {
+    Entry child = null;
+    if (!hasCrossedPrefix) {
+      child = parent.getChild(tChild.getPathElement());
+      // If we havn't reached a prefix entry yet, then child should
+      // already exists.. else it is not part of the prefix
+      if (child == null) {
+        return null;
+      }
+      // Handle case when prefix entry has an authzObject
+      // For Eg (default table mapped to /user/hive/warehouse)
+      if (child.getType() == EntryType.PREFIX) {
+        child.addAuthzObjs(tChild.getAuthzObjs());
+      }
+    }
+    if (child == null) {
+      child = new Entry(parent, tChild.getPathElement(),
+          EntryType.fromByte(tChild.getType()), tChild.getAuthzObjs());
+    }
+    for (String authzObj : child.getAuthzObjs()) {
+      Set<Entry> paths = authzObjToPath.get(authzObj);
+      if (paths == null) {
+        paths = new HashSet<Entry>();
+        authzObjToPath.put(authzObj, paths);
+      }
+      paths.add(child);
+    }
+    parent.putChild(child);
+    return child;
+  }
+
+  /**
+   * The paths dump of paths which are not modified anymore, produced chunk by
+   * chunk so that the whole dump is never held in memory. The entries are
+   * numbered in breadth first order from the root: the children of an entry
+   * are numbered when the entry is dumped, so its chunk can hold their ids.
+   * The chunks are usually read in order, a read resumes from the cursor
+   * where a previous read stopped, the others start over from the root.
+   */
+  public static class ChunkedDump {
+
+    private static final int ROOT_ID = 1;
+    // e.g. the name nodes of an HA pair reading the dump at the same time
+    private static final int MAX_CURSORS = 4;
+
+    private final Entry root;
+    // The cursors of the reads which are not done, guarded by this
+    private final LinkedList<Cursor> cursors = new LinkedList<Cursor>();
+
+    private static class Cursor {
+      // The entries which are numbered but not dumped yet, in id order
+      private final ArrayDeque<Entry> pending = new ArrayDeque<Entry>();
+      // The id of the first pending entry
+      private int nextId = ROOT_ID;
+      // The id of the last pending entry
+      private int lastId = ROOT_ID;
+
+      Cursor(Entry root) {
+        pending.add(root);
+      }
+    }
+
+    private ChunkedDump(Entry root) {
+      this.root = root;
+    }
+
+    /**
+     * Returns the whole dump at once.
+     */
+    public TPathsDump createPathsDump() {
+      return dump(new Cursor(root), ROOT_ID, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Returns the chunk of at most chunkSize entries from the entry of id
+     * fromId on. The id of the next chunk is set unless it is the last one.
+     */
+    public TPathsDump getChunk(int fromId, int chunkSize) {
+      Preconditions.checkArgument(chunkSize > 0, "Invalid chunk size " + chunkSize);
+      fromId = Math.max(fromId, ROOT_ID);
+      Cursor cursor = null;
+      synchronized (this) {
+        // the cursor closest to the chunk
+        for (Cursor other : cursors) {
+          if (other.nextId <= fromId && (cursor == null || other.nextId > cursor.nextId)) {
+            cursor = other;
+          }
         }
-        isChildPrefix = child.getType() == EntryType.PREFIX;
-        // Handle case when prefix entry has an authzObject
-        // For Eg (default table mapped to /user/hive/warehouse)
-        if (isChildPrefix) {
-          child.addAuthzObjs(tChild.getAuthzObjs());
+        if (cursor != null) {
+          cursors.remove(cursor);
         }
       }
-      if (child == null) {
-        child = new Entry(parent, tChild.getPathElement(),
-            EntryType.fromByte(tChild.getType()), tChild.getAuthzObjs());
+      if (cursor == null) {
+        cursor = new Cursor(root);
+      }
+      TPathsDump chunk = dump(cursor, fromId, chunkSize);
+      if (!cursor.pending.isEmpty()) {
+        synchronized (this) {
+          cursors.addFirst(cursor);
+          if (cursors.size() > MAX_CURSORS) {
+            cursors.removeLast();
+          }
+        }
       }
-      if (child.getAuthzObjs().size() != 0) {
-        for (String authzObj: child.getAuthzObjs()) {
-          Set<Entry> paths = authzObjToPath.get(authzObj);
-          if (paths == null) {
-            paths = new HashSet<Entry>();
+      return chunk;
+    }
+
+    // Dumps the entries of the chunk, skipping those before it
+    private static TPathsDump dump(Cursor cursor, int fromId, int chunkSize) {
+      long endId = (long) fromId + chunkSize;
+      Map<Integer, TPathEntry> nodeMap = new HashMap<Integer, TPathEntry>();
+      while (!cursor.pending.isEmpty() && cursor.nextId < endId) {
+        Entry entry = cursor.pending.poll();
+        int id = cursor.nextId++;
+        int firstChildId = cursor.lastId + 1;
+        for (Entry child : entry.getChildren()) {
+          cursor.pending.add(child);
+          cursor.lastId++;
+        }
+        if (id >= fromId) {
+          TPathEntry tEntry = new TPathEntry(entry.getType().getByte(),
+              entry.getPathElement(), new HashSet<Integer>());
+          for (int childId = firstChildId; childId <= cursor.lastId; childId++) {
+            tEntry.getChildren().add(childId);
+          }
+          if (entry.getAuthzObjs().size() != 0) {
+            tEntry.setAuthzObjs(entry.getAuthzObjs());
           }
-          paths.add(child);
+          nodeMap.put(id, tEntry);
         }
       }
-      parent.getChildren().put(child.getPathElement(), child);
-      cloneToEntry(tChild, child, idMap, authzObjToPath, isChildPrefix);
+      TPathsDump chunk = new TPathsDump(ROOT_ID, nodeMap);
+      if (!cursor.pending.isEmpty()) {
+        chunk.setNextChunkId(cursor.nextId);
+      }
+      return chunk;
+    }
+  }
+
+  /**
+   * Loads a paths dump which is received in chunks into new paths, so that
+   * the whole dump is never held in memory. The entries of a dump are
+   * numbered from its root so that an entry follows its parent, as both
+   * {@link #createPathsDump()} and {@link ChunkedDump} number them, and each
+   * chunk holds the entries numbered after those of the previous chunk. The
+   * parent of an entry is thus always loaded before the entry itself, only
+   * the parents of the entries which are still to be loaded are kept between
+   * the chunks.
+   */
+  public static class DumpLoader {
+
+    private final HMSPaths newHmsPaths;
+    private final Map<String, Set<Entry>> authzObjToPath =
+        new TreeMap<String, Set<Entry>>(String.CASE_INSENSITIVE_ORDER);
+
+    // The parents of the entries still to be loaded by the ids of the entries,
+    // the entries which are not under the path prefixes are left out.
+    private final Map<Integer, Parent> parents = new HashMap<Integer, Parent>();
+
+    private static class Parent {
+      private final Entry entry;
+      private final boolean hasCrossedPrefix;
+      Parent(Entry entry, boolean hasCrossedPrefix) {
+        this.entry = entry;
+        this.hasCrossedPrefix = hasCrossedPrefix;
+      }
+    }
+
+    private DumpLoader(HMSPaths newHmsPaths) {
+      this.newHmsPaths = newHmsPaths;
+    }
+
+    /**
+     * Loads the next chunk of the dump, the first chunk holds its root.
+     */
+    public void load(TPathsDump chunk) {
+      Map<Integer, TPathEntry> idMap = chunk.getNodeMap();
+      Integer[] ids = idMap.keySet().toArray(new Integer[idMap.size()]);
+      Arrays.sort(ids);
+      for (Integer id : ids) {
+        TPathEntry tEntry = idMap.get(id);
+        if (id == chunk.getRootId()) {
+          Entry rootEntry = newHmsPaths.getRootEntry();
+          addParent(tEntry, rootEntry, rootEntry.getType() == EntryType.PREFIX);
+          continue;
+        }
+        Parent parent = parents.remove(id);
+        if (parent != null) {
+          Entry entry = cloneToChild(tEntry, parent.entry, authzObjToPath,
+              parent.hasCrossedPrefix);
+          if (entry != null) {
+            addParent(tEntry, entry,
+                parent.hasCrossedPrefix || entry.getType() == EntryType.PREFIX);
+          }
+        }
+      }
+    }
+
+    private void addParent(TPathEntry tEntry, Entry entry, boolean hasCrossedPrefix) {
+      if (tEntry.getChildrenSize() > 0) {
+        Parent parent = new Parent(entry, hasCrossedPrefix);
+        for (Integer id : tEntry.getChildren()) {
+          parents.put(id, parent);
+        }
+      }
+    }
+
+    /**
+     * Returns the new paths, once all the chunks of the dump are loaded.
+     */
+    public HMSPaths getPaths() {
+      newHmsPaths.setAuthzObjToPathMapping(authzObjToPath);
+      return newHmsPaths;
     }
   }
 
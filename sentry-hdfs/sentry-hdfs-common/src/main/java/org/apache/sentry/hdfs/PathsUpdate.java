@@ -20,12 +20,16 @@ package org.apache.sentry.hdfs;
 import java.io.IOException;
 import java.net.URI;
 import java.net.URISyntaxException;
+import java.util.HashMap;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Map;
 
 import com.google.common.annotations.VisibleForTesting;
 import com.google.common.base.Preconditions;
 import org.apache.sentry.hdfs.service.thrift.TPathChanges;
+import org.apache.sentry.hdfs.service.thrift.TPathEntry;
+import org.apache.sentry.hdfs.service.thrift.TPathsDump;
 import org.apache.sentry.hdfs.service.thrift.TPathsUpdate;
 import org.apache.commons.httpclient.util.URIUtil;
 import org.apache.commons.httpclient.URIException;
@@ -49,6 +53,8 @@ public class PathsUpdate implements Updateable.Update {
   public static final String ALL_PATHS = "__ALL_PATHS__";
   private static final Configuration CONF = new Configuration();
   private final TPathsUpdate tPathsUpdate;
+  // Produces the paths dump of a full image, until the whole dump is needed
+  private volatile HMSPathsDumper.ChunkedDump chunkedDump;
 
   public PathsUpdate() {
     this(0, false);
@@ -63,6 +69,15 @@ public class PathsUpdate implements Updateable.Update {
         new LinkedList<TPathChanges>());
   }
 
+  /**
+   * A full image whose paths dump is produced from the given dump when it is
+   * read, chunk by chunk unless the whole update is needed.
+   */
+  public PathsUpdate(long seqNum, HMSPathsDumper.ChunkedDump chunkedDump) {
+    this(seqNum, true);
+    this.chunkedDump = chunkedDump;
+  }
+
   @Override
   public boolean hasFullImage() {
     return tPathsUpdate.isHasFullImage();
@@ -90,10 +105,86 @@ public class PathsUpdate implements Updateable.Update {
     tPathsUpdate.setSeqNum(seqNum);
   }
 
+  @Override
+  public long getEstimatedSize() {
+    long size = 0;
+    if (tPathsUpdate.isSetPathChanges()) {
+      for (TPathChanges pathChanges : tPathsUpdate.getPathChanges()) {
+        size += getEstimatedSize(pathChanges.getAuthzObj());
+        size += getEstimatedSize(pathChanges.getAddPaths());
+        size += getEstimatedSize(pathChanges.getDelPaths());
+      }
+    }
+    return size;
+  }
+
+  private static long getEstimatedSize(List<List<String>> paths) {
+    long size = 0;
+    if (paths != null) {
+      for (List<String> path : paths) {
+        for (String pathElement : path) {
+          size += getEstimatedSize(pathElement);
+        }
+      }
+    }
+    return size;
+  }
+
+  // a string is serialized as its length followed by its (mostly ASCII) chars
+  static long getEstimatedSize(String value) {
+    return (value != null) ? value.length() + 2 : 0;
+  }
+
   public TPathsUpdate toThrift() {
+    if (chunkedDump != null) {
+      synchronized (this) {
+        if (chunkedDump != null) {
+          tPathsUpdate.setPathsDump(chunkedDump.createPathsDump());
+          chunkedDump = null;
+        }
+      }
+    }
     return tPathsUpdate;
   }
 
+  /**
+   * Returns a chunk of the full image of this update, which holds at most
+   * chunkSize entries of its paths dump from the entry of id fromId on. The
+   * ids of the entries of a dump follow each other from the id of its root.
+   * The paths dump of the chunk has the id of the next chunk set unless it is
+   * the last one, this update itself is returned when its whole dump fits in
+   * the chunk. The chunk shares the entries of this update, or is produced
+   * from the source of its dump when the whole dump was never needed.
+   */
+  public PathsUpdate getPathsDumpChunk(int fromId, int chunkSize) {
+    Preconditions.checkState(hasFullImage(), "Not a full image");
+    HMSPathsDumper.ChunkedDump source = chunkedDump;
+    if (source != null) {
+      PathsUpdate chunk = new PathsUpdate(getSeqNum(), true);
+      chunk.toThrift().setPathsDump(source.getChunk(fromId, chunkSize));
+      return chunk;
+    }
+    TPathsDump pathsDump = tPathsUpdate.getPathsDump();
+    int rootId = pathsDump.getRootId();
+    long endId = (long) rootId + pathsDump.getNodeMapSize();
+    int firstId = Math.max(fromId, rootId);
+    if (firstId == rootId && endId - rootId <= chunkSize) {
+      return this;
+    }
+    int lastId = (int) Math.min(endId, (long) firstId + chunkSize);
+    Map<Integer, TPathEntry> nodeMap = new HashMap<Integer, TPathEntry>();
+    for (int id = firstId; id < lastId; id++) {
+      nodeMap.put(id, pathsDump.getNodeMap().get(id));
+    }
+    TPathsDump chunkDump = new TPathsDump(rootId, nodeMap);
+    if (lastId < endId) {
+      chunkDump.setNextChunkId(lastId);
+    }
+    PathsUpdate chunk = new PathsUpdate(getSeqNum(), true);
+    chunk.toThrift().setPathsDump(chunkDump);
+    return chunk;
+  }
+
   @VisibleForTesting
   public static Configuration getConfiguration() {
     return CONF;
@@ -143,7 +234,7 @@ public class PathsUpdate implements Updateable.Update {
 
   @Override
   public byte[] serialize() throws IOException {
-    return ThriftSerializer.serialize(tPathsUpdate);
+    return ThriftSerializer.serialize(toThrift());
   }
 
   @Override
@@ -21,6 +21,8 @@ import java.io.IOException;
 import java.util.Collection;
 import java.util.HashMap;
 import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
 
 import org.apache.sentry.hdfs.service.thrift.TPermissionsUpdate;
 import org.apache.sentry.hdfs.service.thrift.TPrivilegeChanges;
@@ -65,6 +67,47 @@ public class PermissionsUpdate implements Updateable.Update {
     return tPermUpdate.isHasfullImage();
   }
 
+  @Override
+  public long getEstimatedSize() {
+    long size = 0;
+    if (tPermUpdate.isSetPrivilegeChanges()) {
+      for (TPrivilegeChanges privChanges : tPermUpdate.getPrivilegeChanges().values()) {
+        size += 2 * PathsUpdate.getEstimatedSize(privChanges.getAuthzObj());
+        size += getEstimatedSize(privChanges.getAddPrivileges());
+        size += getEstimatedSize(privChanges.getDelPrivileges());
+      }
+    }
+    if (tPermUpdate.isSetRoleChanges()) {
+      for (TRoleChanges roleChanges : tPermUpdate.getRoleChanges().values()) {
+        size += 2 * PathsUpdate.getEstimatedSize(roleChanges.getRole());
+        size += getEstimatedSize(roleChanges.getAddGroups());
+        size += getEstimatedSize(roleChanges.getDelGroups());
+      }
+    }
+    return size;
+  }
+
+  private static long getEstimatedSize(Map<String, String> privileges) {
+    long size = 0;
+    if (privileges != null) {
+      for (Map.Entry<String, String> privilege : privileges.entrySet()) {
+        size += PathsUpdate.getEstimatedSize(privilege.getKey());
+        size += PathsUpdate.getEstimatedSize(privilege.getValue());
+      }
+    }
+    return size;
+  }
+
+  private static long getEstimatedSize(List<String> groups) {
+    long size = 0;
+    if (groups != null) {
+      for (String group : groups) {
+        size += PathsUpdate.getEstimatedSize(group);
+      }
+    }
+    return size;
+  }
+
   public TPrivilegeChanges addPrivilegeUpdate(String authzObj) {
     if (tPermUpdate.getPrivilegeChanges().containsKey(authzObj)) {
       return tPermUpdate.getPrivilegeChanges().get(authzObj);
@@ -23,11 +23,22 @@ public class SentryAuthzUpdate {
 
   private final List<PermissionsUpdate> permUpdates;
   private final List<PathsUpdate> pathUpdates;
+  private final UpdateableAuthzPaths pathsImage;
 
   public SentryAuthzUpdate(List<PermissionsUpdate> permUpdates,
       List<PathsUpdate> pathUpdates) {
+    this(permUpdates, pathUpdates, null);
+  }
+
+  /**
+   * @param pathsImage the paths loaded from a full image which was received
+   *                   in chunks, the path updates follow the image
+   */
+  public SentryAuthzUpdate(List<PermissionsUpdate> permUpdates,
+      List<PathsUpdate> pathUpdates, UpdateableAuthzPaths pathsImage) {
     this.permUpdates = permUpdates;
     this.pathUpdates = pathUpdates;
+    this.pathsImage = pathsImage;
   }
 
   public List<PermissionsUpdate> getPermUpdates() {
@@ -38,4 +49,12 @@ public class SentryAuthzUpdate {
     return pathUpdates;
   }
 
+  /**
+   * Returns the paths loaded from a full image which was received in chunks,
+   * or null if the path updates hold the full image if any.
+   */
+  public UpdateableAuthzPaths getPathsImage() {
+    return pathsImage;
+  }
+
 }
@@ -28,6 +28,26 @@ public interface SentryHDFSServiceClient {
   SentryAuthzUpdate getAllUpdatesFrom(long permSeqNum, long pathSeqNum)
       throws SentryHdfsServiceException;
 
+  /**
+   * Same as {@link #getAllUpdatesFrom(long, long)}, except that a full paths
+   * image is returned in chunks of at most pathsDumpChunkSize entries, starting
+   * with the entry of id pathsDumpFromId. The paths dump of a chunk which is
+   * followed by more chunks has the id of the next chunk set, the partial
+   * updates following the image come with its last chunk.
+   */
+  SentryAuthzUpdate getAllUpdatesFrom(long permSeqNum, long pathSeqNum,
+      int pathsDumpFromId, int pathsDumpChunkSize) throws SentryHdfsServiceException;
+
+  /**
+   * Same as {@link #getAllUpdatesFrom(long, long, int, int)}, except that when
+   * there are neither permission nor path updates from the given sequence
+   * numbers, the Sentry server waits up to waitTimeoutMs for new ones before
+   * returning. Servers which do not support waiting return right away.
+   */
+  SentryAuthzUpdate getAllUpdatesFrom(long permSeqNum, long pathSeqNum,
+      int pathsDumpFromId, int pathsDumpChunkSize, int waitTimeoutMs)
+      throws SentryHdfsServiceException;
+
   void close();
 }
 
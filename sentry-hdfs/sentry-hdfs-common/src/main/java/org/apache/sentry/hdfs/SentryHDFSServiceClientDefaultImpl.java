@@ -188,9 +188,21 @@ public class SentryHDFSServiceClientDefaultImpl implements SentryHDFSServiceClie
 
   public synchronized SentryAuthzUpdate getAllUpdatesFrom(long permSeqNum, long pathSeqNum)
  throws SentryHdfsServiceException {
+    return getAllUpdatesFrom(permSeqNum, pathSeqNum, 0, 0);
+  }
+
+  public synchronized SentryAuthzUpdate getAllUpdatesFrom(long permSeqNum, long pathSeqNum,
+      int pathsDumpFromId, int pathsDumpChunkSize) throws SentryHdfsServiceException {
+    return getAllUpdatesFrom(permSeqNum, pathSeqNum, pathsDumpFromId, pathsDumpChunkSize, 0);
+  }
+
+  public synchronized SentryAuthzUpdate getAllUpdatesFrom(long permSeqNum, long pathSeqNum,
+      int pathsDumpFromId, int pathsDumpChunkSize, int waitTimeoutMs)
+      throws SentryHdfsServiceException {
     SentryAuthzUpdate retVal = new SentryAuthzUpdate(new LinkedList<PermissionsUpdate>(), new LinkedList<PathsUpdate>());
     try {
-      TAuthzUpdateResponse sentryUpdates = client.get_all_authz_updates_from(permSeqNum, pathSeqNum);
+      TAuthzUpdateResponse sentryUpdates = client.get_all_authz_updates_from(permSeqNum, pathSeqNum,
+          pathsDumpFromId, pathsDumpChunkSize, waitTimeoutMs);
       if (sentryUpdates.getAuthzPathUpdate() != null) {
         for (TPathsUpdate pathsUpdate : sentryUpdates.getAuthzPathUpdate()) {
           retVal.getPathUpdates().add(new PathsUpdate(pathsUpdate));
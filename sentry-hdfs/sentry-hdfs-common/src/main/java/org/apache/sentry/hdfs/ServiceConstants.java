@@ -45,10 +45,34 @@ public class ServiceConstants {
         new String[]{"/user/hive/warehouse"};
     public static final String SENTRY_HDFS_INIT_UPDATE_RETRY_DELAY_MS = "sentry.hdfs.init.update.retry.delay.ms";
     public static final int SENTRY_HDFS_INIT_UPDATE_RETRY_DELAY_DEFAULT = 10000;
+    // The update logs of the paths and permissions kept for the NameNode
+    // plugins are compacted into a full image when they hold more than this
+    // many updates, or when the estimated serialized size of their partial
+    // updates exceeds the given number of bytes (0 for no limit)
+    public static final String SENTRY_HDFS_UPDATE_LOG_SIZE = "sentry.hdfs.update.log.size";
+    public static final int SENTRY_HDFS_UPDATE_LOG_SIZE_DEFAULT = 100;
+    public static final String SENTRY_HDFS_UPDATE_LOG_MAX_BYTES = "sentry.hdfs.update.log.max.bytes";
+    public static final long SENTRY_HDFS_UPDATE_LOG_MAX_BYTES_DEFAULT = 32 * 1024 * 1024L;
+    // The longest a NameNode plugin asking for updates is kept waiting for
+    // new ones, whatever it asks for
+    public static final String SENTRY_HDFS_UPDATE_MAX_WAIT_MS = "sentry.hdfs.update.max.wait.ms";
+    public static final long SENTRY_HDFS_UPDATE_MAX_WAIT_MS_DEFAULT = 30 * 1000L;
     public static final String SENTRY_HDFS_SYNC_CHECKER_PERIOD_MS = "sentry.hdfs.sync.checker.period.ms";
     public static final int SENTRY_HDFS_SYNC_CHECKER_PERIOD_DEFAULT = 1000;
     public static final String SENTRY_HDFS_HA_ZOOKEEPER_NAMESPACE = "sentry.hdfs.ha.zookeeper.namespace";
     public static final String SENTRY_HDFS_HA_ZOOKEEPER_NAMESPACE_DEFAULT = "/sentry_hdfs";
+    // The updates replicated through ZooKeeper by the Sentry servers in HA
+    // mode are written in batches of at most this many updates and bytes
+    public static final String SENTRY_HDFS_HA_SYNC_BATCH_MAX_UPDATES = "sentry.hdfs.ha.sync.batch.max.updates";
+    public static final int SENTRY_HDFS_HA_SYNC_BATCH_MAX_UPDATES_DEFAULT = 1000;
+    public static final String SENTRY_HDFS_HA_SYNC_BATCH_MAX_BYTES = "sentry.hdfs.ha.sync.batch.max.bytes";
+    public static final int SENTRY_HDFS_HA_SYNC_BATCH_MAX_BYTES_DEFAULT = 512 * 1024;
+    // The replicated updates are cleaned up when they take more than this
+    // many bytes, or when there are more than a hundred of them
+    public static final String SENTRY_HDFS_HA_CACHE_GC_MAX_BYTES = "sentry.hdfs.ha.cache.gc.max.bytes";
+    public static final long SENTRY_HDFS_HA_CACHE_GC_MAX_BYTES_DEFAULT = 64 * 1024 * 1024L;
+    public static final String SENTRY_HDFS_HA_CACHE_GC_INTERVAL_MS = "sentry.hdfs.ha.cache.gc.interval.ms";
+    public static final long SENTRY_HDFS_HA_CACHE_GC_INTERVAL_MS_DEFAULT = 60 * 1000L;
     public static final String SENTRY_METASTORE_HA_ZOOKEEPER_NAMESPACE = "sentry.metastore.ha.zookeeper.namespace";
     public static final String SENTRY_METASTORE_HA_ZOOKEEPER_NAMESPACE_DEFAULT = "/sentry_metastore";
     public static final String SENTRY_HDFS_SYNC_METASTORE_CACHE_INIT_THREADS = "sentry.hdfs.sync.metastore.cache.init.threads";
@@ -66,6 +90,40 @@ public class ServiceConstants {
     public static final int SENTRY_HDFS_SYNC_METASTORE_CACHE_MAX_PART_PER_RPC_DEFAULT = 100;
     public static final String SENTRY_HDFS_SYNC_METASTORE_CACHE_MAX_TABLES_PER_RPC = "sentry.hdfs.sync.metastore.cache.max-tables-per-rpc";
     public static final int SENTRY_HDFS_SYNC_METASTORE_CACHE_MAX_TABLES_PER_RPC_DEFAULT = 100;
+    // The number of batches of tables of a database, and of pages of
+    // partitions of a table, which are fetched in parallel
+    public static final String SENTRY_HDFS_SYNC_METASTORE_CACHE_TABLE_TASKS_PER_DB = "sentry.hdfs.sync.metastore.cache.table-tasks-per-db";
+    public static final int SENTRY_HDFS_SYNC_METASTORE_CACHE_TABLE_TASKS_PER_DB_DEFAULT = 10;
+    public static final String SENTRY_HDFS_SYNC_METASTORE_CACHE_PARTITION_TASKS_PER_TABLE = "sentry.hdfs.sync.metastore.cache.partition-tasks-per-table";
+    public static final int SENTRY_HDFS_SYNC_METASTORE_CACHE_PARTITION_TASKS_PER_TABLE_DEFAULT = 10;
+
+    // The local directory in which the metastore plugin persists its paths
+    // cache, so that a restarted metastore does not read all its objects again.
+    // Unset by default, not supported together with the metastore HA plugin.
+    public static final String SENTRY_HDFS_SYNC_METASTORE_CACHE_SNAPSHOT_DIR = "sentry.hdfs.sync.metastore.cache.snapshot.dir";
+    public static final String SENTRY_HDFS_SYNC_METASTORE_CACHE_SNAPSHOT_INTERVAL_MS = "sentry.hdfs.sync.metastore.cache.snapshot.interval.ms";
+    public static final long SENTRY_HDFS_SYNC_METASTORE_CACHE_SNAPSHOT_INTERVAL_MS_DEFAULT = 10 * 60 * 1000L;
+    // How often the journal of the updates since the last snapshot is forced
+    // to disk, the updates are not forced one by one.
+    public static final String SENTRY_HDFS_SYNC_METASTORE_CACHE_SNAPSHOT_SYNC_INTERVAL_MS = "sentry.hdfs.sync.metastore.cache.snapshot.sync.interval.ms";
+    public static final long SENTRY_HDFS_SYNC_METASTORE_CACHE_SNAPSHOT_SYNC_INTERVAL_MS_DEFAULT = 1000L;
+    // Whether the cache loaded from a snapshot is replaced in the background by
+    // one read from the metastore, for the changes the snapshot missed: those
+    // made while the metastore was down or by other metastores and tools.
+    public static final String SENTRY_HDFS_SYNC_METASTORE_CACHE_SNAPSHOT_RECONCILE_ENABLE = "sentry.hdfs.sync.metastore.cache.snapshot.reconcile.enable";
+    public static final boolean SENTRY_HDFS_SYNC_METASTORE_CACHE_SNAPSHOT_RECONCILE_ENABLE_DEFAULT = true;
+
+    // Whether the metastore plugin notifies Sentry of its path updates from a
+    // thread of its own, coalescing the updates queued in the meantime. Not
+    // supported together with the metastore HA plugin.
+    public static final String SENTRY_HDFS_SYNC_METASTORE_NOTIFICATION_ASYNC_ENABLE = "sentry.hdfs.sync.metastore.notification.async.enable";
+    public static final boolean SENTRY_HDFS_SYNC_METASTORE_NOTIFICATION_ASYNC_ENABLE_DEFAULT = false;
+    public static final String SENTRY_HDFS_SYNC_METASTORE_NOTIFICATION_BATCH_SIZE = "sentry.hdfs.sync.metastore.notification.batch.size";
+    public static final int SENTRY_HDFS_SYNC_METASTORE_NOTIFICATION_BATCH_SIZE_DEFAULT = 10000;
+    public static final String SENTRY_HDFS_SYNC_METASTORE_NOTIFICATION_BATCH_DELAY_MS = "sentry.hdfs.sync.metastore.notification.batch.delay.ms";
+    public static final long SENTRY_HDFS_SYNC_METASTORE_NOTIFICATION_BATCH_DELAY_MS_DEFAULT = 100;
+    public static final String SENTRY_HDFS_SYNC_METASTORE_NOTIFICATION_QUEUE_CAPACITY = "sentry.hdfs.sync.metastore.notification.queue.capacity";
+    public static final int SENTRY_HDFS_SYNC_METASTORE_NOTIFICATION_QUEUE_CAPACITY_DEFAULT = 100000;
   }
 
   public static class ClientConfig {
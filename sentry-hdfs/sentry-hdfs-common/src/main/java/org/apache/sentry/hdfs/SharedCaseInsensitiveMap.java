@@ -0,0 +1,177 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.sentry.hdfs;
+
+import java.util.AbstractCollection;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import com.google.common.collect.Iterables;
+import com.google.common.collect.Iterators;
+
+/**
+ * A case insensitive map whose {@link #copy()} shares its entries with the
+ * original map. The keys are spread over a fixed number of sorted buckets,
+ * and a bucket is only copied when one of the maps modifies it, so that
+ * the cost of a copy and of its modifications does not depend on the size
+ * of the map. The values are shared as well, they must be copied by the
+ * users of the map before being modified.
+ *
+ * This class is not thread-safe, a map which is not modified anymore can
+ * be read concurrently.
+ */
+public final class SharedCaseInsensitiveMap<V> {
+
+  private static final int DEFAULT_BUCKETS = 1024;
+
+  private final TreeMap<String, V>[] buckets;
+
+  // Whether the bucket of the same index can be modified by this map, the
+  // buckets which are not owned may be shared with a copy.
+  private final boolean[] owned;
+
+  private int size;
+
+  public SharedCaseInsensitiveMap() {
+    this(DEFAULT_BUCKETS);
+  }
+
+  @SuppressWarnings("unchecked")
+  public SharedCaseInsensitiveMap(int numBuckets) {
+    buckets = new TreeMap[numBuckets];
+    owned = new boolean[numBuckets];
+  }
+
+  private SharedCaseInsensitiveMap(SharedCaseInsensitiveMap<V> other) {
+    buckets = other.buckets.clone();
+    owned = new boolean[buckets.length];
+    size = other.size;
+  }
+
+  /**
+   * Returns a copy of this map. The buckets are shared until either the copy
+   * or this map modify them.
+   */
+  public SharedCaseInsensitiveMap<V> copy() {
+    SharedCaseInsensitiveMap<V> copy = new SharedCaseInsensitiveMap<V>(this);
+    // this map stops modifying the shared buckets as well
+    Arrays.fill(owned, false);
+    return copy;
+  }
+
+  // The hash code of the key which is the same for all the keys equal to
+  // it for String.CASE_INSENSITIVE_ORDER.
+  private int indexOf(String key) {
+    int hash = 0;
+    for (int i = 0; i < key.length(); i++) {
+      hash = 31 * hash + Character.toLowerCase(Character.toUpperCase(key.charAt(i)));
+    }
+    return (hash & Integer.MAX_VALUE) % buckets.length;
+  }
+
+  // Get the bucket of the index so that it can be modified.
+  private TreeMap<String, V> getOwnedBucket(int index) {
+    TreeMap<String, V> bucket = buckets[index];
+    if (bucket == null) {
+      bucket = new TreeMap<String, V>(String.CASE_INSENSITIVE_ORDER);
+      buckets[index] = bucket;
+      owned[index] = true;
+    } else if (!owned[index]) {
+      bucket = new TreeMap<String, V>(bucket);
+      buckets[index] = bucket;
+      owned[index] = true;
+    }
+    return bucket;
+  }
+
+  public V get(String key) {
+    TreeMap<String, V> bucket = buckets[indexOf(key)];
+    return (bucket != null) ? bucket.get(key) : null;
+  }
+
+  public boolean containsKey(String key) {
+    TreeMap<String, V> bucket = buckets[indexOf(key)];
+    return bucket != null && bucket.containsKey(key);
+  }
+
+  public V put(String key, V value) {
+    V previous = getOwnedBucket(indexOf(key)).put(key, value);
+    if (previous == null) {
+      size++;
+    }
+    return previous;
+  }
+
+  public void putAll(Map<String, ? extends V> map) {
+    for (Map.Entry<String, ? extends V> entry : map.entrySet()) {
+      put(entry.getKey(), entry.getValue());
+    }
+  }
+
+  public V remove(String key) {
+    int index = indexOf(key);
+    if (buckets[index] == null || !buckets[index].containsKey(key)) {
+      return null;
+    }
+    size--;
+    return getOwnedBucket(index).remove(key);
+  }
+
+  public void clear() {
+    Arrays.fill(buckets, null);
+    Arrays.fill(owned, false);
+    size = 0;
+  }
+
+  public int size() {
+    return size;
+  }
+
+  public boolean isEmpty() {
+    return size == 0;
+  }
+
+  /**
+   * Returns an unmodifiable view of the values, ordered by bucket and then by
+   * key within a bucket.
+   */
+  public Collection<V> values() {
+    return new AbstractCollection<V>() {
+      @Override
+      public Iterator<V> iterator() {
+        List<Collection<V>> values = new ArrayList<Collection<V>>();
+        for (TreeMap<String, V> bucket : buckets) {
+          if (bucket != null) {
+            values.add(bucket.values());
+          }
+        }
+        return Iterators.unmodifiableIterator(Iterables.concat(values).iterator());
+      }
+
+      @Override
+      public int size() {
+        return size;
+      }
+    };
+  }
+}
@@ -36,6 +36,12 @@ public interface Updateable<K extends Updateable.Update> {
 
     void setSeqNum(long seqNum);
 
+    /**
+     * An estimate of the serialized size of a partial update in bytes, which
+     * does not serialize it
+     */
+    long getEstimatedSize();
+
     byte[] serialize() throws IOException;
 
     void deserialize(byte data[]) throws IOException;
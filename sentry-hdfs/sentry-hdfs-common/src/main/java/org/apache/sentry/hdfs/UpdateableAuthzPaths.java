@@ -58,6 +58,20 @@ public class UpdateableAuthzPaths implements AuthzPaths, Updateable<PathsUpdate>
     return paths.findAuthzObjectExactMatches(pathElements);
   }
 
+  String[] getPrefixes() {
+    return paths.getPrefixes();
+  }
+
+  /**
+   * Returns a copy of these paths which can be updated while these paths are
+   * being read, they share all the entries the updates don't modify.
+   */
+  public UpdateableAuthzPaths copy() {
+    UpdateableAuthzPaths other = new UpdateableAuthzPaths(paths.copy());
+    other.seqNum.set(seqNum.get());
+    return other;
+  }
+
   @Override
   public UpdateableAuthzPaths updateFull(PathsUpdate update) {
     UpdateableAuthzPaths other = getPathsDump().initializeFromDump(
@@ -66,6 +80,24 @@ public class UpdateableAuthzPaths implements AuthzPaths, Updateable<PathsUpdate>
     return other;
   }
 
+  /**
+   * Returns a loader of a full image of the paths which is received in chunks,
+   * see {@link #updateFull(HMSPathsDumper.DumpLoader, long)}.
+   */
+  public HMSPathsDumper.DumpLoader newDumpLoader() {
+    return paths.getPathsDump().newDumpLoader();
+  }
+
+  /**
+   * Same as {@link #updateFull(PathsUpdate)} for a full image of sequence
+   * number seqNum which was received in chunks, once all its chunks are loaded.
+   */
+  public UpdateableAuthzPaths updateFull(HMSPathsDumper.DumpLoader loader, long seqNum) {
+    UpdateableAuthzPaths other = new UpdateableAuthzPaths(loader.getPaths());
+    other.seqNum.set(seqNum);
+    return other;
+  }
+
   @Override
   public void updatePartial(Iterable<PathsUpdate> updates, ReadWriteLock lock) {
     lock.writeLock().lock();
@@ -144,11 +176,14 @@ public class UpdateableAuthzPaths implements AuthzPaths, Updateable<PathsUpdate>
     return seqNum.get();
   }
 
+  /**
+   * Returns a full image of these paths, whose paths dump is produced from a
+   * copy of the paths when the image is read. The copy is taken at once, so
+   * this must not be called concurrently with the updates of these paths.
+   */
   @Override
   public PathsUpdate createFullImageUpdate(long currSeqNum) {
-    PathsUpdate pathsUpdate = new PathsUpdate(currSeqNum, true);
-    pathsUpdate.toThrift().setPathsDump(getPathsDump().createPathsDump());
-    return pathsUpdate;
+    return new PathsUpdate(currSeqNum, paths.getPathsDump().newChunkedDump());
   }
 
   @Override
@@ -60,6 +60,9 @@ struct TPathEntry {
 struct TPathsDump {
 1: required i32 rootId;
 2: required map<i32,TPathEntry> nodeMap;
+# Set when the dump is sent in chunks and more chunks follow, the id of the
+# first entry of the next chunk.
+3: optional i32 nextChunkId;
 }
 
 struct TPathsUpdate {
@@ -112,6 +115,10 @@ service SentryHDFSService
   # HMS Path cache
   void handle_hms_notification(1:TPathsUpdate pathsUpdate);
   i64 check_hms_seq_num(1:i64 pathSeqNum);
-  TAuthzUpdateResponse get_all_authz_updates_from(1:i64 permSeqNum, 2:i64 pathSeqNum);
+  # A full paths image is sent in chunks of pathsDumpChunkSize entries
+  # starting with the entry pathsDumpFromId when pathsDumpChunkSize > 0.
+  # When waitTimeoutMs > 0 and there are no updates past the requested ones,
+  # the call waits up to waitTimeoutMs for new updates before returning.
+  TAuthzUpdateResponse get_all_authz_updates_from(1:i64 permSeqNum, 2:i64 pathSeqNum, 3:i32 pathsDumpFromId, 4:i32 pathsDumpChunkSize, 5:i32 waitTimeoutMs);
   map<string, list<string>> get_all_related_paths(1:string path, 2:bool exactMatch);
 }
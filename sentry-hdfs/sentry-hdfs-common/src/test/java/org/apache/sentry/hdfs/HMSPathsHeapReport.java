@@ -0,0 +1,75 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.sentry.hdfs;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Reports the heap taken by {@link HMSPaths} per million paths. The paths are
+ * those of a warehouse of 100 databases of 100 tables, each table having 100
+ * partitions named after the same days, as they come from the Hive metastore.
+ *
+ * It is not run as part of the unit tests, run {@link #main(String[])} with
+ * the test classpath of this module instead, the number of databases can be
+ * given as the first argument.
+ */
+public class HMSPathsHeapReport {
+
+  private static final String PREFIX = "/user/hive/warehouse";
+  private static final int NUM_TABLES_PER_DB = 100;
+  private static final int NUM_PARTITIONS_PER_TABLE = 100;
+
+  public static void main(String[] args) {
+    int numDbs = (args.length > 0) ? Integer.parseInt(args[0]) : 100;
+    long before = usedHeap();
+    HMSPaths paths = new HMSPaths(new String[] {PREFIX});
+    long numPaths = 0;
+    for (int d = 0; d < numDbs; d++) {
+      String dbPath = PREFIX + "/db" + d + ".db";
+      paths.addAuthzObject("db" + d,
+          HMSPaths.getPathsElements(Collections.singletonList(dbPath)));
+      numPaths++;
+      for (int t = 0; t < NUM_TABLES_PER_DB; t++) {
+        String tablePath = dbPath + "/tbl" + t;
+        List<String> tablePaths = new ArrayList<String>(NUM_PARTITIONS_PER_TABLE + 1);
+        tablePaths.add(tablePath);
+        for (int p = 0; p < NUM_PARTITIONS_PER_TABLE; p++) {
+          tablePaths.add(tablePath + "/ds=2017-" + (1 + p / 28) + "-" + (1 + p % 28));
+        }
+        paths.addAuthzObject("db" + d + ".tbl" + t, HMSPaths.getPathsElements(tablePaths));
+        numPaths += tablePaths.size();
+      }
+    }
+    long after = usedHeap();
+    System.out.println(String.format("%d paths take %d MB, %d bytes per path, %d MB per million paths",
+        numPaths, (after - before) >> 20, (after - before) / numPaths,
+        ((after - before) * 1000000L / numPaths) >> 20));
+    // keep the paths reachable until the heap is measured
+    System.out.println(paths.findAuthzObject(new String[] {"user", "hive", "warehouse", "db0.db"}));
+  }
+
+  private static long usedHeap() {
+    Runtime runtime = Runtime.getRuntime();
+    for (int i = 0; i < 3; i++) {
+      System.gc();
+    }
+    return runtime.totalMemory() - runtime.freeMemory();
+  }
+}
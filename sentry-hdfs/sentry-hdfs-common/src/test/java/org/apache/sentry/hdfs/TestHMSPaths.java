@@ -410,5 +410,63 @@ public class TestHMSPaths {
     // Authz Object is case insensitive.
     Assert.assertTrue(entry.getAuthzObjs().contains("a"));
   }
-  
+
+  @Test
+  public void testManyChildren() {
+    HMSPaths.Entry root = HMSPaths.Entry.createRoot(false);
+    root.createPrefix(Lists.newArrayList("a"));
+    List<HMSPaths.Entry> entries = new ArrayList<HMSPaths.Entry>();
+    for (int i = 20; i > 0; i--) {
+      entries.add(root.createAuthzObjPath(Lists.newArrayList("a", "t", "p" + i), "t"));
+    }
+    HMSPaths.Entry parent = entries.get(0).getParent();
+    Assert.assertEquals(20, parent.getChildren().size());
+    for (HMSPaths.Entry entry : entries) {
+      Assert.assertSame(entry, parent.getChild(entry.getPathElement()));
+      // the entries of the same object share its set
+      Assert.assertSame(entries.get(0).getAuthzObjs(), entry.getAuthzObjs());
+    }
+
+    for (int i = 0; i < 19; i++) {
+      entries.get(i).deleteAuthzObject("t");
+      Assert.assertNull(parent.getChild(entries.get(i).getPathElement()));
+      Assert.assertEquals(19 - i, parent.getChildren().size());
+    }
+    HMSPaths.Entry last = entries.get(19);
+    Assert.assertSame(last, parent.getChild(last.getPathElement()));
+    Assert.assertEquals(Collections.singleton("t"), last.getAuthzObjs());
+    last.deleteAuthzObject("t");
+    Assert.assertTrue(root.getChild("a").getChildren().isEmpty());
+  }
+
+  @Test
+  public void testCopyMovesSharedChildren() {
+    HMSPaths paths = new HMSPaths(new String[] {"/hive"});
+    paths._addAuthzObject("db1", Lists.newArrayList("/hive/db1"));
+    paths._addAuthzObject("db1.tbl1", Lists.newArrayList("/hive/db1/tbl1"));
+    paths._addAuthzObject("db1.tbl2", Lists.newArrayList("/hive/db1/tbl2"));
+    HMSPaths copy = paths.copy();
+
+    // adding a partition copies the entries along its path
+    copy._addPathsToAuthzObject("db1.tbl1", Lists.newArrayList("/hive/db1/tbl1/p1"));
+    HMSPaths.Entry db1 = copy.getRootEntry().getChild("hive").getChild("db1");
+    HMSPaths.Entry originalDb1 = paths.getRootEntry().getChild("hive").getChild("db1");
+    Assert.assertNotSame(originalDb1, db1);
+
+    // the table still shared with the original paths is moved under the copy
+    HMSPaths.Entry tbl2 = db1.getChild("tbl2");
+    Assert.assertSame(originalDb1.getChild("tbl2"), tbl2);
+    Assert.assertSame(db1, tbl2.getParent());
+    Assert.assertEquals("/hive/db1/tbl2", tbl2.getFullPath());
+
+    // and it can still be modified through the original paths only
+    paths._addPathsToAuthzObject("db1.tbl2", Lists.newArrayList("/hive/db1/tbl2/p2"));
+    Assert.assertEquals(Collections.singleton("db1.tbl2"),
+        paths.findAuthzObjectExactMatches(new String[] {"hive", "db1", "tbl2", "p2"}));
+    Assert.assertNull(
+        copy.findAuthzObjectExactMatches(new String[] {"hive", "db1", "tbl2", "p2"}));
+    Assert.assertNull(
+        paths.findAuthzObjectExactMatches(new String[] {"hive", "db1", "tbl1", "p1"}));
+  }
+
 }
@@ -76,6 +76,101 @@ public class TestHMSPathsFullDump {
     Assert.assertNull(hmsPaths2.findAuthzObject(new String[]{"user", "hive", "w2", "db2", "tbl21", "p1=1"}, true));
   }
 
+  @Test
+  public void testChunkedDump() throws TException {
+    HMSPaths hmsPaths = new HMSPaths(new String[] {"/user/hive/warehouse", "/user/hive/w2"});
+    hmsPaths._addAuthzObject("default", Lists.newArrayList("/user/hive/warehouse"));
+    hmsPaths._addAuthzObject("db1", Lists.newArrayList("/user/hive/warehouse/db1"));
+    hmsPaths._addAuthzObject("db1.tbl11", Lists.newArrayList("/user/hive/warehouse/db1/tbl11"));
+    hmsPaths._addPathsToAuthzObject("db1.tbl11", Lists.newArrayList(
+        "/user/hive/warehouse/db1/tbl11/part111",
+        "/user/hive/warehouse/db1/tbl11/part112",
+        "/user/hive/warehouse/db1/tbl11/p1=1/p2=x"));
+    hmsPaths._addAuthzObject("db2", Lists.newArrayList("/user/hive/w2/db2"));
+    hmsPaths._addAuthzObject("db2.tbl21", Lists.newArrayList("/user/hive/w2/db2/tbl21"));
+
+    PathsUpdate image = new PathsUpdate(10, true);
+    image.toThrift().setPathsDump(hmsPaths.getPathsDump().createPathsDump());
+    int numEntries = image.toThrift().getPathsDump().getNodeMapSize();
+    // the whole dump fits in a single chunk
+    Assert.assertSame(image, image.getPathsDumpChunk(0, numEntries));
+
+    TSerializer serializer = new TSerializer(new TCompactProtocol.Factory());
+    TDeserializer deserializer = new TDeserializer(new TCompactProtocol.Factory());
+    HMSPathsDumper.DumpLoader loader =
+        new HMSPaths(new String[] {"/user/hive/warehouse"}).getPathsDump().newDumpLoader();
+    int numChunks = 0;
+    int fromId = 0;
+    while (true) {
+      PathsUpdate chunk = image.getPathsDumpChunk(fromId, 3);
+      Assert.assertEquals(10, chunk.getSeqNum());
+      Assert.assertTrue(chunk.toThrift().getPathsDump().getNodeMapSize() <= 3);
+      TPathsDump chunkDump = new TPathsDump();
+      deserializer.deserialize(chunkDump, serializer.serialize(chunk.toThrift().getPathsDump()));
+      loader.load(chunkDump);
+      numChunks++;
+      if (!chunkDump.isSetNextChunkId()) {
+        break;
+      }
+      fromId = chunkDump.getNextChunkId();
+    }
+    Assert.assertEquals((numEntries + 2) / 3, numChunks);
+    HMSPaths hmsPaths2 = loader.getPaths();
+
+    Assert.assertEquals(new HashSet<String>(Arrays.asList("default")), hmsPaths2.findAuthzObject(new String[]{"user", "hive", "warehouse"}, false));
+    Assert.assertEquals(new HashSet<String>(Arrays.asList("db1")), hmsPaths2.findAuthzObject(new String[]{"user", "hive", "warehouse", "db1"}, false));
+    Assert.assertEquals(new HashSet<String>(Arrays.asList("db1.tbl11")), hmsPaths2.findAuthzObject(new String[]{"user", "hive", "warehouse", "db1", "tbl11", "part111"}, false));
+    Assert.assertEquals(new HashSet<String>(Arrays.asList("db1.tbl11")), hmsPaths2.findAuthzObject(new String[]{"user", "hive", "warehouse", "db1", "tbl11", "p1=1", "p2=x"}, false));
+    // This path is not under prefix, so should not be loaded..
+    Assert.assertNull(hmsPaths2.findAuthzObject(new String[]{"user", "hive", "w2", "db2", "tbl21"}, true));
+
+    // the loaded paths know the entries of their authorizable objects
+    hmsPaths2.deleteAuthzObject("DB1.TBL11");
+    Assert.assertEquals(new HashSet<String>(Arrays.asList("db1")), hmsPaths2.findAuthzObject(new String[]{"user", "hive", "warehouse", "db1", "tbl11", "part111"}, true));
+  }
+
+  @Test
+  public void testChunkedDumpFromPaths() {
+    HMSPaths hmsPaths = new HMSPaths(new String[] {"/user/hive/warehouse"});
+    hmsPaths._addAuthzObject("db1", Lists.newArrayList("/user/hive/warehouse/db1"));
+    hmsPaths._addAuthzObject("db1.tbl11", Lists.newArrayList("/user/hive/warehouse/db1/tbl11"));
+    hmsPaths._addPathsToAuthzObject("db1.tbl11", Lists.newArrayList(
+        "/user/hive/warehouse/db1/tbl11/part111",
+        "/user/hive/warehouse/db1/tbl11/part112",
+        "/user/hive/warehouse/db1/tbl11/p1=1/p2=x"));
+    PathsUpdate image = new UpdateableAuthzPaths(hmsPaths).createFullImageUpdate(10);
+    // the image is not changed by the later updates of the paths
+    hmsPaths._addAuthzObject("db2", Lists.newArrayList("/user/hive/warehouse/db2"));
+    hmsPaths.deleteAuthzObject("db1.tbl11");
+
+    // the chunks are produced from the paths
+    HMSPathsDumper.DumpLoader loader =
+        new HMSPaths(new String[] {"/user/hive/warehouse"}).getPathsDump().newDumpLoader();
+    TPathsDump firstChunk = image.getPathsDumpChunk(0, 2).toThrift().getPathsDump();
+    TPathsDump chunkDump = firstChunk;
+    int numEntries = 0;
+    while (true) {
+      Assert.assertTrue(chunkDump.getNodeMapSize() <= 2);
+      numEntries += chunkDump.getNodeMapSize();
+      loader.load(chunkDump);
+      if (!chunkDump.isSetNextChunkId()) {
+        break;
+      }
+      chunkDump = image.getPathsDumpChunk(chunkDump.getNextChunkId(), 2)
+          .toThrift().getPathsDump();
+    }
+    HMSPaths hmsPaths2 = loader.getPaths();
+    Assert.assertEquals(new HashSet<String>(Arrays.asList("db1.tbl11")), hmsPaths2.findAuthzObject(new String[]{"user", "hive", "warehouse", "db1", "tbl11", "part111"}, false));
+    Assert.assertEquals(new HashSet<String>(Arrays.asList("db1.tbl11")), hmsPaths2.findAuthzObject(new String[]{"user", "hive", "warehouse", "db1", "tbl11", "p1=1", "p2=x"}, false));
+    Assert.assertNull(hmsPaths2.findAuthzObject(new String[]{"user", "hive", "warehouse", "db2"}, false));
+
+    // a chunk read again starts over from the root
+    Assert.assertEquals(firstChunk, image.getPathsDumpChunk(0, 2).toThrift().getPathsDump());
+    // the whole dump, only built when needed, numbers the entries the same way
+    Assert.assertEquals(numEntries, image.toThrift().getPathsDump().getNodeMapSize());
+    Assert.assertEquals(firstChunk, image.getPathsDumpChunk(0, 2).toThrift().getPathsDump());
+  }
+
   @Test
   public void testThrftSerialization() throws TException {
     HMSPathsDumper serDe = genHMSPathsDumper();
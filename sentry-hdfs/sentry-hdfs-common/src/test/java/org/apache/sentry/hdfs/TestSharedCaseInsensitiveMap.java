@@ -0,0 +1,69 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.sentry.hdfs;
+
+import java.util.HashSet;
+import java.util.Set;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.google.common.collect.Sets;
+
+public class TestSharedCaseInsensitiveMap {
+
+  @Test
+  public void testCaseInsensitive() {
+    SharedCaseInsensitiveMap<String> map = new SharedCaseInsensitiveMap<String>();
+    Assert.assertNull(map.put("Db1.Tbl1", "a"));
+    Assert.assertEquals("a", map.put("db1.TBL1", "b"));
+    Assert.assertEquals(1, map.size());
+    Assert.assertEquals("b", map.get("DB1.tbl1"));
+    Assert.assertTrue(map.containsKey("db1.tbl1"));
+    Assert.assertEquals("b", map.remove("DB1.TBL1"));
+    Assert.assertNull(map.remove("db1.tbl1"));
+    Assert.assertTrue(map.isEmpty());
+  }
+
+  @Test
+  public void testCopyIsIndependent() {
+    // few buckets so that the keys share them
+    SharedCaseInsensitiveMap<String> map = new SharedCaseInsensitiveMap<String>(4);
+    for (int i = 0; i < 20; i++) {
+      map.put("key" + i, "value" + i);
+    }
+    SharedCaseInsensitiveMap<String> copy = map.copy();
+    copy.put("key1", "copy1");
+    copy.remove("key2");
+    copy.put("key20", "copy20");
+    map.put("key3", "map3");
+
+    Assert.assertEquals("value1", map.get("key1"));
+    Assert.assertEquals("value2", map.get("key2"));
+    Assert.assertNull(map.get("key20"));
+    Assert.assertEquals(20, map.size());
+    Assert.assertEquals("copy1", copy.get("key1"));
+    Assert.assertNull(copy.get("key2"));
+    Assert.assertEquals("value3", copy.get("key3"));
+    Assert.assertEquals(20, copy.size());
+
+    Set<String> values = new HashSet<String>(copy.values());
+    Assert.assertEquals(20, values.size());
+    Assert.assertTrue(values.containsAll(Sets.newHashSet("copy1", "copy20", "value3")));
+  }
+}
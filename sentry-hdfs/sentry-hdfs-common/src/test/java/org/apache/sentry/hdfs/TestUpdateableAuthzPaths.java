@@ -23,6 +23,7 @@ import org.apache.sentry.hdfs.service.thrift.TPathChanges;
 import org.junit.Test;
 
 import com.google.common.collect.Lists;
+import com.google.common.collect.Sets;
 
 import static org.junit.Assert.*;
 
@@ -135,6 +136,50 @@ public class TestUpdateableAuthzPaths {
     assertTrue(authzPaths.findAuthzObjectExactMatches(new String[]{"db1", "tbl11", "part112"}).contains("db1.tbl11"));
   }
 
+  @Test
+  public void testPartialUpdateOfCopy() {
+    UpdateableAuthzPaths authzPaths = new UpdateableAuthzPaths(createBaseHMSPaths(1, 1));
+    authzPaths.updatePartial(Lists.newArrayList(new PathsUpdate(1, false)),
+        new ReentrantReadWriteLock());
+    UpdateableAuthzPaths copy = authzPaths.copy();
+    assertEquals(1, copy.getLastUpdatedSeqNum());
+
+    // Drop partition, add table and rename table in the copy
+    PathsUpdate dropPartition = new PathsUpdate(2, false);
+    dropPartition.newPathChange("db1.tbl11").addToDelPaths(PathsUpdate.parsePath("hdfs:///db1/tbl11/part111"));
+    PathsUpdate createTable = new PathsUpdate(3, false);
+    createTable.newPathChange("db1.tbl12").addToAddPaths(PathsUpdate.parsePath("hdfs:///db1/tbl12"));
+    PathsUpdate rename = new PathsUpdate(4, false);
+    rename.newPathChange("db1.xtbl12").addToAddPaths(PathsUpdate.parsePath("hdfs:///db1/tbl12"));
+    rename.newPathChange("db1.tbl12").addToDelPaths(PathsUpdate.parsePath("hdfs:///db1/tbl12"));
+    copy.updatePartial(Lists.newArrayList(dropPartition, createTable, rename),
+        new ReentrantReadWriteLock());
+
+    assertEquals(4, copy.getLastUpdatedSeqNum());
+    assertNull(copy.findAuthzObjectExactMatches(new String[]{"db1", "tbl11", "part111"}));
+    assertTrue(copy.findAuthzObjectExactMatches(new String[]{"db1", "tbl11", "part112"}).contains("db1.tbl11"));
+    assertEquals(Sets.newHashSet("db1.xtbl12"),
+        copy.findAuthzObjectExactMatches(new String[]{"db1", "tbl12"}));
+
+    // The original paths are not modified
+    assertEquals(1, authzPaths.getLastUpdatedSeqNum());
+    assertTrue(authzPaths.findAuthzObjectExactMatches(new String[]{"db1", "tbl11", "part111"}).contains("db1.tbl11"));
+    assertNull(authzPaths.findAuthzObjectExactMatches(new String[]{"db1", "tbl12"}));
+
+    // Dropping the table from the original paths does not modify the copy
+    PathsUpdate drop = new PathsUpdate(2, false);
+    drop.newPathChange("db1.tbl11").addToDelPaths(Lists.newArrayList(PathsUpdate.ALL_PATHS));
+    authzPaths.updatePartial(Lists.newArrayList(drop), new ReentrantReadWriteLock());
+    assertNull(authzPaths.findAuthzObjectExactMatches(new String[]{"db1", "tbl11", "part112"}));
+    assertTrue(copy.findAuthzObjectExactMatches(new String[]{"db1", "tbl11", "part112"}).contains("db1.tbl11"));
+
+    // Nor does dropping it from the copy modify the original paths
+    copy.updatePartial(Lists.newArrayList(drop), new ReentrantReadWriteLock());
+    assertNull(copy.findAuthzObjectExactMatches(new String[]{"db1", "tbl11", "part112"}));
+    assertTrue(authzPaths.findAuthzObjectExactMatches(new String[]{"db1"}).contains("db1"));
+    assertTrue(copy.findAuthzObjectExactMatches(new String[]{"db1"}).contains("db1"));
+  }
+
   @Test
   public void testDefaultDbPath() {
     HMSPaths hmsPaths = new HMSPaths(new String[] {"/user/hive/warehouse"});
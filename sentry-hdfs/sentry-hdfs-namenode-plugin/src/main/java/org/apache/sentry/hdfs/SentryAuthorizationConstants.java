@@ -49,6 +49,20 @@ public final class SentryAuthorizationConstants {
       "cache-refresh-retry-wait.ms";
   public static final int CACHE_REFRESH_RETRY_WAIT_DEFAULT = 30 * 1000;
 
+  public static final String CACHE_ACLS_KEY = CONFIG_PREFIX + "cache-acls";
+  public static final boolean CACHE_ACLS_DEFAULT = true;
+
+  public static final String PATHS_DUMP_CHUNK_SIZE_KEY = CONFIG_PREFIX +
+      "paths-dump-chunk-size";
+  public static final int PATHS_DUMP_CHUNK_SIZE_DEFAULT = 500000;
+
+  // How long Sentry is asked to wait for new updates when there are none,
+  // 0 to have it return right away. It is capped by half the stale threshold
+  // and should stay below the RPC timeout of the Sentry client.
+  public static final String CACHE_UPDATE_WAIT_KEY = CONFIG_PREFIX +
+      "cache-update-wait.ms";
+  public static final int CACHE_UPDATE_WAIT_DEFAULT = 0;
+
   public static final String INCLUDE_HDFS_AUTHZ_AS_ACL_KEY = CONFIG_PREFIX + 
       "include-hdfs-authz-as-acl";
   public static final boolean INCLUDE_HDFS_AUTHZ_AS_ACL_DEFAULT = false;
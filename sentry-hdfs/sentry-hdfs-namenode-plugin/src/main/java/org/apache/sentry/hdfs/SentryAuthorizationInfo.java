@@ -39,10 +39,14 @@ import com.google.common.base.Preconditions;
 public class SentryAuthorizationInfo implements Runnable {
   private static final Logger LOG =
       LoggerFactory.getLogger(SentryAuthorizationInfo.class);
+  // Apparently setFAcl throws error if 'group::---' is not present
+  private static final AclEntry NO_GROUP = AclEntry.parseAclEntry("group::---", true);
 
   private SentryUpdater updater;
-  private volatile UpdateableAuthzPaths authzPaths;
-  private volatile UpdateableAuthzPermissions authzPermissions;
+  // the paths and permissions are published together, so that a reader never
+  // mixes the paths of an update with the permissions of another one. Null
+  // when no path prefix is configured.
+  private volatile AuthzState authzState;
 
   private int refreshIntervalMillisec;
   private int staleThresholdMillisec;
@@ -51,9 +55,9 @@ public class SentryAuthorizationInfo implements Runnable {
   private volatile long lastUpdate;
   private volatile long waitUntil;
   private volatile long lastStaleReport;
-  // We don't need a re-entrant lock.. but we do need a ReadWriteLock
-  // Unfortunately, the ReentrantReadWriteLick is the only available
-  // concrete implementation of a ReadWriteLock.
+  // The updates are applied to copies of the paths and permissions which are
+  // published once updated, the readers never take a lock. This lock is only
+  // required by Updateable.updatePartial, the copies are not shared yet.
   private final ReadWriteLock lock = new ReentrantReadWriteLock();
 
   private String[][] pathPrefixes;
@@ -64,6 +68,13 @@ public class SentryAuthorizationInfo implements Runnable {
     setPrefixPaths(pathPrefixes);
   }
 
+  @VisibleForTesting
+  SentryAuthorizationInfo(String[] pathPrefixes, UpdateableAuthzPaths authzPaths,
+      UpdateableAuthzPermissions authzPermissions) {
+    setPrefixPaths(pathPrefixes);
+    this.authzState = new AuthzState(authzPaths, authzPermissions);
+  }
+
   public SentryAuthorizationInfo(Configuration conf) throws Exception {
     String[] newPathPrefixes = conf.getTrimmedStrings(
         SentryAuthorizationConstants.HDFS_PATH_PREFIXES_KEY, 
@@ -90,8 +101,10 @@ public class SentryAuthorizationInfo implements Runnable {
               "[{}]ms", new Object[] 
           {refreshIntervalMillisec, retryWaitMillisec, staleThresholdMillisec});
 
-      authzPaths = new UpdateableAuthzPaths(newPathPrefixes);
-      authzPermissions = new UpdateableAuthzPermissions();
+      authzState = new AuthzState(new UpdateableAuthzPaths(newPathPrefixes),
+          new UpdateableAuthzPermissions(conf.getBoolean(
+              SentryAuthorizationConstants.CACHE_ACLS_KEY,
+              SentryAuthorizationConstants.CACHE_ACLS_DEFAULT)));
       waitUntil = System.currentTimeMillis();
       lastStaleReport = 0;
       updater = new SentryUpdater(conf, this);
@@ -115,11 +128,11 @@ public class SentryAuthorizationInfo implements Runnable {
   }
 
   UpdateableAuthzPaths getAuthzPaths() {
-    return authzPaths;
+    return authzState.paths;
   }
 
   UpdateableAuthzPermissions getAuthzPermissions() {
-    return authzPermissions;
+    return authzState.permissions;
   }
 
   private boolean update() {
@@ -127,26 +140,33 @@ public class SentryAuthorizationInfo implements Runnable {
     SentryAuthzUpdate updates = updater.getUpdates();
     // Updates can be null if Sentry Service is un-reachable
     if (updates != null) {
-      UpdateableAuthzPaths newAuthzPaths = processUpdates(
-          updates.getPathUpdates(), authzPaths);
-      UpdateableAuthzPermissions newAuthzPerms = processUpdates(
-          updates.getPermUpdates(), authzPermissions);
-      // If there were any FULL updates the returned instance would be
-      // different
-      if (newAuthzPaths != authzPaths || newAuthzPerms != authzPermissions) {
-        lock.writeLock().lock();
-        try {
-          LOG.debug("FULL Updated paths seq Num [old="
-              + authzPaths.getLastUpdatedSeqNum() + "], [new="
-              + newAuthzPaths.getLastUpdatedSeqNum() + "]");
-          authzPaths = newAuthzPaths;
-          LOG.debug("FULL Updated perms seq Num [old="
-              + authzPermissions.getLastUpdatedSeqNum() + "], [new="
-              + newAuthzPerms.getLastUpdatedSeqNum() + "]");
-          authzPermissions = newAuthzPerms;
-        } finally {
-          lock.writeLock().unlock();
+      // only this thread publishes new states
+      AuthzState state = authzState;
+      UpdateableAuthzPaths newAuthzPaths;
+      if (updates.getPathsImage() != null) {
+        // a full image received in chunks, it is not published yet
+        newAuthzPaths = updates.getPathsImage();
+        if (!updates.getPathUpdates().isEmpty()) {
+          newAuthzPaths.updatePartial(updates.getPathUpdates(), lock);
         }
+      } else {
+        newAuthzPaths = processUpdates(updates.getPathUpdates(), state.paths);
+      }
+      UpdateableAuthzPermissions newAuthzPerms = processUpdates(
+          updates.getPermUpdates(), state.permissions);
+      // If there were any updates the returned instance would be different
+      if (newAuthzPaths != state.paths) {
+        LOG.debug("Updated paths seq Num [old="
+            + state.paths.getLastUpdatedSeqNum() + "], [new="
+            + newAuthzPaths.getLastUpdatedSeqNum() + "]");
+      }
+      if (newAuthzPerms != state.permissions) {
+        LOG.debug("Updated perms seq Num [old="
+            + state.permissions.getLastUpdatedSeqNum() + "], [new="
+            + newAuthzPerms.getLastUpdatedSeqNum() + "]");
+      }
+      if (newAuthzPaths != state.paths || newAuthzPerms != state.permissions) {
+        authzState = new AuthzState(newAuthzPaths, newAuthzPerms);
       }
       return true;
     }
@@ -164,6 +184,9 @@ public class SentryAuthorizationInfo implements Runnable {
             + "[" + newUpdateable.getClass() + "]"
             + "[" + updates.get(0).getSeqNum() + "]");
         newUpdateable = (V)newUpdateable.updateFull(updates.remove(0));
+      } else {
+        // the published instance is being read, update a copy of it
+        newUpdateable = copy(newUpdateable);
       }
       // Any more elements ?
       if (!updates.isEmpty()) {
@@ -180,6 +203,14 @@ public class SentryAuthorizationInfo implements Runnable {
     return newUpdateable;
   }
 
+  @SuppressWarnings("unchecked")
+  private static <V extends Updateable<?>> V copy(V updateable) {
+    if (updateable instanceof UpdateableAuthzPaths) {
+      return (V) ((UpdateableAuthzPaths) updateable).copy();
+    }
+    return (V) ((UpdateableAuthzPermissions) updateable).copy();
+  }
+
   public void run() {
     boolean success = false;
     try {
@@ -206,7 +237,7 @@ public class SentryAuthorizationInfo implements Runnable {
   }
 
   public void start() {
-    if (authzPaths != null || authzPermissions != null) {
+    if (authzState != null) {
       boolean success = false;
       try {
         success = update();
@@ -235,7 +266,7 @@ public class SentryAuthorizationInfo implements Runnable {
   }
 
   public void stop() {
-    if (authzPaths != null) {
+    if (authzState != null) {
       executor.shutdownNow();
     }
   }
@@ -252,12 +283,7 @@ public class SentryAuthorizationInfo implements Runnable {
   }
 
   public boolean isUnderPrefix(String[] pathElements) {
-    lock.readLock().lock();
-    try {
-      return authzPaths.isUnderPrefix(pathElements);
-    } finally {
-      lock.readLock().unlock();
-    }
+    return authzState.paths.isUnderPrefix(pathElements);
   }
 
   @Deprecated
@@ -266,49 +292,55 @@ public class SentryAuthorizationInfo implements Runnable {
   }
   
   public boolean doesBelongToAuthzObject(String[] pathElements) {
-    lock.readLock().lock();
-    try {
-      return authzPaths.findAuthzObject(pathElements) != null;
-    } finally {
-      lock.readLock().unlock();
-    }
+    return authzState.paths.findAuthzObject(pathElements) != null;
   }
 
   public boolean isSentryManaged(final String[] pathElements) {
-    lock.readLock().lock();
-    try {
-      return authzPaths.isUnderPrefix(pathElements) &&
-          authzPaths.findAuthzObject(pathElements) != null;
-    } finally {
-      lock.readLock().unlock();
-    }
+    // both checks are made on the same version of the paths
+    UpdateableAuthzPaths paths = authzState.paths;
+    return paths.isUnderPrefix(pathElements) &&
+        paths.findAuthzObject(pathElements) != null;
   }
 
-  @SuppressWarnings("unchecked")
   public List<AclEntry> getAclEntries(String[] pathElements) {
-    lock.readLock().lock();
-    try {
-      Set<String> authzObjs = authzPaths.findAuthzObject(pathElements);
-      // Apparently setFAcl throws error if 'group::---' is not present
-      AclEntry noGroup = AclEntry.parseAclEntry("group::---", true);
+    // the permissions are those of the same update as the paths
+    AuthzState state = authzState;
+    Set<String> authzObjs = state.paths.findAuthzObject(pathElements);
+    if (authzObjs == null) {
+      List<AclEntry> retList = new ArrayList<AclEntry>(1);
+      retList.add(NO_GROUP);
+      return retList;
+    }
 
-      Set<AclEntry> retSet = new HashSet<AclEntry>();
-      retSet.add(noGroup);
+    UpdateableAuthzPermissions permissions = state.permissions;
+    if (authzObjs.size() == 1) {
+      // The ACLs of a single object have distinct named groups
+      List<AclEntry> acls = permissions.getAcls(authzObjs.iterator().next());
+      List<AclEntry> retList = new ArrayList<AclEntry>(acls.size() + 1);
+      retList.add(NO_GROUP);
+      retList.addAll(acls);
+      return retList;
+    }
 
-      if (authzObjs == null) {
-        retSet.addAll(Collections.EMPTY_LIST);
-        return new ArrayList<AclEntry>(retSet);
-      }
+    // No duplicate acls should be added.
+    Set<AclEntry> retSet = new HashSet<AclEntry>();
+    retSet.add(NO_GROUP);
+    for (String authzObj: authzObjs) {
+      retSet.addAll(permissions.getAcls(authzObj));
+    }
+    return new ArrayList<AclEntry>(retSet);
+  }
 
-      // No duplicate acls should be added.
-      for (String authzObj: authzObjs) {
-        retSet.addAll(authzPermissions.getAcls(authzObj));
-      }
+  /**
+   * The paths and the permissions of the same update.
+   */
+  private static final class AuthzState {
+    private final UpdateableAuthzPaths paths;
+    private final UpdateableAuthzPermissions permissions;
 
-      return new ArrayList<AclEntry>(retSet);
-    } finally {
-      lock.readLock().unlock();
+    AuthzState(UpdateableAuthzPaths paths, UpdateableAuthzPermissions permissions) {
+      this.paths = paths;
+      this.permissions = permissions;
     }
   }
-
 }
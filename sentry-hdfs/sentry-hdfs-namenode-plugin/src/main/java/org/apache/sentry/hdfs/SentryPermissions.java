@@ -18,19 +18,45 @@
 package org.apache.sentry.hdfs;
 
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
 
 import org.apache.hadoop.fs.permission.AclEntry;
 import org.apache.hadoop.fs.permission.AclEntryScope;
 import org.apache.hadoop.fs.permission.AclEntryType;
 import org.apache.hadoop.fs.permission.FsAction;
 
+/**
+ * The permissions of the authorizable objects. A {@link #copy()} shares the
+ * privileges and the roles with the original permissions, they are only
+ * copied when either of them modifies them, through
+ * {@link #getOwnedPrivilegeInfo(String, boolean)} and
+ * {@link #getOwnedRoleInfo(String, boolean)}.
+ */
 public class SentryPermissions implements AuthzPermissions {
 
+  // Generations of the copies, the privileges and roles can only be modified
+  // by the permissions of the same generation. The permissions which are
+  // never copied keep the generation 0.
+  private static final AtomicLong GENERATIONS = new AtomicLong(0);
+
   public static class PrivilegeInfo {
     private final String authzObj;
-    private final Map<String, FsAction> roleToPermission = new HashMap<String, FsAction>();
+    private final Map<String, FsAction> roleToPermission;
+    private final long generation;
     public PrivilegeInfo(String authzObj) {
+      this(authzObj, 0);
+    }
+    private PrivilegeInfo(String authzObj, long generation) {
       this.authzObj = authzObj;
+      this.roleToPermission = new HashMap<String, FsAction>();
+      this.generation = generation;
+    }
+    private PrivilegeInfo(PrivilegeInfo other, long generation) {
+      this.authzObj = other.authzObj;
+      this.roleToPermission = new HashMap<String, FsAction>(other.roleToPermission);
+      this.generation = generation;
     }
     public PrivilegeInfo setPermission(String role, FsAction perm) {
       roleToPermission.put(role, perm);
@@ -53,9 +79,20 @@ public class SentryPermissions implements AuthzPermissions {
 
   public static class RoleInfo {
     private final String role;
-    private final Set<String> groups = new HashSet<String>();
+    private final Set<String> groups;
+    private final long generation;
     public RoleInfo(String role) {
+      this(role, 0);
+    }
+    private RoleInfo(String role, long generation) {
       this.role = role;
+      this.groups = new HashSet<String>();
+      this.generation = generation;
+    }
+    private RoleInfo(RoleInfo other, long generation) {
+      this.role = other.role;
+      this.groups = new HashSet<String>(other.groups);
+      this.generation = generation;
     }
     public RoleInfo addGroup(String group) {
       groups.add(group);
@@ -74,11 +111,156 @@ public class SentryPermissions implements AuthzPermissions {
   }
 
   // Comparison of authorizable object should be case insensitive.
-  private final Map<String, PrivilegeInfo> privileges = new TreeMap<String, PrivilegeInfo>(String.CASE_INSENSITIVE_ORDER);
-  private Map<String, Set<String>> authzObjChildren = new TreeMap<String, Set<String>>(String.CASE_INSENSITIVE_ORDER);
+  private final SharedCaseInsensitiveMap<PrivilegeInfo> privileges;
+  private final SharedCaseInsensitiveMap<Set<String>> authzObjChildren;
 
   // RoleInfo should be case insensitive.
-  private final Map<String, RoleInfo> roles = new TreeMap<String, RoleInfo>(String.CASE_INSENSITIVE_ORDER);
+  private final SharedCaseInsensitiveMap<RoleInfo> roles;
+
+  private long generation;
+
+  // The parent objects whose set of children is owned by these permissions,
+  // null if the sets were never shared with a copy.
+  private Set<String> ownedChildren;
+
+  // The ACLs computed for the authorizable objects, keyed by the lower case
+  // parent object and then by the lower case object itself, so that the ACLs
+  // of a database and of all its tables are dropped together. Null when the
+  // ACLs are not cached. The ACLs of a database are shared with a copy until
+  // one of its objects changes.
+  private final ConcurrentMap<String, ConcurrentMap<String, List<AclEntry>>> aclCache;
+
+  // The lower case parent objects whose ACLs are owned by these permissions,
+  // null if the ACLs were never shared with a copy.
+  private Set<String> ownedAcls;
+
+  public SentryPermissions() {
+    this(true);
+  }
+
+  public SentryPermissions(boolean cacheAcls) {
+    privileges = new SharedCaseInsensitiveMap<PrivilegeInfo>();
+    authzObjChildren = new SharedCaseInsensitiveMap<Set<String>>();
+    roles = new SharedCaseInsensitiveMap<RoleInfo>();
+    aclCache = cacheAcls
+        ? new ConcurrentHashMap<String, ConcurrentMap<String, List<AclEntry>>>() : null;
+  }
+
+  private SentryPermissions(SentryPermissions other) {
+    privileges = other.privileges.copy();
+    authzObjChildren = other.authzObjChildren.copy();
+    roles = other.roles.copy();
+    generation = GENERATIONS.incrementAndGet();
+    ownedChildren = new TreeSet<String>(String.CASE_INSENSITIVE_ORDER);
+    if (other.aclCache != null) {
+      aclCache = new ConcurrentHashMap<String, ConcurrentMap<String, List<AclEntry>>>(
+          other.aclCache);
+      ownedAcls = new HashSet<String>();
+    } else {
+      aclCache = null;
+    }
+  }
+
+  /**
+   * Returns a copy of these permissions, including their cached ACLs. The
+   * privileges, roles and ACLs are shared until either the copy or these
+   * permissions modify them.
+   */
+  SentryPermissions copy() {
+    SentryPermissions other = new SentryPermissions(this);
+    // these permissions stop modifying the shared objects as well
+    generation = GENERATIONS.incrementAndGet();
+    ownedChildren = new TreeSet<String>(String.CASE_INSENSITIVE_ORDER);
+    if (aclCache != null) {
+      ownedAcls = new HashSet<String>();
+    }
+    return other;
+  }
+
+  /**
+   * Get the privileges of the authorizable object so that they can be
+   * modified. Privileges shared with a copy are replaced by a copy of them.
+   *
+   * @param create whether to add empty privileges for the object if it has
+   *               none
+   * @return Returns the privileges, or null if there are none and they are
+   * not created.
+   */
+  PrivilegeInfo getOwnedPrivilegeInfo(String authzObj, boolean create) {
+    PrivilegeInfo privilegeInfo = privileges.get(authzObj);
+    if (privilegeInfo == null) {
+      if (create) {
+        privilegeInfo = new PrivilegeInfo(authzObj, generation);
+        privileges.put(authzObj, privilegeInfo);
+      }
+    } else if (privilegeInfo.generation != generation) {
+      privilegeInfo = new PrivilegeInfo(privilegeInfo, generation);
+      privileges.put(authzObj, privilegeInfo);
+    }
+    return privilegeInfo;
+  }
+
+  /**
+   * Get the role so that its groups can be modified. A role shared with a
+   * copy is replaced by a copy of it.
+   *
+   * @param create whether to add the role without groups if there is none
+   * @return Returns the role, or null if there is none and it is not created.
+   */
+  RoleInfo getOwnedRoleInfo(String role, boolean create) {
+    RoleInfo roleInfo = roles.get(role);
+    if (roleInfo == null) {
+      if (create) {
+        roleInfo = new RoleInfo(role, generation);
+        roles.put(role, roleInfo);
+      }
+    } else if (roleInfo.generation != generation) {
+      roleInfo = new RoleInfo(roleInfo, generation);
+      roles.put(role, roleInfo);
+    }
+    return roleInfo;
+  }
+
+  /**
+   * Remove a role from the privileges of all the authorizable objects.
+   */
+  void removeRoleFromAllPrivileges(String role) {
+    List<String> authzObjs = new ArrayList<String>();
+    for (PrivilegeInfo privilegeInfo : privileges.values()) {
+      if (privilegeInfo.roleToPermission.containsKey(role)) {
+        authzObjs.add(privilegeInfo.authzObj);
+      }
+    }
+    for (String authzObj : authzObjs) {
+      getOwnedPrivilegeInfo(authzObj, false).removePermission(role);
+    }
+  }
+
+  /**
+   * Remove a group from all the roles.
+   */
+  void removeGroupFromAllRoles(String group) {
+    List<String> groupRoles = new ArrayList<String>();
+    for (RoleInfo roleInfo : roles.values()) {
+      if (roleInfo.groups.contains(group)) {
+        groupRoles.add(roleInfo.role);
+      }
+    }
+    for (String role : groupRoles) {
+      getOwnedRoleInfo(role, false).delGroup(group);
+    }
+  }
+
+  // Get the children of the parent object so that they can be modified.
+  private Set<String> getOwnedChildren(String parent) {
+    Set<String> children = authzObjChildren.get(parent);
+    if (children != null && ownedChildren != null && !ownedChildren.contains(parent)) {
+      children = new HashSet<String>(children);
+      authzObjChildren.put(parent, children);
+      ownedChildren.add(parent);
+    }
+    return children;
+  }
 
   String getParentAuthzObject(String authzObject) {
     if (authzObject != null) {
@@ -93,10 +275,13 @@ public class SentryPermissions implements AuthzPermissions {
   void addParentChildMappings(String authzObject) {
     String parent = getParentAuthzObject(authzObject);
     if (parent != null) {
-      Set<String> children = authzObjChildren.get(parent);
+      Set<String> children = getOwnedChildren(parent);
       if (children == null) {
         children = new HashSet<String>();
         authzObjChildren.put(parent, children);
+        if (ownedChildren != null) {
+          ownedChildren.add(parent);
+        }
       }
       children.add(authzObject);
     }
@@ -105,7 +290,7 @@ public class SentryPermissions implements AuthzPermissions {
   void removeParentChildMappings(String authzObject) {
     String parent = getParentAuthzObject(authzObject);
     if (parent != null) {
-      Set<String> children = authzObjChildren.get(parent);
+      Set<String> children = getOwnedChildren(parent);
       if (children != null) {
         children.remove(authzObject);
       }
@@ -134,10 +319,69 @@ public class SentryPermissions implements AuthzPermissions {
     return groupPerms;
   }
 
+  /**
+   * Returns the ACLs of an authorizable object. The ACLs are cached until the
+   * object, its parent or the roles change, the returned list is unmodifiable.
+   */
   @Override
   public List<AclEntry> getAcls(String authzObj) {
+    if (aclCache == null) {
+      return computeAcls(authzObj);
+    }
+    String key = authzObj.toLowerCase();
+    String parent = getParentAuthzObject(key);
+    ConcurrentMap<String, List<AclEntry>> acls = aclCache.get(parent);
+    if (acls == null) {
+      acls = new ConcurrentHashMap<String, List<AclEntry>>();
+      ConcurrentMap<String, List<AclEntry>> existing = aclCache.putIfAbsent(parent, acls);
+      if (existing != null) {
+        acls = existing;
+      }
+    }
+    List<AclEntry> retList = acls.get(key);
+    if (retList == null) {
+      retList = Collections.unmodifiableList(computeAcls(authzObj));
+      acls.putIfAbsent(key, retList);
+    }
+    return retList;
+  }
+
+  /**
+   * Drops the cached ACLs of an authorizable object, and of all its children
+   * when it is a database.
+   */
+  void invalidateAcls(String authzObj) {
+    if (aclCache != null && authzObj != null) {
+      String key = authzObj.toLowerCase();
+      String parent = getParentAuthzObject(key);
+      if (parent.equals(key)) {
+        aclCache.remove(key);
+      } else {
+        ConcurrentMap<String, List<AclEntry>> acls = aclCache.get(parent);
+        if (acls != null) {
+          if (ownedAcls != null && ownedAcls.add(parent)) {
+            // the ACLs of the database may be shared with a copy
+            acls = new ConcurrentHashMap<String, List<AclEntry>>(acls);
+            aclCache.put(parent, acls);
+          }
+          acls.remove(key);
+        }
+      }
+    }
+  }
+
+  /**
+   * Drops all the cached ACLs.
+   */
+  void invalidateAllAcls() {
+    if (aclCache != null) {
+      aclCache.clear();
+    }
+  }
+
+  private List<AclEntry> computeAcls(String authzObj) {
     Map<String, FsAction> groupPerms = getGroupPerms(authzObj);
-    List<AclEntry> retList = new LinkedList<AclEntry>();
+    List<AclEntry> retList = new ArrayList<AclEntry>(groupPerms.size());
     for (Map.Entry<String, FsAction> groupPerm : groupPerms.entrySet()) {
       AclEntry.Builder builder = new AclEntry.Builder();
       builder.setName(groupPerm.getKey());
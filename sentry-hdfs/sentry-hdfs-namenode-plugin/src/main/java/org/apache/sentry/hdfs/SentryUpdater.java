@@ -17,21 +17,40 @@
  */
 package org.apache.sentry.hdfs;
 
+import java.util.List;
+
 import org.apache.hadoop.conf.Configuration;
+import org.apache.sentry.hdfs.service.thrift.TPathsDump;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 public class SentryUpdater {
 
+  // The number of times a full paths image which is received in chunks is
+  // requested again when it gets replaced by a newer image in the meantime.
+  private static final int MAX_PATHS_DUMP_RESTARTS = 3;
+
   private SentryHDFSServiceClient sentryClient;
   private final Configuration conf;
   private final SentryAuthorizationInfo authzInfo;
+  private final int pathsDumpChunkSize;
+  private final int updateWaitMs;
+  // whether updates were received already, the initial ones are not waited for
+  private boolean updated;
 
   private static final Logger LOG = LoggerFactory.getLogger(SentryUpdater.class);
 
   public SentryUpdater(Configuration conf, SentryAuthorizationInfo authzInfo) throws Exception {
     this.conf = conf;
     this.authzInfo = authzInfo;
+    this.pathsDumpChunkSize = conf.getInt(
+        SentryAuthorizationConstants.PATHS_DUMP_CHUNK_SIZE_KEY,
+        SentryAuthorizationConstants.PATHS_DUMP_CHUNK_SIZE_DEFAULT);
+    this.updateWaitMs = Math.min(
+        conf.getInt(SentryAuthorizationConstants.CACHE_UPDATE_WAIT_KEY,
+            SentryAuthorizationConstants.CACHE_UPDATE_WAIT_DEFAULT),
+        conf.getInt(SentryAuthorizationConstants.CACHE_STALE_THRESHOLD_KEY,
+            SentryAuthorizationConstants.CACHE_STALE_THRESHOLD_DEFAULT) / 2);
   }
 
   public SentryAuthzUpdate getUpdates() {
@@ -46,10 +65,25 @@ public class SentryUpdater {
       }
     }
     try {
-      SentryAuthzUpdate sentryUpdates = sentryClient.getAllUpdatesFrom(
-          authzInfo.getAuthzPermissions().getLastUpdatedSeqNum() + 1,
-          authzInfo.getAuthzPaths().getLastUpdatedSeqNum() + 1);
-      return sentryUpdates;
+      for (int restarts = 0; restarts <= MAX_PATHS_DUMP_RESTARTS; restarts++) {
+        long permSeqNum = authzInfo.getAuthzPermissions().getLastUpdatedSeqNum() + 1;
+        // a replaced image is requested again without waiting
+        SentryAuthzUpdate sentryUpdates = sentryClient.getAllUpdatesFrom(permSeqNum,
+            authzInfo.getAuthzPaths().getLastUpdatedSeqNum() + 1, 0, pathsDumpChunkSize,
+            (updated && restarts == 0) ? updateWaitMs : 0);
+        if (!hasMoreChunks(sentryUpdates)) {
+          updated = true;
+          return sentryUpdates;
+        }
+        sentryUpdates = loadPathsDumpChunks(permSeqNum, sentryUpdates);
+        if (sentryUpdates != null) {
+          updated = true;
+          return sentryUpdates;
+        }
+        LOG.info("Full paths image replaced while receiving it, requesting the new one..");
+      }
+      LOG.warn("Could not receive a full paths image in chunks, will retry later");
+      return null;
     } catch (Exception e)  {
       sentryClient = null;
       LOG.error("Error receiving updates from Sentry !!", e);
@@ -57,4 +91,45 @@ public class SentryUpdater {
     }
   }
 
+  // Requests the remaining chunks of the full paths image the updates start
+  // with and loads all of them into new paths. Returns null if the image was
+  // replaced by a newer one before all its chunks were received.
+  private SentryAuthzUpdate loadPathsDumpChunks(long permSeqNum,
+      SentryAuthzUpdate sentryUpdates) throws SentryHdfsServiceException {
+    PathsUpdate image = sentryUpdates.getPathUpdates().get(0);
+    List<PermissionsUpdate> permUpdates = sentryUpdates.getPermUpdates();
+    HMSPathsDumper.DumpLoader loader = authzInfo.getAuthzPaths().newDumpLoader();
+    SentryAuthzUpdate chunkUpdates = sentryUpdates;
+    while (true) {
+      TPathsDump chunk = chunkUpdates.getPathUpdates().get(0).toThrift().getPathsDump();
+      loader.load(chunk);
+      if (!chunk.isSetNextChunkId()) {
+        break;
+      }
+      LOG.debug("Requesting chunk [" + chunk.getNextChunkId() + "] of full paths image ["
+          + image.getSeqNum() + "]");
+      chunkUpdates = sentryClient.getAllUpdatesFrom(permSeqNum, image.getSeqNum(),
+          chunk.getNextChunkId(), pathsDumpChunkSize);
+      List<PathsUpdate> pathUpdates = chunkUpdates.getPathUpdates();
+      if (pathUpdates.isEmpty() || !pathUpdates.get(0).hasFullImage()
+          || pathUpdates.get(0).getSeqNum() != image.getSeqNum()) {
+        return null;
+      }
+    }
+    // the partial updates following the image come with its last chunk
+    List<PathsUpdate> pathUpdates = chunkUpdates.getPathUpdates();
+    pathUpdates.remove(0);
+    return new SentryAuthzUpdate(permUpdates, pathUpdates,
+        authzInfo.getAuthzPaths().updateFull(loader, image.getSeqNum()));
+  }
+
+  private static boolean hasMoreChunks(SentryAuthzUpdate sentryUpdates) {
+    List<PathsUpdate> pathUpdates = sentryUpdates.getPathUpdates();
+    if (pathUpdates.isEmpty() || !pathUpdates.get(0).hasFullImage()) {
+      return false;
+    }
+    TPathsDump pathsDump = pathUpdates.get(0).toThrift().getPathsDump();
+    return pathsDump != null && pathsDump.isSetNextChunkId();
+  }
+
 }
@@ -40,7 +40,8 @@ public class UpdateableAuthzPermissions implements AuthzPermissions, Updateable<
   private static final int MAX_UPDATES_PER_LOCK_USE = 99;
   private static final String UPDATABLE_TYPE_NAME = "perm_authz_update";
   private static final Logger LOG = LoggerFactory.getLogger(UpdateableAuthzPermissions.class);
-  private volatile SentryPermissions perms = new SentryPermissions();
+  private final boolean cacheAcls;
+  private volatile SentryPermissions perms;
   private final AtomicLong seqNum = new AtomicLong(0);
 
   static {
@@ -52,14 +53,38 @@ public class UpdateableAuthzPermissions implements AuthzPermissions, Updateable<
     ACTION_MAPPING.put("insert", FsAction.WRITE_EXECUTE);
   }
 
+  public UpdateableAuthzPermissions() {
+    this(true);
+  }
+
+  /**
+   * @param cacheAcls whether the ACLs of the authorizable objects are cached
+   *                  between updates
+   */
+  public UpdateableAuthzPermissions(boolean cacheAcls) {
+    this.cacheAcls = cacheAcls;
+    this.perms = new SentryPermissions(cacheAcls);
+  }
+
   @Override
   public List<AclEntry> getAcls(String authzObj) {
     return perms.getAcls(authzObj);
   }
 
+  /**
+   * Returns a copy of these permissions which can be updated while these
+   * permissions are being read.
+   */
+  public UpdateableAuthzPermissions copy() {
+    UpdateableAuthzPermissions other = new UpdateableAuthzPermissions(cacheAcls);
+    other.perms = perms.copy();
+    other.seqNum.set(seqNum.get());
+    return other;
+  }
+
   @Override
   public UpdateableAuthzPermissions updateFull(PermissionsUpdate update) {
-    UpdateableAuthzPermissions other = new UpdateableAuthzPermissions();
+    UpdateableAuthzPermissions other = new UpdateableAuthzPermissions(cacheAcls);
     other.applyPartialUpdate(update);
     other.seqNum.set(update.getSeqNum());
     return other;
@@ -92,23 +117,22 @@ public class UpdateableAuthzPermissions implements AuthzPermissions, Updateable<
   }
 
   private void applyRoleUpdates(PermissionsUpdate update) {
+    if (!update.getRoleUpdates().isEmpty()) {
+      // the groups of a role show up in the ACLs of all its objects
+      perms.invalidateAllAcls();
+    }
     for (TRoleChanges rUpdate : update.getRoleUpdates()) {
       if (rUpdate.getRole().equals(PermissionsUpdate.ALL_ROLES)) {
         // Request to remove group from all roles
         String groupToRemove = rUpdate.getDelGroups().iterator().next();
-        for (RoleInfo rInfo : perms.getAllRoles()) {
-          rInfo.delGroup(groupToRemove);
-        }
+        perms.removeGroupFromAllRoles(groupToRemove);
       }
-      RoleInfo rInfo = perms.getRoleInfo(rUpdate.getRole());
+      RoleInfo rInfo = perms.getOwnedRoleInfo(rUpdate.getRole(),
+          !rUpdate.getAddGroups().isEmpty());
       for (String group : rUpdate.getAddGroups()) {
-        if (rInfo == null) {
-          rInfo = new RoleInfo(rUpdate.getRole());
-        }
         rInfo.addGroup(group);
       }
       if (rInfo != null) {
-        perms.addRoleInfo(rInfo);
         for (String group : rUpdate.getDelGroups()) {
           if (group.equals(PermissionsUpdate.ALL_GROUPS)) {
             perms.delRoleInfo(rInfo.getRole());
@@ -127,6 +151,8 @@ public class UpdateableAuthzPermissions implements AuthzPermissions, Updateable<
       if (pUpdate.getAuthzObj().equals(PermissionsUpdate.RENAME_PRIVS)) {
         String newAuthzObj = pUpdate.getAddPrivileges().keySet().iterator().next();
         String oldAuthzObj = pUpdate.getDelPrivileges().keySet().iterator().next();
+        perms.invalidateAcls(oldAuthzObj);
+        perms.invalidateAcls(newAuthzObj);
         PrivilegeInfo privilegeInfo = perms.getPrivilegeInfo(oldAuthzObj);
         // The privilegeInfo object can be null if no explicit Privileges
         // have been granted on the object. For eg. If grants have been applied on
@@ -149,15 +175,13 @@ public class UpdateableAuthzPermissions implements AuthzPermissions, Updateable<
         // Request to remove role from all Privileges
         String roleToRemove = pUpdate.getDelPrivileges().keySet().iterator()
             .next();
-        for (PrivilegeInfo pInfo : perms.getAllPrivileges()) {
-          pInfo.removePermission(roleToRemove);
-        }
+        perms.invalidateAllAcls();
+        perms.removeRoleFromAllPrivileges(roleToRemove);
       }
-      PrivilegeInfo pInfo = perms.getPrivilegeInfo(pUpdate.getAuthzObj());
+      perms.invalidateAcls(pUpdate.getAuthzObj());
+      PrivilegeInfo pInfo = perms.getOwnedPrivilegeInfo(pUpdate.getAuthzObj(),
+          !pUpdate.getAddPrivileges().isEmpty());
       for (Map.Entry<String, String> aMap : pUpdate.getAddPrivileges().entrySet()) {
-        if (pInfo == null) {
-          pInfo = new PrivilegeInfo(pUpdate.getAuthzObj());
-        }
         FsAction fsAction = pInfo.getPermission(aMap.getKey());
         if (fsAction == null) {
           fsAction = getFAction(aMap.getValue());
@@ -167,7 +191,6 @@ public class UpdateableAuthzPermissions implements AuthzPermissions, Updateable<
         pInfo.setPermission(aMap.getKey(), fsAction);
       }
       if (pInfo != null) {
-        perms.addPrivilegeInfo(pInfo);
         perms.addParentChildMappings(pUpdate.getAuthzObj());
         for (Map.Entry<String, String> dMap : pUpdate.getDelPrivileges().entrySet()) {
           if (dMap.getKey().equals(PermissionsUpdate.ALL_ROLES)) {
@@ -181,7 +204,10 @@ public class UpdateableAuthzPermissions implements AuthzPermissions, Updateable<
           Set<String> children = perms.getChildren(pInfo.getAuthzObj());
           if (children != null) {
             for (String child : children) {
-              parentAndChild.add(perms.getPrivilegeInfo(child));
+              PrivilegeInfo childInfo = perms.getOwnedPrivilegeInfo(child, false);
+              if (childInfo != null) {
+                parentAndChild.add(childInfo);
+              }
             }
           }
           // recursive revoke
@@ -0,0 +1,132 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.sentry.hdfs;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import org.apache.hadoop.fs.permission.AclEntry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Measures the throughput of {@link SentryAuthorizationInfo#getAclEntries},
+ * the Sentry part of the ACLs which the NameNode asks the
+ * SentryAuthorizationProvider for on every access to a managed path. The
+ * paths of 100 databases of 100 tables of 100 partitions, about one million
+ * paths, are granted to roles on the databases and on the tables.
+ *
+ * It is not run as part of the unit tests, run {@link #main(String[])} with
+ * the test classpath of this module instead.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SentryAuthorizationInfoBenchmark {
+
+  private static final String PREFIX = "/user/hive/warehouse";
+  private static final int NUM_DBS = 100;
+  private static final int NUM_TABLES_PER_DB = 100;
+  private static final int NUM_PARTITIONS_PER_TABLE = 100;
+  private static final int NUM_GROUPS = 10;
+  private static final int NUM_SAMPLED_PATHS = 10000;
+
+  @Param({"true", "false"})
+  private boolean cacheAcls;
+
+  private SentryAuthorizationInfo authzInfo;
+  private String[][] sampledPaths;
+  private final AtomicLong requests = new AtomicLong();
+
+  @Setup
+  public void setup() {
+    HMSPaths paths = new HMSPaths(new String[] {PREFIX});
+    PermissionsUpdate update = new PermissionsUpdate(1, false);
+    for (int d = 0; d < NUM_DBS; d++) {
+      String db = "db" + d;
+      String dbPath = PREFIX + "/" + db + ".db";
+      paths._addAuthzObject(db, Collections.singletonList(dbPath));
+      update.addPrivilegeUpdate(db).putToAddPrivileges("db_role" + d, "select");
+      update.addRoleUpdate("db_role" + d).addToAddGroups("group" + (d % NUM_GROUPS));
+      for (int t = 0; t < NUM_TABLES_PER_DB; t++) {
+        String table = db + ".tbl" + t;
+        String tablePath = dbPath + "/tbl" + t;
+        List<String> tablePaths = new ArrayList<String>(NUM_PARTITIONS_PER_TABLE + 1);
+        tablePaths.add(tablePath);
+        for (int p = 0; p < NUM_PARTITIONS_PER_TABLE; p++) {
+          tablePaths.add(tablePath + "/part" + p);
+        }
+        paths._addAuthzObject(table, tablePaths);
+        update.addPrivilegeUpdate(table).putToAddPrivileges("tbl_role" + t, "insert");
+      }
+    }
+    for (int t = 0; t < NUM_TABLES_PER_DB; t++) {
+      update.addRoleUpdate("tbl_role" + t).addToAddGroups("group" + (t % NUM_GROUPS));
+    }
+    UpdateableAuthzPermissions permissions = new UpdateableAuthzPermissions(cacheAcls);
+    permissions.updatePartial(Collections.singletonList(update),
+        new ReentrantReadWriteLock());
+    authzInfo = new SentryAuthorizationInfo(new String[] {PREFIX},
+        new UpdateableAuthzPaths(paths), permissions);
+
+    Random random = new Random(0);
+    sampledPaths = new String[NUM_SAMPLED_PATHS][];
+    for (int i = 0; i < NUM_SAMPLED_PATHS; i++) {
+      String path = PREFIX + "/db" + random.nextInt(NUM_DBS) + ".db/tbl"
+          + random.nextInt(NUM_TABLES_PER_DB) + "/part" + random.nextInt(NUM_PARTITIONS_PER_TABLE);
+      sampledPaths[i] = path.substring(1).split("/");
+    }
+  }
+
+  @Benchmark
+  public List<AclEntry> getAclEntries() {
+    int request = (int) (requests.incrementAndGet() % NUM_SAMPLED_PATHS);
+    return authzInfo.getAclEntries(sampledPaths[request]);
+  }
+
+  public static void main(String[] args) throws RunnerException {
+    for (int threads : new int[] {1, 4, 16}) {
+      Options opt = new OptionsBuilder()
+          .include(SentryAuthorizationInfoBenchmark.class.getSimpleName())
+          .threads(threads)
+          .build();
+      new Runner(opt).run();
+    }
+  }
+}
@@ -19,6 +19,14 @@
 
 package org.apache.sentry.hdfs;
 
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import org.apache.hadoop.fs.permission.AclEntry;
+import org.apache.hadoop.fs.permission.AclEntryScope;
+import org.apache.hadoop.fs.permission.AclEntryType;
+import org.apache.hadoop.fs.permission.FsAction;
 import org.junit.Assert;
 import org.junit.Test;
 
@@ -37,4 +45,71 @@ public class TestSentryPermissions {
     Assert.assertNotNull(perm.getRoleInfo("admin"));
     Assert.assertNull(perm.getRoleInfo("doesNotExist"));
   }
+
+  @Test
+  public void testCachedAclsFollowUpdates() {
+    UpdateableAuthzPermissions perms = new UpdateableAuthzPermissions();
+    PermissionsUpdate update = new PermissionsUpdate(1, false);
+    update.addPrivilegeUpdate("db1").putToAddPrivileges("role1", "select");
+    update.addPrivilegeUpdate("db1.tbl1").putToAddPrivileges("role2", "insert");
+    update.addRoleUpdate("role1").addToAddGroups("group1");
+    update.addRoleUpdate("role2").addToAddGroups("group2");
+    perms.updatePartial(Collections.singletonList(update), new ReentrantReadWriteLock());
+    List<AclEntry> acls = perms.getAcls("db1.tbl1");
+    Assert.assertEquals(2, acls.size());
+    Assert.assertTrue(acls.contains(acl("group1", FsAction.READ_EXECUTE)));
+    Assert.assertTrue(acls.contains(acl("group2", FsAction.WRITE_EXECUTE)));
+    Assert.assertSame(acls, perms.getAcls("DB1.TBL1"));
+
+    // a grant on the database changes the ACLs of its tables
+    update = new PermissionsUpdate(2, false);
+    update.addPrivilegeUpdate("db1").putToAddPrivileges("role1", "insert");
+    perms.updatePartial(Collections.singletonList(update), new ReentrantReadWriteLock());
+    acls = perms.getAcls("db1.tbl1");
+    Assert.assertTrue(acls.contains(acl("group1", FsAction.ALL)));
+
+    // so do the groups of the roles
+    update = new PermissionsUpdate(3, false);
+    update.addRoleUpdate("role2").addToDelGroups("group2");
+    perms.updatePartial(Collections.singletonList(update), new ReentrantReadWriteLock());
+    Assert.assertEquals(Collections.singletonList(acl("group1", FsAction.ALL)),
+        perms.getAcls("db1.tbl1"));
+
+    // the cached ACLs of a copy are not shared
+    UpdateableAuthzPermissions copy = perms.copy();
+    update = new PermissionsUpdate(4, false);
+    update.addPrivilegeUpdate("db1.tbl1").putToAddPrivileges("role3", "select");
+    update.addRoleUpdate("role3").addToAddGroups("group3");
+    copy.updatePartial(Collections.singletonList(update), new ReentrantReadWriteLock());
+    Assert.assertEquals(2, copy.getAcls("db1.tbl1").size());
+    Assert.assertEquals(1, perms.getAcls("db1.tbl1").size());
+  }
+
+  @Test
+  public void testCopyDoesNotModifyOriginal() {
+    UpdateableAuthzPermissions perms = new UpdateableAuthzPermissions(false);
+    PermissionsUpdate update = new PermissionsUpdate(1, false);
+    update.addPrivilegeUpdate("db1").putToAddPrivileges("role1", "select");
+    update.addPrivilegeUpdate("db1.tbl1").putToAddPrivileges("role2", "insert");
+    update.addRoleUpdate("role1").addToAddGroups("group1");
+    update.addRoleUpdate("role2").addToAddGroups("group2");
+    perms.updatePartial(Collections.singletonList(update), new ReentrantReadWriteLock());
+    UpdateableAuthzPermissions copy = perms.copy();
+
+    // the privileges and roles shared with the copy are copied when modified
+    update = new PermissionsUpdate(2, false);
+    update.addPrivilegeUpdate(PermissionsUpdate.ALL_AUTHZ_OBJ).putToDelPrivileges("role1", "*");
+    update.addRoleUpdate(PermissionsUpdate.ALL_ROLES).addToDelGroups("group2");
+    copy.updatePartial(Collections.singletonList(update), new ReentrantReadWriteLock());
+    Assert.assertTrue(copy.getAcls("db1.tbl1").isEmpty());
+    List<AclEntry> acls = perms.getAcls("db1.tbl1");
+    Assert.assertEquals(2, acls.size());
+    Assert.assertTrue(acls.contains(acl("group1", FsAction.READ_EXECUTE)));
+    Assert.assertTrue(acls.contains(acl("group2", FsAction.WRITE_EXECUTE)));
+  }
+
+  private static AclEntry acl(String group, FsAction action) {
+    return new AclEntry.Builder().setName(group).setType(AclEntryType.GROUP)
+        .setScope(AclEntryScope.ACCESS).setPermission(action).build();
+  }
 }
@@ -31,7 +31,11 @@ import org.slf4j.LoggerFactory;
 import java.io.Closeable;
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.LinkedList;
 import java.util.List;
+import java.util.Map;
+import java.util.Queue;
 import java.util.concurrent.*;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.locks.ReentrantReadWriteLock;
@@ -40,14 +44,21 @@ class MetastoreCacheInitializer implements Closeable {
 
   private static final Logger LOGGER = LoggerFactory.getLogger
           (MetastoreCacheInitializer.class);
+  private static final long PROGRESS_LOG_INTERVAL_MS = 10000;
 
   final static class CallResult {
     final private Exception failure;
     final private boolean successStatus;
+    final private List<TPathChanges> pathChanges;
 
     CallResult(Exception ex, boolean successStatus) {
+      this(ex, successStatus, new ArrayList<TPathChanges>());
+    }
+
+    CallResult(Exception ex, boolean successStatus, List<TPathChanges> pathChanges) {
       failure = ex;
       this.successStatus = successStatus;
+      this.pathChanges = pathChanges;
     }
 
     public boolean getSuccessStatus() {
@@ -57,6 +68,14 @@ class MetastoreCacheInitializer implements Closeable {
     public Exception getFailure() {
       return failure;
     }
+
+    /**
+     * The path changes found by the task, merged into the initial update
+     * once all the tasks are done.
+     */
+    public List<TPathChanges> getPathChanges() {
+      return pathChanges;
+    }
   }
 
   abstract class BaseTask implements Callable<CallResult> {
@@ -90,12 +109,14 @@ class MetastoreCacheInitializer implements Closeable {
         // Wait configurable duration for next retry.
         for (int i = 0; i < retryStrategyMaxRetries; i++) {
           try {
+            // drop the path changes of a failed attempt
+            pathChanges.clear();
             doTask();
 
             // Task succeeds, reset the exception and return
             // the successful flag.
             exception = null;
-            return new CallResult(exception, true);
+            return new CallResult(exception, true, pathChanges);
           } catch (Exception ex) {
             LOGGER.debug("Failed to execute task on " + (i + 1) + " attempts." +
                     " Sleeping for " + retryStrategyWaitDurationMillis + " ms. Exception: " + ex.toString(), ex);
@@ -122,6 +143,8 @@ class MetastoreCacheInitializer implements Closeable {
     }
 
     private RetryStrategy retryStrategy;
+    // The path changes found by this task, which only this task updates
+    private final List<TPathChanges> pathChanges = new ArrayList<TPathChanges>();
 
     BaseTask() {
       taskCounter.incrementAndGet();
@@ -131,108 +154,167 @@ class MetastoreCacheInitializer implements Closeable {
     @Override
     public CallResult call() throws Exception {
       CallResult callResult = retryStrategy.exec();
-      taskCounter.decrementAndGet();
+      try {
+        onComplete(callResult.getSuccessStatus());
+      } finally {
+        taskCounter.decrementAndGet();
+      }
       return callResult;
     }
 
     abstract void doTask() throws Exception;
+
+    /**
+     * Called once the task is done, successfully or not, before it stops
+     * counting as a remaining task.
+     */
+    void onComplete(boolean success) {
+    }
+
+    TPathChanges newPathChange(String authzObj) {
+      TPathChanges pathChange = new TPathChanges(authzObj,
+              new LinkedList<List<String>>(), new LinkedList<List<String>>());
+      pathChanges.add(pathChange);
+      return pathChange;
+    }
   }
 
+  /**
+   * Fetches the paths of a page of the partitions of a table, and then
+   * submits the page partitionTasksPerTable pages further, so that at most
+   * that many pages of a table are fetched at a time.
+   */
   class PartitionTask extends BaseTask {
     private final String dbName;
     private final String tblName;
-    private final List<String> partNames;
-    private final TPathChanges tblPathChange;
+    private final List<String> allPartNames;
+    private final int from;
+    private final int to;
+    private int numFetched;
 
-    PartitionTask(String dbName, String tblName, List<String> partNames,
-                  TPathChanges tblPathChange) {
+    PartitionTask(String dbName, String tblName, List<String> allPartNames,
+                  int from) {
       super();
       this.dbName = dbName;
       this.tblName = tblName;
-      this.partNames = partNames;
-      this.tblPathChange = tblPathChange;
+      this.allPartNames = allPartNames;
+      this.from = from;
+      this.to = Math.min(from + maxPartitionsPerCall, allPartNames.size());
     }
 
     @Override
     public void doTask() throws Exception {
+      List<String> partNames = allPartNames.subList(from, to);
       List<Partition> tblParts =
               hmsHandler.get_partitions_by_names(dbName, tblName, partNames);
       if (LOGGER.isDebugEnabled()) {
         LOGGER.debug("#### Fetching partitions " +
                 "[" + dbName + "." + tblName + "]" + "[" + partNames + "]");
       }
+      TPathChanges tblPathChange = newPathChange(dbName + "." + tblName);
       for (Partition part : tblParts) {
         List<String> partPath = PathsUpdate.parsePath(part.getSd()
                 .getLocation());
         if (partPath != null) {
-          synchronized (tblPathChange) {
-            tblPathChange.addToAddPaths(partPath);
-          }
+          tblPathChange.addToAddPaths(partPath);
         }
       }
+      numFetched = tblParts.size();
+    }
+
+    @Override
+    void onComplete(boolean success) {
+      if (success) {
+        SentryHdfsMetricsUtil.getInitPartitionsMeter.mark(numFetched);
+      }
+      SentryHdfsMetricsUtil.getInitRemainingPartitionsCounter.dec(to - from);
+      int next = from + partitionTasksPerTable * maxPartitionsPerCall;
+      if (next < allPartNames.size()) {
+        submit(new PartitionTask(dbName, tblName, allPartNames, next));
+      }
     }
   }
 
+  /**
+   * Fetches the paths of a batch of the tables of a database and submits the
+   * first pages of their partitions, and then submits the batch
+   * tableTasksPerDb batches further.
+   */
   class TableTask extends BaseTask {
     private final Database db;
-    private final List<String> tableNames;
-    private final PathsUpdate update;
+    private final List<String> allTableNames;
+    private final int from;
+    private final int to;
+    private int numFetched;
 
-    TableTask(Database db, List<String> tableNames, PathsUpdate update) {
+    TableTask(Database db, List<String> allTableNames, int from) {
       super();
       this.db = db;
-      this.tableNames = tableNames;
-      this.update = update;
+      this.allTableNames = allTableNames;
+      this.from = from;
+      this.to = Math.min(from + maxTablesPerCall, allTableNames.size());
     }
 
     @Override
     public void doTask() throws Exception {
+      List<String> tableNames = allTableNames.subList(from, to);
       List<Table> tables =
               hmsHandler.get_table_objects_by_name(db.getName(), tableNames);
       if (LOGGER.isDebugEnabled()) {
         LOGGER.debug("#### Fetching tables [" + db.getName() + "][" +
                 tableNames + "]");
       }
+      Map<String, List<String>> tblsPartNames = new LinkedHashMap<String, List<String>>();
       for (Table tbl : tables) {
-        TPathChanges tblPathChange;
         // Table names are case insensitive
         String tableName = tbl.getTableName().toLowerCase();
-        synchronized (update) {
-          Preconditions.checkArgument(tbl.getDbName().equalsIgnoreCase(db.getName()));
-          tblPathChange = update.newPathChange(db.getName() + "." + tableName);
-        }
+        Preconditions.checkArgument(tbl.getDbName().equalsIgnoreCase(db.getName()));
+        TPathChanges tblPathChange = newPathChange(db.getName() + "." + tableName);
         if (tbl.getSd().getLocation() != null) {
           List<String> tblPath =
                   PathsUpdate.parsePath(tbl.getSd().getLocation());
           if (tblPath != null) {
             tblPathChange.addToAddPaths(tblPath);
           }
-          List<String> tblPartNames =
-                  hmsHandler.get_partition_names(db.getName(), tableName, (short) -1);
-          for (int i = 0; i < tblPartNames.size(); i += maxPartitionsPerCall) {
-            List<String> partsToFetch =
-                    tblPartNames.subList(i, Math.min(
-                            i + maxPartitionsPerCall, tblPartNames.size()));
-            Callable<CallResult> partTask =
-                    new PartitionTask(db.getName(), tableName,
-                            partsToFetch, tblPathChange);
-            synchronized (results) {
-              results.add(threadPool.submit(partTask));
-            }
-          }
+          // The metastore has no paging of the partition names, they are
+          // fetched at once and their partitions page by page
+          tblsPartNames.put(tableName,
+                  hmsHandler.get_partition_names(db.getName(), tableName, (short) -1));
         }
       }
+      numFetched = tables.size();
+      // the partitions are submitted once all the tables are fetched, so
+      // that an attempt which fails does not leave tasks behind
+      for (Map.Entry<String, List<String>> tblPartNames : tblsPartNames.entrySet()) {
+        List<String> partNames = tblPartNames.getValue();
+        SentryHdfsMetricsUtil.getInitRemainingPartitionsCounter.inc(partNames.size());
+        for (int i = 0; i < partitionTasksPerTable
+            && i * maxPartitionsPerCall < partNames.size(); i++) {
+          submit(new PartitionTask(db.getName(), tblPartNames.getKey(),
+                  partNames, i * maxPartitionsPerCall));
+        }
+      }
+    }
+
+    @Override
+    void onComplete(boolean success) {
+      if (success) {
+        SentryHdfsMetricsUtil.getInitTablesMeter.mark(numFetched);
+      }
+      SentryHdfsMetricsUtil.getInitRemainingTablesCounter.dec(to - from);
+      int next = from + tableTasksPerDb * maxTablesPerCall;
+      if (next < allTableNames.size()) {
+        submit(new TableTask(db, allTableNames, next));
+      }
     }
   }
 
   class DbTask extends BaseTask {
 
-    private final PathsUpdate update;
     private final String dbName;
 
-    DbTask(PathsUpdate update, String dbName) {
+    DbTask(String dbName) {
       super();
-      this.update = update;
       //Database names are case insensitive
       this.dbName = dbName.toLowerCase();
     }
@@ -242,21 +324,14 @@ class MetastoreCacheInitializer implements Closeable {
       Database db = hmsHandler.get_database(dbName);
       List<String> dbPath = PathsUpdate.parsePath(db.getLocationUri());
       if (dbPath != null) {
-        synchronized (update) {
-          Preconditions.checkArgument(dbName.equalsIgnoreCase(db.getName()));
-          update.newPathChange(dbName).addToAddPaths(dbPath);
-        }
+        Preconditions.checkArgument(dbName.equalsIgnoreCase(db.getName()));
+        newPathChange(dbName).addToAddPaths(dbPath);
       }
       List<String> allTblStr = hmsHandler.get_all_tables(dbName);
-      for (int i = 0; i < allTblStr.size(); i += maxTablesPerCall) {
-        List<String> tablesToFetch =
-                allTblStr.subList(i, Math.min(
-                        i + maxTablesPerCall, allTblStr.size()));
-        Callable<CallResult> tableTask =
-                new TableTask(db, tablesToFetch, update);
-        synchronized (results) {
-          results.add(threadPool.submit(tableTask));
-        }
+      SentryHdfsMetricsUtil.getInitRemainingTablesCounter.inc(allTblStr.size());
+      for (int i = 0; i < tableTasksPerDb
+          && i * maxTablesPerCall < allTblStr.size(); i++) {
+        submit(new TableTask(db, allTblStr, i * maxTablesPerCall));
       }
     }
   }
@@ -265,8 +340,10 @@ class MetastoreCacheInitializer implements Closeable {
   private final IHMSHandler hmsHandler;
   private final int maxPartitionsPerCall;
   private final int maxTablesPerCall;
-  private final List<Future<CallResult>> results =
-          new ArrayList<Future<CallResult>>();
+  private final int tableTasksPerDb;
+  private final int partitionTasksPerTable;
+  private final Queue<Future<CallResult>> results =
+          new ConcurrentLinkedQueue<Future<CallResult>>();
   private final AtomicInteger taskCounter = new AtomicInteger(0);
   private final int maxRetries;
   private final int waitDurationMillis;
@@ -284,6 +361,16 @@ class MetastoreCacheInitializer implements Closeable {
                     .SENTRY_HDFS_SYNC_METASTORE_CACHE_MAX_TABLES_PER_RPC,
             ServiceConstants.ServerConfig
                     .SENTRY_HDFS_SYNC_METASTORE_CACHE_MAX_TABLES_PER_RPC_DEFAULT);
+    this.tableTasksPerDb = Math.max(1, conf.getInt(
+            ServiceConstants.ServerConfig
+                    .SENTRY_HDFS_SYNC_METASTORE_CACHE_TABLE_TASKS_PER_DB,
+            ServiceConstants.ServerConfig
+                    .SENTRY_HDFS_SYNC_METASTORE_CACHE_TABLE_TASKS_PER_DB_DEFAULT));
+    this.partitionTasksPerTable = Math.max(1, conf.getInt(
+            ServiceConstants.ServerConfig
+                    .SENTRY_HDFS_SYNC_METASTORE_CACHE_PARTITION_TASKS_PER_TABLE,
+            ServiceConstants.ServerConfig
+                    .SENTRY_HDFS_SYNC_METASTORE_CACHE_PARTITION_TASKS_PER_TABLE_DEFAULT));
     threadPool = Executors.newFixedThreadPool(conf.getInt(
             ServiceConstants.ServerConfig
                     .SENTRY_HDFS_SYNC_METASTORE_CACHE_INIT_THREADS,
@@ -313,15 +400,21 @@ class MetastoreCacheInitializer implements Closeable {
     PathsUpdate tempUpdate = new PathsUpdate(-1, false);
     List<String> allDbStr = hmsHandler.get_all_databases();
     for (String dbName : allDbStr) {
-      Callable<CallResult> dbTask = new DbTask(tempUpdate, dbName);
-      results.add(threadPool.submit(dbTask));
+      submit(new DbTask(dbName));
     }
 
+    long lastProgressLog = System.currentTimeMillis();
     while (taskCounter.get() > 0) {
       Thread.sleep(1000);
       // Wait until no more tasks remain
+      if (System.currentTimeMillis() - lastProgressLog >= PROGRESS_LOG_INTERVAL_MS) {
+        lastProgressLog = System.currentTimeMillis();
+        logProgress();
+      }
     }
+    logProgress();
 
+    // merge the path changes of the tasks, which are all done
     for (Future<CallResult> result : results) {
       CallResult callResult = result.get();
 
@@ -330,6 +423,9 @@ class MetastoreCacheInitializer implements Closeable {
       if (!callResult.getSuccessStatus() && failOnRetry) {
         throw new RuntimeException(callResult.getFailure());
       }
+      for (TPathChanges pathChange : callResult.getPathChanges()) {
+        tempUpdate.toThrift().addToPathChanges(pathChange);
+      }
     }
 
     authzPaths.updatePartial(Lists.newArrayList(tempUpdate),
@@ -337,6 +433,20 @@ class MetastoreCacheInitializer implements Closeable {
     return authzPaths;
   }
 
+  private void submit(BaseTask task) {
+    results.add(threadPool.submit(task));
+  }
+
+  private void logProgress() {
+    LOGGER.info("#### Metastore cache initialization fetched "
+        + SentryHdfsMetricsUtil.getInitTablesMeter.getCount() + " tables ("
+        + (long) SentryHdfsMetricsUtil.getInitTablesMeter.getOneMinuteRate() + "/s) and "
+        + SentryHdfsMetricsUtil.getInitPartitionsMeter.getCount() + " partitions ("
+        + (long) SentryHdfsMetricsUtil.getInitPartitionsMeter.getOneMinuteRate() + "/s), "
+        + SentryHdfsMetricsUtil.getInitRemainingTablesCounter.getCount() + " tables and "
+        + SentryHdfsMetricsUtil.getInitRemainingPartitionsCounter.getCount()
+        + " partitions remaining");
+  }
 
   @Override
   public void close() throws IOException {
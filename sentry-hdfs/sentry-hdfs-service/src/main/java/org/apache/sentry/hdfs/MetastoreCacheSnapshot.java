@@ -0,0 +1,485 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.sentry.hdfs;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.channels.ClosedChannelException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.SortedSet;
+import java.util.TreeSet;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.zip.CRC32;
+
+import org.apache.sentry.hdfs.service.thrift.TPathsDump;
+import org.apache.sentry.hdfs.service.thrift.TPathsUpdate;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Persists the paths cache of the {@link MetastorePlugin} in a local
+ * directory, so that a restarted metastore loads it instead of reading all
+ * its databases, tables and partitions again.
+ *
+ * The full image of the cache is written to a snapshot from time to time, and
+ * the updates applied to the cache in between are appended to a journal. Both
+ * are named after a generation: paths.snapshot.N holds the cache as of the
+ * first update of paths.journal.N. Loading the cache reads the latest snapshot
+ * and replays the journals from its generation on. Every record of these
+ * files is checksummed, a damaged snapshot or journal fails the load, except
+ * for the end of the last journal which may have been cut by a crash.
+ *
+ * The journals are forced to disk by {@link #sync()}, which is called from
+ * time to time rather than on every update: the update a crash of the host
+ * loses, like any change the metastore did not journal, is repaired by
+ * reconciling the loaded cache with the metastore.
+ */
+public class MetastoreCacheSnapshot implements Closeable {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(MetastoreCacheSnapshot.class);
+
+  private static final int MAGIC = 0x53485043;
+  private static final int VERSION = 1;
+  static final String SNAPSHOT_PREFIX = "paths.snapshot.";
+  static final String JOURNAL_PREFIX = "paths.journal.";
+  private static final String TMP_SUFFIX = ".tmp";
+  // The number of entries of the paths dump written per record of a snapshot
+  private static final int CHUNK_SIZE = 100000;
+
+  private final File dir;
+  // The generation of the current journal, or the last one found on disk
+  private long generation;
+  // The generation of the last snapshot written or loaded
+  private long snapshotGeneration;
+  private FileOutputStream journalFile;
+  private DataOutputStream journal;
+  // The journals closed by roll() which sync() has not forced yet
+  private final List<FileOutputStream> rolledJournals = new ArrayList<FileOutputStream>();
+  private long journalUpdates;
+  private boolean discarded;
+
+  public MetastoreCacheSnapshot(File dir) throws IOException {
+    if (!dir.isDirectory() && !dir.mkdirs()) {
+      throw new IOException("Could not create directory " + dir);
+    }
+    this.dir = dir;
+  }
+
+  /**
+   * Loads the cache from the latest snapshot and the journals which follow
+   * it, returns null when there is no snapshot or it cannot be used, in which
+   * case all the files found are deleted. The next journal follows all the
+   * files found in any case.
+   */
+  public synchronized UpdateableAuthzPaths load() {
+    SortedSet<Long> snapshots = new TreeSet<Long>();
+    SortedSet<Long> journals = new TreeSet<Long>();
+    File[] files = dir.listFiles();
+    if (files != null) {
+      for (File file : files) {
+        String name = file.getName();
+        if (name.endsWith(TMP_SUFFIX)) {
+          deleteFile(file);
+        } else if (name.startsWith(SNAPSHOT_PREFIX)) {
+          addGeneration(snapshots, name.substring(SNAPSHOT_PREFIX.length()));
+        } else if (name.startsWith(JOURNAL_PREFIX)) {
+          addGeneration(journals, name.substring(JOURNAL_PREFIX.length()));
+        }
+      }
+    }
+    if (!journals.isEmpty()) {
+      generation = Math.max(generation, journals.last());
+    }
+    if (snapshots.isEmpty()) {
+      LOGGER.info("#### No metastore cache snapshot in " + dir);
+      deleteBefore(Long.MAX_VALUE);
+      return null;
+    }
+    generation = Math.max(generation, snapshots.last());
+    long loaded = snapshots.last();
+    try {
+      UpdateableAuthzPaths paths = readSnapshot(getSnapshotFile(loaded));
+      int numUpdates = 0;
+      for (long gen = loaded; gen <= generation; gen++) {
+        if (!journals.contains(gen)) {
+          throw new IOException("Missing journal " + getJournalFile(gen));
+        }
+        numUpdates += replayJournal(getJournalFile(gen), paths, gen == generation);
+      }
+      snapshotGeneration = loaded;
+      LOGGER.info("#### Loaded metastore cache snapshot [" + loaded + "] and "
+          + numUpdates + " updates from " + dir);
+      return paths;
+    } catch (IOException e) {
+      LOGGER.warn("#### Could not load metastore cache snapshot [" + loaded
+          + "] from " + dir, e);
+      // the journals which follow are of no use without it
+      deleteBefore(Long.MAX_VALUE);
+      return null;
+    }
+  }
+
+  /**
+   * Closes the current journal and opens the one of the next generation.
+   * The updates appended from now on follow the cache as it is now, which is
+   * to be written with {@link #write(UpdateableAuthzPaths, long)} and the
+   * returned generation.
+   */
+  public synchronized long roll() throws IOException {
+    checkNotDiscarded();
+    if (journal != null) {
+      // sync() forces and closes it, outside of the lock of the cache
+      journal.flush();
+      rolledJournals.add(journalFile);
+      journal = null;
+      journalFile = null;
+    }
+    long next = generation + 1;
+    journalFile = new FileOutputStream(getJournalFile(next));
+    journal = new DataOutputStream(new BufferedOutputStream(journalFile));
+    generation = next;
+    journalUpdates = 0;
+    return next;
+  }
+
+  /**
+   * Appends an update applied to the cache to the current journal, the update
+   * is written to the file once this returns and on disk once {@link #sync()}
+   * returns.
+   */
+  public synchronized void append(PathsUpdate update) throws IOException {
+    checkNotDiscarded();
+    if (journal == null) {
+      throw new IOException("No journal is open in " + dir);
+    }
+    writeRecord(journal, ThriftSerializer.serialize(update.toThrift()));
+    journal.flush();
+    journalUpdates++;
+  }
+
+  /**
+   * Forces the updates appended so far to disk. The updates keep being
+   * appended meanwhile.
+   */
+  public void sync() throws IOException {
+    List<FileOutputStream> rolled;
+    FileOutputStream current;
+    synchronized (this) {
+      if (discarded) {
+        return;
+      }
+      rolled = new ArrayList<FileOutputStream>(rolledJournals);
+      rolledJournals.clear();
+      current = journalFile;
+    }
+    for (FileOutputStream file : rolled) {
+      try {
+        file.getChannel().force(false);
+      } finally {
+        file.close();
+      }
+    }
+    if (current != null) {
+      try {
+        current.getChannel().force(false);
+      } catch (ClosedChannelException e) {
+        // closed by close() or discard() in the meantime
+      }
+    }
+  }
+
+  /**
+   * Whether the cache has changed since the last snapshot.
+   */
+  public synchronized boolean isSnapshotDue() {
+    return !discarded && journal != null
+        && (journalUpdates > 0 || snapshotGeneration != generation);
+  }
+
+  /**
+   * Writes a snapshot of paths, a copy of the cache taken when the journal of
+   * generation snapshotGen was opened, and deletes the files it makes
+   * obsolete. The snapshot is written while the cache keeps being updated.
+   */
+  public void write(UpdateableAuthzPaths paths, long snapshotGen) throws IOException {
+    File file = getSnapshotFile(snapshotGen);
+    File tmpFile = new File(dir, file.getName() + TMP_SUFFIX);
+    PathsUpdate image = paths.createFullImageUpdate(paths.getLastUpdatedSeqNum());
+    FileOutputStream fileOut = new FileOutputStream(tmpFile);
+    boolean written = false;
+    try {
+      DataOutputStream out = new DataOutputStream(new BufferedOutputStream(fileOut));
+      out.writeInt(MAGIC);
+      out.writeInt(VERSION);
+      ByteArrayOutputStream header = new ByteArrayOutputStream();
+      DataOutputStream headerOut = new DataOutputStream(header);
+      headerOut.writeLong(image.getSeqNum());
+      String[] prefixes = paths.getPrefixes();
+      headerOut.writeInt(prefixes.length);
+      for (String prefix : prefixes) {
+        headerOut.writeUTF(prefix);
+      }
+      headerOut.flush();
+      writeRecord(out, header.toByteArray());
+      TPathsDump chunk = image.getPathsDumpChunk(0, CHUNK_SIZE).toThrift().getPathsDump();
+      writeRecord(out, ThriftSerializer.serialize(chunk));
+      while (chunk.isSetNextChunkId()) {
+        chunk = image.getPathsDumpChunk(chunk.getNextChunkId(), CHUNK_SIZE)
+            .toThrift().getPathsDump();
+        writeRecord(out, ThriftSerializer.serialize(chunk));
+      }
+      out.flush();
+      fileOut.getChannel().force(true);
+      written = true;
+    } finally {
+      fileOut.close();
+      if (!written) {
+        deleteFile(tmpFile);
+      }
+    }
+    synchronized (this) {
+      if (discarded) {
+        deleteFile(tmpFile);
+        return;
+      }
+      if (!tmpFile.renameTo(file)) {
+        deleteFile(tmpFile);
+        throw new IOException("Could not rename " + tmpFile + " to " + file);
+      }
+      snapshotGeneration = Math.max(snapshotGeneration, snapshotGen);
+      deleteBefore(snapshotGen);
+    }
+    LOGGER.info("#### Wrote metastore cache snapshot [" + snapshotGen + "] to " + dir);
+  }
+
+  /**
+   * Stops persisting the cache and deletes all its files, for when an update
+   * could not be journaled.
+   */
+  public synchronized void discard() {
+    discarded = true;
+    try {
+      closeJournal(false);
+    } catch (IOException e) {
+      LOGGER.warn("#### Could not close metastore cache journal", e);
+    }
+    deleteBefore(Long.MAX_VALUE);
+  }
+
+  @Override
+  public synchronized void close() throws IOException {
+    closeJournal(true);
+  }
+
+  File getSnapshotFile(long gen) {
+    return new File(dir, SNAPSHOT_PREFIX + gen);
+  }
+
+  File getJournalFile(long gen) {
+    return new File(dir, JOURNAL_PREFIX + gen);
+  }
+
+  private UpdateableAuthzPaths readSnapshot(File file) throws IOException {
+    DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)));
+    try {
+      if (in.readInt() != MAGIC) {
+        throw new IOException(file + " is not a metastore cache snapshot");
+      }
+      int version = in.readInt();
+      if (version != VERSION) {
+        throw new IOException("Unsupported version " + version + " of " + file);
+      }
+      DataInputStream header = new DataInputStream(new ByteArrayInputStream(readRecord(in, file)));
+      long seqNum = header.readLong();
+      String[] prefixes = new String[header.readInt()];
+      for (int i = 0; i < prefixes.length; i++) {
+        prefixes[i] = header.readUTF();
+      }
+      UpdateableAuthzPaths empty = new UpdateableAuthzPaths(prefixes);
+      HMSPathsDumper.DumpLoader loader = empty.newDumpLoader();
+      TPathsDump chunk;
+      do {
+        chunk = new TPathsDump();
+        ThriftSerializer.deserialize(chunk, readRecord(in, file));
+        loader.load(chunk);
+      } while (chunk.isSetNextChunkId());
+      return empty.updateFull(loader, seqNum);
+    } finally {
+      in.close();
+    }
+  }
+
+  private int replayJournal(File file, UpdateableAuthzPaths paths, boolean isLast)
+      throws IOException {
+    DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)));
+    int numUpdates = 0;
+    try {
+      while (true) {
+        byte[] record;
+        try {
+          record = readRecord(in, file, true);
+          if (record == null) {
+            break;
+          }
+        } catch (IOException e) {
+          if (!isLast) {
+            throw e;
+          }
+          // the metastore went down while appending this update, which was
+          // not applied to the cache either
+          LOGGER.warn("#### Ignoring the incomplete end of " + file, e);
+          break;
+        }
+        TPathsUpdate update = new TPathsUpdate();
+        ThriftSerializer.deserialize(update, record);
+        paths.updatePartial(Collections.singletonList(new PathsUpdate(update)),
+            new ReentrantReadWriteLock());
+        numUpdates++;
+      }
+    } finally {
+      in.close();
+    }
+    return numUpdates;
+  }
+
+  private static void writeRecord(DataOutputStream out, byte[] data) throws IOException {
+    CRC32 crc = new CRC32();
+    crc.update(data, 0, data.length);
+    out.writeInt(data.length);
+    out.write(data);
+    out.writeLong(crc.getValue());
+  }
+
+  private static byte[] readRecord(DataInputStream in, File file) throws IOException {
+    return readRecord(in, file, false);
+  }
+
+  /**
+   * Reads a record, or returns null at the end of the file if atEndOk.
+   */
+  private static byte[] readRecord(DataInputStream in, File file, boolean atEndOk)
+      throws IOException {
+    int first = in.read();
+    if (first < 0) {
+      if (atEndOk) {
+        return null;
+      }
+      throw new EOFException("Unexpected end of " + file);
+    }
+    int length = (first << 24) | (in.readUnsignedByte() << 16)
+        | (in.readUnsignedByte() << 8) | in.readUnsignedByte();
+    if (length < 0) {
+      throw new IOException("Invalid record length " + length + " in " + file);
+    }
+    byte[] data = new byte[length];
+    in.readFully(data);
+    long checksum = in.readLong();
+    CRC32 crc = new CRC32();
+    crc.update(data, 0, length);
+    if (crc.getValue() != checksum) {
+      throw new IOException("Checksum mismatch in " + file);
+    }
+    return data;
+  }
+
+  private void closeJournal(boolean force) throws IOException {
+    try {
+      for (FileOutputStream file : rolledJournals) {
+        if (force) {
+          file.getChannel().force(false);
+        }
+        file.close();
+      }
+      if (journal != null) {
+        journal.flush();
+        if (force) {
+          journalFile.getChannel().force(false);
+        }
+        journal.close();
+      }
+    } finally {
+      rolledJournals.clear();
+      journal = null;
+      journalFile = null;
+    }
+  }
+
+  private void checkNotDiscarded() throws IOException {
+    if (discarded) {
+      throw new IOException("The metastore cache in " + dir + " was discarded");
+    }
+  }
+
+  private void deleteBefore(long gen) {
+    File[] files = dir.listFiles();
+    if (files == null) {
+      return;
+    }
+    for (File file : files) {
+      String name = file.getName();
+      String suffix = null;
+      if (name.startsWith(SNAPSHOT_PREFIX)) {
+        suffix = name.substring(SNAPSHOT_PREFIX.length());
+      } else if (name.startsWith(JOURNAL_PREFIX)) {
+        suffix = name.substring(JOURNAL_PREFIX.length());
+      }
+      if (suffix != null) {
+        if (suffix.endsWith(TMP_SUFFIX)) {
+          if (gen == Long.MAX_VALUE) {
+            deleteFile(file);
+          }
+        } else if (parseGeneration(suffix) < gen) {
+          deleteFile(file);
+        }
+      }
+    }
+  }
+
+  private static void addGeneration(SortedSet<Long> generations, String suffix) {
+    long gen = parseGeneration(suffix);
+    if (gen >= 0) {
+      generations.add(gen);
+    }
+  }
+
+  private static long parseGeneration(String suffix) {
+    try {
+      return Long.parseLong(suffix);
+    } catch (NumberFormatException e) {
+      return -1;
+    }
+  }
+
+  private static void deleteFile(File file) {
+    if (!file.delete() && file.exists()) {
+      LOGGER.warn("#### Could not delete " + file);
+    }
+  }
+}
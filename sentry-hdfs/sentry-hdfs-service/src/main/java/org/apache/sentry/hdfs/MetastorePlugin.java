@@ -17,8 +17,11 @@
  */
 package org.apache.sentry.hdfs;
 
+import java.io.File;
+import java.io.IOException;
 import java.io.PrintWriter;
 import java.io.StringWriter;
+import java.util.ArrayList;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Queue;
@@ -72,8 +75,11 @@ public class MetastorePlugin extends SentryMetastoreListenerPlugin {
         if (lastSeenBySentry != lastSent) {
           LOGGER.warn("#### Sentry not in sync with HMS [" + lastSeenBySentry + ", "
               + lastSent + "]");
-          PathsUpdate fullImageUpdate =
-              MetastorePlugin.this.authzPaths.createFullImageUpdate(lastSent);
+          PathsUpdate fullImageUpdate;
+          // the image copies the cache, its dump is built from the copy
+          synchronized (cacheLock) {
+            fullImageUpdate = MetastorePlugin.this.authzPaths.createFullImageUpdate(lastSent);
+          }
           notifySentryNoLock(fullImageUpdate);
           LOGGER.warn("#### Synced Sentry with update [" + lastSent + "]");
         }
@@ -87,9 +93,140 @@ public class MetastorePlugin extends SentryMetastoreListenerPlugin {
     }
   }
 
+  class SnapshotTask implements Runnable {
+    @Override
+    public void run() {
+      MetastoreCacheSnapshot snapshot = cacheSnapshot;
+      if (snapshot == null || !snapshot.isSnapshotDue()) {
+        return;
+      }
+      UpdateableAuthzPaths paths;
+      long generation;
+      try {
+        synchronized (cacheLock) {
+          paths = authzPaths.copy();
+          generation = snapshot.roll();
+        }
+      } catch (IOException e) {
+        discardCacheSnapshot(e);
+        return;
+      }
+      try {
+        snapshot.write(paths, generation);
+      } catch (Exception e) {
+        LOGGER.warn("#### Could not write metastore cache snapshot !!", e);
+      }
+    }
+  }
+
+  class JournalSyncTask implements Runnable {
+    @Override
+    public void run() {
+      MetastoreCacheSnapshot snapshot = cacheSnapshot;
+      if (snapshot == null) {
+        return;
+      }
+      try {
+        snapshot.sync();
+      } catch (IOException e) {
+        discardCacheSnapshot(e);
+      }
+    }
+  }
+
+  /**
+   * Replaces the cache loaded from the snapshot by one read from the
+   * metastore, which has the changes the snapshot missed: those the metastore
+   * did not journal before going down, made while it was down or made by other
+   * metastores and tools. The updates applied while reading the metastore are
+   * applied again to the new cache, and Sentry is sent its full image.
+   */
+  class ReconcileTask implements Runnable {
+    @Override
+    public void run() {
+      MetastoreCacheInitializer cacheInitializer = null;
+      try {
+        synchronized (cacheLock) {
+          reconcileUpdates = new ArrayList<PathsUpdate>();
+        }
+        cacheInitializer =
+                new MetastoreCacheInitializer(new ProxyHMSHandler("sentry.hdfs",
+                      (HiveConf) MetastorePlugin.this.conf),
+                        MetastorePlugin.this.conf);
+        UpdateableAuthzPaths paths = cacheInitializer.createInitialUpdate();
+        MetastoreCacheSnapshot snapshot;
+        UpdateableAuthzPaths copy = null;
+        long generation = 0;
+        synchronized (cacheLock) {
+          paths.updatePartial(reconcileUpdates, new ReentrantReadWriteLock());
+          reconcileUpdates = null;
+          MetastorePlugin.this.authzPaths = paths;
+          snapshot = cacheSnapshot;
+          if (snapshot != null) {
+            try {
+              copy = paths.copy();
+              generation = snapshot.roll();
+            } catch (IOException e) {
+              discardCacheSnapshot(e);
+              copy = null;
+            }
+          }
+        }
+        LOGGER.info("#### Reconciled metastore cache snapshot with the metastore !!");
+        if (copy != null) {
+          try {
+            snapshot.write(copy, generation);
+          } catch (Exception e) {
+            LOGGER.warn("#### Could not write metastore cache snapshot !!", e);
+          }
+        }
+        notificiationLock.lock();
+        try {
+          PathsUpdate fullImageUpdate;
+          synchronized (cacheLock) {
+            fullImageUpdate = paths.createFullImageUpdate(lastSentSeqNum);
+          }
+          notifySentryNoLock(fullImageUpdate);
+        } finally {
+          notificiationLock.unlock();
+        }
+      } catch (Exception e) {
+        synchronized (cacheLock) {
+          reconcileUpdates = null;
+        }
+        LOGGER.error("#### Could not reconcile metastore cache snapshot with " +
+                "the metastore !!", e);
+      } finally {
+        if (cacheInitializer != null) {
+          try {
+            cacheInitializer.close();
+          } catch (Exception e) {
+            LOGGER.info("#### Exception while closing cacheInitializer !!", e);
+          }
+        }
+      }
+    }
+  }
+
+  class NotificationSender implements PathsNotificationQueue.Sender {
+    @Override
+    public void send(PathsUpdate update) {
+      // the updates are coalesced, Sentry expects the sequence numbers
+      // of its notifications to follow each other
+      update.setSeqNum(lastSentSeqNum + 1);
+      notifySentry(update);
+    }
+  }
+
   private final Configuration conf;
   private SentryHDFSServiceClient sentryClient;
   private volatile UpdateableAuthzPaths authzPaths;
+  // Serializes the updates of authzPaths and of its journal
+  private final Object cacheLock = new Object();
+  private volatile MetastoreCacheSnapshot cacheSnapshot;
+  // The updates applied while the cache is being reconciled, guarded by cacheLock
+  private List<PathsUpdate> reconcileUpdates;
+  private final PathsNotificationQueue notificationQueue;
   private Lock notificiationLock;
 
   // Initialized to some value > 1.
@@ -113,6 +250,16 @@ public class MetastorePlugin extends SentryMetastoreListenerPlugin {
   }
 
   public MetastorePlugin(Configuration conf, Configuration sentryConf) {
+    this(conf, sentryConf, true);
+  }
+
+  /**
+   * @param standalone whether this metastore alone updates its cache and
+   *                   numbers its updates, which persisting the cache and
+   *                   notifying Sentry asynchronously rely on
+   */
+  protected MetastorePlugin(Configuration conf, Configuration sentryConf,
+      boolean standalone) {
     this.notificiationLock = new ReentrantLock();
 
     if (!(conf instanceof HiveConf)) {
@@ -127,17 +274,59 @@ public class MetastorePlugin extends SentryMetastoreListenerPlugin {
     this.conf.unset(HiveConf.ConfVars.METASTORE_EVENT_LISTENERS.varname);
     this.conf.unset(HiveConf.ConfVars.METASTORE_END_FUNCTION_LISTENERS.varname);
     this.conf.unset(HiveConf.ConfVars.METASTOREURIS.varname);
+    String snapshotDir =
+        this.conf.get(ServerConfig.SENTRY_HDFS_SYNC_METASTORE_CACHE_SNAPSHOT_DIR);
+    if (snapshotDir != null && !standalone) {
+      LOGGER.warn("#### Metastore cache snapshots are not supported by " +
+              getClass().getSimpleName() + ", ignoring " +
+              ServerConfig.SENTRY_HDFS_SYNC_METASTORE_CACHE_SNAPSHOT_DIR);
+    } else if (snapshotDir != null) {
+      try {
+        cacheSnapshot = new MetastoreCacheSnapshot(new File(snapshotDir));
+      } catch (IOException e) {
+        LOGGER.error("#### Could not open metastore cache snapshot directory !!", e);
+      }
+    }
+    if (standalone && this.conf.getBoolean(
+            ServerConfig.SENTRY_HDFS_SYNC_METASTORE_NOTIFICATION_ASYNC_ENABLE,
+            ServerConfig.SENTRY_HDFS_SYNC_METASTORE_NOTIFICATION_ASYNC_ENABLE_DEFAULT)) {
+      notificationQueue = new PathsNotificationQueue(new NotificationSender(),
+          this.conf.getInt(ServerConfig.SENTRY_HDFS_SYNC_METASTORE_NOTIFICATION_BATCH_SIZE,
+              ServerConfig.SENTRY_HDFS_SYNC_METASTORE_NOTIFICATION_BATCH_SIZE_DEFAULT),
+          this.conf.getLong(ServerConfig.SENTRY_HDFS_SYNC_METASTORE_NOTIFICATION_BATCH_DELAY_MS,
+              ServerConfig.SENTRY_HDFS_SYNC_METASTORE_NOTIFICATION_BATCH_DELAY_MS_DEFAULT),
+          this.conf.getInt(ServerConfig.SENTRY_HDFS_SYNC_METASTORE_NOTIFICATION_QUEUE_CAPACITY,
+              ServerConfig.SENTRY_HDFS_SYNC_METASTORE_NOTIFICATION_QUEUE_CAPACITY_DEFAULT));
+    } else {
+      notificationQueue = null;
+    }
     Thread initUpdater = new Thread() {
       @Override
       public void run() {
         MetastoreCacheInitializer cacheInitializer = null;
         try {
-          cacheInitializer =
-                  new MetastoreCacheInitializer(new ProxyHMSHandler("sentry.hdfs",
-                        (HiveConf) MetastorePlugin.this.conf),
-                          MetastorePlugin.this.conf);
-          MetastorePlugin.this.authzPaths =
-                  cacheInitializer.createInitialUpdate();
+          MetastoreCacheSnapshot snapshot = cacheSnapshot;
+          UpdateableAuthzPaths paths = (snapshot != null) ? snapshot.load() : null;
+          boolean reconcile = paths != null && MetastorePlugin.this.conf.getBoolean(
+              ServerConfig.SENTRY_HDFS_SYNC_METASTORE_CACHE_SNAPSHOT_RECONCILE_ENABLE,
+              ServerConfig.SENTRY_HDFS_SYNC_METASTORE_CACHE_SNAPSHOT_RECONCILE_ENABLE_DEFAULT);
+          if (paths == null) {
+            cacheInitializer =
+                    new MetastoreCacheInitializer(new ProxyHMSHandler("sentry.hdfs",
+                          (HiveConf) MetastorePlugin.this.conf),
+                            MetastorePlugin.this.conf);
+            paths = cacheInitializer.createInitialUpdate();
+          }
+          MetastorePlugin.this.authzPaths = paths;
+          if (snapshot != null) {
+            // journal the queued updates, the snapshot task writes the
+            // snapshot they follow
+            try {
+              snapshot.roll();
+            } catch (IOException e) {
+              discardCacheSnapshot(e);
+            }
+          }
           LOGGER.info("#### Metastore Plugin initialization complete !!");
           synchronized (updateQueue) {
             while (!updateQueue.isEmpty()) {
@@ -149,6 +338,12 @@ public class MetastorePlugin extends SentryMetastoreListenerPlugin {
             queueFlushComplete = true;
           }
           LOGGER.info("#### Finished flushing queued updates to Sentry !!");
+          if (reconcile) {
+            Thread reconciler = new Thread(new ReconcileTask(),
+                "sentry-hdfs-metastore-cache-reconciler");
+            reconciler.setDaemon(true);
+            reconciler.start();
+          }
         } catch (Exception e) {
           LOGGER.error("#### Could not create Initial AuthzPaths or HMSHandler !!", e);
           initError = e;
@@ -181,7 +376,8 @@ public class MetastorePlugin extends SentryMetastoreListenerPlugin {
       sentryClient = null;
       LOGGER.error("Could not connect to Sentry HDFS Service !!", e);
     }
-    ScheduledExecutorService newThreadPool = Executors.newScheduledThreadPool(1);
+    ScheduledExecutorService newThreadPool =
+        Executors.newScheduledThreadPool(cacheSnapshot != null ? 3 : 1);
     newThreadPool.scheduleWithFixedDelay(new SyncTask(),
             this.conf.getLong(ServerConfig
                             .SENTRY_HDFS_INIT_UPDATE_RETRY_DELAY_MS,
@@ -189,6 +385,18 @@ public class MetastorePlugin extends SentryMetastoreListenerPlugin {
             this.conf.getLong(ServerConfig.SENTRY_HDFS_SYNC_CHECKER_PERIOD_MS,
                     ServerConfig.SENTRY_HDFS_SYNC_CHECKER_PERIOD_DEFAULT),
             TimeUnit.MILLISECONDS);
+    if (cacheSnapshot != null) {
+      long snapshotInterval = this.conf.getLong(
+              ServerConfig.SENTRY_HDFS_SYNC_METASTORE_CACHE_SNAPSHOT_INTERVAL_MS,
+              ServerConfig.SENTRY_HDFS_SYNC_METASTORE_CACHE_SNAPSHOT_INTERVAL_MS_DEFAULT);
+      newThreadPool.scheduleWithFixedDelay(new SnapshotTask(), snapshotInterval,
+              snapshotInterval, TimeUnit.MILLISECONDS);
+      long syncInterval = this.conf.getLong(
+              ServerConfig.SENTRY_HDFS_SYNC_METASTORE_CACHE_SNAPSHOT_SYNC_INTERVAL_MS,
+              ServerConfig.SENTRY_HDFS_SYNC_METASTORE_CACHE_SNAPSHOT_SYNC_INTERVAL_MS_DEFAULT);
+      newThreadPool.scheduleWithFixedDelay(new JournalSyncTask(), syncInterval,
+              syncInterval, TimeUnit.MILLISECONDS);
+    }
     this.threadPool = newThreadPool;
   }
 
@@ -316,12 +524,35 @@ public class MetastorePlugin extends SentryMetastoreListenerPlugin {
   protected void applyLocal(PathsUpdate update) {
     final Timer.Context timerContext =
         SentryHdfsMetricsUtil.getApplyLocalUpdateTimer.time();
-    authzPaths.updatePartial(Lists.newArrayList(update), new ReentrantReadWriteLock());
+    synchronized (cacheLock) {
+      authzPaths.updatePartial(Lists.newArrayList(update), new ReentrantReadWriteLock());
+      if (reconcileUpdates != null) {
+        reconcileUpdates.add(update);
+      }
+      MetastoreCacheSnapshot snapshot = cacheSnapshot;
+      if (snapshot != null) {
+        try {
+          snapshot.append(update);
+        } catch (IOException e) {
+          discardCacheSnapshot(e);
+        }
+      }
+    }
     timerContext.stop();
     SentryHdfsMetricsUtil.getApplyLocalUpdateHistogram.update(
         update.getPathChanges().size());
   }
 
+  private void discardCacheSnapshot(IOException e) {
+    LOGGER.error("#### Could not journal metastore cache update, " +
+            "the cache will not be persisted !!", e);
+    MetastoreCacheSnapshot snapshot = cacheSnapshot;
+    cacheSnapshot = null;
+    if (snapshot != null) {
+      snapshot.discard();
+    }
+  }
+
   private void notifySentryAndApplyLocal(PathsUpdate update) {
     if (initComplete) {
       processUpdate(update);
@@ -347,8 +578,16 @@ public class MetastorePlugin extends SentryMetastoreListenerPlugin {
   }
 
   protected void processUpdate(PathsUpdate update) {
-    applyLocal(update);
-    notifySentry(update);
+    if (notificationQueue != null) {
+      // queue the updates in the order they are applied
+      synchronized (cacheLock) {
+        applyLocal(update);
+        notificationQueue.add(update);
+      }
+    } else {
+      applyLocal(update);
+      notifySentry(update);
+    }
   }
 
 }
@@ -42,9 +42,10 @@ public class MetastorePluginWithHA extends MetastorePlugin {
         throws Exception {
       switch ( event.getType() ) {
       case CHILD_ADDED:
-        PathsUpdate newUpdate = new PathsUpdate();
-        PluginCacheSyncUtil.setUpdateFromChildEvent(event, newUpdate);
-        metastorePlugin.processCacheNotification(newUpdate);
+        for (PathsUpdate newUpdate : PluginCacheSyncUtil.getUpdatesFromChildEvent(
+            event, PathsUpdate.class)) {
+          metastorePlugin.processCacheNotification(newUpdate);
+        }
         break;
       case INITIALIZED:
       case CHILD_UPDATED:
@@ -67,7 +68,7 @@ public class MetastorePluginWithHA extends MetastorePlugin {
   private PluginCacheSyncUtil pluginCacheSync;
 
   public MetastorePluginWithHA(Configuration conf, Configuration sentryConfig) throws Exception {
-    super(conf, sentryConfig);
+    super(conf, sentryConfig, false);
     zkPath = sentryConfig.get(ServerConfig.SENTRY_METASTORE_HA_ZOOKEEPER_NAMESPACE,
         ServerConfig.SENTRY_METASTORE_HA_ZOOKEEPER_NAMESPACE_DEFAULT);
 
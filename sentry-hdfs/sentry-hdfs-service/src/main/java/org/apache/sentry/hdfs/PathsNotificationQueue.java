@@ -0,0 +1,251 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.sentry.hdfs;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.apache.sentry.hdfs.service.thrift.TPathChanges;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.codahale.metrics.Timer;
+import com.google.common.annotations.VisibleForTesting;
+
+/**
+ * Notifies Sentry of the path updates of the metastore from a thread of its
+ * own, so that the metastore handlers do not wait for Sentry. The updates
+ * queued while the previous notification is sent, or within the batch delay
+ * of the first of them, are coalesced into as few notifications as possible.
+ * Sentry applies all the deletions of an update before its additions, so only
+ * consecutive updates which just add paths are merged, an update which
+ * deletes or renames paths is sent on its own and keeps its place. The queue
+ * holds a bounded number of path changes, queuing more waits for it to drain.
+ */
+public class PathsNotificationQueue {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(PathsNotificationQueue.class);
+
+  /**
+   * Sends a notification, given a sequence number following the one of the
+   * previous notification.
+   */
+  public interface Sender {
+    void send(PathsUpdate update);
+  }
+
+  private final Sender sender;
+  private final int batchSize;
+  private final long batchDelayMs;
+  private final int capacity;
+  private final ReentrantLock lock = new ReentrantLock();
+  private final Condition notEmpty = lock.newCondition();
+  private final Condition notFull = lock.newCondition();
+  private final LinkedList<PathsUpdate> queue = new LinkedList<PathsUpdate>();
+  private int queuedPaths;
+  private long firstQueuedTime;
+  private volatile boolean closed;
+  private final Thread flusher;
+
+  /**
+   * @param batchSize the maximum number of path changes merged into one
+   *                  notification
+   * @param batchDelayMs how long the first queued update waits for others
+   * @param capacity the number of queued path changes above which queuing
+   *                 waits
+   */
+  public PathsNotificationQueue(Sender sender, int batchSize, long batchDelayMs,
+      int capacity) {
+    this.sender = sender;
+    this.batchSize = batchSize;
+    this.batchDelayMs = batchDelayMs;
+    this.capacity = capacity;
+    flusher = new Thread("sentry-hdfs-paths-notifier") {
+      @Override
+      public void run() {
+        flushLoop();
+      }
+    };
+    flusher.setDaemon(true);
+    flusher.start();
+  }
+
+  /**
+   * Queues an update, waiting while the queue is full unless it is empty.
+   */
+  public void add(PathsUpdate update) {
+    int numPaths = getNumPaths(update);
+    lock.lock();
+    try {
+      if (queuedPaths > 0 && queuedPaths + numPaths > capacity) {
+        SentryHdfsMetricsUtil.getNotificationQueueFullCounter.inc();
+        final Timer.Context timerContext =
+            SentryHdfsMetricsUtil.getNotificationQueueWaitTimer.time();
+        try {
+          while (!closed && queuedPaths > 0 && queuedPaths + numPaths > capacity) {
+            notFull.await();
+          }
+        } catch (InterruptedException e) {
+          // queue the update anyway, it is part of the cache already
+          Thread.currentThread().interrupt();
+        } finally {
+          timerContext.stop();
+        }
+      }
+      if (queue.isEmpty()) {
+        firstQueuedTime = System.currentTimeMillis();
+      }
+      queue.add(update);
+      queuedPaths += numPaths;
+      notEmpty.signal();
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * Stops the flusher thread, the updates still queued are not sent.
+   */
+  public void close() {
+    closed = true;
+    lock.lock();
+    try {
+      notEmpty.signalAll();
+      notFull.signalAll();
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  private void flushLoop() {
+    while (!closed) {
+      List<PathsUpdate> updates;
+      try {
+        updates = take();
+      } catch (InterruptedException e) {
+        LOGGER.warn("#### Paths notification thread interrupted !!");
+        return;
+      }
+      if (updates.isEmpty()) {
+        continue;
+      }
+      List<PathsUpdate> notifications = coalesce(updates, batchSize);
+      SentryHdfsMetricsUtil.getNotificationBatchHistogram.update(updates.size());
+      for (PathsUpdate notification : notifications) {
+        try {
+          sender.send(notification);
+        } catch (Exception e) {
+          // the sender is expected to handle its failures, Sentry
+          // catches up through a full image anyway
+          LOGGER.error("#### Could not notify Sentry of paths update !!", e);
+        }
+      }
+    }
+  }
+
+  /**
+   * Waits for queued updates, and then for batchDelayMs after the first of
+   * them unless a batch or the queue is full already. Returns all the queued
+   * updates.
+   */
+  private List<PathsUpdate> take() throws InterruptedException {
+    lock.lock();
+    try {
+      while (!closed && queue.isEmpty()) {
+        notEmpty.await();
+      }
+      long waitMs = firstQueuedTime + batchDelayMs - System.currentTimeMillis();
+      while (!closed && queuedPaths < Math.min(batchSize, capacity) && waitMs > 0) {
+        notEmpty.await(waitMs, TimeUnit.MILLISECONDS);
+        waitMs = firstQueuedTime + batchDelayMs - System.currentTimeMillis();
+      }
+      SentryHdfsMetricsUtil.getNotificationQueueHistogram.update(queuedPaths);
+      List<PathsUpdate> updates = new ArrayList<PathsUpdate>(queue);
+      queue.clear();
+      queuedPaths = 0;
+      notFull.signalAll();
+      return updates;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * Coalesces updates into notifications applied by Sentry to the same
+   * effect, merging the runs of updates which only add paths into
+   * notifications of at most batchSize path changes. The sequence numbers of
+   * the notifications are left to the sender.
+   */
+  @VisibleForTesting
+  static List<PathsUpdate> coalesce(List<PathsUpdate> updates, int batchSize) {
+    List<PathsUpdate> notifications = new ArrayList<PathsUpdate>();
+    PathsUpdate merged = null;
+    Map<String, TPathChanges> mergedChanges = new HashMap<String, TPathChanges>();
+    int mergedPaths = 0;
+    for (PathsUpdate update : updates) {
+      int numPaths = getNumPaths(update);
+      if (!isAddOnly(update)) {
+        merged = null;
+        notifications.add(update);
+        continue;
+      }
+      if (merged == null || mergedPaths + numPaths > batchSize) {
+        merged = new PathsUpdate(update.getSeqNum(), false);
+        mergedChanges.clear();
+        mergedPaths = 0;
+        notifications.add(merged);
+      }
+      for (TPathChanges changes : update.getPathChanges()) {
+        TPathChanges mergedChange = mergedChanges.get(changes.getAuthzObj());
+        if (mergedChange == null) {
+          mergedChange = merged.newPathChange(changes.getAuthzObj());
+          mergedChanges.put(changes.getAuthzObj(), mergedChange);
+        }
+        for (List<String> path : changes.getAddPaths()) {
+          mergedChange.addToAddPaths(path);
+        }
+      }
+      merged.setSeqNum(update.getSeqNum());
+      mergedPaths += numPaths;
+    }
+    return notifications;
+  }
+
+  private static boolean isAddOnly(PathsUpdate update) {
+    for (TPathChanges changes : update.getPathChanges()) {
+      if (changes.getDelPathsSize() > 0) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private static int getNumPaths(PathsUpdate update) {
+    int numPaths = 0;
+    for (TPathChanges changes : update.getPathChanges()) {
+      numPaths += changes.getAddPathsSize() + changes.getDelPathsSize();
+    }
+    return numPaths;
+  }
+}
@@ -17,13 +17,25 @@
  */
 package org.apache.sentry.hdfs;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedList;
+import java.util.List;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
 
 import com.codahale.metrics.Timer;
+import org.apache.curator.framework.recipes.atomic.AtomicValue;
 import org.apache.curator.framework.recipes.atomic.DistributedAtomicLong;
+import org.apache.curator.framework.recipes.cache.ChildData;
 import org.apache.curator.framework.recipes.cache.PathChildrenCache;
 import org.apache.curator.framework.recipes.cache.PathChildrenCacheEvent;
 import org.apache.curator.framework.recipes.cache.PathChildrenCacheListener;
@@ -46,6 +58,14 @@ import com.google.common.annotations.VisibleForTesting;
  * updates the counter, creates a znode zpath/counter and writes the data to it.
  * The caller should provider the cache callback handler class that posts the
  * update object to the required cache
+ *
+ * The updates posted concurrently are written together: while a batch of
+ * updates is written, the updates posted in the meantime are queued, and the
+ * first of their callers to get to write writes all of them at once. A batch
+ * takes one lock, one increment of the counter by its number of updates and
+ * one znode named zpath/first-last after the sequence numbers of its updates.
+ * A batch of a single update is written as before, and full images are always
+ * written on their own.
  */
 public class PluginCacheSyncUtil {
   private static final Logger LOGGER = LoggerFactory
@@ -55,16 +75,37 @@ public class PluginCacheSyncUtil {
   public static final long CACHE_GC_SIZE_MAX_CLEANUP = 1000;
   public static final long ZK_COUNTER_INIT_VALUE = 4;
   public static final long GC_COUNTER_INIT_VALUE = ZK_COUNTER_INIT_VALUE + 1;
+  // separates the first and last sequence numbers of a batch in its znode name
+  public static final String BATCH_SEPARATOR = "-";
 
   private final String zkPath;
   private final HAContext haContext;
   private final PathChildrenCache cache;
   private InterProcessSemaphoreMutex updatorLock, gcLock;
   private int lockTimeout;
-  private DistributedAtomicLong updateCounter, gcCounter;
+  private DistributedAtomicLong updateCounter;
+  private final int maxBatchUpdates;
+  private final int maxBatchBytes;
+  private final long gcMaxBytes;
+  // the updates waiting to be written, and the lock of the caller writing them
+  private final LinkedList<PendingUpdate> pendingUpdates = new LinkedList<PendingUpdate>();
+  private final ReentrantLock commitLock = new ReentrantLock();
   private final ScheduledExecutorService gcSchedulerForZk = Executors
       .newScheduledThreadPool(1);
 
+  private static final class PendingUpdate {
+    private final Update update;
+    private final byte[] data;
+    // only accessed holding the commitLock
+    private boolean done;
+    private SentryPluginException error;
+
+    PendingUpdate(Update update, byte[] data) {
+      this.update = update;
+      this.data = data;
+    }
+  }
+
   public PluginCacheSyncUtil(String zkPath, final Configuration conf,
       PathChildrenCacheListener cacheListener) throws SentryPluginException {
     this.zkPath = zkPath;
@@ -93,6 +134,15 @@ public class PluginCacheSyncUtil {
         ServerConfig.SENTRY_HDFS_INIT_UPDATE_RETRY_DELAY_DEFAULT);
     gcLock = new InterProcessSemaphoreMutex(
         haContext.getCuratorFramework(), zkPath + "/gclock");
+    maxBatchUpdates = Math.max(1, conf.getInt(
+        ServerConfig.SENTRY_HDFS_HA_SYNC_BATCH_MAX_UPDATES,
+        ServerConfig.SENTRY_HDFS_HA_SYNC_BATCH_MAX_UPDATES_DEFAULT));
+    maxBatchBytes = conf.getInt(
+        ServerConfig.SENTRY_HDFS_HA_SYNC_BATCH_MAX_BYTES,
+        ServerConfig.SENTRY_HDFS_HA_SYNC_BATCH_MAX_BYTES_DEFAULT);
+    gcMaxBytes = conf.getLong(
+        ServerConfig.SENTRY_HDFS_HA_CACHE_GC_MAX_BYTES,
+        ServerConfig.SENTRY_HDFS_HA_CACHE_GC_MAX_BYTES_DEFAULT);
 
     updateCounter = new DistributedAtomicLong(haContext.getCuratorFramework(),
         zkPath + "/counter", haContext.getRetryPolicy());
@@ -103,24 +153,88 @@ public class PluginCacheSyncUtil {
     }
 
     // GC setup
-    gcCounter = new DistributedAtomicLong(haContext.getCuratorFramework(),
-        zkPath + "/gccounter", haContext.getRetryPolicy());
-    try {
-      gcCounter.initialize(GC_COUNTER_INIT_VALUE);
-    } catch (Exception e) {
-      LOGGER.error("Error initializing  counter for zpath " + zkPath, e);
-    }
     final Runnable gcRunner = new Runnable() {
       public void run() {
         gcPluginCache(conf);
       }
     };
-    gcSchedulerForZk.scheduleAtFixedRate(gcRunner, 10, 10, TimeUnit.MINUTES);
+    long gcIntervalMs = conf.getLong(
+        ServerConfig.SENTRY_HDFS_HA_CACHE_GC_INTERVAL_MS,
+        ServerConfig.SENTRY_HDFS_HA_CACHE_GC_INTERVAL_MS_DEFAULT);
+    gcSchedulerForZk.scheduleAtFixedRate(gcRunner, gcIntervalMs, gcIntervalMs,
+        TimeUnit.MILLISECONDS);
   }
 
+  /**
+   * Writes the update to ZK, along with the updates posted concurrently, and
+   * returns once it is written. The sequence number of the update is set to
+   * the one it is replicated with, unless it is a full image.
+   */
   public void handleCacheUpdate(Update update) throws SentryPluginException {
+    PendingUpdate pending;
+    try {
+      pending = new PendingUpdate(update, update.serialize());
+    } catch (IOException e) {
+      SentryHdfsMetricsUtil.getFailedCacheSyncToZK.inc();
+      throw new SentryPluginException("Error serializing update for cache syncup", e);
+    }
+    synchronized (pendingUpdates) {
+      pendingUpdates.add(pending);
+    }
+    commitLock.lock();
+    try {
+      // the update may have been written by the previous holder of the lock,
+      // along with the updates queued before it
+      while (!pending.done) {
+        commitBatch(takeBatch());
+      }
+    } finally {
+      commitLock.unlock();
+    }
+    if (pending.error != null) {
+      throw pending.error;
+    }
+  }
+
+  private List<PendingUpdate> takeBatch() {
+    List<PendingUpdate> batch = new ArrayList<PendingUpdate>();
+    long batchBytes = 0;
+    synchronized (pendingUpdates) {
+      while (!pendingUpdates.isEmpty()) {
+        PendingUpdate next = pendingUpdates.peek();
+        if (!batch.isEmpty() && (next.update.hasFullImage()
+            || batch.get(0).update.hasFullImage()
+            || batch.size() >= maxBatchUpdates
+            || batchBytes + next.data.length > maxBatchBytes)) {
+          break;
+        }
+        batch.add(pendingUpdates.poll());
+        batchBytes += next.data.length;
+      }
+    }
+    return batch;
+  }
+
+  private void commitBatch(List<PendingUpdate> batch) {
     final Timer.Context timerContext = SentryHdfsMetricsUtil.getCacheSyncToZKTimer.time();
-    // post message to ZK cache
+    try {
+      writeBatch(batch);
+      SentryHdfsMetricsUtil.getCacheSyncUpdatesMeter.mark(batch.size());
+      SentryHdfsMetricsUtil.getCacheSyncBatchSizeHistogram.update(batch.size());
+    } catch (SentryPluginException e) {
+      SentryHdfsMetricsUtil.getFailedCacheSyncToZK.inc();
+      for (PendingUpdate pending : batch) {
+        pending.error = e;
+      }
+    } finally {
+      timerContext.stop();
+      for (PendingUpdate pending : batch) {
+        pending.done = true;
+      }
+    }
+  }
+
+  private void writeBatch(List<PendingUpdate> batch) throws SentryPluginException {
     try {
       // Acquire ZK lock for update cache sync. This ensures that the counter
       // increment and znode creation is atomic operation
@@ -128,57 +242,81 @@ public class PluginCacheSyncUtil {
         throw new SentryPluginException(
             "Failed to get ZK lock for update cache syncup");
       }
+    } catch (SentryPluginException e) {
+      throw e;
     } catch (Exception e1) {
-      // Stop timer in advance
-      timerContext.stop();
-      SentryHdfsMetricsUtil.getFailedCacheSyncToZK.inc();
       throw new SentryPluginException(
           "Error getting ZK lock for update cache syncup" + e1, e1);
     }
-    boolean failed = false;
     try {
-      try {
-        // increment the global sequence counter if this is not a full update
-        if (!update.hasFullImage()) {
-          update.setSeqNum(updateCounter.increment().postValue());
-        } else {
-          if (updateCounter.get().preValue() < update.getSeqNum()) {
-            updateCounter.add(update.getSeqNum() - updateCounter.get().preValue());
-          }
-        }
-      } catch (Exception e1) {
-        failed = true;
-        throw new SentryPluginException(
-            "Error setting ZK counter for update cache syncup" + e1, e1);
-      }
+      long firstSeqNum = allocateSeqNums(batch);
+      long lastSeqNum = firstSeqNum + batch.size() - 1;
 
-      // Create a new znode with the sequence number and write the update data
-      // into it
-      String updateSeq = String.valueOf(update.getSeqNum());
-      String newPath = ZKPaths.makePath(zkPath + "/cache", updateSeq);
+      // Create a new znode with the sequence numbers and write the update
+      // data into it
+      String node = (batch.size() == 1) ? String.valueOf(firstSeqNum)
+          : firstSeqNum + BATCH_SEPARATOR + lastSeqNum;
+      String newPath = ZKPaths.makePath(zkPath + "/cache", node);
+      byte[] data = (batch.size() == 1) ? batch.get(0).data : encodeBatch(batch);
       try {
         haContext.getCuratorFramework().create().creatingParentsIfNeeded()
-            .forPath(newPath, update.serialize());
+            .forPath(newPath, data);
       } catch (Exception e) {
-        failed = true;
         throw new SentryPluginException("error posting update to ZK ", e);
       }
+      SentryHdfsMetricsUtil.getCacheSyncBatchBytesHistogram.update(data.length);
+      for (int i = 0; i < batch.size(); i++) {
+        batch.get(i).update.setSeqNum(firstSeqNum + i);
+      }
     } finally {
       // release the ZK lock
       try {
         updatorLock.release();
       } catch (Exception e) {
-        // Stop timer in advance
-        timerContext.stop();
-        SentryHdfsMetricsUtil.getFailedCacheSyncToZK.inc();
         throw new SentryPluginException(
             "Error releasing ZK lock for update cache syncup" + e, e);
       }
-      timerContext.stop();
-      if (failed) {
-        SentryHdfsMetricsUtil.getFailedCacheSyncToZK.inc();
+    }
+  }
+
+  // Returns the first of the consecutive sequence numbers of the batch, a full
+  // image keeps its own.
+  private long allocateSeqNums(List<PendingUpdate> batch) throws SentryPluginException {
+    Update first = batch.get(0).update;
+    try {
+      if (first.hasFullImage()) {
+        if (updateCounter.get().preValue() < first.getSeqNum()) {
+          updateCounter.add(first.getSeqNum() - updateCounter.get().preValue());
+        }
+        return first.getSeqNum();
+      }
+      AtomicValue<Long> counter = updateCounter.add((long) batch.size());
+      if (!counter.succeeded()) {
+        throw new SentryPluginException(
+            "Failed to increment ZK counter for update cache syncup");
+      }
+      return counter.postValue() - batch.size() + 1;
+    } catch (SentryPluginException e) {
+      throw e;
+    } catch (Exception e1) {
+      throw new SentryPluginException(
+          "Error setting ZK counter for update cache syncup" + e1, e1);
+    }
+  }
+
+  private static byte[] encodeBatch(List<PendingUpdate> batch) throws SentryPluginException {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    DataOutputStream out = new DataOutputStream(bytes);
+    try {
+      for (PendingUpdate pending : batch) {
+        out.writeInt(pending.data.length);
+        out.write(pending.data);
       }
+      out.flush();
+    } catch (IOException e) {
+      throw new SentryPluginException("Error serializing updates for cache syncup", e);
     }
+    return bytes.toByteArray();
   }
 
   public static void setUpdateFromChildEvent(PathChildrenCacheEvent cacheEvent,
@@ -189,6 +327,38 @@ public class PluginCacheSyncUtil {
     update.setSeqNum(Integer.valueOf(seqNum));
   }
 
+  /**
+   * Returns the updates of the znode of the event, a single update or a
+   * batch of them, in the order of their sequence numbers.
+   */
+  public static <K extends Update> List<K> getUpdatesFromChildEvent(
+      PathChildrenCacheEvent cacheEvent, Class<? extends K> updateClass)
+      throws Exception {
+    String node = ZKPaths.getNodeFromPath(cacheEvent.getData().getPath());
+    byte[] eventData = cacheEvent.getData().getData();
+    List<K> updates = new ArrayList<K>();
+    int separator = node.indexOf(BATCH_SEPARATOR);
+    if (separator < 0) {
+      K update = updateClass.newInstance();
+      update.deserialize(eventData);
+      update.setSeqNum(Long.parseLong(node));
+      updates.add(update);
+      return updates;
+    }
+    long lastSeqNum = Long.parseLong(node.substring(separator + 1));
+    DataInputStream in = new DataInputStream(new ByteArrayInputStream(eventData));
+    for (long seqNum = Long.parseLong(node.substring(0, separator));
+        seqNum <= lastSeqNum; seqNum++) {
+      byte[] data = new byte[in.readInt()];
+      in.readFully(data);
+      K update = updateClass.newInstance();
+      update.deserialize(data);
+      update.setSeqNum(seqNum);
+      updates.add(update);
+    }
+    return updates;
+  }
+
   public void close() throws IOException {
     cache.close();
   }
@@ -198,10 +368,11 @@ public class PluginCacheSyncUtil {
   }
 
   /**
-   * Cleanup old znode of the plugin cache. The last cleaned and last created
-   * node counters are stored in ZK. If the number of available nodes are more
-   * than the high water mark, then we delete the old nodes till we reach low
-   * water mark. The scheduler periodically runs the cleanup routine
+   * Cleanup old znodes of the plugin cache. If the nodes hold more updates
+   * than the high water mark, or take more than the maximum bytes, the oldest
+   * nodes are deleted until they hold no more than the low water mark of
+   * updates and half of the maximum bytes. The newest node is always kept.
+   * The scheduler periodically runs the cleanup routine
    * @param conf
    */
   @VisibleForTesting
@@ -212,29 +383,57 @@ public class PluginCacheSyncUtil {
         return;
       }
 
+      List<String> nodes = new ArrayList<String>(haContext.getCuratorFramework()
+          .getChildren().forPath(zkPath + "/cache"));
+      if (nodes.isEmpty()) {
+        return;
+      }
+      Collections.sort(nodes, new Comparator<String>() {
+        @Override
+        public int compare(String node1, String node2) {
+          long seqNum1 = getFirstSeqNum(node1);
+          long seqNum2 = getFirstSeqNum(node2);
+          return (seqNum1 < seqNum2) ? -1 : ((seqNum1 == seqNum2) ? 0 : 1);
+        }
+      });
+      // the sizes of the nodes are taken from the path cache, which holds
+      // their data
+      long[] nodeBytes = new long[nodes.size()];
+      long totalBytes = 0;
+      for (int i = 0; i < nodes.size(); i++) {
+        ChildData data = cache.getCurrentData(
+            ZKPaths.makePath(zkPath + "/cache", nodes.get(i)));
+        nodeBytes[i] = (data != null && data.getStat() != null)
+            ? data.getStat().getDataLength() : 0;
+        totalBytes += nodeBytes[i];
+      }
+
       // If we have passed the High watermark, then start the cleanup
-      Long updCount = updateCounter.get().preValue();
-      Long gcCount = gcCounter.get().preValue();
-      if (updCount - gcCount > CACHE_GC_SIZE_THRESHOLD_HWM) {
-        Long numNodesToClean = Math.min(updCount - gcCount
-            - CACHE_GC_SIZE_THRESHOLD_LWM, CACHE_GC_SIZE_MAX_CLEANUP);
-        for (Long nodeNum = gcCount; nodeNum < gcCount + numNodesToClean; nodeNum++) {
-          String pathToDelete = ZKPaths.makePath(zkPath + "/cache",
-              Long.toString(nodeNum));
-          try {
-            haContext.getCuratorFramework().delete().forPath(pathToDelete);
-            gcCounter.increment();
-            LOGGER.debug("Deleted znode " + pathToDelete);
-          } catch (NoNodeException eN) {
-            // We might have endup with holes in the node counter due to network/ZK errors
-            // Ignore the delete error if the node doesn't exist and move on
-            gcCounter.increment();
-          } catch (Exception e) {
-            LOGGER.info("Error cleaning up node " + pathToDelete, e);
-            break;
-          }
+      long updCount = updateCounter.get().preValue();
+      if (updCount - getFirstSeqNum(nodes.get(0)) + 1 <= CACHE_GC_SIZE_THRESHOLD_HWM
+          && totalBytes <= gcMaxBytes) {
+        return;
+      }
+      int numDeleted = 0;
+      for (int i = 0; i < nodes.size() - 1 && numDeleted < CACHE_GC_SIZE_MAX_CLEANUP; i++) {
+        if (updCount - getFirstSeqNum(nodes.get(i)) + 1 <= CACHE_GC_SIZE_THRESHOLD_LWM
+            && totalBytes <= gcMaxBytes / 2) {
+          break;
         }
+        String pathToDelete = ZKPaths.makePath(zkPath + "/cache", nodes.get(i));
+        try {
+          haContext.getCuratorFramework().delete().forPath(pathToDelete);
+          LOGGER.debug("Deleted znode " + pathToDelete);
+        } catch (NoNodeException eN) {
+          // Another server may have deleted the node already, move on
+        } catch (Exception e) {
+          LOGGER.info("Error cleaning up node " + pathToDelete, e);
+          break;
+        }
+        numDeleted++;
+        totalBytes -= nodeBytes[i];
       }
+      SentryHdfsMetricsUtil.getCacheGcDeletedCounter.inc(numDeleted);
     } catch (Exception e) {
       LOGGER.warn("Error cleaning the cache", e);
     } finally {
@@ -248,4 +447,9 @@ public class PluginCacheSyncUtil {
     }
   }
 
+  private static long getFirstSeqNum(String node) {
+    int separator = node.indexOf(BATCH_SEPARATOR);
+    return Long.parseLong((separator < 0) ? node : node.substring(0, separator));
+  }
+
 }
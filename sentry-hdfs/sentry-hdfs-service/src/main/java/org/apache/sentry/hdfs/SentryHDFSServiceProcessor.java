@@ -18,6 +18,8 @@
 
 package org.apache.sentry.hdfs;
 
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
@@ -25,6 +27,7 @@ import java.util.Map;
 import com.codahale.metrics.Timer;
 import org.apache.sentry.hdfs.service.thrift.SentryHDFSService;
 import org.apache.sentry.hdfs.service.thrift.TAuthzUpdateResponse;
+import org.apache.sentry.hdfs.service.thrift.TPathsDump;
 import org.apache.sentry.hdfs.service.thrift.TPathsUpdate;
 import org.apache.sentry.hdfs.service.thrift.TPermissionsUpdate;
 import org.apache.thrift.TException;
@@ -36,8 +39,8 @@ public class SentryHDFSServiceProcessor implements SentryHDFSService.Iface {
   private static final Logger LOGGER = LoggerFactory.getLogger(SentryHDFSServiceProcessor.class);
 
   @Override
-  public TAuthzUpdateResponse get_all_authz_updates_from(long permSeqNum, long pathSeqNum)
-      throws TException {
+  public TAuthzUpdateResponse get_all_authz_updates_from(long permSeqNum, long pathSeqNum,
+      int pathsDumpFromId, int pathsDumpChunkSize, int waitTimeoutMs) throws TException {
     TAuthzUpdateResponse retVal = new TAuthzUpdateResponse();
     retVal.setAuthzPathUpdate(new LinkedList<TPathsUpdate>());
     retVal.setAuthzPermUpdate(new LinkedList<TPermissionsUpdate>());
@@ -46,15 +49,30 @@ public class SentryHDFSServiceProcessor implements SentryHDFSService.Iface {
         throw new TException(
             "This Sentry server is not communicating with other nodes and out of sync ");
       }
+      // the later chunks of a full paths image are there already
+      if (waitTimeoutMs > 0 && pathsDumpFromId == 0) {
+        waitForUpdates(permSeqNum, pathSeqNum, waitTimeoutMs);
+      }
       final Timer.Context timerContext =
           SentryHdfsMetricsUtil.getAllAuthzUpdatesTimer.time();
       try {
-        List<PermissionsUpdate> permUpdates =
-            SentryPlugin.instance.getAllPermsUpdatesFrom(permSeqNum);
-        SentryHdfsMetricsUtil.getPermUpdateHistogram.update(permUpdates.size());
         List<PathsUpdate> pathUpdates =
             SentryPlugin.instance.getAllPathsUpdatesFrom(pathSeqNum);
+        boolean laterChunk = false;
+        if (pathsDumpChunkSize > 0 && !pathUpdates.isEmpty()
+            && pathUpdates.get(0).hasFullImage()) {
+          PathsUpdate chunk = pathUpdates.get(0).getPathsDumpChunk(pathsDumpFromId,
+              pathsDumpChunkSize);
+          TPathsDump chunkDump = chunk.toThrift().getPathsDump();
+          laterChunk = !chunkDump.getNodeMap().containsKey(chunkDump.getRootId());
+          pathUpdates = getPathsDumpChunk(pathUpdates, chunk);
+        }
         SentryHdfsMetricsUtil.getPathUpdateHistogram.update(pathUpdates.size());
+        // the permission updates were sent with the first chunk of the image
+        List<PermissionsUpdate> permUpdates = laterChunk
+            ? Collections.<PermissionsUpdate>emptyList()
+            : SentryPlugin.instance.getAllPermsUpdatesFrom(permSeqNum);
+        SentryHdfsMetricsUtil.getPermUpdateHistogram.update(permUpdates.size());
         for (PathsUpdate update : pathUpdates) {
           if (LOGGER.isDebugEnabled()) {
             LOGGER.debug("### Sending PATH preUpdate seq [" + update.getSeqNum() + "] ###");
@@ -97,6 +115,33 @@ public class SentryHDFSServiceProcessor implements SentryHDFSService.Iface {
     return retVal;
   }
 
+  private static void waitForUpdates(long permSeqNum, long pathSeqNum, int waitTimeoutMs) {
+    final Timer.Context timerContext =
+        SentryHdfsMetricsUtil.getWaitForUpdatesTimer.time();
+    try {
+      SentryPlugin.instance.waitForUpdatesFrom(permSeqNum, pathSeqNum, waitTimeoutMs);
+    } catch (InterruptedException e) {
+      // return the updates there are
+      Thread.currentThread().interrupt();
+    } finally {
+      timerContext.stop();
+    }
+  }
+
+  // Replaces the full image the path updates start with by a chunk of its
+  // paths dump, the partial updates which follow the image are only sent with
+  // its last chunk. The chunk is produced from the source of the image, the
+  // whole dump is not built.
+  private static List<PathsUpdate> getPathsDumpChunk(List<PathsUpdate> pathUpdates,
+      PathsUpdate chunk) {
+    if (chunk.toThrift().getPathsDump().isSetNextChunkId()) {
+      return Collections.singletonList(chunk);
+    }
+    List<PathsUpdate> retVal = new ArrayList<PathsUpdate>(pathUpdates);
+    retVal.set(0, chunk);
+    return retVal;
+  }
+
   @Override
   public void handle_hms_notification(TPathsUpdate update) throws TException {
     final Timer.Context timerContext =
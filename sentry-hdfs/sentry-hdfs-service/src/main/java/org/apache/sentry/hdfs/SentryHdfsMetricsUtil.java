@@ -20,6 +20,7 @@ package org.apache.sentry.hdfs;
 
 import com.codahale.metrics.Counter;
 import com.codahale.metrics.Histogram;
+import com.codahale.metrics.Meter;
 import com.codahale.metrics.MetricRegistry;
 import com.codahale.metrics.Timer;
 import org.apache.sentry.provider.db.service.thrift.SentryMetrics;
@@ -42,6 +43,10 @@ public class SentryHdfsMetricsUtil {
   // The size of path updates for each get_all_authz_updates_from
   public static final Histogram getPathUpdateHistogram = sentryMetrics.getHistogram(
       MetricRegistry.name(SentryHDFSServiceProcessor.class, "paths-updates-size"));
+  // The time get_all_authz_updates_from waits for new updates when asked to
+  public static final Timer getWaitForUpdatesTimer = sentryMetrics.getTimer(
+      MetricRegistry.name(SentryHDFSServiceProcessor.class,
+          "get-all-authz-updates-from", "wait"));
 
   // Metrics for handle_hms_notification in SentryHDFSServiceProcessor
   // The time used for each handle_hms_notification
@@ -82,6 +87,20 @@ public class SentryHdfsMetricsUtil {
       MetricRegistry.name(MetastorePlugin.class, "notify-sentry-HMS-update",
           "failed-num"));
 
+  // Metrics for the PathsNotificationQueue of MetastorePlugin
+  // The number of path changes queued when the queue is flushed
+  public static final Histogram getNotificationQueueHistogram = sentryMetrics.getHistogram(
+      MetricRegistry.name(PathsNotificationQueue.class, "queued-path-changes"));
+  // The number of updates coalesced per flush of the queue
+  public static final Histogram getNotificationBatchHistogram = sentryMetrics.getHistogram(
+      MetricRegistry.name(PathsNotificationQueue.class, "updates-per-flush"));
+  // The number of updates queued while the queue was full
+  public static final Counter getNotificationQueueFullCounter = sentryMetrics.getCounter(
+      MetricRegistry.name(PathsNotificationQueue.class, "queue-full-num"));
+  // The time waited for the queue to drain when it is full
+  public static final Timer getNotificationQueueWaitTimer = sentryMetrics.getTimer(
+      MetricRegistry.name(PathsNotificationQueue.class, "queue-full-wait"));
+
   // Metrics for applyLocal update in MetastorePlugin
   // The time used for each applyLocal
   public static final Timer getApplyLocalUpdateTimer = sentryMetrics.getTimer(
@@ -91,13 +110,45 @@ public class SentryHdfsMetricsUtil {
       MetricRegistry.name(MetastorePlugin.class, "apply-local-update",
           "path-change-size"));
 
+  // Metrics for the initialization of the cache in MetastoreCacheInitializer
+  // The tables and partitions whose paths are fetched, with their rates
+  public static final Meter getInitTablesMeter = sentryMetrics.getMeter(
+      MetricRegistry.name(MetastoreCacheInitializer.class, "tables"));
+  public static final Meter getInitPartitionsMeter = sentryMetrics.getMeter(
+      MetricRegistry.name(MetastoreCacheInitializer.class, "partitions"));
+  // The tables and partitions whose paths remain to be fetched
+  public static final Counter getInitRemainingTablesCounter = sentryMetrics.getCounter(
+      MetricRegistry.name(MetastoreCacheInitializer.class, "remaining-tables"));
+  public static final Counter getInitRemainingPartitionsCounter = sentryMetrics.getCounter(
+      MetricRegistry.name(MetastoreCacheInitializer.class, "remaining-partitions"));
+
+  // Metrics for the update log of UpdateForwarder
+  // The time used for each compaction of an update log into a full image
+  public static final Timer getUpdateLogCompactionTimer = sentryMetrics.getTimer(
+      MetricRegistry.name(UpdateForwarder.class, "update-log-compaction"));
+  // The estimated serialized size of the partial updates of an update log
+  // when compacted
+  public static final Histogram getUpdateLogBytesHistogram = sentryMetrics.getHistogram(
+      MetricRegistry.name(UpdateForwarder.class, "update-log-compaction", "log-bytes"));
+
   // Metrics for handleCacheUpdate to ZK in PluginCacheSyncUtil
-  // The time used for each handleCacheUpdate
+  // The time used for each batch of updates written to ZK
   public static final Timer getCacheSyncToZKTimer = sentryMetrics.getTimer(
       MetricRegistry.name(PluginCacheSyncUtil.class, "cache-sync-to-zk"));
-  // The number of failed handleCacheUpdate
+  // The number of failed batches of updates
   public static final Counter getFailedCacheSyncToZK = sentryMetrics.getCounter(
       MetricRegistry.name(PluginCacheSyncUtil.class, "cache-sync-to-zk", "failed-num"));
+  // The updates written to ZK, with their rate
+  public static final Meter getCacheSyncUpdatesMeter = sentryMetrics.getMeter(
+      MetricRegistry.name(PluginCacheSyncUtil.class, "cache-sync-to-zk", "updates"));
+  // The number of updates and of bytes of each batch written to ZK
+  public static final Histogram getCacheSyncBatchSizeHistogram = sentryMetrics.getHistogram(
+      MetricRegistry.name(PluginCacheSyncUtil.class, "cache-sync-to-zk", "batch-updates"));
+  public static final Histogram getCacheSyncBatchBytesHistogram = sentryMetrics.getHistogram(
+      MetricRegistry.name(PluginCacheSyncUtil.class, "cache-sync-to-zk", "batch-bytes"));
+  // The number of znodes deleted by the cleanup of the cache
+  public static final Counter getCacheGcDeletedCounter = sentryMetrics.getCounter(
+      MetricRegistry.name(PluginCacheSyncUtil.class, "cache-gc", "deleted-num"));
   
   private SentryHdfsMetricsUtil() {
     // Make constructor private to avoid instantiation
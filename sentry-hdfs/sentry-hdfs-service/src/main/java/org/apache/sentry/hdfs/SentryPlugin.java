@@ -98,6 +98,7 @@ public class SentryPlugin implements SentryPolicyStorePlugin {
   private final AtomicLong permSeqNum = new AtomicLong(5);
   private PermImageRetriever permImageRetriever;
   private boolean outOfSync = false;
+  private long maxUpdateWaitMs;
 
   long getLastSeenHMSPathSeqNum() {
     return pathsUpdater.getLastSeen();
@@ -111,17 +112,39 @@ public class SentryPlugin implements SentryPolicyStorePlugin {
     final int initUpdateRetryDelayMs =
         conf.getInt(ServerConfig.SENTRY_HDFS_INIT_UPDATE_RETRY_DELAY_MS,
             ServerConfig.SENTRY_HDFS_INIT_UPDATE_RETRY_DELAY_DEFAULT);
+    final int updateLogSize = conf.getInt(ServerConfig.SENTRY_HDFS_UPDATE_LOG_SIZE,
+        ServerConfig.SENTRY_HDFS_UPDATE_LOG_SIZE_DEFAULT);
+    maxUpdateWaitMs = conf.getLong(ServerConfig.SENTRY_HDFS_UPDATE_MAX_WAIT_MS,
+        ServerConfig.SENTRY_HDFS_UPDATE_MAX_WAIT_MS_DEFAULT);
     permImageRetriever = new PermImageRetriever(sentryStore);
 
     pathsUpdater = UpdateForwarder.create(conf, new UpdateableAuthzPaths(
-        pathPrefixes), new PathsUpdate(0, false), null, 100, initUpdateRetryDelayMs);
+        pathPrefixes), new PathsUpdate(0, false), null, updateLogSize, initUpdateRetryDelayMs);
     permsUpdater = UpdateForwarder.create(conf,
         new UpdateablePermissions(permImageRetriever), new PermissionsUpdate(0, false),
-        permImageRetriever, 100, initUpdateRetryDelayMs);
+        permImageRetriever, updateLogSize, initUpdateRetryDelayMs);
     LOGGER.info("Sentry HDFS plugin initialized !!");
     instance = this;
   }
 
+  /**
+   * Waits until there are permission or path updates from the given sequence
+   * numbers, for at most the given timeout, capped by
+   * {@link ServerConfig#SENTRY_HDFS_UPDATE_MAX_WAIT_MS}.
+   */
+  public void waitForUpdatesFrom(long permSeqNum, long pathSeqNum, long timeoutMs)
+      throws InterruptedException {
+    long waitMs = Math.min(timeoutMs, maxUpdateWaitMs);
+    long deadline = System.currentTimeMillis() + waitMs;
+    synchronized (UpdateForwarder.COMMIT_MONITOR) {
+      while (waitMs > 0 && !permsUpdater.hasUpdatesFrom(permSeqNum)
+          && !pathsUpdater.hasUpdatesFrom(pathSeqNum)) {
+        UpdateForwarder.COMMIT_MONITOR.wait(waitMs);
+        waitMs = deadline - System.currentTimeMillis();
+      }
+    }
+  }
+
   public List<PathsUpdate> getAllPathsUpdatesFrom(long pathSeqNum) {
     return pathsUpdater.getAllUpdatesFrom(pathSeqNum);
   }
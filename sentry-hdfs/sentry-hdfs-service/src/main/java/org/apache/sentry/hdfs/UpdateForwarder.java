@@ -19,22 +19,29 @@ package org.apache.sentry.hdfs;
 
 import java.io.Closeable;
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
-import java.util.Iterator;
-import java.util.LinkedList;
 import java.util.List;
 import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantLock;
 import java.util.concurrent.locks.ReentrantReadWriteLock;
 
 import org.apache.hadoop.conf.Configuration;
+import org.apache.sentry.hdfs.ServiceConstants.ServerConfig;
 import org.apache.sentry.provider.db.SentryPolicyStorePlugin.SentryPluginException;
 import org.apache.sentry.provider.db.service.persistent.HAContext;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.codahale.metrics.Timer;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
 public class UpdateForwarder<K extends Updateable.Update> implements
     Updateable<K>, Closeable {
 
@@ -51,21 +58,34 @@ public class UpdateForwarder<K extends Updateable.Update> implements
 
   // Update log is used when propagate updates to a downstream cache.
   // The preUpdate log stores all commits that were applied to this cache.
-  // When the update log is filled to capacity (getMaxUpdateLogSize()), all
-  // entries are cleared and a compact image if the state of the cache is
-  // appended to the log.
+  // When the update log holds more than getMaxUpdateLogSize() updates, or its
+  // partial updates take more than about maxUpdateLogBytes once serialized,
+  // it is replaced in the background by a new log starting with a compact
+  // image of the state of the cache, followed by the updates committed since.
   // The first entry in an update log (consequently the first preUpdate a
   // downstream cache sees) will be a full image. All subsequent entries are
-  // partial edits
-  protected final LinkedList<K> updateLog = new LinkedList<K>();
+  // partial edits, in increasing order of seqNum.
+  // The log is only changed by the update handler (or the initial updater)
+  // and the compaction handler holding updateLogLock, and read without
+  // locking by the downstream caches.
+  private volatile UpdateLog<K> updateLog;
+  private final ReentrantLock updateLogLock = new ReentrantLock();
+  private final AtomicBoolean compactionPending = new AtomicBoolean(false);
+  private final ExecutorService compactionHandler = Executors.newSingleThreadExecutor(
+      new ThreadFactoryBuilder().setDaemon(true)
+          .setNameFormat("update-log-compaction-%d").build());
   // UpdateLog is disabled when getMaxUpdateLogSize() = 0;
   private final int maxUpdateLogSize;
+  private final long maxUpdateLogBytes;
 
   private final ExternalImageRetriever<K> imageRetreiver;
 
   private volatile Updateable<K> updateable;
 
   private final ReadWriteLock lock = new ReentrantReadWriteLock();
+  // Notified after each commit to the update log of any UpdateForwarder, for
+  // the downstream caches waiting for updates
+  static final Object COMMIT_MONITOR = new Object();
   protected static final long INIT_SEQ_NUM = -2;
   protected static final int INIT_UPDATE_RETRY_DELAY = 5000;
 
@@ -80,6 +100,9 @@ public class UpdateForwarder<K extends Updateable.Update> implements
       ExternalImageRetriever<K> imageRetreiver, int maxUpdateLogSize,
       int initUpdateRetryDelay) { 
     this.maxUpdateLogSize = maxUpdateLogSize;
+    this.maxUpdateLogBytes = conf.getLong(ServerConfig.SENTRY_HDFS_UPDATE_LOG_MAX_BYTES,
+        ServerConfig.SENTRY_HDFS_UPDATE_LOG_MAX_BYTES_DEFAULT);
+    this.updateLog = new UpdateLog<K>(maxUpdateLogSize, null);
     this.imageRetreiver = imageRetreiver;
     if (imageRetreiver != null) {
       spawnInitialUpdater(updateable, initUpdateRetryDelay);
@@ -154,13 +177,18 @@ public class UpdateForwarder<K extends Updateable.Update> implements
   public void handleUpdateNotification(final K update) throws SentryPluginException {
     // Correct the seqNums on the first update
     if (lastCommittedSeqNum.get() == INIT_SEQ_NUM) {
-      K firstUpdate = getUpdateLog().peek();
-      long firstSeqNum = update.getSeqNum() - 1;
-      if (firstUpdate != null) {
-        firstUpdate.setSeqNum(firstSeqNum);
+      updateLogLock.lock();
+      try {
+        K firstUpdate = updateLog.getHead();
+        long firstSeqNum = update.getSeqNum() - 1;
+        if (firstUpdate != null) {
+          firstUpdate.setSeqNum(firstSeqNum);
+        }
+        lastCommittedSeqNum.set(firstSeqNum);
+        lastSeenSeqNum.set(firstSeqNum);
+      } finally {
+        updateLogLock.unlock();
       }
-      lastCommittedSeqNum.set(firstSeqNum);
-      lastSeenSeqNum.set(firstSeqNum);
     }
     final boolean editNotMissed =
         lastSeenSeqNum.incrementAndGet() == update.getSeqNum();
@@ -193,27 +221,104 @@ public class UpdateForwarder<K extends Updateable.Update> implements
   }
 
   protected void appendToUpdateLog(K update) {
-    synchronized (getUpdateLog()) {
-      boolean logCompacted = false;
+    boolean compactionNeeded = false;
+    updateLogLock.lock();
+    try {
       if (getMaxUpdateLogSize() > 0) {
-        if (update.hasFullImage() || getUpdateLog().size() == getMaxUpdateLogSize()) {
-          // Essentially a log compaction
-          getUpdateLog().clear();
-          getUpdateLog().add(update.hasFullImage() ? update
-              : createFullImageUpdate(update.getSeqNum()));
-          logCompacted = true;
+        UpdateLog<K> log = updateLog;
+        K last = log.getLast();
+        if (update.hasFullImage()) {
+          updateLog = new UpdateLog<K>(getMaxUpdateLogSize(), update);
+        } else if (last != null && last.getSeqNum() >= update.getSeqNum()) {
+          // Either the update is part of an image compacted meanwhile, or
+          // it does not follow the last one and the log is replaced by an
+          // image, so that the log stays ordered by seqNum
+          compactionNeeded = !last.hasFullImage();
         } else {
-          getUpdateLog().add(update);
+          log.add(update, (maxUpdateLogBytes > 0) ? update.getEstimatedSize() : 0);
+          compactionNeeded = log.size() > getMaxUpdateLogSize()
+              || (maxUpdateLogBytes > 0 && log.getNumBytes() > maxUpdateLogBytes);
         }
       }
       lastCommittedSeqNum.set(update.getSeqNum());
+      synchronized (COMMIT_MONITOR) {
+        COMMIT_MONITOR.notifyAll();
+      }
       if (LOGGER.isDebugEnabled()) {
         LOGGER.debug("#### Appending to Update Log ["
             + "type=" + update.getClass() + ", "
             + "lastCommit=" + lastCommittedSeqNum.get() + ", "
             + "lastSeen=" + lastSeenSeqNum.get() + ", "
-            + "logCompacted=" + logCompacted + "]");
+            + "compactionNeeded=" + compactionNeeded + "]");
       }
+    } finally {
+      updateLogLock.unlock();
+    }
+    if (compactionNeeded) {
+      scheduleCompaction();
+    }
+  }
+
+  /**
+   * Replaces the update log by one starting with an image of the state of
+   * the cache, from the compaction handler so that neither the update handler
+   * nor the downstream caches wait for the image. The updates committed to
+   * the log while the image is created are carried over to the new log.
+   */
+  private void scheduleCompaction() {
+    if (!compactionPending.compareAndSet(false, true)) {
+      return;
+    }
+    compactionHandler.execute(new Runnable() {
+      @Override
+      public void run() {
+        try {
+          // the updates committed so far were applied before the image is
+          // created, the image includes them
+          UpdateLog<K> log = updateLog;
+          int compactedSize = log.size();
+          K image = compact();
+          if (image == null) {
+            return;
+          }
+          updateLogLock.lock();
+          try {
+            if (updateLog != log) {
+              // the update handler started a log with a newer image meanwhile
+              return;
+            }
+            SentryHdfsMetricsUtil.getUpdateLogBytesHistogram.update(log.getNumBytes());
+            updateLog = log.compactTo(image, compactedSize, getMaxUpdateLogSize());
+          } finally {
+            updateLogLock.unlock();
+          }
+        } catch (RuntimeException e) {
+          LOGGER.warn("Could not compact the update log", e);
+        } finally {
+          compactionPending.set(false);
+        }
+      }
+    });
+  }
+
+  /**
+   * Creates an image of the state of the cache as of its last applied update.
+   * The updateables which apply their partial updates holding the write lock
+   * do not change while the image is created.
+   */
+  private K compact() {
+    Updateable<K> current = updateable;
+    if (current == null) {
+      return null;
+    }
+    final Timer.Context timerContext =
+        SentryHdfsMetricsUtil.getUpdateLogCompactionTimer.time();
+    lock.writeLock().lock();
+    try {
+      return current.createFullImageUpdate(current.getLastUpdatedSeqNum());
+    } finally {
+      lock.writeLock().unlock();
+      timerContext.stop();
     }
   }
 
@@ -223,61 +328,54 @@ public class UpdateForwarder<K extends Updateable.Update> implements
    * @return
    */
   public List<K> getAllUpdatesFrom(long seqNum) {
-    List<K> retVal = new LinkedList<K>();
-    synchronized (getUpdateLog()) {
-      long currSeqNum = lastCommittedSeqNum.get();
-      if (LOGGER.isDebugEnabled() && updateable != null) {
-        LOGGER.debug("#### GetAllUpdatesFrom ["
-            + "type=" + updateable.getClass() + ", "
-            + "reqSeqNum=" + seqNum + ", "
-            + "lastCommit=" + lastCommittedSeqNum.get() + ", "
-            + "lastSeen=" + lastSeenSeqNum.get() + ", "
-            + "getMaxUpdateLogSize()=" + getUpdateLog().size() + "]");
-      }
-      if (getMaxUpdateLogSize() == 0) {
-        // no updatelog configured..
-        return retVal;
-      }
-      K head = getUpdateLog().peek();
-      if (head == null) {
-        return retVal;
-      }
-      if (seqNum > currSeqNum + 1) {
-        // This process has probably restarted since downstream
-        // recieved last update
-        retVal.addAll(getUpdateLog());
-        return retVal;
-      }
-      if (head.getSeqNum() > seqNum) {
-        // Caller has diverged greatly..
-        if (head.hasFullImage()) {
-          // head is a refresh(full) image
-          // Send full image along with partial updates
-          for (K u : getUpdateLog()) {
-            retVal.add(u);
-          }
-        } else {
-          // Create a full image
-          // clear updateLog
-          // add fullImage to head of Log
-          // NOTE : This should ideally never happen
-          K fullImage = createFullImageUpdate(currSeqNum);
-          getUpdateLog().clear();
-          getUpdateLog().add(fullImage);
-          retVal.add(fullImage);
-        }
-      } else {
-        // increment iterator to requested seqNum
-        Iterator<K> iter = getUpdateLog().iterator();
-        while (iter.hasNext()) {
-          K elem = iter.next();
-          if (elem.getSeqNum() >= seqNum) {
-            retVal.add(elem);
-          }
-        }
+    long currSeqNum = lastCommittedSeqNum.get();
+    // the log holds at least the updates up to currSeqNum, as it is
+    // changed before lastCommittedSeqNum
+    UpdateLog<K> log = updateLog;
+    int size = log.size();
+    if (LOGGER.isDebugEnabled() && updateable != null) {
+      LOGGER.debug("#### GetAllUpdatesFrom ["
+          + "type=" + updateable.getClass() + ", "
+          + "reqSeqNum=" + seqNum + ", "
+          + "lastCommit=" + currSeqNum + ", "
+          + "lastSeen=" + lastSeenSeqNum.get() + ", "
+          + "getMaxUpdateLogSize()=" + size + "]");
+    }
+    if (getMaxUpdateLogSize() == 0) {
+      // no updatelog configured..
+      return new ArrayList<K>();
+    }
+    K head = log.getHead();
+    if (head == null) {
+      return new ArrayList<K>();
+    }
+    if (seqNum > currSeqNum + 1) {
+      // This process has probably restarted since downstream
+      // recieved last update
+      return log.getFrom(0, size);
+    }
+    if (head.getSeqNum() > seqNum) {
+      // Caller has diverged greatly..
+      if (head.hasFullImage()) {
+        // head is a refresh(full) image
+        // Send full image along with partial updates
+        return log.getFrom(0, size);
       }
+      // Have the compaction handler replace the log by one starting with a
+      // full image, the caller gets it on its next request
+      // NOTE : This should ideally never happen
+      scheduleCompaction();
+      return new ArrayList<K>();
     }
-    return retVal;
+    return log.getFrom(log.indexOf(seqNum, size), size);
+  }
+
+  /**
+   * Whether {@link #getAllUpdatesFrom(long)} may return updates for the given
+   * seqNum, it does not unless the seqNum follows the last committed one.
+   */
+  public boolean hasUpdatesFrom(long seqNum) {
+    return getMaxUpdateLogSize() > 0 && lastCommittedSeqNum.get() + 1 != seqNum;
   }
 
   public boolean areAllUpdatesCommited() {
@@ -320,15 +418,121 @@ public class UpdateForwarder<K extends Updateable.Update> implements
     return UPDATABLE_TYPE_NAME;
   }
 
-  protected LinkedList<K> getUpdateLog() {
-    return updateLog;
-  }
-
   protected int getMaxUpdateLogSize() {
     return maxUpdateLogSize;
   }
 
   @Override
   public void close() throws IOException {
+    compactionHandler.shutdownNow();
+  }
+
+  /**
+   * The updates of an update log in an array, appended to by a single writer
+   * and read concurrently. The entries below the volatile size are never
+   * changed, so that readers only need to read the size before them. The
+   * array is replaced by a larger copy before an update is added to a full
+   * array, the log itself is replaced once compacted.
+   */
+  private static final class UpdateLog<K extends Updateable.Update> {
+    private volatile Object[] entries;
+    private volatile int size;
+    // the estimated serialized size of each update and of all the partial
+    // updates, only used by the writer
+    private long[] entryBytes;
+    private long numBytes;
+
+    UpdateLog(int maxSize, K head) {
+      // room for the update which has the log compacted
+      entries = new Object[Math.max(maxSize, 1) + 1];
+      entryBytes = new long[entries.length];
+      if (head != null) {
+        entries[0] = head;
+        size = 1;
+      }
+    }
+
+    int size() {
+      return size;
+    }
+
+    long getNumBytes() {
+      return numBytes;
+    }
+
+    void add(K update, long updateBytes) {
+      int currSize = size;
+      Object[] currEntries = entries;
+      if (currSize == currEntries.length) {
+        currEntries = Arrays.copyOf(currEntries, currSize * 2);
+        entryBytes = Arrays.copyOf(entryBytes, currSize * 2);
+        entries = currEntries;
+      }
+      currEntries[currSize] = update;
+      entryBytes[currSize] = updateBytes;
+      numBytes += updateBytes;
+      // publishes the entry to the readers
+      size = currSize + 1;
+    }
+
+    K getHead() {
+      return (size > 0) ? UpdateLog.<K>get(entries, 0) : null;
+    }
+
+    K getLast() {
+      int currSize = size;
+      return (currSize > 0) ? UpdateLog.<K>get(entries, currSize - 1) : null;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <K> K get(Object[] currEntries, int index) {
+      return (K) currEntries[index];
+    }
+
+    /**
+     * Returns the index of the first update with a seqNum of at least the
+     * given one, among the first size updates ordered by seqNum.
+     */
+    int indexOf(long seqNum, int currSize) {
+      Object[] currEntries = entries;
+      int low = 0;
+      int high = currSize;
+      while (low < high) {
+        int mid = (low + high) >>> 1;
+        if (UpdateLog.<K>get(currEntries, mid).getSeqNum() < seqNum) {
+          low = mid + 1;
+        } else {
+          high = mid;
+        }
+      }
+      return low;
+    }
+
+    List<K> getFrom(int index, int currSize) {
+      Object[] currEntries = entries;
+      List<K> updates = new ArrayList<K>(currSize - index);
+      for (int i = index; i < currSize; i++) {
+        updates.add(UpdateLog.<K>get(currEntries, i));
+      }
+      return updates;
+    }
+
+    /**
+     * Returns a new log starting with the given image, followed by the
+     * updates of this log from the given index on which the image does not
+     * include. Only called by the writer.
+     */
+    UpdateLog<K> compactTo(K image, int fromIndex, int maxSize) {
+      int currSize = size;
+      Object[] currEntries = entries;
+      UpdateLog<K> log = new UpdateLog<K>(maxSize, image);
+      for (int i = fromIndex; i < currSize; i++) {
+        K update = UpdateLog.<K>get(currEntries, i);
+        if (update.getSeqNum() > image.getSeqNum()) {
+          log.add(update, entryBytes[i]);
+        }
+      }
+      return log;
+    }
   }
 }
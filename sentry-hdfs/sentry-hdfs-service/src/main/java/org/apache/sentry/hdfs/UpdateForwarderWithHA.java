@@ -18,7 +18,6 @@
 package org.apache.sentry.hdfs;
 
 import java.io.IOException;
-import java.util.LinkedList;
 
 import org.apache.curator.framework.CuratorFramework;
 import org.apache.curator.framework.recipes.cache.PathChildrenCacheEvent;
@@ -36,13 +35,11 @@ UpdateForwarder<K> implements Updateable<K> {
 
   public static class SentryHAPathChildrenCacheListener<K extends Updateable.Update>
   implements PathChildrenCacheListener {
-    private final LinkedList<K> updateLog;
     private final K baseUpdate;
     private final UpdateForwarderWithHA<K> updateForwarder;
 
-    public SentryHAPathChildrenCacheListener(LinkedList<K> updateLog,
-        K baseUpdate, UpdateForwarderWithHA<K> updateForwarder) {
-      this.updateLog = updateLog;
+    public SentryHAPathChildrenCacheListener(K baseUpdate,
+        UpdateForwarderWithHA<K> updateForwarder) {
       this.baseUpdate = baseUpdate;
       this.updateForwarder = updateForwarder;
     }
@@ -52,9 +49,10 @@ UpdateForwarder<K> implements Updateable<K> {
         PathChildrenCacheEvent event) throws Exception {
       switch ( event.getType() ) {
       case CHILD_ADDED:
-        K newUpdate = (K) baseUpdate.getClass().newInstance();
-        PluginCacheSyncUtil.setUpdateFromChildEvent(event, newUpdate);
-        updateForwarder.postNotificationToLog(newUpdate);
+        for (K newUpdate : PluginCacheSyncUtil.getUpdatesFromChildEvent(event,
+            (Class<? extends K>) baseUpdate.getClass())) {
+          updateForwarder.postNotificationToLog(newUpdate);
+        }
         break;
       case INITIALIZED:
       case CHILD_UPDATED:
@@ -91,8 +89,7 @@ UpdateForwarder<K> implements Updateable<K> {
         ServerConfig.SENTRY_HDFS_HA_ZOOKEEPER_NAMESPACE_DEFAULT) + "/" +
         updateable.getUpdateableTypeName();
     pluginCacheSync = new PluginCacheSyncUtil(zkPath, conf,
-        new SentryHAPathChildrenCacheListener<K>(getUpdateLog(), baseUpdate,
-            this));
+        new SentryHAPathChildrenCacheListener<K>(baseUpdate, this));
   }
 
   @Override
@@ -112,6 +109,7 @@ UpdateForwarder<K> implements Updateable<K> {
   @Override
   public void close() throws IOException {
     pluginCacheSync.close();
+    super.close();
   }
 
   @Override
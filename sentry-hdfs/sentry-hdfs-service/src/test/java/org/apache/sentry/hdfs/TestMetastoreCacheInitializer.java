@@ -31,6 +31,7 @@ import org.mockito.Mockito;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.HashSet;
+import java.util.List;
 
 public class TestMetastoreCacheInitializer {
 
@@ -133,6 +134,68 @@ public class TestMetastoreCacheInitializer {
 
   }
 
+  // The pages of partitions of a table are fetched one after the other
+  // when a single partition task per table is allowed
+  @Test
+  public void testPartitionPages() throws Exception {
+    Database db1 = Mockito.mock(Database.class);
+    Mockito.when(db1.getName()).thenReturn("db1");
+    Mockito.when(db1.getLocationUri()).thenReturn("hdfs:///db1");
+
+    Table tab11 = Mockito.mock(Table.class);
+    Mockito.when(tab11.getDbName()).thenReturn("db1");
+    Mockito.when(tab11.getTableName()).thenReturn("tab11");
+    StorageDescriptor sd11 = Mockito.mock(StorageDescriptor.class);
+    Mockito.when(sd11.getLocation()).thenReturn("hdfs:///db1/tab11");
+    Mockito.when(tab11.getSd()).thenReturn(sd11);
+
+    IHMSHandler hmsHandler = Mockito.mock(IHMSHandler.class);
+    Mockito.when(hmsHandler.get_all_databases()).thenReturn(Lists
+            .newArrayList("db1"));
+    Mockito.when(hmsHandler.get_database("db1")).thenReturn(db1);
+    Mockito.when(hmsHandler.get_all_tables("db1")).thenReturn(Lists
+            .newArrayList("tab11"));
+    Mockito.when(hmsHandler.get_table_objects_by_name("db1",
+            Lists.newArrayList("tab11")))
+            .thenReturn(Lists.newArrayList(tab11));
+    List<String> partNames = new ArrayList<String>();
+    List<Partition> parts = new ArrayList<Partition>();
+    for (int i = 0; i < 5; i++) {
+      partNames.add("part" + i);
+      Partition part = Mockito.mock(Partition.class);
+      StorageDescriptor sd = Mockito.mock(StorageDescriptor.class);
+      Mockito.when(sd.getLocation()).thenReturn("hdfs:///db1/tab11/part" + i);
+      Mockito.when(part.getSd()).thenReturn(sd);
+      parts.add(part);
+    }
+    Mockito.when(hmsHandler.get_partition_names("db1", "tab11", (short) -1))
+            .thenReturn(partNames);
+    for (int i = 0; i < 5; i += 2) {
+      Mockito.when(hmsHandler.get_partitions_by_names("db1", "tab11",
+              partNames.subList(i, Math.min(i + 2, 5))))
+              .thenReturn(parts.subList(i, Math.min(i + 2, 5)));
+    }
+
+    Configuration conf = new Configuration();
+    conf.setInt(ServiceConstants.ServerConfig
+            .SENTRY_HDFS_SYNC_METASTORE_CACHE_MAX_PART_PER_RPC, 2);
+    conf.setInt(ServiceConstants.ServerConfig
+            .SENTRY_HDFS_SYNC_METASTORE_CACHE_PARTITION_TASKS_PER_TABLE, 1);
+    conf.setInt(ServiceConstants.ServerConfig
+            .SENTRY_HDFS_SYNC_METASTORE_CACHE_INIT_THREADS, 2);
+
+    MetastoreCacheInitializer cacheInitializer = new
+            MetastoreCacheInitializer(hmsHandler, conf);
+    UpdateableAuthzPaths update = cacheInitializer.createInitialUpdate();
+    for (int i = 0; i < 5; i++) {
+      Assert.assertEquals(new HashSet<String>(Arrays.asList("db1.tab11")),
+              update.findAuthzObjectExactMatches(new String[]{"db1", "tab11", "part" + i}));
+    }
+    Mockito.verify(hmsHandler, Mockito.times(3)).get_partitions_by_names(
+            Mockito.eq("db1"), Mockito.eq("tab11"), Mockito.anyListOf(String.class));
+    cacheInitializer.close();
+  }
+
   // Make sure exceptions in initializer parallel tasks are propagated well
   @Test
   public void testExceptionInTask() throws Exception {
@@ -0,0 +1,152 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.sentry.hdfs;
+
+import java.io.File;
+import java.io.RandomAccessFile;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Sets;
+import com.google.common.io.Files;
+
+public class TestMetastoreCacheSnapshot {
+
+  private File dir;
+
+  @Before
+  public void setup() {
+    dir = Files.createTempDir();
+  }
+
+  @After
+  public void teardown() {
+    FileUtils.deleteQuietly(dir);
+  }
+
+  @Test
+  public void testSnapshotAndJournal() throws Exception {
+    MetastoreCacheSnapshot snapshot = new MetastoreCacheSnapshot(dir);
+    Assert.assertNull(snapshot.load());
+    UpdateableAuthzPaths paths = new UpdateableAuthzPaths(new String[] {"/"});
+    long generation = snapshot.roll();
+    Assert.assertTrue(snapshot.isSnapshotDue());
+    UpdateableAuthzPaths copy = paths.copy();
+    apply(paths, snapshot, addPath(1, "db1", "/db1"));
+    snapshot.write(copy, generation);
+    // the updates since the snapshot are only in its journal
+    Assert.assertTrue(snapshot.getJournalFile(generation).exists());
+    Assert.assertTrue(snapshot.isSnapshotDue());
+    apply(paths, snapshot, addPath(2, "db1.tbl1", "/db1/tbl1"));
+    long nextGeneration = snapshot.roll();
+    // forces and closes the rolled journal
+    snapshot.sync();
+    snapshot.write(paths.copy(), nextGeneration);
+    Assert.assertFalse(snapshot.getSnapshotFile(generation).exists());
+    Assert.assertFalse(snapshot.getJournalFile(generation).exists());
+    Assert.assertFalse(snapshot.isSnapshotDue());
+    apply(paths, snapshot, addPath(3, "db1.tbl2", "/db1/tbl2"));
+    apply(paths, snapshot, removePath(4, "db1.tbl1", "/db1/tbl1"));
+    Assert.assertTrue(snapshot.isSnapshotDue());
+    snapshot.close();
+
+    UpdateableAuthzPaths loaded = new MetastoreCacheSnapshot(dir).load();
+    Assert.assertNotNull(loaded);
+    Assert.assertEquals(4, loaded.getLastUpdatedSeqNum());
+    Assert.assertEquals(Sets.newHashSet("db1"), loaded.findAuthzObject(new String[] {"db1"}));
+    Assert.assertEquals(Sets.newHashSet("db1.tbl2"),
+        loaded.findAuthzObject(new String[] {"db1", "tbl2"}));
+    Assert.assertEquals(Sets.newHashSet("db1"),
+        loaded.findAuthzObject(new String[] {"db1", "tbl1"}));
+  }
+
+  @Test
+  public void testIncompleteJournal() throws Exception {
+    MetastoreCacheSnapshot snapshot = new MetastoreCacheSnapshot(dir);
+    UpdateableAuthzPaths paths = new UpdateableAuthzPaths(new String[] {"/"});
+    long generation = snapshot.roll();
+    snapshot.write(paths.copy(), generation);
+    apply(paths, snapshot, addPath(1, "db1", "/db1"));
+    apply(paths, snapshot, addPath(2, "db2", "/db2"));
+    snapshot.sync();
+    snapshot.close();
+    truncate(snapshot.getJournalFile(generation), 3);
+
+    UpdateableAuthzPaths loaded = new MetastoreCacheSnapshot(dir).load();
+    Assert.assertNotNull(loaded);
+    Assert.assertEquals(Sets.newHashSet("db1"), loaded.findAuthzObject(new String[] {"db1"}));
+    Assert.assertNull(loaded.findAuthzObject(new String[] {"db2"}));
+  }
+
+  @Test
+  public void testCorruptSnapshot() throws Exception {
+    MetastoreCacheSnapshot snapshot = new MetastoreCacheSnapshot(dir);
+    UpdateableAuthzPaths paths = new UpdateableAuthzPaths(new String[] {"/"});
+    long generation = snapshot.roll();
+    apply(paths, snapshot, addPath(1, "db1", "/db1"));
+    snapshot.write(paths.copy(), generation);
+    snapshot.close();
+    RandomAccessFile file = new RandomAccessFile(snapshot.getSnapshotFile(generation), "rw");
+    try {
+      file.seek(file.length() - 9);
+      file.write(file.read() ^ 0xff);
+    } finally {
+      file.close();
+    }
+
+    MetastoreCacheSnapshot other = new MetastoreCacheSnapshot(dir);
+    Assert.assertNull(other.load());
+    Assert.assertFalse(snapshot.getSnapshotFile(generation).exists());
+    // the next journal does not follow the unusable one
+    Assert.assertEquals(generation + 1, other.roll());
+    other.close();
+  }
+
+  private static void apply(UpdateableAuthzPaths paths, MetastoreCacheSnapshot snapshot,
+      PathsUpdate update) throws Exception {
+    paths.updatePartial(Lists.newArrayList(update), new ReentrantReadWriteLock());
+    snapshot.append(update);
+  }
+
+  private static PathsUpdate addPath(long seqNum, String authzObj, String path) {
+    PathsUpdate update = new PathsUpdate(seqNum, false);
+    update.newPathChange(authzObj).addToAddPaths(PathsUpdate.parsePath("hdfs://" + path));
+    return update;
+  }
+
+  private static PathsUpdate removePath(long seqNum, String authzObj, String path) {
+    PathsUpdate update = new PathsUpdate(seqNum, false);
+    update.newPathChange(authzObj).addToDelPaths(PathsUpdate.parsePath("hdfs://" + path));
+    return update;
+  }
+
+  private static void truncate(File file, int numBytes) throws Exception {
+    RandomAccessFile raf = new RandomAccessFile(file, "rw");
+    try {
+      raf.setLength(raf.length() - numBytes);
+    } finally {
+      raf.close();
+    }
+  }
+}
@@ -0,0 +1,114 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.sentry.hdfs;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.sentry.hdfs.service.thrift.TPathChanges;
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.google.common.collect.Lists;
+
+public class TestPathsNotificationQueue {
+
+  @Test
+  public void testCoalesce() {
+    List<PathsUpdate> updates = Lists.newArrayList(
+        addPath(1, "db1.tbl1", "db1/tbl1/p1"),
+        addPath(2, "db1.tbl1", "db1/tbl1/p2"),
+        addPath(3, "db1.tbl2", "db1/tbl2"),
+        removePath(4, "db1.tbl2", "db1/tbl2"),
+        addPath(5, "db1.tbl1", "db1/tbl1/p3"),
+        addPath(6, "db1.tbl1", "db1/tbl1/p4"),
+        addPath(7, "db1.tbl1", "db1/tbl1/p5"));
+    List<PathsUpdate> notifications = PathsNotificationQueue.coalesce(updates, 2);
+
+    Assert.assertEquals(5, notifications.size());
+    PathsUpdate first = notifications.get(0);
+    Assert.assertEquals(2, first.getSeqNum());
+    Assert.assertEquals(1, first.getPathChanges().size());
+    Assert.assertEquals(2, first.getPathChanges().get(0).getAddPathsSize());
+    // an update which deletes paths keeps its place
+    Assert.assertEquals(3, notifications.get(1).getSeqNum());
+    Assert.assertSame(updates.get(3), notifications.get(2));
+    Assert.assertEquals(6, notifications.get(3).getSeqNum());
+    Assert.assertEquals(2, notifications.get(3).getPathChanges().get(0).getAddPathsSize());
+    Assert.assertEquals(7, notifications.get(4).getSeqNum());
+  }
+
+  @Test
+  public void testQueue() throws Exception {
+    final List<PathsUpdate> sent = new ArrayList<PathsUpdate>();
+    final CountDownLatch allSent = new CountDownLatch(1);
+    PathsNotificationQueue queue = new PathsNotificationQueue(
+        new PathsNotificationQueue.Sender() {
+          @Override
+          public void send(PathsUpdate update) {
+            synchronized (sent) {
+              sent.add(update);
+              if (countAddedPaths(sent) == 100) {
+                allSent.countDown();
+              }
+            }
+          }
+        }, 1000, 50, 10);
+    for (int i = 0; i < 100; i++) {
+      queue.add(addPath(i, "db1.tbl1", "db1/tbl1/p" + i));
+    }
+    Assert.assertTrue(allSent.await(10, TimeUnit.SECONDS));
+    queue.close();
+    synchronized (sent) {
+      Assert.assertTrue(sent.size() < 100);
+      List<String> paths = new ArrayList<String>();
+      for (PathsUpdate update : sent) {
+        for (List<String> path : update.getPathChanges().get(0).getAddPaths()) {
+          paths.add(path.get(2));
+        }
+      }
+      for (int i = 0; i < 100; i++) {
+        Assert.assertEquals("p" + i, paths.get(i));
+      }
+    }
+  }
+
+  private static int countAddedPaths(List<PathsUpdate> updates) {
+    int count = 0;
+    for (PathsUpdate update : updates) {
+      for (TPathChanges changes : update.getPathChanges()) {
+        count += changes.getAddPathsSize();
+      }
+    }
+    return count;
+  }
+
+  private static PathsUpdate addPath(long seqNum, String authzObj, String path) {
+    PathsUpdate update = new PathsUpdate(seqNum, false);
+    update.newPathChange(authzObj).addToAddPaths(Lists.newArrayList(path.split("/")));
+    return update;
+  }
+
+  private static PathsUpdate removePath(long seqNum, String authzObj, String path) {
+    PathsUpdate update = new PathsUpdate(seqNum, false);
+    update.newPathChange(authzObj).addToDelPaths(Lists.newArrayList(path.split("/")));
+    return update;
+  }
+}
@@ -19,7 +19,12 @@ package org.apache.sentry.hdfs;
 
 import static org.junit.Assert.*;
 
+import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
 
 import org.apache.curator.framework.CuratorFramework;
 import org.apache.curator.framework.recipes.cache.PathChildrenCacheEvent;
@@ -33,8 +38,12 @@ import org.junit.After;
 import org.junit.AfterClass;
 import org.junit.BeforeClass;
 import org.junit.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 public class TestPluginCacheSync {
+  private static final Logger LOGGER = LoggerFactory.getLogger(TestPluginCacheSync.class);
+
   // Test PathChildrenCacheListener to track the Update event received from ZK
   public static class TestCacheListener implements PathChildrenCacheListener {
     private DummyUpdate dummyUpdate;
@@ -68,7 +77,41 @@ public class TestPluginCacheSync {
     }
   }
 
+  // Test PathChildrenCacheListener collecting the sequence numbers of all the
+  // updates received from ZK. The events are received on a Curator thread, the
+  // unexpected ones are recorded for the test thread to check.
+  public static class BatchCacheListener implements PathChildrenCacheListener {
+    private final Set<Long> seqNums = new HashSet<Long>();
+    private final List<String> unexpectedStates = new ArrayList<String>();
+    private final CountDownLatch allReceived;
+    private int numNodes;
+    private int numUpdates;
+
+    public BatchCacheListener(int expectedUpdates) {
+      allReceived = new CountDownLatch(expectedUpdates);
+    }
+
+    @Override
+    public synchronized void childEvent(CuratorFramework client,
+        PathChildrenCacheEvent event) throws Exception {
+      if (event.getType() == PathChildrenCacheEvent.Type.CHILD_ADDED) {
+        numNodes++;
+        for (DummyUpdate update : PluginCacheSyncUtil.getUpdatesFromChildEvent(
+            event, DummyUpdate.class)) {
+          if (!"foo".equals(update.getState())) {
+            unexpectedStates.add(update.getState());
+          }
+          seqNums.add(update.getSeqNum());
+          numUpdates++;
+          allReceived.countDown();
+        }
+      }
+    }
+  }
+
   private static final String TEST_ZPATH = "/test";
+  private static final int NUM_THREADS = 8;
+  private static final int NUM_UPDATES_PER_THREAD = 50;
   private static TestingServer testServer;
   private static Configuration conf;
 
@@ -148,4 +191,71 @@ public class TestPluginCacheSync {
     assertTrue(znodeList.contains(String
         .valueOf(PluginCacheSyncUtil.CACHE_GC_SIZE_THRESHOLD_HWM)));
   }
+
+  /**
+   * Post updates from concurrent threads with and without batching. Verify
+   * that all the updates are received with distinct sequence numbers, and
+   * that batching writes them in fewer znodes.
+   * @throws Exception
+   */
+  @Test
+  public void testBatchedCachePost() throws Exception {
+    Configuration unbatchedConf = new Configuration(conf);
+    unbatchedConf.setInt(
+        ServiceConstants.ServerConfig.SENTRY_HDFS_HA_SYNC_BATCH_MAX_UPDATES, 1);
+    BatchCacheListener unbatched = new BatchCacheListener(
+        NUM_THREADS * NUM_UPDATES_PER_THREAD);
+    pluginCache = new PluginCacheSyncUtil("/test-unbatched", unbatchedConf,
+        unbatched);
+    long unbatchedMs = postConcurrently(pluginCache, unbatched);
+    assertEquals(NUM_THREADS * NUM_UPDATES_PER_THREAD, unbatched.numNodes);
+    pluginCache.close();
+
+    BatchCacheListener batched = new BatchCacheListener(
+        NUM_THREADS * NUM_UPDATES_PER_THREAD);
+    pluginCache = new PluginCacheSyncUtil("/test-batched", conf, batched);
+    long batchedMs = postConcurrently(pluginCache, batched);
+    assertTrue(batched.numNodes < NUM_THREADS * NUM_UPDATES_PER_THREAD);
+    LOGGER.info(String.format(
+        "%d updates from %d threads synced in %d ms unbatched, %d ms batched"
+        + " in %d znodes", NUM_THREADS * NUM_UPDATES_PER_THREAD, NUM_THREADS,
+        unbatchedMs, batchedMs, batched.numNodes));
+  }
+
+  private static long postConcurrently(final PluginCacheSyncUtil pluginCache,
+      BatchCacheListener listener) throws Exception {
+    final List<Exception> errors = new ArrayList<Exception>();
+    Thread[] threads = new Thread[NUM_THREADS];
+    long start = System.currentTimeMillis();
+    for (int t = 0; t < NUM_THREADS; t++) {
+      threads[t] = new Thread() {
+        @Override
+        public void run() {
+          try {
+            for (int i = 0; i < NUM_UPDATES_PER_THREAD; i++) {
+              pluginCache.handleCacheUpdate(new DummyUpdate().setState("foo"));
+            }
+          } catch (Exception e) {
+            synchronized (errors) {
+              errors.add(e);
+            }
+          }
+        }
+      };
+      threads[t].start();
+    }
+    for (Thread thread : threads) {
+      thread.join();
+    }
+    long elapsedMs = System.currentTimeMillis() - start;
+    assertTrue(errors.toString(), errors.isEmpty());
+    assertTrue(listener.allReceived.await(30, TimeUnit.SECONDS));
+    synchronized (listener) {
+      assertTrue(listener.unexpectedStates.toString(),
+          listener.unexpectedStates.isEmpty());
+      assertEquals(NUM_THREADS * NUM_UPDATES_PER_THREAD, listener.numUpdates);
+      assertEquals(NUM_THREADS * NUM_UPDATES_PER_THREAD, listener.seqNums.size());
+    }
+    return elapsedMs;
+  }
 }
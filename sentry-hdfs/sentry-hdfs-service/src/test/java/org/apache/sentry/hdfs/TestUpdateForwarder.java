@@ -69,6 +69,10 @@ public class TestUpdateForwarder {
       this.seqNum = seqNum;
     }
     @Override
+    public long getEstimatedSize() {
+      return state.length();
+    }
+    @Override
     public byte[] serialize() throws IOException {
       return state.getBytes();
     }
@@ -86,9 +90,14 @@ public class TestUpdateForwarder {
 
     @Override
     public void updatePartial(Iterable<DummyUpdate> update, ReadWriteLock lock) {
-      for (DummyUpdate u : update) {
-        state.add(u.getState());
-        lastUpdatedSeqNum = u.seqNum;
+      lock.writeLock().lock();
+      try {
+        for (DummyUpdate u : update) {
+          state.add(u.getState());
+          lastUpdatedSeqNum = u.seqNum;
+        }
+      } finally {
+        lock.writeLock().unlock();
       }
     }
 
@@ -148,6 +157,18 @@ public class TestUpdateForwarder {
     }
   }
 
+  // The update log is compacted in the background
+  private List<DummyUpdate> waitForImage(long seqNum) throws Exception {
+    long deadline = System.currentTimeMillis() + 10000;
+    List<DummyUpdate> allUpdates = updateForwarder.getAllUpdatesFrom(0);
+    while (allUpdates.get(0).getSeqNum() < seqNum
+        && System.currentTimeMillis() < deadline) {
+      Thread.sleep(100);
+      allUpdates = updateForwarder.getAllUpdatesFrom(0);
+    }
+    return allUpdates;
+  }
+
   @Test
   public void testInit() throws Exception {
     DummyImageRetreiver imageRetreiver = new DummyImageRetreiver();
@@ -330,6 +351,14 @@ public class TestUpdateForwarder {
     updateForwarder.handleUpdateNotification(new DummyUpdate(7, false).setState("f"));
     updateForwarder.handleUpdateNotification(new DummyUpdate(8, false).setState("g"));
     updateForwarder.handleUpdateNotification(new DummyUpdate(9, false).setState("h"));
+    while(!updateForwarder.areAllUpdatesCommited()) {
+      Thread.sleep(100);
+    }
+    // the log of 6 updates is compacted into an image as of the last one
+    allUpdates = waitForImage(9);
+    Assert.assertEquals(1, allUpdates.size());
+    Assert.assertTrue(allUpdates.get(0).hasFullImage());
+
     updateForwarder.handleUpdateNotification(new DummyUpdate(10, false).setState("i"));
     updateForwarder.handleUpdateNotification(new DummyUpdate(11, false).setState("j"));
 
@@ -346,4 +375,59 @@ public class TestUpdateForwarder {
     Assert.assertEquals("j", allUpdates.get(2).getState());
     Assert.assertEquals(11, allUpdates.get(2).getSeqNum());
   }
+
+  @Test
+  public void testUpdateLogCompressionBySize() throws Exception {
+    testConf.setLong(
+        ServiceConstants.ServerConfig.SENTRY_HDFS_UPDATE_LOG_MAX_BYTES, 2);
+    DummyImageRetreiver imageRetreiver = new DummyImageRetreiver();
+    imageRetreiver.setState("a,b,c");
+    updateForwarder = UpdateForwarder.create(
+        testConf, new DummyUpdatable(), new DummyUpdate(), imageRetreiver, 10);
+    updateForwarder.handleUpdateNotification(new DummyUpdate(5, false).setState("d"));
+    updateForwarder.handleUpdateNotification(new DummyUpdate(6, false).setState("e"));
+    while(!updateForwarder.areAllUpdatesCommited()) {
+      Thread.sleep(100);
+    }
+    List<DummyUpdate> allUpdates = updateForwarder.getAllUpdatesFrom(6);
+    Assert.assertEquals(1, allUpdates.size());
+    Assert.assertEquals("e", allUpdates.get(0).getState());
+
+    // the partial updates take more than 2 bytes
+    updateForwarder.handleUpdateNotification(new DummyUpdate(7, false).setState("f"));
+    while(!updateForwarder.areAllUpdatesCommited()) {
+      Thread.sleep(100);
+    }
+    allUpdates = waitForImage(7);
+    Assert.assertEquals(1, allUpdates.size());
+    Assert.assertEquals("a,b,c,d,e,f", allUpdates.get(0).getState());
+    Assert.assertEquals(7, allUpdates.get(0).getSeqNum());
+    Assert.assertEquals(0, updateForwarder.getAllUpdatesFrom(8).size());
+  }
+
+  @Test
+  public void testHasUpdatesFrom() throws Exception {
+    DummyImageRetreiver imageRetreiver = new DummyImageRetreiver();
+    imageRetreiver.setState("a,b,c");
+    updateForwarder = UpdateForwarder.create(
+        testConf, new DummyUpdatable(), new DummyUpdate(), imageRetreiver, 5);
+    updateForwarder.handleUpdateNotification(new DummyUpdate(5, false).setState("d"));
+    while(!updateForwarder.areAllUpdatesCommited()) {
+      Thread.sleep(100);
+    }
+    Assert.assertTrue(updateForwarder.hasUpdatesFrom(5));
+    Assert.assertFalse(updateForwarder.hasUpdatesFrom(6));
+    Assert.assertTrue(updateForwarder.getAllUpdatesFrom(6).isEmpty());
+
+    // a commit wakes up the waiters
+    synchronized (UpdateForwarder.COMMIT_MONITOR) {
+      updateForwarder.handleUpdateNotification(new DummyUpdate(6, false).setState("e"));
+      long deadline = System.currentTimeMillis() + 10000;
+      while (!updateForwarder.hasUpdatesFrom(6) && System.currentTimeMillis() < deadline) {
+        UpdateForwarder.COMMIT_MONITOR.wait(deadline - System.currentTimeMillis());
+      }
+    }
+    Assert.assertTrue(updateForwarder.hasUpdatesFrom(6));
+    Assert.assertEquals("e", updateForwarder.getAllUpdatesFrom(6).get(0).getState());
+  }
 }
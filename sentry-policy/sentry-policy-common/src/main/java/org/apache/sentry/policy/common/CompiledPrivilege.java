@@ -0,0 +1,246 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.sentry.policy.common;
+
+import java.util.List;
+
+import org.apache.sentry.core.common.Authorizable;
+import org.apache.sentry.core.common.BitFieldAction;
+import org.apache.sentry.core.common.BitFieldActionFactory;
+import org.apache.sentry.core.common.ImplyMethodType;
+import org.apache.sentry.core.common.Model;
+import org.apache.sentry.core.common.utils.KeyValue;
+import org.apache.sentry.core.common.utils.PathUtils;
+import org.apache.sentry.core.common.utils.SentryConstants;
+
+import com.google.common.base.Preconditions;
+import com.google.common.collect.Interner;
+import com.google.common.collect.Interners;
+
+/**
+ * A pre-parsed form of a {@link CommonPrivilege} for a given {@link Model}.
+ * The keys and values of the parts are interned, and the {@link ImplyMethodType}
+ * and {@link BitFieldAction} of every part are resolved once at compile time, so
+ * that a request can be checked directly against the authorizable hierarchy
+ * without building and parsing a privilege string.
+ *
+ * The result of {@link #implies(List, String, BitFieldAction)} is the same as
+ * {@link CommonPrivilege#implies(Privilege, Model)} for the request privilege
+ * "type1=name1->...->typeN=nameN->action=actionName".
+ */
+public final class CompiledPrivilege {
+
+  private static final Interner<String> INTERNER = Interners.newWeakInterner();
+
+  private final CommonPrivilege privilege;
+  private final BitFieldActionFactory bitFieldActionFactory;
+  private final String[] keys;
+  private final String[] values;
+  private final boolean[] actionParts;
+  private final boolean[] wildcardParts;
+  private final ImplyMethodType[] implyMethods;
+  private final BitFieldAction[] actions;
+  private final boolean selfImplied;
+
+  private CompiledPrivilege(CommonPrivilege privilege, Model model) {
+    this.privilege = privilege;
+    this.bitFieldActionFactory = model.getBitFieldActionFactory();
+    List<KeyValue> parts = privilege.getParts();
+    int size = parts.size();
+    keys = new String[size];
+    values = new String[size];
+    actionParts = new boolean[size];
+    wildcardParts = new boolean[size];
+    implyMethods = new ImplyMethodType[size];
+    actions = new BitFieldAction[size];
+    boolean selfImplied = true;
+    for (int i = 0; i < size; i++) {
+      KeyValue part = parts.get(i);
+      keys[i] = INTERNER.intern(part.getKey());
+      values[i] = INTERNER.intern(part.getValue());
+      if (SentryConstants.PRIVILEGE_NAME.equalsIgnoreCase(keys[i])) {
+        actionParts[i] = true;
+        actions[i] = bitFieldActionFactory.getActionByName(values[i]);
+        selfImplied &= actions[i] != null;
+      } else {
+        implyMethods[i] = model.getImplyMethodMap().get(keys[i].toLowerCase());
+        wildcardParts[i] = SentryConstants.RESOURCE_WILDCARD_VALUE.equals(values[i])
+            || SentryConstants.RESOURCE_WILDCARD_VALUE_ALL.equalsIgnoreCase(values[i]);
+        if (ImplyMethodType.URL == implyMethods[i] && !wildcardParts[i]) {
+          selfImplied &= PathUtils.impliesURI(values[i], values[i]);
+        }
+      }
+    }
+    this.selfImplied = selfImplied;
+  }
+
+  public static CompiledPrivilege compile(CommonPrivilege privilege, Model model) {
+    Preconditions.checkNotNull(privilege, "Privilege cannot be null");
+    Preconditions.checkNotNull(model, "Model cannot be null");
+    return new CompiledPrivilege(privilege, model);
+  }
+
+  /**
+   * Check if this privilege implies the given action on the authorizable hierarchy.
+   * @param authorizables the requested authorizable hierarchy, eg. Server->Db->Table
+   * @param actionName the name of the requested action
+   * @param requestAction the requested action resolved by the model's
+   *        {@link BitFieldActionFactory}, can be null if the action is unknown
+   */
+  public boolean implies(List<? extends Authorizable> authorizables, String actionName,
+      BitFieldAction requestAction) {
+    int requestSize = authorizables.size() + 1;
+    if (matchesExactly(authorizables, actionName)) {
+      return true;
+    }
+
+    int index = 0;
+    for (int i = 0; i < requestSize; i++) {
+      // If this privilege has less parts than the request, everything after the
+      // number of parts contained in this privilege is automatically implied
+      if (index >= keys.length) {
+        return true;
+      }
+      boolean isRequestAction = i == authorizables.size();
+      String requestKey;
+      String requestValue;
+      if (isRequestAction) {
+        requestKey = SentryConstants.PRIVILEGE_NAME;
+        requestValue = actionName;
+      } else {
+        Authorizable authorizable = authorizables.get(i);
+        requestKey = authorizable.getTypeName().trim();
+        requestValue = authorizable.getName().trim();
+      }
+
+      if (!keys[index].equalsIgnoreCase(requestKey)) {
+        // Support for action inheritance from parent to child
+        if (actionParts[index]) {
+          continue;
+        }
+        return false;
+      }
+
+      if (actionParts[index]) {
+        BitFieldAction action = isRequestAction ? requestAction
+            : bitFieldActionFactory.getActionByName(requestValue);
+        if (actions[index] == null || action == null || !actions[index].implies(action)) {
+          return false;
+        }
+      } else if (!impliesResource(index, requestValue)) {
+        return false;
+      }
+      index++;
+    }
+
+    // If this privilege has more parts than the request, only imply it if
+    // all of the other parts are wildcards
+    for (; index < keys.length; index++) {
+      if (!SentryConstants.PRIVILEGE_WILDCARD_VALUE.equals(values[index])) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private boolean matchesExactly(List<? extends Authorizable> authorizables, String actionName) {
+    if (keys.length != authorizables.size() + 1) {
+      return false;
+    }
+    int last = keys.length - 1;
+    if (!keys[last].equals(SentryConstants.PRIVILEGE_NAME) || !values[last].equals(actionName)) {
+      return false;
+    }
+    for (int i = 0; i < last; i++) {
+      Authorizable authorizable = authorizables.get(i);
+      if (!keys[i].equals(authorizable.getTypeName().trim())
+          || !values[i].equals(authorizable.getName().trim())) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  // Same as CommonPrivilege.impliesResource, with the policy side resolved ahead of time
+  private boolean impliesResource(int index, String requestValue) {
+    if (wildcardParts[index]
+        || SentryConstants.RESOURCE_WILDCARD_VALUE.equals(requestValue)
+        || SentryConstants.RESOURCE_WILDCARD_VALUE_ALL.equalsIgnoreCase(requestValue)
+        || SentryConstants.RESOURCE_WILDCARD_VALUE_SOME.equals(requestValue)) {
+      return true;
+    }
+
+    ImplyMethodType implyMethodType = implyMethods[index];
+    if (ImplyMethodType.URL == implyMethodType) {
+      return PathUtils.impliesURI(values[index], requestValue);
+    } else if (ImplyMethodType.STRING_CASE_SENSITIVE == implyMethodType) {
+      return values[index].equals(requestValue);
+    }
+    return values[index].equalsIgnoreCase(requestValue);
+  }
+
+  int size() {
+    return keys.length;
+  }
+
+  String getKey(int index) {
+    return keys[index];
+  }
+
+  String getValue(int index) {
+    return values[index];
+  }
+
+  boolean isAction(int index) {
+    return actionParts[index];
+  }
+
+  boolean isWildcard(int index) {
+    return wildcardParts[index];
+  }
+
+  ImplyMethodType getImplyMethod(int index) {
+    return implyMethods[index];
+  }
+
+  BitFieldAction getAction(int index) {
+    return actions[index];
+  }
+
+  BitFieldActionFactory getBitFieldActionFactory() {
+    return bitFieldActionFactory;
+  }
+
+  /**
+   * @return true if every part of this privilege implies itself, ie. the privilege
+   *         implies a request made of the same parts without relying on the exact
+   *         match of the whole privilege. This is false for unknown actions and
+   *         invalid URIs.
+   */
+  boolean isSelfImplied() {
+    return selfImplied;
+  }
+
+  public CommonPrivilege getPrivilege() {
+    return privilege;
+  }
+
+  @Override
+  public String toString() {
+    return privilege.toString();
+  }
+}
@@ -94,6 +94,13 @@ public interface PolicyEngine {
   ImmutableSet<String> getPrivileges(Set<String> groups, Set<String> users, ActiveRoleSet roleSet,
       Authorizable... authorizableHierarchy) throws SentryConfigurationException;
 
+  /**
+   * Whether the privileges returned for an authorizable hierarchy include the
+   * privileges on all the objects under it, see
+   * {@code ProviderBackend#isPrefixQuerySupported()}.
+   */
+  boolean isPrefixQuerySupported();
+
   void close();
 
   void validatePolicy(boolean strictValidation) throws SentryConfigurationException;
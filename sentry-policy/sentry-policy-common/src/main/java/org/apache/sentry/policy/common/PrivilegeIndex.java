@@ -0,0 +1,143 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.sentry.policy.common;
+
+import java.util.List;
+import java.util.Set;
+
+import org.apache.sentry.core.common.Authorizable;
+import org.apache.sentry.core.common.BitFieldAction;
+import org.apache.sentry.core.common.Model;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+
+/**
+ * The parsed form of a set of granted privilege strings, ie. a policy snapshot
+ * returned by {@link PolicyEngine#getPrivileges}. Privileges created by the
+ * {@link PrivilegeFactory} as {@link CommonPrivilege} are compiled against the
+ * model, all the other privileges are kept as is and must be checked through
+ * {@link Privilege#implies(Privilege, Model)}. The compiled privileges are held
+ * in a {@link PrivilegeTrie}, so checking a request doesn't depend on their number.
+ *
+ * Indexes are immutable, and are cached per snapshot by {@link Builder}.
+ */
+public final class PrivilegeIndex {
+
+  private final ImmutableList<CompiledPrivilege> compiledPrivileges;
+  private final ImmutableList<Privilege> privileges;
+  private final PrivilegeTrie privilegeTrie;
+
+  private PrivilegeIndex(ImmutableList<CompiledPrivilege> compiledPrivileges,
+      ImmutableList<Privilege> privileges, Model model) {
+    this.compiledPrivileges = compiledPrivileges;
+    this.privileges = privileges;
+    this.privilegeTrie = compiledPrivileges.isEmpty() ? null
+        : new PrivilegeTrie(compiledPrivileges, model.getBitFieldActionFactory());
+  }
+
+  /**
+   * Check if any compiled privilege implies the given action on the authorizable
+   * hierarchy, see {@link PrivilegeTrie#implies(List, String, BitFieldAction)}.
+   */
+  public boolean implies(List<? extends Authorizable> authorizables, String actionName,
+      BitFieldAction requestAction) {
+    return privilegeTrie != null
+        && privilegeTrie.implies(authorizables, actionName, requestAction);
+  }
+
+  /**
+   * @return the privileges compiled against the model
+   */
+  public List<CompiledPrivilege> getCompiledPrivileges() {
+    return compiledPrivileges;
+  }
+
+  /**
+   * @return the privileges which could not be compiled
+   */
+  public List<Privilege> getPrivileges() {
+    return privileges;
+  }
+
+  /**
+   * Builds and caches the {@link PrivilegeIndex} of policy snapshots. The
+   * parsed privileges are also cached individually, so that snapshots sharing
+   * privilege strings don't parse them again. Thread safe.
+   */
+  public static class Builder {
+    private static final int MAX_CACHED_SNAPSHOTS = 256;
+    private static final int MAX_CACHED_PRIVILEGES = 100000;
+
+    private final PrivilegeFactory privilegeFactory;
+    private final Model model;
+    private final Cache<Set<String>, PrivilegeIndex> snapshots;
+    private final Cache<String, Object> parsedPrivileges;
+
+    public Builder(PrivilegeFactory privilegeFactory, Model model) {
+      this.privilegeFactory = privilegeFactory;
+      this.model = model;
+      this.snapshots = CacheBuilder.newBuilder()
+          .maximumSize(MAX_CACHED_SNAPSHOTS).build();
+      this.parsedPrivileges = CacheBuilder.newBuilder()
+          .maximumSize(MAX_CACHED_PRIVILEGES).build();
+    }
+
+    public PrivilegeIndex build(ImmutableSet<String> privilegeStrs) {
+      PrivilegeIndex index = snapshots.getIfPresent(privilegeStrs);
+      if (index == null) {
+        ImmutableList.Builder<CompiledPrivilege> compiled = ImmutableList.builder();
+        ImmutableList.Builder<Privilege> others = ImmutableList.builder();
+        for (String privilegeStr : privilegeStrs) {
+          Object parsed = parse(privilegeStr);
+          if (parsed instanceof CompiledPrivilege) {
+            compiled.add((CompiledPrivilege) parsed);
+          } else {
+            others.add((Privilege) parsed);
+          }
+        }
+        index = new PrivilegeIndex(compiled.build(), others.build(), model);
+        snapshots.put(privilegeStrs, index);
+      }
+      return index;
+    }
+
+    private Object parse(String privilegeStr) {
+      Object parsed = parsedPrivileges.getIfPresent(privilegeStr);
+      if (parsed == null) {
+        Privilege privilege = privilegeFactory.createPrivilege(privilegeStr);
+        if (model != null && privilege instanceof CommonPrivilege) {
+          parsed = CompiledPrivilege.compile((CommonPrivilege) privilege, model);
+        } else {
+          parsed = privilege;
+        }
+        parsedPrivileges.put(privilegeStr, parsed);
+      }
+      return parsed;
+    }
+
+    /**
+     * Drop all the cached snapshots and privileges.
+     */
+    public void invalidateAll() {
+      snapshots.invalidateAll();
+      parsedPrivileges.invalidateAll();
+    }
+  }
+}
@@ -0,0 +1,395 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.sentry.policy.common;
+
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.sentry.core.common.Authorizable;
+import org.apache.sentry.core.common.BitFieldAction;
+import org.apache.sentry.core.common.BitFieldActionFactory;
+import org.apache.sentry.core.common.ImplyMethodType;
+import org.apache.sentry.core.common.utils.PathUtils;
+import org.apache.sentry.core.common.utils.SentryConstants;
+
+/**
+ * Holds a set of {@link CompiledPrivilege} in a trie of their parts, eg.
+ * server->db->table->column for Hive, so that a request is checked by walking
+ * the trie along the requested authorizable hierarchy instead of checking every
+ * privilege one by one. Besides the exact value of a part, the walk follows
+ * the wildcard ("*", "ALL") branches of the trie and the action branches. The
+ * children of URL typed parts are kept in a sub-trie of their path, the candidate
+ * URIs found in it are checked with {@link PathUtils#impliesURI(String, String)}.
+ *
+ * The result of {@link #implies(List, String, BitFieldAction)} is the same as
+ * checking the request against every privilege with
+ * {@link CompiledPrivilege#implies(List, String, BitFieldAction)}.
+ * The trie is immutable after construction.
+ */
+public final class PrivilegeTrie {
+
+  private final Node root = new Node(null, null, false, null);
+  private final BitFieldActionFactory bitFieldActionFactory;
+  // Privileges which only imply an exactly matching request for some part, they
+  // can't be checked along the trie
+  private final List<CompiledPrivilege> unindexed = new ArrayList<CompiledPrivilege>();
+
+  public PrivilegeTrie(List<CompiledPrivilege> privileges,
+      BitFieldActionFactory bitFieldActionFactory) {
+    this.bitFieldActionFactory = bitFieldActionFactory;
+    for (CompiledPrivilege privilege : privileges) {
+      if (privilege.isSelfImplied()) {
+        add(privilege);
+      } else {
+        unindexed.add(privilege);
+      }
+    }
+    root.computeWildcardTerminal();
+  }
+
+  private void add(CompiledPrivilege privilege) {
+    Node node = root;
+    for (int i = 0; i < privilege.size(); i++) {
+      node = node.getOrAddChild(privilege, i);
+    }
+    node.terminal = true;
+  }
+
+  /**
+   * Check if any privilege of the trie implies the given action on the
+   * authorizable hierarchy.
+   * @param authorizables the requested authorizable hierarchy, eg. Server->Db->Table
+   * @param actionName the name of the requested action
+   * @param requestAction the requested action resolved by the model's
+   *        {@link BitFieldActionFactory}, can be null if the action is unknown
+   */
+  public boolean implies(List<? extends Authorizable> authorizables, String actionName,
+      BitFieldAction requestAction) {
+    Request request = new Request(authorizables, actionName, requestAction);
+    if (match(root, request, 0)) {
+      return true;
+    }
+    for (CompiledPrivilege privilege : unindexed) {
+      if (privilege.implies(authorizables, actionName, requestAction)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  private boolean match(Node node, Request request, int index) {
+    if (index == request.size()) {
+      // the request is exhausted, the rest of the privilege must be wildcards
+      return node.wildcardTerminal;
+    }
+    if (node.terminal) {
+      // the privilege is exhausted, everything below it is implied
+      return true;
+    }
+
+    for (Node child : node.actionChildren) {
+      if (matchAction(child, request, index)) {
+        return true;
+      }
+    }
+
+    ResourceChildren children = node.resourceChildren.get(request.lowerKeys[index]);
+    if (children == null) {
+      return false;
+    }
+    String requestValue = request.values[index];
+    if (isRequestWildcard(requestValue)) {
+      for (Node child : children.all) {
+        if (match(child, request, index + 1)) {
+          return true;
+        }
+      }
+      return false;
+    }
+
+    for (Node child : children.wildcards) {
+      if (match(child, request, index + 1)) {
+        return true;
+      }
+    }
+    if (ImplyMethodType.URL == children.implyMethod) {
+      for (Node child : children.uris.getCandidates(requestValue)) {
+        if (PathUtils.impliesURI(child.value, requestValue)
+            && match(child, request, index + 1)) {
+          return true;
+        }
+      }
+      return false;
+    }
+    Node child = children.values.get(children.toValueKey(requestValue));
+    return child != null && match(child, request, index + 1);
+  }
+
+  // An action part of a privilege applies to all the children of its parent, the
+  // request parts are skipped until the requested action
+  private boolean matchAction(Node child, Request request, int index) {
+    for (int i = index; i < request.size(); i++) {
+      if (!child.key.equalsIgnoreCase(request.keys[i])) {
+        continue;
+      }
+      BitFieldAction action = i == request.size() - 1 ? request.action
+          : bitFieldActionFactory.getActionByName(request.values[i]);
+      if (child.action == null || action == null || !child.action.implies(action)) {
+        return false;
+      }
+      return match(child, request, i + 1);
+    }
+    return SentryConstants.PRIVILEGE_WILDCARD_VALUE.equals(child.value) && child.wildcardTerminal;
+  }
+
+  private static boolean isRequestWildcard(String requestValue) {
+    return SentryConstants.RESOURCE_WILDCARD_VALUE.equals(requestValue)
+        || SentryConstants.RESOURCE_WILDCARD_VALUE_ALL.equalsIgnoreCase(requestValue)
+        || SentryConstants.RESOURCE_WILDCARD_VALUE_SOME.equals(requestValue);
+  }
+
+  /**
+   * Two strings are equal ignoring case if and only if their folded case is equal,
+   * see {@link String#equalsIgnoreCase(String)}.
+   */
+  private static String foldCase(String str) {
+    char[] chars = str.toCharArray();
+    for (int i = 0; i < chars.length; i++) {
+      chars[i] = Character.toLowerCase(Character.toUpperCase(chars[i]));
+    }
+    return new String(chars);
+  }
+
+  private static final class Request {
+    private final String[] keys;
+    private final String[] lowerKeys;
+    private final String[] values;
+    private final BitFieldAction action;
+
+    Request(List<? extends Authorizable> authorizables, String actionName,
+        BitFieldAction action) {
+      int size = authorizables.size() + 1;
+      keys = new String[size];
+      lowerKeys = new String[size];
+      values = new String[size];
+      for (int i = 0; i < authorizables.size(); i++) {
+        Authorizable authorizable = authorizables.get(i);
+        keys[i] = authorizable.getTypeName().trim();
+        lowerKeys[i] = foldCase(keys[i]);
+        values[i] = authorizable.getName().trim();
+      }
+      keys[size - 1] = SentryConstants.PRIVILEGE_NAME;
+      lowerKeys[size - 1] = SentryConstants.PRIVILEGE_NAME;
+      values[size - 1] = actionName;
+      this.action = action;
+    }
+
+    int size() {
+      return keys.length;
+    }
+  }
+
+  private static final class Node {
+    private final String key;
+    private final String value;
+    private final boolean wildcard;
+    private final BitFieldAction action;
+    private final List<Node> actionChildren = new ArrayList<Node>(1);
+    private final Map<String, ResourceChildren> resourceChildren =
+        new HashMap<String, ResourceChildren>(2);
+    private boolean terminal;
+    private boolean wildcardTerminal;
+
+    Node(String key, String value, boolean wildcard, BitFieldAction action) {
+      this.key = key;
+      this.value = value;
+      this.wildcard = wildcard;
+      this.action = action;
+    }
+
+    Node getOrAddChild(CompiledPrivilege privilege, int index) {
+      String childKey = privilege.getKey(index);
+      String childValue = privilege.getValue(index);
+      if (privilege.isAction(index)) {
+        for (Node child : actionChildren) {
+          if (child.key.equalsIgnoreCase(childKey) && child.value.equals(childValue)) {
+            return child;
+          }
+        }
+        Node child = new Node(childKey, childValue, false, privilege.getAction(index));
+        actionChildren.add(child);
+        return child;
+      }
+
+      String lowerKey = foldCase(childKey);
+      ResourceChildren children = resourceChildren.get(lowerKey);
+      if (children == null) {
+        children = new ResourceChildren(privilege.getImplyMethod(index));
+        resourceChildren.put(lowerKey, children);
+      }
+      return children.getOrAdd(childKey, childValue, privilege.isWildcard(index));
+    }
+
+    // true if this node is the end of a privilege, or only wildcards separate
+    // it from the end of a privilege
+    boolean computeWildcardTerminal() {
+      boolean result = terminal;
+      for (Node child : actionChildren) {
+        result |= child.computeWildcardTerminal()
+            && SentryConstants.PRIVILEGE_WILDCARD_VALUE.equals(child.value);
+      }
+      for (ResourceChildren children : resourceChildren.values()) {
+        for (Node child : children.all) {
+          result |= child.computeWildcardTerminal()
+              && SentryConstants.PRIVILEGE_WILDCARD_VALUE.equals(child.value);
+        }
+      }
+      wildcardTerminal = result;
+      return result;
+    }
+  }
+
+  /**
+   * The children of a node for one authorizable type.
+   */
+  private static final class ResourceChildren {
+    private final ImplyMethodType implyMethod;
+    private final List<Node> all = new ArrayList<Node>(1);
+    private final List<Node> wildcards = new ArrayList<Node>(1);
+    private final Map<String, Node> values = new HashMap<String, Node>(2);
+    private final UriChildren uris = new UriChildren();
+
+    ResourceChildren(ImplyMethodType implyMethod) {
+      this.implyMethod = implyMethod;
+    }
+
+    String toValueKey(String value) {
+      // the default is to compare as the string case insensitive
+      if (ImplyMethodType.URL == implyMethod
+          || ImplyMethodType.STRING_CASE_SENSITIVE == implyMethod) {
+        return value;
+      }
+      return foldCase(value);
+    }
+
+    Node getOrAdd(String key, String value, boolean wildcard) {
+      String valueKey = toValueKey(value);
+      if (wildcard) {
+        for (Node child : wildcards) {
+          if (child.value.equals(value)) {
+            return child;
+          }
+        }
+      } else if (values.containsKey(valueKey)) {
+        return values.get(valueKey);
+      }
+
+      Node child = new Node(key, value, wildcard, null);
+      all.add(child);
+      if (wildcard) {
+        wildcards.add(child);
+      } else {
+        values.put(valueKey, child);
+        if (ImplyMethodType.URL == implyMethod) {
+          uris.add(child);
+        }
+      }
+      return child;
+    }
+  }
+
+  /**
+   * A trie of the path elements of URIs. A privilege URI can only imply the
+   * requested URI if its path is a parent of the requested path, the candidates
+   * are the URIs found along the requested path. URIs which can't be parsed here
+   * are always candidates.
+   */
+  private static final class UriChildren {
+    private final UriNode root = new UriNode();
+    private final List<Node> all = new ArrayList<Node>();
+    private final List<Node> unindexed = new ArrayList<Node>();
+
+    void add(Node child) {
+      all.add(child);
+      List<String> elements = toPathElements(child.value);
+      if (elements == null) {
+        unindexed.add(child);
+        return;
+      }
+      UriNode node = root;
+      for (String element : elements) {
+        UriNode next = node.children.get(element);
+        if (next == null) {
+          next = new UriNode();
+          node.children.put(element, next);
+        }
+        node = next;
+      }
+      node.nodes.add(child);
+    }
+
+    List<Node> getCandidates(String requestUri) {
+      List<String> elements = toPathElements(requestUri);
+      if (elements == null) {
+        return all;
+      }
+      List<Node> candidates = new ArrayList<Node>(unindexed);
+      UriNode node = root;
+      candidates.addAll(node.nodes);
+      for (String element : elements) {
+        node = node.children.get(element);
+        if (node == null) {
+          break;
+        }
+        candidates.addAll(node.nodes);
+      }
+      return candidates;
+    }
+
+    private static List<String> toPathElements(String uri) {
+      // privilege URIs may reference system properties, see PathUtils.impliesURI
+      if (uri.contains("${")) {
+        return null;
+      }
+      String path;
+      try {
+        path = new URI(uri).getPath();
+      } catch (URISyntaxException e) {
+        return null;
+      }
+      if (path == null) {
+        return null;
+      }
+      List<String> elements = new ArrayList<String>();
+      for (String element : path.split("/")) {
+        if (!element.isEmpty()) {
+          elements.add(element);
+        }
+      }
+      return elements;
+    }
+  }
+
+  private static final class UriNode {
+    private final Map<String, UriNode> children = new HashMap<String, UriNode>(2);
+    private final List<Node> nodes = new ArrayList<Node>(1);
+  }
+}
@@ -0,0 +1,146 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.sentry.policy.common;
+
+import static org.apache.sentry.core.common.utils.SentryConstants.AUTHORIZABLE_JOINER;
+import static org.apache.sentry.core.common.utils.SentryConstants.KV_JOINER;
+import static org.apache.sentry.core.common.utils.SentryConstants.PRIVILEGE_NAME;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.sentry.core.common.Authorizable;
+import org.apache.sentry.core.common.BitFieldAction;
+import org.apache.sentry.core.common.Model;
+import org.apache.sentry.core.model.db.AccessConstants;
+import org.apache.sentry.core.model.db.Column;
+import org.apache.sentry.core.model.db.Database;
+import org.apache.sentry.core.model.db.HivePrivilegeModel;
+import org.apache.sentry.core.model.db.Server;
+import org.apache.sentry.core.model.db.Table;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import com.google.common.collect.ImmutableSet;
+
+/**
+ * Compares the string based privilege check done by ResourceAuthorizationProvider
+ * before privileges were compiled (parse every granted privilege, join and parse
+ * the request privilege) with the check against a cached {@link PrivilegeIndex},
+ * both by scanning its compiled privileges and by walking its {@link PrivilegeTrie}.
+ * The request is denied, which is the worst case for both paths.
+ * It is not run as part of the unit tests, run {@link #main(String[])} with the
+ * test classpath of this module instead.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PrivilegeImpliesBenchmark {
+
+  @Param({"10", "100", "1000", "10000"})
+  private int numPrivileges;
+
+  private final Model model = HivePrivilegeModel.getInstance();
+  private final PrivilegeFactory privilegeFactory = new PrivilegeFactory() {
+    @Override
+    public Privilege createPrivilege(String privilege) {
+      return new CommonPrivilege(privilege);
+    }
+  };
+
+  private ImmutableSet<String> privileges;
+  private PrivilegeIndex.Builder indexBuilder;
+  private List<Authorizable> request;
+  private String actionName;
+
+  @Setup
+  public void setup() {
+    ImmutableSet.Builder<String> builder = ImmutableSet.builder();
+    for (int i = 0; i < numPrivileges; i++) {
+      builder.add("server=server1->db=db" + (i % 10) + "->table=table" + i
+          + "->action=" + (i % 2 == 0 ? "select" : "insert"));
+    }
+    privileges = builder.build();
+    indexBuilder = new PrivilegeIndex.Builder(privilegeFactory, model);
+    request = new ArrayList<Authorizable>();
+    request.add(new Server("server1"));
+    request.add(new Database("db1"));
+    request.add(new Table("table_not_granted"));
+    request.add(new Column(AccessConstants.ALL));
+    actionName = "select";
+  }
+
+  @Benchmark
+  public boolean stringPrivileges() {
+    List<String> hierarchy = new ArrayList<String>();
+    for (Authorizable authorizable : request) {
+      hierarchy.add(KV_JOINER.join(authorizable.getTypeName(), authorizable.getName()));
+    }
+    String requestPrivilege = AUTHORIZABLE_JOINER.join(AUTHORIZABLE_JOINER.join(hierarchy),
+        KV_JOINER.join(PRIVILEGE_NAME, actionName));
+    Privilege priv = privilegeFactory.createPrivilege(requestPrivilege);
+    for (String privilege : privileges) {
+      if (privilegeFactory.createPrivilege(privilege).implies(priv, model)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  @Benchmark
+  public boolean compiledPrivileges() {
+    PrivilegeIndex index = indexBuilder.build(privileges);
+    BitFieldAction requestAction = model.getBitFieldActionFactory().getActionByName(actionName);
+    for (CompiledPrivilege privilege : index.getCompiledPrivileges()) {
+      if (privilege.implies(request, actionName, requestAction)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  @Benchmark
+  public boolean privilegeTrie() {
+    PrivilegeIndex index = indexBuilder.build(privileges);
+    return index.implies(request, actionName,
+        model.getBitFieldActionFactory().getActionByName(actionName));
+  }
+
+  public static void main(String[] args) throws RunnerException {
+    Options opt = new OptionsBuilder()
+        .include(PrivilegeImpliesBenchmark.class.getSimpleName())
+        .build();
+    new Runner(opt).run();
+  }
+}
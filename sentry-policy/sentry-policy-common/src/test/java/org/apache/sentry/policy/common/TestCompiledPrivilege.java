@@ -0,0 +1,204 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.sentry.policy.common;
+
+import static junit.framework.Assert.assertEquals;
+import static junit.framework.Assert.assertFalse;
+import static junit.framework.Assert.assertSame;
+import static junit.framework.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.sentry.core.common.Authorizable;
+import org.apache.sentry.core.common.Model;
+import org.apache.sentry.core.common.utils.KeyValue;
+import org.apache.sentry.core.common.utils.SentryConstants;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.google.common.collect.ImmutableSet;
+
+public class TestCompiledPrivilege {
+
+  private static final String[] POLICY_PRIVILEGES = {
+      "server=server1",
+      "server=server1->action=select",
+      "server=*->action=all",
+      "server=server1->db=db1",
+      "server=server1->db=db1->action=insert",
+      "server=server1->db=DB1->table=*->action=select",
+      "server=server1->db=db1->table=table1",
+      "server=server1->db=db1->table=table1->action=all",
+      "server=server1->db=db1->table=table1->column=col1->action=select",
+      "server=server1->db=db1->table=table1->column=CoL1->action=select",
+      "server=server1->db=db1->table=table1->column=*",
+      "server=server1->db=db1->table=table2->action=select",
+      "SERVER=server1->DB=db1->TABLE=table1->ACTION=select",
+      "server=server1->db=all->table=all->action=select",
+      "server=server1->uri=hdfs:///url",
+      "server=server1->uri=hdfs:///url/for/request->action=all",
+      "server=server1->uri=hdfs:///url/unvalid/for/request",
+      "server=server1->db=db1->action=unknown"
+  };
+
+  private Model testModel;
+  private List<List<Authorizable>> requests;
+
+  @Before
+  public void prepareData() {
+    testModel = new ModelForTest();
+    requests = new ArrayList<List<Authorizable>>();
+    requests.add(hierarchy("server", "server1"));
+    requests.add(hierarchy("server", "server1", "db", "db1"));
+    requests.add(hierarchy("server", "server1", "db", "*"));
+    requests.add(hierarchy("server", "server1", "db", "+"));
+    requests.add(hierarchy("server", "server1", "db", "db1", "table", "table1"));
+    requests.add(hierarchy("server", "Server1", "db", "Db1", "table", "TABLE1"));
+    requests.add(hierarchy("server", "server1", "db", "db1", "table", "table2"));
+    requests.add(hierarchy("server", "server1", "db", "db1", "table", "table1",
+        "column", "col1"));
+    requests.add(hierarchy("server", "server1", "db", "db1", "table", "table1",
+        "column", "COL1"));
+    requests.add(hierarchy("server", "server1", "db", "db2", "table", "table1",
+        "column", "col1"));
+    requests.add(hierarchy("server", "server1", "uri", "hdfs:///url/for/request"));
+    requests.add(hierarchy("server", "server2", "uri", "hdfs:///url"));
+  }
+
+  @Test
+  public void testImpliesSameAsCommonPrivilege() throws Exception {
+    for (String policyStr : POLICY_PRIVILEGES) {
+      CommonPrivilege policy = new CommonPrivilege(policyStr);
+      CompiledPrivilege compiled = CompiledPrivilege.compile(policy, testModel);
+      for (List<Authorizable> request : requests) {
+        for (String action : new String[] {"select", "insert", "all", "unknown"}) {
+          CommonPrivilege requestPrivilege = new CommonPrivilege(toString(request, action));
+          assertEquals(policyStr + " implies " + requestPrivilege,
+              policy.implies(requestPrivilege, testModel),
+              compiled.implies(request, action,
+                  testModel.getBitFieldActionFactory().getActionByName(action)));
+        }
+      }
+    }
+  }
+
+  @Test
+  public void testImpliesCompiledPrivilege() throws Exception {
+    CompiledPrivilege privilege = CompiledPrivilege.compile(
+        new CommonPrivilege("server=server1->db=db1->table=table1->action=select"), testModel);
+    List<Authorizable> request = hierarchy("server", "server1", "db", "db1",
+        "table", "table1", "column", "col1");
+    assertTrue(privilege.implies(request, "select",
+        testModel.getBitFieldActionFactory().getActionByName("select")));
+    assertFalse(privilege.implies(request, "insert",
+        testModel.getBitFieldActionFactory().getActionByName("insert")));
+    assertFalse(privilege.implies(request, "select", null));
+  }
+
+  @Test
+  public void testPrivilegeIndex() throws Exception {
+    final PrivilegeFactory commonFactory = new PrivilegeFactory() {
+      @Override
+      public Privilege createPrivilege(String permission) {
+        return new CommonPrivilege(permission);
+      }
+    };
+    PrivilegeIndex.Builder builder = new PrivilegeIndex.Builder(commonFactory, testModel);
+    ImmutableSet<String> snapshot = ImmutableSet.copyOf(POLICY_PRIVILEGES);
+    PrivilegeIndex index = builder.build(snapshot);
+    assertEquals(POLICY_PRIVILEGES.length, index.getCompiledPrivileges().size());
+    assertTrue(index.getPrivileges().isEmpty());
+    // the same snapshot is only compiled once
+    assertSame(index, builder.build(ImmutableSet.copyOf(snapshot)));
+
+    // privileges which are not CommonPrivilege are not compiled
+    PrivilegeFactory otherFactory = new PrivilegeFactory() {
+      @Override
+      public Privilege createPrivilege(String permission) {
+        return new TestPrivilege(commonFactory.createPrivilege(permission));
+      }
+    };
+    index = new PrivilegeIndex.Builder(otherFactory, testModel).build(snapshot);
+    assertTrue(index.getCompiledPrivileges().isEmpty());
+    assertEquals(POLICY_PRIVILEGES.length, index.getPrivileges().size());
+
+    // without a model nothing can be compiled
+    index = new PrivilegeIndex.Builder(commonFactory, null).build(snapshot);
+    assertTrue(index.getCompiledPrivileges().isEmpty());
+  }
+
+  private static String toString(List<Authorizable> authorizables, String action) {
+    List<String> parts = new ArrayList<String>();
+    for (Authorizable authorizable : authorizables) {
+      parts.add(SentryConstants.KV_JOINER.join(authorizable.getTypeName(), authorizable.getName()));
+    }
+    parts.add(SentryConstants.KV_JOINER.join(SentryConstants.PRIVILEGE_NAME, action));
+    return SentryConstants.AUTHORIZABLE_JOINER.join(parts);
+  }
+
+  static List<Authorizable> hierarchy(String... typesAndNames) {
+    List<Authorizable> authorizables = new ArrayList<Authorizable>();
+    for (int i = 0; i < typesAndNames.length; i += 2) {
+      authorizables.add(new TestAuthorizable(typesAndNames[i], typesAndNames[i + 1]));
+    }
+    return authorizables;
+  }
+
+  private static class TestAuthorizable implements Authorizable {
+    private final String typeName;
+    private final String name;
+
+    TestAuthorizable(String typeName, String name) {
+      this.typeName = typeName;
+      this.name = name;
+    }
+
+    @Override
+    public String getName() {
+      return name;
+    }
+
+    @Override
+    public String getTypeName() {
+      return typeName;
+    }
+
+    @Override
+    public String toString() {
+      return typeName + "=" + name;
+    }
+  }
+
+  private static class TestPrivilege implements Privilege {
+    private final Privilege privilege;
+
+    TestPrivilege(Privilege privilege) {
+      this.privilege = privilege;
+    }
+
+    @Override
+    public boolean implies(Privilege p, Model model) {
+      return privilege.implies(p, model);
+    }
+
+    @Override
+    public List<KeyValue> getAuthorizable() {
+      return privilege.getAuthorizable();
+    }
+  }
+}
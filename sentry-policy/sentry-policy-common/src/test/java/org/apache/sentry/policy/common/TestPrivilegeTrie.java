@@ -0,0 +1,159 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.sentry.policy.common;
+
+import static junit.framework.Assert.assertEquals;
+import static junit.framework.Assert.assertFalse;
+import static junit.framework.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.apache.sentry.core.common.Authorizable;
+import org.apache.sentry.core.common.BitFieldAction;
+import org.apache.sentry.core.common.Model;
+import org.junit.Before;
+import org.junit.Test;
+
+public class TestPrivilegeTrie {
+
+  private static final String[] POLICY_PRIVILEGES = {
+      "server=server1",
+      "server=server1->action=select",
+      "server=*->action=all",
+      "server=server1->action=*",
+      "server=server1->db=db1",
+      "server=server1->db=db1->action=insert",
+      "server=server1->db=DB1->table=*->action=select",
+      "server=server1->db=db1->table=table1",
+      "server=server1->db=db1->table=table1->action=all",
+      "server=server1->db=db1->table=table1->column=col1->action=select",
+      "server=server1->db=db1->table=table1->column=CoL1->action=select",
+      "server=server1->db=db1->table=table1->column=*",
+      "server=server1->db=db1->table=table2->action=select",
+      "server=server1->db=db1->table=table2->column=*->action=*",
+      "SERVER=server1->DB=db1->TABLE=table1->ACTION=select",
+      "server=server1->db=all->table=all->action=select",
+      "server=server1->db=db2->table=*->column=*",
+      "server=server1->uri=hdfs:///url",
+      "server=server1->uri=hdfs:///url/for/request->action=all",
+      "server=server1->uri=hdfs:///url/unvalid/for/request",
+      "server=server1->uri=hdfs:///url/for->action=insert",
+      "server=server1->uri=*->action=select",
+      "server=server1->db=db1->action=unknown",
+      "server=server1->db=db3->table=table3->action=unknown"
+  };
+
+  private static final String[] ACTIONS = {"select", "insert", "all", "*", "unknown"};
+
+  private Model testModel;
+  private List<CompiledPrivilege> privileges;
+  private List<List<Authorizable>> requests;
+
+  @Before
+  public void prepareData() {
+    testModel = new ModelForTest();
+    privileges = new ArrayList<CompiledPrivilege>();
+    for (String privilege : POLICY_PRIVILEGES) {
+      privileges.add(CompiledPrivilege.compile(new CommonPrivilege(privilege), testModel));
+    }
+    requests = new ArrayList<List<Authorizable>>();
+    requests.add(TestCompiledPrivilege.hierarchy("server", "server1"));
+    requests.add(TestCompiledPrivilege.hierarchy("server", "server2"));
+    requests.add(TestCompiledPrivilege.hierarchy("server", "server1", "db", "db1"));
+    requests.add(TestCompiledPrivilege.hierarchy("server", "server1", "db", "*"));
+    requests.add(TestCompiledPrivilege.hierarchy("server", "server1", "db", "+"));
+    requests.add(TestCompiledPrivilege.hierarchy("server", "server1", "db", "db2"));
+    requests.add(TestCompiledPrivilege.hierarchy("server", "server1", "db", "db3",
+        "table", "table3"));
+    requests.add(TestCompiledPrivilege.hierarchy("server", "server1", "db", "db1",
+        "table", "table1"));
+    requests.add(TestCompiledPrivilege.hierarchy("server", "Server1", "db", "Db1",
+        "table", "TABLE1"));
+    requests.add(TestCompiledPrivilege.hierarchy("server", "server1", "db", "db1",
+        "table", "table2"));
+    requests.add(TestCompiledPrivilege.hierarchy("server", "server1", "db", "db1",
+        "table", "table1", "column", "col1"));
+    requests.add(TestCompiledPrivilege.hierarchy("server", "server1", "db", "db1",
+        "table", "table1", "column", "COL1"));
+    requests.add(TestCompiledPrivilege.hierarchy("server", "server1", "db", "db1",
+        "table", "table2", "column", "col1"));
+    requests.add(TestCompiledPrivilege.hierarchy("server", "server1", "db", "db2",
+        "table", "table1", "column", "col1"));
+    requests.add(TestCompiledPrivilege.hierarchy("server", "server1", "db", "db4",
+        "table", "table1", "column", "*"));
+    requests.add(TestCompiledPrivilege.hierarchy("SERVER", "server1", "DB", "db1"));
+    requests.add(TestCompiledPrivilege.hierarchy("server", "server1", "uri",
+        "hdfs:///url/for/request"));
+    requests.add(TestCompiledPrivilege.hierarchy("server", "server1", "uri",
+        "hdfs:///url/for/request/child"));
+    requests.add(TestCompiledPrivilege.hierarchy("server", "server1", "uri",
+        "hdfs:///url/unvalid/for/request"));
+    requests.add(TestCompiledPrivilege.hierarchy("server", "server1", "uri", "hdfs:///other"));
+    requests.add(TestCompiledPrivilege.hierarchy("server", "server2", "uri", "hdfs:///url"));
+  }
+
+  @Test
+  public void testImpliesSameAsEveryPrivilege() throws Exception {
+    // a trie of a single privilege
+    for (CompiledPrivilege privilege : privileges) {
+      assertSameResult(Collections.singletonList(privilege));
+    }
+    // a trie of all the privileges
+    assertSameResult(privileges);
+    // a trie of the privileges except the ones granted on server1 directly
+    assertSameResult(privileges.subList(4, privileges.size()));
+  }
+
+  @Test
+  public void testImplies() throws Exception {
+    List<CompiledPrivilege> tablePrivileges = new ArrayList<CompiledPrivilege>();
+    for (int i = 0; i < 1000; i++) {
+      tablePrivileges.add(CompiledPrivilege.compile(new CommonPrivilege(
+          "server=server1->db=db1->table=table" + i + "->action=select"), testModel));
+    }
+    PrivilegeTrie trie = new PrivilegeTrie(tablePrivileges,
+        testModel.getBitFieldActionFactory());
+    BitFieldAction select = testModel.getBitFieldActionFactory().getActionByName("select");
+    BitFieldAction insert = testModel.getBitFieldActionFactory().getActionByName("insert");
+    assertTrue(trie.implies(TestCompiledPrivilege.hierarchy("server", "server1", "db", "db1",
+        "table", "table999", "column", "col1"), "select", select));
+    assertTrue(trie.implies(TestCompiledPrivilege.hierarchy("server", "server1", "db", "db1",
+        "table", "*"), "select", select));
+    assertFalse(trie.implies(TestCompiledPrivilege.hierarchy("server", "server1", "db", "db1",
+        "table", "table1000"), "select", select));
+    assertFalse(trie.implies(TestCompiledPrivilege.hierarchy("server", "server1", "db", "db1",
+        "table", "table1"), "insert", insert));
+  }
+
+  private void assertSameResult(List<CompiledPrivilege> trieItems) {
+    PrivilegeTrie trie = new PrivilegeTrie(trieItems, testModel.getBitFieldActionFactory());
+    for (List<Authorizable> request : requests) {
+      for (String action : ACTIONS) {
+        BitFieldAction requestAction =
+            testModel.getBitFieldActionFactory().getActionByName(action);
+        boolean expected = false;
+        for (CompiledPrivilege privilege : trieItems) {
+          expected |= privilege.implies(request, action, requestAction);
+        }
+        assertEquals(trieItems + " implies " + request + " " + action,
+            expected, trie.implies(request, action, requestAction));
+      }
+    }
+  }
+}
@@ -97,6 +97,11 @@ public class CommonPolicyEngine implements PolicyEngine {
     this.providerBackend.validatePolicy(strictValidation);
   }
 
+  @Override
+  public boolean isPrefixQuerySupported() {
+    return providerBackend.isPrefixQuerySupported();
+  }
+
   @Override
   public void close() {
     if (providerBackend != null) {
@@ -100,6 +100,12 @@ public class SimpleIndexerPolicyEngine implements PolicyEngine {
     throw new SentryConfigurationException("Not implemented yet");
   }
 
+  @Override
+  public boolean isPrefixQuerySupported() {
+    // the hierarchy is not passed to the backend
+    return true;
+  }
+
   @Override
   public void close() {
     if (providerBackend != null) {
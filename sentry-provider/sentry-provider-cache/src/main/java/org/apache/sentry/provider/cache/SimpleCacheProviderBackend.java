@@ -97,6 +97,12 @@ public class SimpleCacheProviderBackend implements ProviderBackend {
         "validatePolicy() is not supported by Cache provider");
   }
 
+  @Override
+  public boolean isPrefixQuerySupported() {
+    // only the privileges which could imply the hierarchy are returned
+    return false;
+  }
+
   @Override
   public void close() {
     cacheHandle.close();
@@ -0,0 +1,29 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more contributor license agreements. See the NOTICE
+ * file distributed with this work for additional information regarding copyright ownership. The ASF licenses this file
+ * to You under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package org.apache.sentry.provider.common;
+
+import com.google.common.collect.Table;
+
+/**
+ * A {@link TableCache} which also indexes the privileges of every (group, role)
+ * cell by their authorizable hierarchy, so that {@link CacheProvider} only
+ * returns the privileges which could imply the requested authorizables.
+ */
+public interface AuthorizableIndexedCache extends TableCache {
+  /**
+   * Returns the privileges of the backing cache indexed by authorizable, with
+   * the same rows and columns. Caller must not modify the returned index.
+   * @return backing index.
+   */
+  Table<String, String, AuthorizableTrie> getIndex();
+}
@@ -0,0 +1,191 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more contributor license agreements. See the NOTICE
+ * file distributed with this work for additional information regarding copyright ownership. The ASF licenses this file
+ * to You under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package org.apache.sentry.provider.common;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.apache.sentry.core.common.Authorizable;
+import org.apache.sentry.core.common.utils.KeyValue;
+import org.apache.sentry.core.common.utils.SentryConstants;
+
+import com.google.common.collect.ImmutableSet;
+
+/**
+ * A set of privilege strings held in a trie of their authorizable parts, eg.
+ * Host->Topic for Kafka or Collection for Solr. The privileges which could
+ * imply a request on an authorizable hierarchy are found by walking the trie
+ * along the hierarchy, following the exact value of every part as well as the
+ * wildcard ("*", "ALL") branches. The walk returns a superset of the privileges
+ * implying the request, they still have to be checked by the caller.
+ *
+ * Values are compared ignoring case, the URI parts are not indexed as they are
+ * compared as paths. The trie is immutable after construction.
+ */
+public final class AuthorizableTrie {
+
+  private static final String URI_KEY = "uri";
+
+  private final ImmutableSet<String> privileges;
+  private final Node root = new Node(null, null);
+
+  public AuthorizableTrie(Set<String> privileges) {
+    this.privileges = ImmutableSet.copyOf(privileges);
+    for (String privilege : this.privileges) {
+      add(privilege);
+    }
+  }
+
+  private void add(String privilege) {
+    Node node = root;
+    for (String part : SentryConstants.AUTHORIZABLE_SPLITTER.trimResults().split(privilege)) {
+      KeyValue keyValue;
+      try {
+        keyValue = new KeyValue(part);
+      } catch (IllegalArgumentException e) {
+        // a malformed privilege is returned for every request below this node
+        break;
+      }
+      if (SentryConstants.PRIVILEGE_NAME.equalsIgnoreCase(keyValue.getKey())) {
+        // the action applies to the whole hierarchy below its parent
+        break;
+      }
+      node = node.getOrAddChild(keyValue);
+    }
+    node.privileges.add(privilege);
+  }
+
+  /**
+   * @return all the privileges of the trie
+   */
+  public ImmutableSet<String> getPrivileges() {
+    return privileges;
+  }
+
+  /**
+   * Adds the privileges which could imply a request on the given authorizable
+   * hierarchy to the result.
+   */
+  public void addPrivileges(Authorizable[] authorizableHierarchy,
+      ImmutableSet.Builder<String> result) {
+    addPrivileges(root, authorizableHierarchy, 0, result);
+  }
+
+  private static void addPrivileges(Node node, Authorizable[] authorizableHierarchy, int index,
+      ImmutableSet.Builder<String> result) {
+    result.addAll(node.privileges);
+    if (index == authorizableHierarchy.length) {
+      // the privileges below are only implied by wildcards, let the caller decide
+      for (Node child : node.children) {
+        addAllPrivileges(child, result);
+      }
+      return;
+    }
+
+    Authorizable authorizable = authorizableHierarchy[index];
+    String key = foldCase(authorizable.getTypeName().trim());
+    String value = authorizable.getName().trim();
+    if (isWildcard(value) || SentryConstants.RESOURCE_WILDCARD_VALUE_SOME.equals(value)) {
+      for (Node child : node.children) {
+        if (child.key.equals(key)) {
+          addPrivileges(child, authorizableHierarchy, index + 1, result);
+        }
+      }
+      return;
+    }
+
+    for (Node child : node.unindexedChildren) {
+      if (child.key.equals(key)) {
+        addPrivileges(child, authorizableHierarchy, index + 1, result);
+      }
+    }
+    Node child = node.valueChildren.get(toValueKey(key, value));
+    if (child != null) {
+      addPrivileges(child, authorizableHierarchy, index + 1, result);
+    }
+  }
+
+  private static void addAllPrivileges(Node node, ImmutableSet.Builder<String> result) {
+    result.addAll(node.privileges);
+    for (Node child : node.children) {
+      addAllPrivileges(child, result);
+    }
+  }
+
+  private static boolean isWildcard(String value) {
+    return SentryConstants.RESOURCE_WILDCARD_VALUE.equals(value)
+        || SentryConstants.RESOURCE_WILDCARD_VALUE_ALL.equalsIgnoreCase(value);
+  }
+
+  private static String toValueKey(String foldedKey, String value) {
+    return SentryConstants.KV_JOINER.join(foldedKey, foldCase(value));
+  }
+
+  /**
+   * Two strings are equal ignoring case if and only if their folded case is equal,
+   * see {@link String#equalsIgnoreCase(String)}.
+   */
+  private static String foldCase(String str) {
+    char[] chars = str.toCharArray();
+    for (int i = 0; i < chars.length; i++) {
+      chars[i] = Character.toLowerCase(Character.toUpperCase(chars[i]));
+    }
+    return new String(chars);
+  }
+
+  private static final class Node {
+    // the folded key of the part, null for the root
+    private final String key;
+    // the folded key and value of the part
+    private final String value;
+    private final List<String> privileges = new ArrayList<String>(1);
+    private final List<Node> children = new ArrayList<Node>(1);
+    // children reached by the exact value of their part
+    private final Map<String, Node> valueChildren = new HashMap<String, Node>(2);
+    // children reached by any value of their key, ie. wildcards and URIs
+    private final List<Node> unindexedChildren = new ArrayList<Node>(1);
+
+    Node(String key, String value) {
+      this.key = key;
+      this.value = value;
+    }
+
+    Node getOrAddChild(KeyValue keyValue) {
+      String childKey = foldCase(keyValue.getKey());
+      String childValue = keyValue.getValue();
+      String valueKey = toValueKey(childKey, childValue);
+      boolean unindexed = URI_KEY.equals(childKey) || isWildcard(childValue);
+      if (unindexed) {
+        for (Node child : unindexedChildren) {
+          if (child.value.equals(valueKey)) {
+            return child;
+          }
+        }
+      } else if (valueChildren.containsKey(valueKey)) {
+        return valueChildren.get(valueKey);
+      }
+
+      Node child = new Node(childKey, valueKey);
+      children.add(child);
+      if (unindexed) {
+        unindexedChildren.add(child);
+      } else {
+        valueChildren.put(valueKey, child);
+      }
+      return child;
+    }
+  }
+}
@@ -52,6 +52,23 @@ public interface AuthorizationProvider {
   boolean hasAccess(Subject subject, List<? extends Authorizable> authorizableHierarchy,
       Set<? extends Action> actions, ActiveRoleSet roleSet);
 
+  /***
+   * Returns, for each of the authorizable hierarchies, whether the subject is
+   * authorized to perform the requested action on it, as
+   * {@link #hasAccess(Subject, List, Set, ActiveRoleSet)} would. The groups and
+   * privileges of the subject are resolved once for all of the hierarchies.
+   *
+   * @param subject: UserID to validate privileges
+   * @param authorizableHierarchies : the hierarchies to validate
+   * @param actions : Privileges to validate
+   * @param roleSet : Roles which should be used when obtaining privileges
+   * @return
+   *        The result for each hierarchy, in the same order
+   */
+  boolean[] hasAccessBatch(Subject subject,
+      List<? extends List<? extends Authorizable>> authorizableHierarchies,
+      Set<? extends Action> actions, ActiveRoleSet roleSet);
+
   /***
    * Get the GroupMappingService used by the AuthorizationProvider
    *
@@ -13,6 +13,7 @@
 package org.apache.sentry.provider.common;
 
 import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Table;
 import org.apache.sentry.core.common.ActiveRoleSet;
 import org.apache.sentry.core.common.Authorizable;
 
@@ -37,10 +38,22 @@ public class CacheProvider {
       throw new IllegalStateException("CacheProvider has not been properly initialized");
     }
     ImmutableSet.Builder<String> resultBuilder = ImmutableSet.builder();
+    if (authorizableHierarchy != null && authorizableHierarchy.length > 0
+        && cache instanceof AuthorizableIndexedCache) {
+      // only the privileges which could imply the authorizables
+      Table<String, String, AuthorizableTrie> index = ((AuthorizableIndexedCache) cache).getIndex();
+      for (String groupName : groups) {
+        for (Map.Entry<String, AuthorizableTrie> row : index.row(groupName).entrySet()) {
+          if (roleSet.containsRole(row.getKey())) {
+            row.getValue().addPrivileges(authorizableHierarchy, resultBuilder);
+          }
+        }
+      }
+      return resultBuilder.build();
+    }
     for (String groupName : groups) {
       for (Map.Entry<String, Set<String>> row : cache.getCache().row(groupName).entrySet()) {
         if (roleSet.containsRole(row.getKey())) {
-          // TODO: SENTRY-1245: Filter by Authorizables, if provided
           resultBuilder.addAll(row.getValue());
         }
       }
@@ -39,6 +39,13 @@ public class NoAuthorizationProvider implements AuthorizationProvider {
     return false;
   }
 
+  @Override
+  public boolean[] hasAccessBatch(Subject subject,
+      List<? extends List<? extends Authorizable>> authorizableHierarchies,
+      Set<? extends Action> actions, ActiveRoleSet roleSet) {
+    return new boolean[authorizableHierarchies.size()];
+  }
+
   @Override
   public GroupMappingService getGroupMapping() {
     return noGroupMappingService;
@@ -69,5 +69,13 @@ public interface ProviderBackend {
    */
   void validatePolicy(boolean strictValidation) throws SentryConfigurationException;
 
+  /**
+   * Whether the privileges returned for an authorizable hierarchy include the
+   * privileges on all the objects under it, e.g. those returned for
+   * Server->Db include those returned for Server->Db->Table. The privileges
+   * of several hierarchies can then be fetched at once for their common prefix.
+   */
+  boolean isPrefixQuerySupported();
+
   void close();
 }
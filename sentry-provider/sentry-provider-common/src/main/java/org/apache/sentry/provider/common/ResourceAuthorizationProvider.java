@@ -22,6 +22,7 @@ import static org.apache.sentry.core.common.utils.SentryConstants.KV_JOINER;
 import static org.apache.sentry.core.common.utils.SentryConstants.PRIVILEGE_NAME;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
@@ -29,6 +30,7 @@ import java.util.Set;
 import org.apache.sentry.core.common.Action;
 import org.apache.sentry.core.common.ActiveRoleSet;
 import org.apache.sentry.core.common.Authorizable;
+import org.apache.sentry.core.common.BitFieldActionFactory;
 import org.apache.sentry.core.common.Model;
 import org.apache.sentry.core.common.exception.SentryConfigurationException;
 import org.apache.sentry.core.common.Subject;
@@ -36,13 +38,12 @@ import org.apache.sentry.core.common.service.GroupMappingService;
 import org.apache.sentry.policy.common.PolicyEngine;
 import org.apache.sentry.policy.common.Privilege;
 import org.apache.sentry.policy.common.PrivilegeFactory;
+import org.apache.sentry.policy.common.PrivilegeIndex;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import com.google.common.base.Function;
 import com.google.common.base.Preconditions;
 import com.google.common.collect.ImmutableSet;
-import com.google.common.collect.Iterables;
 import com.google.common.collect.Lists;
 import com.google.common.collect.Sets;
 
@@ -61,6 +62,7 @@ public abstract class ResourceAuthorizationProvider implements AuthorizationProv
   private final PolicyEngine policy;
   private final PrivilegeFactory privilegeFactory;
   private final Model model;
+  private final PrivilegeIndex.Builder privilegeIndexBuilder;
 
   public ResourceAuthorizationProvider(PolicyEngine policy,
       GroupMappingService groupService, Model model) {
@@ -68,6 +70,7 @@ public abstract class ResourceAuthorizationProvider implements AuthorizationProv
     this.groupService = groupService;
     this.privilegeFactory = policy.getPrivilegeFactory();
     this.model = model;
+    this.privilegeIndexBuilder = new PrivilegeIndex.Builder(privilegeFactory, model);
   }
 
   /***
@@ -92,33 +95,104 @@ public abstract class ResourceAuthorizationProvider implements AuthorizationProv
     Preconditions.checkNotNull(actions, "Actions cannot be null");
     Preconditions.checkArgument(!actions.isEmpty(), "Actions cannot be empty");
     Preconditions.checkNotNull(roleSet, "ActiveRoleSet cannot be null");
-    return doHasAccess(subject, authorizableHierarchy, actions, roleSet);
+    lastFailedPrivileges.get().clear();
+    return doHasAccess(subject, getGroups(subject), authorizableHierarchy, actions, roleSet);
+  }
+
+  /**
+   * {@inheritDoc}
+   *
+   * The privileges are asked to the policy engine once, for the longest prefix
+   * the hierarchies have in common, e.g. the server or the server and
+   * database, when the engine supports such queries. Otherwise they are asked
+   * for each distinct hierarchy, as the backend returns the privileges
+   * relevant to the given hierarchy only. All of them are compiled into a
+   * single index which every hierarchy is checked against. The privileges
+   * which imply a hierarchy are granted to the subject whichever hierarchy
+   * they were fetched for, so this gives the same results as one check at a
+   * time.
+   */
+  @Override
+  public boolean[] hasAccessBatch(Subject subject,
+      List<? extends List<? extends Authorizable>> authorizableHierarchies,
+      Set<? extends Action> actions, ActiveRoleSet roleSet) {
+    Preconditions.checkNotNull(subject, "Subject cannot be null");
+    Preconditions.checkNotNull(authorizableHierarchies, "Authorizables cannot be null");
+    Preconditions.checkNotNull(actions, "Actions cannot be null");
+    Preconditions.checkArgument(!actions.isEmpty(), "Actions cannot be empty");
+    Preconditions.checkNotNull(roleSet, "ActiveRoleSet cannot be null");
+    lastFailedPrivileges.get().clear();
+    boolean[] results = new boolean[authorizableHierarchies.size()];
+    if (results.length == 0) {
+      return results;
+    }
+    Set<String> groups = getGroups(subject);
+    Set<String> users = Sets.newHashSet(subject.getName());
+    List<List<? extends Authorizable>> toFetch = new ArrayList<List<? extends Authorizable>>();
+    for (List<? extends Authorizable> authorizables : authorizableHierarchies) {
+      Preconditions.checkNotNull(authorizables, "Authorizable cannot be null");
+      Preconditions.checkArgument(!authorizables.isEmpty(), "Authorizable cannot be empty");
+      if (!isDefaultDBSwitch(authorizables)) {
+        toFetch.add(authorizables);
+      }
+    }
+    ImmutableSet.Builder<String> privilegeStrs = ImmutableSet.builder();
+    List<? extends Authorizable> commonPrefix = null;
+    if (!toFetch.isEmpty() && policy.isPrefixQuerySupported()) {
+      commonPrefix = getCommonPrefix(toFetch);
+    }
+    if (commonPrefix != null && !commonPrefix.isEmpty()) {
+      privilegeStrs.addAll(policy.getPrivileges(groups, users, roleSet,
+          commonPrefix.toArray(new Authorizable[0])));
+    } else {
+      Set<String> fetched = new HashSet<String>();
+      for (List<? extends Authorizable> authorizables : toFetch) {
+        if (fetched.add(getHierarchyKey(authorizables))) {
+          privilegeStrs.addAll(policy.getPrivileges(groups, users, roleSet,
+              authorizables.toArray(new Authorizable[0])));
+        }
+      }
+    }
+    PrivilegeIndex privileges = privilegeIndexBuilder.build(privilegeStrs.build());
+    for (int i = 0; i < results.length; i++) {
+      List<? extends Authorizable> authorizables = authorizableHierarchies.get(i);
+      if (isDefaultDBSwitch(authorizables)) {
+        // its privileges are rewritten, check it on its own
+        results[i] = doHasAccess(subject, groups, authorizables, actions, roleSet);
+      } else {
+        results[i] = checkAccess(privileges, authorizables, actions, roleSet);
+      }
+    }
+    return results;
   }
 
-  private boolean doHasAccess(Subject subject,
+  private boolean doHasAccess(Subject subject, Set<String> groups,
       List<? extends Authorizable> authorizables, Set<? extends Action> actions,
       ActiveRoleSet roleSet) {
-    Set<String> groups =  getGroups(subject);
     Set<String> users = Sets.newHashSet(subject.getName());
-    Set<String> hierarchy = new HashSet<String>();
-    for (Authorizable authorizable : authorizables) {
-      hierarchy.add(KV_JOINER.join(authorizable.getTypeName(), authorizable.getName()));
-    }
-    List<String> requestPrivileges = buildPermissions(authorizables, actions);
-    Iterable<Privilege> privileges = getPrivileges(groups, users, roleSet,
+    PrivilegeIndex privileges = getPrivileges(groups, users, roleSet,
         authorizables.toArray(new Authorizable[0]));
-    lastFailedPrivileges.get().clear();
+    return checkAccess(privileges, authorizables, actions, roleSet);
+  }
 
-    for (String requestPrivilege : requestPrivileges) {
-      Privilege priv = privilegeFactory.createPrivilege(requestPrivilege);
-      for (Privilege permission : privileges) {
+  // Adds the request privileges to the last failed privileges if none is implied
+  private boolean checkAccess(PrivilegeIndex privileges,
+      List<? extends Authorizable> authorizables, Set<? extends Action> actions,
+      ActiveRoleSet roleSet) {
+    if (!privileges.getCompiledPrivileges().isEmpty()) {
+      BitFieldActionFactory bitFieldActionFactory = model.getBitFieldActionFactory();
+      for (Action action : actions) {
+        String actionName = action.getValue();
         /*
-         * Does the permission granted in the policy file imply the requested action?
+         * Does any permission granted in the policy file imply the requested action?
          */
-        boolean result = permission.implies(priv, model);
+        boolean result = privileges.implies(authorizables, actionName,
+            bitFieldActionFactory.getActionByName(actionName));
         if (LOGGER.isDebugEnabled()) {
-          LOGGER.debug("ProviderPrivilege {}, RequestPrivilege {}, RoleSet, {}, Result {}",
-              new Object[]{ permission, requestPrivilege, roleSet, result});
+          LOGGER.debug("ProviderPrivileges {}, RequestAuthorizables {}, RequestAction {}, "
+              + "RoleSet, {}, Result {}",
+              new Object[]{ privileges.getCompiledPrivileges(), authorizables, actionName,
+              roleSet, result});
         }
         if (result) {
           return true;
@@ -126,25 +200,39 @@ public abstract class ResourceAuthorizationProvider implements AuthorizationProv
       }
     }
 
+    List<String> requestPrivileges = buildPermissions(authorizables, actions);
+    if (!privileges.getPrivileges().isEmpty()) {
+      for (String requestPrivilege : requestPrivileges) {
+        Privilege priv = privilegeFactory.createPrivilege(requestPrivilege);
+        for (Privilege permission : privileges.getPrivileges()) {
+          /*
+           * Does the permission granted in the policy file imply the requested action?
+           */
+          boolean result = permission.implies(priv, model);
+          if (LOGGER.isDebugEnabled()) {
+            LOGGER.debug("ProviderPrivilege {}, RequestPrivilege {}, RoleSet, {}, Result {}",
+                new Object[]{ permission, requestPrivilege, roleSet, result});
+          }
+          if (result) {
+            return true;
+          }
+        }
+      }
+    }
+
     lastFailedPrivileges.get().addAll(requestPrivileges);
     return false;
   }
 
-  private Iterable<Privilege> getPrivileges(Set<String> groups, Set<String> users,
+  private PrivilegeIndex getPrivileges(Set<String> groups, Set<String> users,
       ActiveRoleSet roleSet, Authorizable[] authorizables) {
     ImmutableSet<String> privileges = policy.getPrivileges(groups, users, roleSet, authorizables);
-    return Iterables.transform(appendDefaultDBPriv(privileges, authorizables),
-        new Function<String, Privilege>() {
-      @Override
-      public Privilege apply(String privilege) {
-        return privilegeFactory.createPrivilege(privilege);
-      }
-    });
+    return privilegeIndexBuilder.build(appendDefaultDBPriv(privileges, authorizables));
   }
 
   private ImmutableSet<String> appendDefaultDBPriv(ImmutableSet<String> privileges, Authorizable[] authorizables) {
     // Only for switch db
-    if (authorizables != null && authorizables.length == 4 && authorizables[2].getName().equals("+")
+    if (authorizables != null && isDefaultDBSwitch(Arrays.asList(authorizables))
       && privileges.size() == 1 && hasOnlyServerPrivilege(privileges.asList().get(0))) {
       // Assuming authorizable[0] will always be the server
       // This Code is only reachable only when user fires a 'use default'
@@ -157,6 +245,38 @@ public abstract class ResourceAuthorizationProvider implements AuthorizationProv
     return privileges;
   }
 
+  private static boolean isDefaultDBSwitch(List<? extends Authorizable> authorizables) {
+    return authorizables.size() == 4 && authorizables.get(2).getName().equals("+");
+  }
+
+  private static String getHierarchyKey(List<? extends Authorizable> authorizables) {
+    List<String> hierarchy = new ArrayList<String>(authorizables.size());
+    for (Authorizable authorizable : authorizables) {
+      hierarchy.add(KV_JOINER.join(authorizable.getTypeName(), authorizable.getName()));
+    }
+    return AUTHORIZABLE_JOINER.join(hierarchy);
+  }
+
+  // The authorizables of the same type and name at the start of all the hierarchies
+  private static List<? extends Authorizable> getCommonPrefix(
+      List<List<? extends Authorizable>> authorizableHierarchies) {
+    List<? extends Authorizable> first = authorizableHierarchies.get(0);
+    int length = first.size();
+    for (List<? extends Authorizable> authorizables : authorizableHierarchies) {
+      length = Math.min(length, authorizables.size());
+      for (int i = 0; i < length; i++) {
+        Authorizable expected = first.get(i);
+        Authorizable actual = authorizables.get(i);
+        if (!expected.getTypeName().equals(actual.getTypeName())
+            || !expected.getName().equals(actual.getName())) {
+          length = i;
+          break;
+        }
+      }
+    }
+    return first.subList(0, length);
+  }
+
   private boolean hasOnlyServerPrivilege(String priv) {
     ArrayList<String> l = Lists.newArrayList(AUTHORIZABLE_SPLITTER.split(priv));
     if (l.size() == 1 && l.get(0).toLowerCase().startsWith("server")) {
@@ -0,0 +1,98 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.sentry.provider.common;
+
+import static org.junit.Assert.assertEquals;
+
+import org.apache.sentry.core.common.Authorizable;
+import org.junit.Test;
+
+import com.google.common.collect.ImmutableSet;
+
+/**
+ * Tests around the AuthorizableTrie
+ */
+public class TestAuthorizableTrie {
+
+  private static final String HOST_ALL = "Host=*->action=all";
+  private static final String TOPIC1_READ = "Host=host1->Topic=topic1->action=read";
+  private static final String TOPIC2_READ = "Host=host1->Topic=topic2->action=read";
+  private static final String ANY_TOPIC_DESCRIBE = "Host=host1->Topic=*->action=describe";
+  private static final String CLUSTER_CREATE = "Host=host1->Cluster=kafka-cluster->action=create";
+  private static final String OTHER_HOST = "Host=host2->Topic=topic1->action=read";
+
+  private final AuthorizableTrie trie = new AuthorizableTrie(ImmutableSet.of(
+      HOST_ALL, TOPIC1_READ, TOPIC2_READ, ANY_TOPIC_DESCRIBE, CLUSTER_CREATE, OTHER_HOST));
+
+  @Test
+  public void testExactAndWildcardParts() {
+    assertEquals(ImmutableSet.of(HOST_ALL, TOPIC1_READ, ANY_TOPIC_DESCRIBE),
+        getPrivileges(auth("Host", "host1"), auth("Topic", "topic1")));
+    assertEquals(ImmutableSet.of(HOST_ALL, ANY_TOPIC_DESCRIBE),
+        getPrivileges(auth("Host", "host1"), auth("Topic", "topic3")));
+    assertEquals(ImmutableSet.of(HOST_ALL, CLUSTER_CREATE),
+        getPrivileges(auth("Host", "host1"), auth("Cluster", "kafka-cluster")));
+    assertEquals(ImmutableSet.of(HOST_ALL),
+        getPrivileges(auth("Host", "host3"), auth("Topic", "topic1")));
+  }
+
+  @Test
+  public void testCaseInsensitive() {
+    assertEquals(ImmutableSet.of(HOST_ALL, TOPIC1_READ, ANY_TOPIC_DESCRIBE),
+        getPrivileges(auth("HOST", "HOST1"), auth("topic", "Topic1")));
+  }
+
+  @Test
+  public void testWildcardRequest() {
+    assertEquals(ImmutableSet.of(HOST_ALL, TOPIC1_READ, TOPIC2_READ, ANY_TOPIC_DESCRIBE),
+        getPrivileges(auth("Host", "host1"), auth("Topic", "*")));
+    // the request ends above the privileges, all of them are candidates
+    assertEquals(ImmutableSet.of(HOST_ALL, TOPIC1_READ, TOPIC2_READ, ANY_TOPIC_DESCRIBE,
+        CLUSTER_CREATE), getPrivileges(auth("Host", "host1")));
+  }
+
+  @Test
+  public void testUnindexedParts() {
+    String uri = "Server=server1->URI=hdfs://namenode/path->action=all";
+    String malformed = "Server=server1->Db";
+    AuthorizableTrie uriTrie = new AuthorizableTrie(ImmutableSet.of(uri, malformed));
+    ImmutableSet.Builder<String> result = ImmutableSet.builder();
+    uriTrie.addPrivileges(new Authorizable[] {auth("Server", "server1"),
+        auth("URI", "hdfs://namenode/path/child")}, result);
+    assertEquals(ImmutableSet.of(uri, malformed), result.build());
+  }
+
+  private ImmutableSet<String> getPrivileges(Authorizable... authorizables) {
+    ImmutableSet.Builder<String> result = ImmutableSet.builder();
+    trie.addPrivileges(authorizables, result);
+    return result.build();
+  }
+
+  private static Authorizable auth(final String typeName, final String name) {
+    return new Authorizable() {
+      @Override
+      public String getName() {
+        return name;
+      }
+
+      @Override
+      public String getTypeName() {
+        return typeName;
+      }
+    };
+  }
+}
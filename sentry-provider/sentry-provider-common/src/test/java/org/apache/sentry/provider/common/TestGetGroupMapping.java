@@ -51,6 +51,9 @@ public class TestGetGroupMapping {
       @Override
       public PrivilegeFactory getPrivilegeFactory() { return null; }
 
+      @Override
+      public boolean isPrefixQuerySupported() { return false; }
+
       @Override
       public ImmutableSet<String> getAllPrivileges(Set<String> groups,
           ActiveRoleSet roleSet) throws SentryConfigurationException {
@@ -0,0 +1,111 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.sentry.provider.db;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.sentry.provider.db.service.thrift.SentryPolicyServiceClient;
+import org.apache.sentry.service.thrift.PoolClientInvocationHandler;
+import org.apache.sentry.service.thrift.SentryServiceClientFactory;
+
+import com.google.common.annotations.VisibleForTesting;
+
+/**
+ * A pool of connections to the Sentry service shared by the
+ * {@link SimpleDBProviderBackend}s of the process. The Hive bindings create a
+ * backend per statement, so there is one pool per client configuration of the
+ * service rather than per backend. A pool is closed along with the last backend
+ * using it.
+ */
+final class SharedClientPool {
+
+  // the settings of the connections to the service, the backends whose
+  // configurations agree on all of them share a pool
+  private static final String CLIENT_CONF_REGEX =
+      "^(sentry\\.service|sentry\\.ha|sentry\\.zookeeper|sentry\\.policy\\.client)\\.";
+
+  private static final Map<Map<String, String>, SharedClientPool> POOLS =
+      new HashMap<Map<String, String>, SharedClientPool>();
+
+  private final Map<String, String> key;
+  private final PoolClientInvocationHandler poolHandler;
+  private final SentryPolicyServiceClient client;
+  // guarded by the class lock
+  private int references;
+
+  private SharedClientPool(Map<String, String> key, PoolClientInvocationHandler poolHandler) {
+    this.key = key;
+    this.poolHandler = poolHandler;
+    this.client = SentryServiceClientFactory.create(poolHandler);
+  }
+
+  /**
+   * @return the pool of the client configuration of conf, which must be
+   *         {@link #release()}d once no longer used
+   */
+  static synchronized SharedClientPool acquire(Configuration conf) throws Exception {
+    Map<String, String> key = new TreeMap<String, String>(conf.getValByRegex(CLIENT_CONF_REGEX));
+    SharedClientPool pool = POOLS.get(key);
+    if (pool == null) {
+      pool = new SharedClientPool(key, new PoolClientInvocationHandler(conf));
+      POOLS.put(key, pool);
+    }
+    pool.references++;
+    return pool;
+  }
+
+  /**
+   * Release the pool, which is closed if no other backend uses it.
+   */
+  void release() {
+    synchronized (SharedClientPool.class) {
+      if (--references > 0) {
+        return;
+      }
+      POOLS.remove(key);
+    }
+    client.close();
+  }
+
+  /**
+   * @return the client whose calls borrow a connection of the pool
+   */
+  SentryPolicyServiceClient getClient() {
+    return client;
+  }
+
+  PoolClientInvocationHandler getPoolHandler() {
+    return poolHandler;
+  }
+
+  /**
+   * @return the pools currently open
+   */
+  static synchronized List<SharedClientPool> getPools() {
+    return new ArrayList<SharedClientPool>(POOLS.values());
+  }
+
+  @VisibleForTesting
+  static synchronized int getReferenceCount(SharedClientPool pool) {
+    return pool.references;
+  }
+}
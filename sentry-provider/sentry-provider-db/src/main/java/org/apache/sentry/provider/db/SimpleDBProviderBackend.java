@@ -16,7 +16,18 @@
  */
 package org.apache.sentry.provider.db;
 
+import static org.apache.sentry.core.common.utils.SentryConstants.KV_JOINER;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
 
 import org.apache.hadoop.conf.Configuration;
 import org.apache.sentry.core.common.ActiveRoleSet;
@@ -25,21 +36,141 @@ import org.apache.sentry.core.common.exception.SentryConfigurationException;
 import org.apache.sentry.provider.common.ProviderBackend;
 import org.apache.sentry.provider.common.ProviderBackendContext;
 import org.apache.sentry.provider.db.service.thrift.SentryPolicyServiceClient;
+import org.apache.sentry.service.thrift.PoolClientInvocationHandler;
 import org.apache.sentry.service.thrift.SentryServiceClientFactory;
 import org.apache.sentry.service.thrift.ServiceConstants;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.codahale.metrics.Counter;
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.SharedMetricRegistries;
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Throwables;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
 import com.google.common.collect.ImmutableSet;
+import com.google.common.util.concurrent.SettableFuture;
 
+/**
+ * ProviderBackend which gets the privileges from the Sentry service. Identical
+ * requests which are in flight at the same time are coalesced into a single RPC.
+ *
+ * When {@link ServiceConstants.ClientConfig#SENTRY_POOL_ENABLED} is set, the calls
+ * borrow the connections of a {@link PoolClientInvocationHandler} shared by all the
+ * backends of the process with the same client configuration, and closed along
+ * with the last of them. Otherwise every call opens its own connection.
+ * The use of the pools and of the caches is reported in the
+ * {@link #METRICS_REGISTRY_NAME} shared metric registry.
+ *
+ * When {@link ServiceConstants.ClientConfig#DB_CACHE_ENABLED} is set, the privileges
+ * are also cached per request (groups, users, active roles and authorizable
+ * hierarchy) for at most {@link ServiceConstants.ClientConfig#DB_CACHE_TTL_MS}.
+ * The cache is dropped as soon as the server reports a new policy version, which
+ * is polled at most once every
+ * {@link ServiceConstants.ClientConfig#DB_CACHE_VERSION_CHECK_INTERVAL_MS}.
+ * The version covers the changes of both the Hive and the generic model stores
+ * of the server. When the version can't be read, eg. from servers which don't
+ * report it or while the server is unreachable, the cached privileges are kept
+ * until their TTL expires, so a revoke may be ignored for up to the TTL.
+ */
 public class SimpleDBProviderBackend implements ProviderBackend {
 
   private static final Logger LOGGER = LoggerFactory
       .getLogger(SimpleDBProviderBackend.class);
 
+  /**
+   * The name of the {@link SharedMetricRegistries shared metric registry} of the
+   * backends of the process.
+   */
+  public static final String METRICS_REGISTRY_NAME = "sentry-provider-db";
+
+  private static final MetricRegistry METRICS =
+      SharedMetricRegistries.getOrCreate(METRICS_REGISTRY_NAME);
+  private static final Counter COALESCED_REQUESTS = METRICS.counter(
+      MetricRegistry.name(SimpleDBProviderBackend.class, "coalesced-requests"));
+  private static final Counter CACHE_HITS = METRICS.counter(
+      MetricRegistry.name(SimpleDBProviderBackend.class, "cache-hits"));
+  private static final Counter CACHE_MISSES = METRICS.counter(
+      MetricRegistry.name(SimpleDBProviderBackend.class, "cache-misses"));
+  private static final Counter CACHE_INVALIDATIONS = METRICS.counter(
+      MetricRegistry.name(SimpleDBProviderBackend.class, "cache-invalidations"));
+
+  static {
+    registerGauge("pool-hits", new Gauge<Long>() {
+      @Override
+      public Long getValue() {
+        long hits = 0;
+        for (SharedClientPool pool : SharedClientPool.getPools()) {
+          hits += getPoolHitCount(pool.getPoolHandler());
+        }
+        return hits;
+      }
+    });
+    registerGauge("pool-misses", new Gauge<Long>() {
+      @Override
+      public Long getValue() {
+        long misses = 0;
+        for (SharedClientPool pool : SharedClientPool.getPools()) {
+          misses += pool.getPoolHandler().getCreatedCount();
+        }
+        return misses;
+      }
+    });
+    registerGauge("pool-mean-wait-time-ms", new Gauge<Long>() {
+      @Override
+      public Long getValue() {
+        long borrowed = 0;
+        long waitTime = 0;
+        for (SharedClientPool pool : SharedClientPool.getPools()) {
+          PoolClientInvocationHandler poolHandler = pool.getPoolHandler();
+          borrowed += poolHandler.getBorrowedCount();
+          waitTime += poolHandler.getBorrowedCount() * poolHandler.getMeanBorrowWaitTimeMillis();
+        }
+        return borrowed == 0 ? 0 : waitTime / borrowed;
+      }
+    });
+    registerGauge("pool-max-wait-time-ms", new Gauge<Long>() {
+      @Override
+      public Long getValue() {
+        long maxWaitTime = 0;
+        for (SharedClientPool pool : SharedClientPool.getPools()) {
+          maxWaitTime = Math.max(maxWaitTime, pool.getPoolHandler().getMaxBorrowWaitTimeMillis());
+        }
+        return maxWaitTime;
+      }
+    });
+    registerGauge("pools", new Gauge<Long>() {
+      @Override
+      public Long getValue() {
+        return (long) SharedClientPool.getPools().size();
+      }
+    });
+  }
+
   private Configuration conf;
   private int retryCount;
   private int retryIntervalSec;
+  // null if the connections are not pooled
+  private final SharedClientPool sharedPool;
+  // the client of all the calls, null if every call opens its own client
+  private final SentryPolicyServiceClient policyServiceClient;
+  private final AtomicBoolean closed = new AtomicBoolean();
+  private final ConcurrentMap<PrivilegesRequest, SettableFuture<ImmutableSet<String>>>
+      inFlightRequests = new ConcurrentHashMap<PrivilegesRequest, SettableFuture<ImmutableSet<String>>>();
+  private final AtomicLong coalescedRequests = new AtomicLong();
+  // null if caching is disabled
+  private final Cache<PrivilegesRequest, ImmutableSet<String>> privilegeCache;
+  private final long versionCheckIntervalMs;
+  private final AtomicLong lastVersionCheckMs = new AtomicLong();
+  // incremented on every invalidation, so that the responses to requests sent
+  // before an invalidation are not cached
+  private final AtomicLong cacheGeneration = new AtomicLong();
+  private volatile String policyVersion;
+  private final AtomicLong cacheHits = new AtomicLong();
+  private final AtomicLong cacheMisses = new AtomicLong();
+  private final AtomicLong cacheInvalidations = new AtomicLong();
 
   public SimpleDBProviderBackend(Configuration conf, String resourcePath) throws Exception { //NOPMD
     // DB Provider doesn't use policy file path
@@ -47,9 +178,43 @@ public class SimpleDBProviderBackend implements ProviderBackend {
   }
 
   public SimpleDBProviderBackend(Configuration conf) throws Exception {
+    this(conf, null);
+  }
+
+  /**
+   * @param client the client of all the calls, closed along with the backend,
+   *        or null to connect as configured
+   */
+  @VisibleForTesting
+  SimpleDBProviderBackend(Configuration conf, SentryPolicyServiceClient client) throws Exception {
     this.conf = conf;
     this.retryCount = conf.getInt(ServiceConstants.ClientConfig.RETRY_COUNT_CONF, ServiceConstants.ClientConfig.RETRY_COUNT_DEFAULT);
     this.retryIntervalSec = conf.getInt(ServiceConstants.ClientConfig.RETRY_INTERVAL_SEC_CONF, ServiceConstants.ClientConfig.RETRY_INTERVAL_SEC_DEFAULT);
+    if (client != null) {
+      this.sharedPool = null;
+      this.policyServiceClient = client;
+    } else if (conf.getBoolean(ServiceConstants.ClientConfig.SENTRY_POOL_ENABLED,
+        ServiceConstants.ClientConfig.SENTRY_POOL_ENABLED_DEFAULT)) {
+      this.sharedPool = SharedClientPool.acquire(conf);
+      this.policyServiceClient = sharedPool.getClient();
+    } else {
+      this.sharedPool = null;
+      this.policyServiceClient = null;
+    }
+    if (conf.getBoolean(ServiceConstants.ClientConfig.DB_CACHE_ENABLED,
+        ServiceConstants.ClientConfig.DB_CACHE_ENABLED_DEFAULT)) {
+      this.privilegeCache = CacheBuilder.newBuilder()
+          .maximumSize(conf.getInt(ServiceConstants.ClientConfig.DB_CACHE_MAX_ENTRIES,
+              ServiceConstants.ClientConfig.DB_CACHE_MAX_ENTRIES_DEFAULT))
+          .expireAfterWrite(conf.getLong(ServiceConstants.ClientConfig.DB_CACHE_TTL_MS,
+              ServiceConstants.ClientConfig.DB_CACHE_TTL_MS_DEFAULT), TimeUnit.MILLISECONDS)
+          .build();
+    } else {
+      this.privilegeCache = null;
+    }
+    this.versionCheckIntervalMs = conf.getLong(
+        ServiceConstants.ClientConfig.DB_CACHE_VERSION_CHECK_INTERVAL_MS,
+        ServiceConstants.ClientConfig.DB_CACHE_VERSION_CHECK_INTERVAL_MS_DEFAULT);
   }
   /**
    * {@inheritDoc}
@@ -74,14 +239,44 @@ public class SimpleDBProviderBackend implements ProviderBackend {
   @Override
   public ImmutableSet<String> getPrivileges(Set<String> groups, Set<String> users,
       ActiveRoleSet roleSet, Authorizable... authorizableHierarchy) {
+    PrivilegesRequest request = new PrivilegesRequest(groups, users, roleSet,
+        authorizableHierarchy);
+    if (privilegeCache == null) {
+      ImmutableSet<String> privileges = fetchPrivileges(request);
+      return privileges == null ? ImmutableSet.<String>of() : privileges;
+    }
+
+    checkPolicyVersion();
+    ImmutableSet<String> privileges = privilegeCache.getIfPresent(request);
+    if (privileges != null) {
+      cacheHits.incrementAndGet();
+      CACHE_HITS.inc();
+      return privileges;
+    }
+    cacheMisses.incrementAndGet();
+    CACHE_MISSES.inc();
+    long generation = cacheGeneration.get();
+    privileges = fetchPrivileges(request);
+    if (privileges == null) {
+      // don't cache the failures
+      return ImmutableSet.of();
+    }
+    if (generation == cacheGeneration.get()) {
+      privilegeCache.put(request, privileges);
+    }
+    return privileges;
+  }
+
+  /**
+   * @return the privileges of the request, or null if they could not be obtained
+   *         from the server after the configured number of retries
+   */
+  private ImmutableSet<String> fetchPrivileges(PrivilegesRequest request) {
     int retries = Math.max(retryCount + 1, 1); // if customer configs retryCount as Integer.MAX_VALUE, try only once
     while (retries > 0) {
       retries--;
-      SentryPolicyServiceClient policyServiceClient = null;
       try {
-        policyServiceClient = SentryServiceClientFactory.create(conf);
-        return ImmutableSet.copyOf(policyServiceClient.listPrivilegesForProvider(groups, users,
-            roleSet, authorizableHierarchy));
+        return listPrivilegesForProvider(request);
       } catch (Exception e) {
         //TODO: differentiate transient errors and permanent errors
         String msg = "Unable to obtain privileges from server: " + e.getMessage() + ".";
@@ -97,14 +292,108 @@ public class SimpleDBProviderBackend implements ProviderBackend {
             LOGGER.info("Sleeping is interrupted.", e1);
           }
         }
-      } finally {
-        if(policyServiceClient != null) {
-          policyServiceClient.close();
-        }
       }
     }
 
-    return ImmutableSet.of();
+    return null;
+  }
+
+  /**
+   * Drop the cached privileges if the policy version of the server changed since
+   * the last check. Only one caller polls the server per check interval, the
+   * others keep using the cache meanwhile. If the version can't be read, the
+   * cache is kept and only bounded by its TTL.
+   */
+  private void checkPolicyVersion() {
+    long now = System.currentTimeMillis();
+    long lastCheck = lastVersionCheckMs.get();
+    if (now - lastCheck < versionCheckIntervalMs
+        || !lastVersionCheckMs.compareAndSet(lastCheck, now)) {
+      return;
+    }
+    String version;
+    SentryPolicyServiceClient client = null;
+    try {
+      client = openClient();
+      version = client.getConfigValue(ServiceConstants.ClientConfig.SENTRY_POLICY_VERSION, "");
+    } catch (Exception e) {
+      // the cached privileges are still bounded by the TTL
+      LOGGER.debug("Unable to obtain the policy version from server: " + e.getMessage());
+      return;
+    } finally {
+      closeClient(client);
+    }
+    if (version == null || version.isEmpty()) {
+      // the server doesn't report its policy version
+      return;
+    }
+    if (!version.equals(policyVersion)) {
+      if (policyVersion != null) {
+        LOGGER.debug("Policy version changed from " + policyVersion + " to " + version
+            + ", invalidating the cached privileges");
+      }
+      policyVersion = version;
+      invalidateCache();
+    }
+  }
+
+  /**
+   * Drop all the cached privileges.
+   */
+  public void invalidateCache() {
+    if (privilegeCache != null) {
+      cacheGeneration.incrementAndGet();
+      privilegeCache.invalidateAll();
+      cacheInvalidations.incrementAndGet();
+      CACHE_INVALIDATIONS.inc();
+    }
+  }
+
+  /**
+   * Send the request to the Sentry service, unless the same request is already
+   * in flight, in which case wait for its result.
+   */
+  private ImmutableSet<String> listPrivilegesForProvider(PrivilegesRequest request)
+      throws Exception {
+    SettableFuture<ImmutableSet<String>> future = SettableFuture.create();
+    SettableFuture<ImmutableSet<String>> inFlight = inFlightRequests.putIfAbsent(request, future);
+    if (inFlight != null) {
+      coalescedRequests.incrementAndGet();
+      COALESCED_REQUESTS.inc();
+      try {
+        return inFlight.get();
+      } catch (ExecutionException e) {
+        Throwables.propagateIfInstanceOf(e.getCause(), Exception.class);
+        throw Throwables.propagate(e.getCause());
+      }
+    }
+
+    SentryPolicyServiceClient client = null;
+    try {
+      client = openClient();
+      ImmutableSet<String> privileges = ImmutableSet.copyOf(
+          client.listPrivilegesForProvider(request.groups, request.users,
+              request.roleSet, request.authorizableHierarchy));
+      future.set(privileges);
+      return privileges;
+    } catch (Exception e) {
+      future.setException(e);
+      throw e;
+    } finally {
+      inFlightRequests.remove(request, future);
+      closeClient(client);
+    }
+  }
+
+  private SentryPolicyServiceClient openClient() throws Exception {
+    return policyServiceClient != null ? policyServiceClient
+        : SentryServiceClientFactory.create(conf);
+  }
+
+  private void closeClient(SentryPolicyServiceClient client) {
+    if (client != null && client != policyServiceClient) {
+      client.close();
+    }
   }
 
   /**
@@ -115,9 +404,27 @@ public class SimpleDBProviderBackend implements ProviderBackend {
     throw new UnsupportedOperationException("Not yet implemented.");
   }
 
+  /**
+   * {@inheritDoc}
+   *
+   * The service returns the privileges on the objects under a database, or
+   * under a server if no database is given.
+   */
+  @Override
+  public boolean isPrefixQuerySupported() {
+    return true;
+  }
+
   @Override
   public void close() {
-    //Noop
+    if (!closed.compareAndSet(false, true)) {
+      return;
+    }
+    if (sharedPool != null) {
+      sharedPool.release();
+    } else if (policyServiceClient != null) {
+      policyServiceClient.close();
+    }
   }
 
   /**
@@ -127,5 +434,119 @@ public class SimpleDBProviderBackend implements ProviderBackend {
   public void validatePolicy(boolean strictValidation) throws SentryConfigurationException {
   //Noop
   }
-}
 
+  /**
+   * @return the number of calls which reused an open connection of the pool,
+   *         shared with the other backends using the pool
+   */
+  public long getPoolHitCount() {
+    return sharedPool == null ? 0 : getPoolHitCount(sharedPool.getPoolHandler());
+  }
+
+  private static long getPoolHitCount(PoolClientInvocationHandler poolHandler) {
+    return Math.max(poolHandler.getBorrowedCount() - poolHandler.getCreatedCount(), 0);
+  }
+
+  /**
+   * @return the number of calls which opened a new connection of the pool,
+   *         shared with the other backends using the pool
+   */
+  public long getPoolMissCount() {
+    return sharedPool == null ? 0 : sharedPool.getPoolHandler().getCreatedCount();
+  }
+
+  /**
+   * @return the mean time spent by the calls waiting for a connection of the pool
+   */
+  public long getPoolMeanWaitTimeMillis() {
+    return sharedPool == null ? 0 : sharedPool.getPoolHandler().getMeanBorrowWaitTimeMillis();
+  }
+
+  /**
+   * @return the maximum time spent by a call waiting for a connection of the pool
+   */
+  public long getPoolMaxWaitTimeMillis() {
+    return sharedPool == null ? 0 : sharedPool.getPoolHandler().getMaxBorrowWaitTimeMillis();
+  }
+
+  @VisibleForTesting
+  SharedClientPool getSharedPool() {
+    return sharedPool;
+  }
+
+  /**
+   * @return the number of requests which were served by an identical request in flight
+   */
+  public long getCoalescedRequestCount() {
+    return coalescedRequests.get();
+  }
+
+  /**
+   * @return the number of requests served by the privilege cache
+   */
+  public long getCacheHitCount() {
+    return cacheHits.get();
+  }
+
+  /**
+   * @return the number of requests which were not in the privilege cache
+   */
+  public long getCacheMissCount() {
+    return cacheMisses.get();
+  }
+
+  /**
+   * @return the number of times the privilege cache was dropped
+   */
+  public long getCacheInvalidationCount() {
+    return cacheInvalidations.get();
+  }
+
+  private static void registerGauge(String name, Gauge<Long> gauge) {
+    String metricName = MetricRegistry.name(SimpleDBProviderBackend.class, name);
+    // replace the gauge of a previous load of this class
+    METRICS.remove(metricName);
+    METRICS.register(metricName, gauge);
+  }
+
+  /**
+   * The arguments of listPrivilegesForProvider, identical requests are coalesced.
+   */
+  private static final class PrivilegesRequest {
+    private final Set<String> groups;
+    private final Set<String> users;
+    private final ActiveRoleSet roleSet;
+    private final Authorizable[] authorizableHierarchy;
+    // ActiveRoleSet and Authorizable don't implement equals
+    private final List<Object> key;
+
+    PrivilegesRequest(Set<String> groups, Set<String> users, ActiveRoleSet roleSet,
+        Authorizable... authorizableHierarchy) {
+      this.groups = groups;
+      this.users = users;
+      this.roleSet = roleSet;
+      this.authorizableHierarchy = authorizableHierarchy;
+      List<String> authorizables = new ArrayList<String>();
+      if (authorizableHierarchy != null) {
+        for (Authorizable authorizable : authorizableHierarchy) {
+          authorizables.add(KV_JOINER.join(authorizable.getTypeName(), authorizable.getName()));
+        }
+      }
+      this.key = Arrays.<Object>asList(
+          groups == null ? null : ImmutableSet.copyOf(groups),
+          users == null ? null : ImmutableSet.copyOf(users),
+          roleSet == null ? null : roleSet.isAll(),
+          roleSet == null ? null : roleSet.getRoles(), authorizables);
+    }
+
+    @Override
+    public int hashCode() {
+      return key.hashCode();
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+      return obj instanceof PrivilegesRequest && key.equals(((PrivilegesRequest) obj).key);
+    }
+  }
+}
@@ -182,9 +182,17 @@ public class SentryGenericProviderBackend extends CacheProvider implements Provi
   public ImmutableSet<String> getPrivileges(Set<String> groups, Set<String> users,
                                               ActiveRoleSet roleSet, Authorizable... authorizableHierarchy) {
     // SentryGenericProviderBackend doesn't support getPrivileges for user now.
+    if (enableCaching) {
+      return getPrivileges(groups, roleSet, authorizableHierarchy);
+    }
     return getPrivileges(groups, roleSet);
   }
 
+  @Override
+  public boolean isPrefixQuerySupported() {
+    return false;
+  }
+
   @Override
   public void close() {
   }
@@ -12,13 +12,19 @@
  */
 package org.apache.sentry.provider.db.generic;
 
+import com.google.common.base.Strings;
 import com.google.common.collect.Table;
+import com.google.common.annotations.VisibleForTesting;
 import com.google.common.collect.HashBasedTable;
 import org.apache.hadoop.conf.Configuration;
 import org.apache.hadoop.security.UserGroupInformation;
-import org.apache.sentry.provider.common.TableCache;
+import org.apache.sentry.core.common.exception.SentryUserException;
+import org.apache.sentry.provider.common.AuthorizableIndexedCache;
+import org.apache.sentry.provider.common.AuthorizableTrie;
 import org.apache.sentry.provider.db.generic.service.thrift.*;
 import org.apache.sentry.provider.db.generic.tools.command.TSentryPrivilegeConverter;
+import org.apache.sentry.provider.db.service.thrift.SentryPolicyServiceClient;
+import org.apache.sentry.service.thrift.SentryServiceClientFactory;
 import org.apache.sentry.service.thrift.ServiceConstants;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -29,46 +35,42 @@ import java.util.Timer;
 import java.util.TimerTask;
 import java.util.concurrent.TimeUnit;
 
-class UpdatableCache implements TableCache {
+class UpdatableCache implements AuthorizableIndexedCache {
   private static final Logger LOGGER = LoggerFactory.getLogger(UpdatableCache.class);
+  private static final Snapshot EMPTY_SNAPSHOT = new Snapshot(
+      HashBasedTable.<String, String, Set<String>>create(),
+      HashBasedTable.<String, String, AuthorizableTrie>create());
 
   private final String componentType;
   private final String serviceName;
   private final long cacheTtlNs;
+  private final long versionCheckIntervalMs;
   private final int allowedUpdateFailuresCount;
   private final Configuration conf;
   private final TSentryPrivilegeConverter tSentryPrivilegeConverter;
 
   private volatile long lastRefreshedNs = 0;
   private int consecutiveUpdateFailuresCount = 0;
-  /**
-   * Sparse table where group is the row key and role is the cell.
-   * The value is the set of privileges located in the cell. For example,
-   * the following table would be generated for a policy where Group 1
-   * has Role 1 and Role 2 while Group 2 has only Role 2.
-   * <table border="1">
-   *  <tbody>
-   *    <tr>
-   *      <td><!-- empty --></td>
-   *      <td>Role 1</td>
-   *      <td>Role 2</td>
-   *    </tr>
-   *    <tr>
-   *      <td>Group 1</td>
-   *      <td>Priv 1</td>
-   *      <td>Priv 2, Priv 3</td>
-   *    </tr>
-   *    <tr>
-   *      <td>Group 2</td>
-   *      <td><!-- empty --></td>
-   *      <td>Priv 2, Priv 3</td>
-   *    </tr>
-   *  </tbody>
-   * </table>
-   */
-  private volatile Table<String, String, Set<String>> table;
+  // the clients and the policy version are only used by the update thread
+  private SentryGenericServiceClient client;
+  private SentryPolicyServiceClient policyServiceClient;
+  private String policyVersion;
+  private volatile Snapshot snapshot = EMPTY_SNAPSHOT;
 
   UpdatableCache(Configuration conf, String componentType, String serviceName, TSentryPrivilegeConverter tSentryPrivilegeConverter) {
+    this(conf, componentType, serviceName, tSentryPrivilegeConverter, null, null);
+  }
+
+  /**
+   * @param client the generic client to use until it fails, or null to create one
+   * @param policyServiceClient the client reading the policy version, or null to create one
+   */
+  @VisibleForTesting
+  UpdatableCache(Configuration conf, String componentType, String serviceName,
+      TSentryPrivilegeConverter tSentryPrivilegeConverter, SentryGenericServiceClient client,
+      SentryPolicyServiceClient policyServiceClient) {
+    this.client = client;
+    this.policyServiceClient = policyServiceClient;
     this.conf = conf;
     this.componentType = componentType;
     this.serviceName = serviceName;
@@ -76,12 +78,18 @@ class UpdatableCache implements TableCache {
 
     // check caching configuration
     this.cacheTtlNs = TimeUnit.MILLISECONDS.toNanos(conf.getLong(ServiceConstants.ClientConfig.CACHE_TTL_MS, ServiceConstants.ClientConfig.CACHING_TTL_MS_DEFAULT));
+    this.versionCheckIntervalMs = conf.getLong(ServiceConstants.ClientConfig.CACHE_VERSION_CHECK_INTERVAL_MS, ServiceConstants.ClientConfig.CACHE_VERSION_CHECK_INTERVAL_MS_DEFAULT);
     this.allowedUpdateFailuresCount = conf.getInt(ServiceConstants.ClientConfig.CACHE_UPDATE_FAILURES_BEFORE_PRIV_REVOKE, ServiceConstants.ClientConfig.CACHE_UPDATE_FAILURES_BEFORE_PRIV_REVOKE_DEFAULT);
   }
 
   @Override
   public Table<String, String, Set<String>> getCache() {
-    return table;
+    return snapshot.table;
+  }
+
+  @Override
+  public Table<String, String, AuthorizableTrie> getIndex() {
+    return snapshot.index;
   }
 
   /**
@@ -95,11 +103,15 @@ class UpdatableCache implements TableCache {
     requestor = UserGroupInformation.getLoginUser().getShortUserName();
 
     final SentryGenericServiceClient client = getClient();
-    final Set<TSentryRole> tSentryRoles = client.listAllRoles(requestor, componentType);
+    // the roles and their privileges are listed at once, older servers only return
+    // the roles, whose privileges are then listed one role at a time
+    final Set<TSentryRole> tSentryRoles = client.listAllRolesWithPrivileges(requestor, componentType, serviceName);
 
     for (TSentryRole tSentryRole : tSentryRoles) {
       final String roleName = tSentryRole.getRoleName();
-      final Set<TSentryPrivilege> tSentryPrivileges = client.listPrivilegesByRoleName(requestor, roleName, componentType, serviceName);
+      final Set<TSentryPrivilege> tSentryPrivileges = tSentryRole.isSetPrivileges()
+          ? tSentryRole.getPrivileges()
+          : client.listPrivilegesByRoleName(requestor, roleName, componentType, serviceName);
       for (String group : tSentryRole.getGroups()) {
         Set<String> currentPrivileges = tempCache.get(group, roleName);
         if (currentPrivileges == null) {
@@ -115,57 +127,185 @@ class UpdatableCache implements TableCache {
   }
 
   /**
-   *  The Sentry-296(generate client for connection pooling) has already finished development and reviewed by now. When it
-   *  was committed to master, the getClient method was needed to refactor using the connection pool
-   *
-   *  TODO: Avoid creating new client each time.
+   * Index the privileges of every cell of the table. The index of a cell whose
+   * privileges didn't change since the previous snapshot is reused as is.
+   */
+  private static Table<String, String, AuthorizableTrie> buildIndex(
+      Table<String, String, Set<String>> table, Snapshot previous) {
+    Table<String, String, AuthorizableTrie> tempIndex = HashBasedTable.create();
+    int reused = 0;
+    for (Table.Cell<String, String, Set<String>> cell : table.cellSet()) {
+      AuthorizableTrie trie = previous.index.get(cell.getRowKey(), cell.getColumnKey());
+      if (trie != null && trie.getPrivileges().equals(cell.getValue())) {
+        reused++;
+      } else {
+        trie = new AuthorizableTrie(cell.getValue());
+      }
+      tempIndex.put(cell.getRowKey(), cell.getColumnKey(), trie);
+    }
+    LOGGER.debug("Indexed " + table.size() + " cells, " + reused + " of them were unchanged");
+    return tempIndex;
+  }
+
+  /**
+   * The client is kept open between the updates, and is created again after
+   * a failure.
    */
   private SentryGenericServiceClient getClient() throws Exception {
-    return SentryGenericServiceClientFactory.create(conf);
+    if (client == null) {
+      client = SentryGenericServiceClientFactory.create(conf);
+    }
+    return client;
+  }
+
+  private void closeClient() {
+    if (client != null) {
+      client.close();
+      client = null;
+    }
+  }
+
+  /**
+   * @return the version of the policy of the component on the server, or null
+   *         if it can't be obtained
+   */
+  private String getPolicyVersion() {
+    try {
+      if (policyServiceClient == null) {
+        policyServiceClient = SentryServiceClientFactory.create(conf);
+      }
+      return Strings.emptyToNull(policyServiceClient.getConfigValue(
+          ServiceConstants.ClientConfig.SENTRY_POLICY_VERSION_COMPONENT_PREFIX + componentType, ""));
+    } catch (SentryUserException e) {
+      // the server doesn't report its policy version, only the TTL applies
+      LOGGER.debug("Unable to obtain the policy version from server: " + e.getMessage());
+    } catch (Exception e) {
+      LOGGER.debug("Unable to obtain the policy version from server: " + e.getMessage());
+      if (policyServiceClient != null) {
+        policyServiceClient.close();
+        policyServiceClient = null;
+      }
+    }
+    return null;
   }
 
   void startUpdateThread(boolean blockUntilFirstReload) throws Exception {
     if (blockUntilFirstReload) {
+      String version = versionCheckIntervalMs > 0 ? getPolicyVersion() : null;
       reloadData();
+      policyVersion = version;
     }
 
     Timer timer = new Timer();
-    final long refreshIntervalMs = TimeUnit.NANOSECONDS.toMillis(cacheTtlNs);
+    long refreshIntervalMs = TimeUnit.NANOSECONDS.toMillis(cacheTtlNs);
+    if (versionCheckIntervalMs > 0) {
+      refreshIntervalMs = Math.min(refreshIntervalMs, versionCheckIntervalMs);
+    }
     timer.scheduleAtFixedRate(
         new TimerTask() {
           public void run() {
-            if (shouldRefresh()) {
-              try {
-                LOGGER.debug("Loading all data.");
-                reloadData();
-              } catch (Exception e) {
-                LOGGER.warn("Exception while updating data from DB", e);
-                revokeAllPrivilegesIfRequired();
-              }
-            }
+            update();
           }
         },
         blockUntilFirstReload ? refreshIntervalMs : 0,
         refreshIntervalMs);
   }
 
+  /**
+   * Reload the cache once it is older than its TTL, unless the policy version of
+   * the component on the server, which changes with its privileges and the roles,
+   * is the one of the cached data. The version is checked more often than the
+   * TTL expires, so that the cache is reloaded soon after the first change
+   * following a period without changes.
+   */
+  @VisibleForTesting
+  void update() {
+    if (snapshot != EMPTY_SNAPSHOT && !shouldRefresh()) {
+      return;
+    }
+    // the version is obtained first, so that a change made during the
+    // reload is seen by the next check
+    String version = versionCheckIntervalMs > 0 ? getPolicyVersion() : null;
+    if (version != null && version.equals(policyVersion)) {
+      LOGGER.debug("Policy version " + version + " didn't change, keeping the data.");
+      return;
+    }
+    try {
+      LOGGER.debug("Loading all data.");
+      reloadData();
+      policyVersion = version;
+    } catch (Exception e) {
+      LOGGER.warn("Exception while updating data from DB", e);
+      // the cached data may be revoked, the next check reloads it
+      policyVersion = null;
+      closeClient();
+      revokeAllPrivilegesIfRequired();
+    }
+  }
+
   private void revokeAllPrivilegesIfRequired() {
     if (++consecutiveUpdateFailuresCount > allowedUpdateFailuresCount) {
       // Clear cache to revoke all privileges.
       // Update table cache to point to an empty table to avoid thread-unsafe characteristics of HashBasedTable.
-      this.table = HashBasedTable.create();
+      this.snapshot = EMPTY_SNAPSHOT;
       LOGGER.error("Failed to update roles and privileges cache for " + consecutiveUpdateFailuresCount + " times." +
           " Revoking all privileges from cache, which will cause all authorization requests to fail.");
     }
   }
 
   private void reloadData() throws Exception {
-    this.table = loadFromRemote();
+    Table<String, String, Set<String>> tempCache = loadFromRemote();
+    this.snapshot = new Snapshot(tempCache, buildIndex(tempCache, snapshot));
     lastRefreshedNs = System.nanoTime();
+    consecutiveUpdateFailuresCount = 0;
   }
 
   private boolean shouldRefresh() {
     final long currentTimeNs = System.nanoTime();
     return lastRefreshedNs + cacheTtlNs < currentTimeNs;
   }
+
+  /**
+   * The cached privileges and their index, replaced as a whole on every update
+   * so that readers never see a partially updated cache.
+   */
+  private static final class Snapshot {
+    /**
+     * Sparse table where group is the row key and role is the cell.
+     * The value is the set of privileges located in the cell. For example,
+     * the following table would be generated for a policy where Group 1
+     * has Role 1 and Role 2 while Group 2 has only Role 2.
+     * <table border="1">
+     *  <tbody>
+     *    <tr>
+     *      <td><!-- empty --></td>
+     *      <td>Role 1</td>
+     *      <td>Role 2</td>
+     *    </tr>
+     *    <tr>
+     *      <td>Group 1</td>
+     *      <td>Priv 1</td>
+     *      <td>Priv 2, Priv 3</td>
+     *    </tr>
+     *    <tr>
+     *      <td>Group 2</td>
+     *      <td><!-- empty --></td>
+     *      <td>Priv 2, Priv 3</td>
+     *    </tr>
+     *  </tbody>
+     * </table>
+     */
+    private final Table<String, String, Set<String>> table;
+    /**
+     * The privileges of every cell of {@link #table} indexed by authorizable, only
+     * the privileges of a cell which could imply a request are checked.
+     */
+    private final Table<String, String, AuthorizableTrie> index;
+
+    Snapshot(Table<String, String, Set<String>> table,
+        Table<String, String, AuthorizableTrie> index) {
+      this.table = table;
+      this.index = index;
+    }
+  }
 }
@@ -0,0 +1,266 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.sentry.provider.db;
+
+import java.lang.reflect.Method;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.sentry.core.common.ActiveRoleSet;
+import org.apache.sentry.core.model.db.Server;
+import org.apache.sentry.service.thrift.SentryClientInvocationHandler;
+import org.apache.sentry.service.thrift.SentryServiceClientFactory;
+import org.apache.sentry.service.thrift.ServiceConstants.ClientConfig;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Sets;
+
+public class TestSimpleDBProviderBackend {
+
+  private static final Set<String> GROUPS = Sets.newHashSet("analyst");
+  private static final Server SERVER = new Server("server1");
+  private static final Set<String> PRIVILEGES =
+      ImmutableSet.of("server=server1->db=db1->action=select");
+
+  private ExecutorService executor;
+
+  @Before
+  public void setup() {
+    executor = Executors.newCachedThreadPool();
+  }
+
+  @After
+  public void teardown() {
+    executor.shutdownNow();
+  }
+
+  @Test
+  public void testPoolSharedByBackends() throws Exception {
+    Configuration conf = new Configuration(false);
+    conf.setBoolean(ClientConfig.SENTRY_POOL_ENABLED, true);
+    conf.set(ClientConfig.SERVER_RPC_ADDRESS, "sentry1.example.com");
+    int pools = SharedClientPool.getPools().size();
+
+    SimpleDBProviderBackend backend1 = new SimpleDBProviderBackend(conf);
+    // a new configuration with the same client settings
+    SimpleDBProviderBackend backend2 = new SimpleDBProviderBackend(new Configuration(conf));
+    Assert.assertSame(backend1.getSharedPool(), backend2.getSharedPool());
+    Assert.assertEquals(2, SharedClientPool.getReferenceCount(backend1.getSharedPool()));
+    Assert.assertEquals(pools + 1, SharedClientPool.getPools().size());
+
+    Configuration otherConf = new Configuration(conf);
+    otherConf.set(ClientConfig.SERVER_RPC_ADDRESS, "sentry2.example.com");
+    SimpleDBProviderBackend backend3 = new SimpleDBProviderBackend(otherConf);
+    Assert.assertNotSame(backend1.getSharedPool(), backend3.getSharedPool());
+    Assert.assertEquals(pools + 2, SharedClientPool.getPools().size());
+
+    backend1.close();
+    // closing twice doesn't release the pool of the other backend
+    backend1.close();
+    Assert.assertEquals(1, SharedClientPool.getReferenceCount(backend2.getSharedPool()));
+    Assert.assertTrue(SharedClientPool.getPools().contains(backend2.getSharedPool()));
+    backend2.close();
+    Assert.assertFalse(SharedClientPool.getPools().contains(backend2.getSharedPool()));
+    backend3.close();
+    Assert.assertEquals(pools, SharedClientPool.getPools().size());
+  }
+
+  @Test
+  public void testPoolDisabled() throws Exception {
+    Configuration conf = new Configuration(false);
+    conf.setBoolean(ClientConfig.SENTRY_POOL_ENABLED, false);
+    int pools = SharedClientPool.getPools().size();
+
+    SimpleDBProviderBackend backend = new SimpleDBProviderBackend(conf);
+    Assert.assertNull(backend.getSharedPool());
+    Assert.assertEquals(pools, SharedClientPool.getPools().size());
+    Assert.assertEquals(0, backend.getPoolHitCount());
+    backend.close();
+  }
+
+  @Test
+  public void testIdenticalRequestsCoalesced() throws Exception {
+    FakeClientHandler handler = new FakeClientHandler();
+    handler.blockListPrivileges();
+    final SimpleDBProviderBackend backend = new SimpleDBProviderBackend(
+        new Configuration(false), SentryServiceClientFactory.create(handler));
+
+    Callable<ImmutableSet<String>> getPrivileges = new Callable<ImmutableSet<String>>() {
+      @Override
+      public ImmutableSet<String> call() throws Exception {
+        return backend.getPrivileges(GROUPS, ActiveRoleSet.ALL, SERVER);
+      }
+    };
+    Future<ImmutableSet<String>> first = executor.submit(getPrivileges);
+    Assert.assertTrue(handler.listPrivilegesEntered.await(10, TimeUnit.SECONDS));
+    Future<ImmutableSet<String>> second = executor.submit(getPrivileges);
+    // wait for the second request to join the first one
+    long deadline = System.currentTimeMillis() + 10000;
+    while (backend.getCoalescedRequestCount() == 0 && System.currentTimeMillis() < deadline) {
+      Thread.sleep(10);
+    }
+    handler.listPrivilegesReleased.countDown();
+
+    Assert.assertEquals(PRIVILEGES, first.get(10, TimeUnit.SECONDS));
+    Assert.assertEquals(PRIVILEGES, second.get(10, TimeUnit.SECONDS));
+    Assert.assertEquals(1, backend.getCoalescedRequestCount());
+    Assert.assertEquals(1, handler.listPrivilegesCalls.get());
+
+    // the requests are not coalesced once answered
+    Assert.assertEquals(PRIVILEGES, backend.getPrivileges(GROUPS, ActiveRoleSet.ALL, SERVER));
+    Assert.assertEquals(2, handler.listPrivilegesCalls.get());
+    backend.close();
+    Assert.assertTrue(handler.closed);
+  }
+
+  @Test
+  public void testCacheHits() throws Exception {
+    FakeClientHandler handler = new FakeClientHandler();
+    handler.policyVersion = "uuid:1";
+    SimpleDBProviderBackend backend = new SimpleDBProviderBackend(cacheConf(),
+        SentryServiceClientFactory.create(handler));
+
+    Assert.assertEquals(PRIVILEGES, backend.getPrivileges(GROUPS, ActiveRoleSet.ALL, SERVER));
+    Assert.assertEquals(PRIVILEGES, backend.getPrivileges(GROUPS, ActiveRoleSet.ALL, SERVER));
+    Assert.assertEquals(1, handler.listPrivilegesCalls.get());
+    Assert.assertEquals(1, backend.getCacheHitCount());
+    Assert.assertEquals(1, backend.getCacheMissCount());
+
+    // another request isn't answered from the cache
+    backend.getPrivileges(Sets.newHashSet("admin"), ActiveRoleSet.ALL, SERVER);
+    Assert.assertEquals(2, handler.listPrivilegesCalls.get());
+    backend.close();
+  }
+
+  @Test
+  public void testCacheInvalidatedByPolicyVersion() throws Exception {
+    FakeClientHandler handler = new FakeClientHandler();
+    handler.policyVersion = "uuid:1";
+    SimpleDBProviderBackend backend = new SimpleDBProviderBackend(cacheConf(),
+        SentryServiceClientFactory.create(handler));
+    Assert.assertEquals(PRIVILEGES, backend.getPrivileges(GROUPS, ActiveRoleSet.ALL, SERVER));
+    long invalidations = backend.getCacheInvalidationCount();
+
+    // a revoke on the server
+    handler.privileges = ImmutableSet.of();
+    handler.policyVersion = "uuid:2";
+    Assert.assertEquals(ImmutableSet.of(),
+        backend.getPrivileges(GROUPS, ActiveRoleSet.ALL, SERVER));
+    Assert.assertEquals(2, handler.listPrivilegesCalls.get());
+    Assert.assertEquals(invalidations + 1, backend.getCacheInvalidationCount());
+
+    // an unreadable version keeps the cache
+    handler.privileges = PRIVILEGES;
+    handler.policyVersion = "";
+    Assert.assertEquals(ImmutableSet.of(),
+        backend.getPrivileges(GROUPS, ActiveRoleSet.ALL, SERVER));
+    Assert.assertEquals(2, handler.listPrivilegesCalls.get());
+    backend.close();
+  }
+
+  @Test
+  public void testNoCachingAcrossInvalidation() throws Exception {
+    FakeClientHandler handler = new FakeClientHandler();
+    handler.policyVersion = "uuid:1";
+    final SimpleDBProviderBackend backend = new SimpleDBProviderBackend(cacheConf(),
+        SentryServiceClientFactory.create(handler));
+    handler.blockListPrivileges();
+    Future<ImmutableSet<String>> stale = executor.submit(new Callable<ImmutableSet<String>>() {
+      @Override
+      public ImmutableSet<String> call() throws Exception {
+        return backend.getPrivileges(GROUPS, ActiveRoleSet.ALL, SERVER);
+      }
+    });
+    Assert.assertTrue(handler.listPrivilegesEntered.await(10, TimeUnit.SECONDS));
+    // the policy changes while the request is in flight
+    backend.invalidateCache();
+    handler.listPrivilegesReleased.countDown();
+    Assert.assertEquals(PRIVILEGES, stale.get(10, TimeUnit.SECONDS));
+
+    // the response obtained before the invalidation wasn't cached
+    handler.listPrivilegesReleased = null;
+    handler.privileges = ImmutableSet.of();
+    Assert.assertEquals(ImmutableSet.of(),
+        backend.getPrivileges(GROUPS, ActiveRoleSet.ALL, SERVER));
+    Assert.assertEquals(2, handler.listPrivilegesCalls.get());
+    backend.close();
+  }
+
+  private static Configuration cacheConf() {
+    Configuration conf = new Configuration(false);
+    conf.setBoolean(ClientConfig.DB_CACHE_ENABLED, true);
+    // poll the policy version on every request
+    conf.setLong(ClientConfig.DB_CACHE_VERSION_CHECK_INTERVAL_MS, 0);
+    return conf;
+  }
+
+  /**
+   * Answers the calls of the client in place of the Sentry service.
+   */
+  static class FakeClientHandler extends SentryClientInvocationHandler {
+    final AtomicInteger listPrivilegesCalls = new AtomicInteger();
+    final AtomicInteger getConfigValueCalls = new AtomicInteger();
+    volatile Set<String> privileges = PRIVILEGES;
+    volatile String policyVersion = "";
+    volatile CountDownLatch listPrivilegesEntered;
+    volatile CountDownLatch listPrivilegesReleased;
+    volatile boolean closed;
+
+    /**
+     * Make the following listPrivilegesForProvider calls wait for
+     * {@link #listPrivilegesReleased}.
+     */
+    void blockListPrivileges() {
+      listPrivilegesEntered = new CountDownLatch(1);
+      listPrivilegesReleased = new CountDownLatch(1);
+    }
+
+    @Override
+    public Object invokeImpl(Object proxy, Method method, Object[] args) throws Exception {
+      if ("listPrivilegesForProvider".equals(method.getName())) {
+        listPrivilegesCalls.incrementAndGet();
+        Set<String> result = privileges;
+        if (listPrivilegesReleased != null) {
+          listPrivilegesEntered.countDown();
+          listPrivilegesReleased.await();
+        }
+        return result;
+      } else if ("getConfigValue".equals(method.getName())) {
+        getConfigValueCalls.incrementAndGet();
+        return policyVersion;
+      }
+      throw new UnsupportedOperationException(method.getName());
+    }
+
+    @Override
+    public void close() {
+      closed = true;
+    }
+  }
+}
@@ -0,0 +1,181 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.sentry.provider.db.generic;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.sentry.provider.db.generic.service.thrift.SentryGenericServiceClient;
+import org.apache.sentry.provider.db.generic.service.thrift.TAuthorizable;
+import org.apache.sentry.provider.db.generic.service.thrift.TSentryPrivilege;
+import org.apache.sentry.provider.db.generic.service.thrift.TSentryRole;
+import org.apache.sentry.provider.db.generic.tools.command.TSentryPrivilegeConverter;
+import org.apache.sentry.service.thrift.SentryClientInvocationHandler;
+import org.apache.sentry.service.thrift.SentryServiceClientFactory;
+import org.apache.sentry.service.thrift.ServiceConstants.ClientConfig;
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.google.common.collect.Sets;
+
+public class TestUpdatableCache {
+
+  private static final String SOLR = "SOLR";
+  private static final String SERVICE = "service1";
+
+  private final FakeGenericClient genericClient = new FakeGenericClient();
+  private final FakePolicyClient policyClient = new FakePolicyClient();
+
+  /**
+   * Once its TTL expired, the cache is only reloaded when a change of the
+   * privileges of the component or of the roles bumped its policy version.
+   */
+  @Test
+  public void testReloadOnPolicyVersionChange() throws Exception {
+    UpdatableCache cache = newCache(0);
+    genericClient.roles = Sets.newHashSet(role("r1", "g1", "query"));
+    policyClient.policyVersion = "1";
+    cache.update();
+    Assert.assertEquals(Sets.newHashSet("query"), cache.getCache().get("g1", "r1"));
+    Assert.assertEquals(1, genericClient.loads.get());
+    Assert.assertEquals(ClientConfig.SENTRY_POLICY_VERSION_COMPONENT_PREFIX + SOLR,
+        policyClient.propertyName);
+
+    // the TTL expired but the version didn't change
+    genericClient.roles = Sets.newHashSet(role("r1", "g1", "query", "update"));
+    cache.update();
+    Assert.assertEquals(Sets.newHashSet("query"), cache.getCache().get("g1", "r1"));
+    Assert.assertEquals(1, genericClient.loads.get());
+
+    // the grant bumped the version
+    policyClient.policyVersion = "2";
+    cache.update();
+    Assert.assertEquals(Sets.newHashSet("query", "update"), cache.getCache().get("g1", "r1"));
+    Assert.assertEquals(2, genericClient.loads.get());
+  }
+
+  @Test
+  public void testNoReloadBeforeTtl() throws Exception {
+    UpdatableCache cache = newCache(TimeUnit.HOURS.toMillis(1));
+    genericClient.roles = Sets.newHashSet(role("r1", "g1", "query"));
+    policyClient.policyVersion = "1";
+    cache.update();
+    Assert.assertEquals(1, genericClient.loads.get());
+
+    // a changed version doesn't reload the cache faster than its TTL
+    policyClient.policyVersion = "2";
+    genericClient.roles = Sets.newHashSet(role("r1", "g1", "query", "update"));
+    cache.update();
+    Assert.assertEquals(Sets.newHashSet("query"), cache.getCache().get("g1", "r1"));
+    Assert.assertEquals(1, genericClient.loads.get());
+  }
+
+  @Test
+  public void testTtlWithoutPolicyVersion() throws Exception {
+    UpdatableCache cache = newCache(0);
+    genericClient.roles = Sets.newHashSet(role("r1", "g1", "query"));
+    cache.update();
+    Assert.assertEquals(1, genericClient.loads.get());
+
+    // without a version, eg. from an older server, every expiry of the TTL reloads
+    genericClient.roles = Sets.newHashSet(role("r1", "g1", "query", "update"));
+    cache.update();
+    Assert.assertEquals(Sets.newHashSet("query", "update"), cache.getCache().get("g1", "r1"));
+    Assert.assertEquals(2, genericClient.loads.get());
+  }
+
+  private UpdatableCache newCache(long ttlMs) {
+    Configuration conf = new Configuration(false);
+    conf.setLong(ClientConfig.CACHE_TTL_MS, ttlMs);
+    return new UpdatableCache(conf, SOLR, SERVICE, new ActionConverter(),
+        (SentryGenericServiceClient) Proxy.newProxyInstance(getClass().getClassLoader(),
+            new Class<?>[] {SentryGenericServiceClient.class}, genericClient),
+        SentryServiceClientFactory.create(policyClient));
+  }
+
+  private static TSentryRole role(String roleName, String group, String... actions) {
+    TSentryRole role = new TSentryRole(roleName, Sets.newHashSet(group));
+    Set<TSentryPrivilege> privileges = Sets.newHashSet();
+    for (String action : actions) {
+      privileges.add(new TSentryPrivilege(SOLR, SERVICE, new ArrayList<TAuthorizable>(), action));
+    }
+    role.setPrivileges(privileges);
+    return role;
+  }
+
+  /**
+   * Converts the privileges to their action.
+   */
+  private static class ActionConverter implements TSentryPrivilegeConverter {
+    @Override
+    public TSentryPrivilege fromString(String privilegeStr) {
+      throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public String toString(TSentryPrivilege tSentryPrivilege) {
+      return tSentryPrivilege.getAction();
+    }
+  }
+
+  /**
+   * Answers listAllRolesWithPrivileges in place of the Sentry service.
+   */
+  private static class FakeGenericClient implements InvocationHandler {
+    private final AtomicInteger loads = new AtomicInteger();
+    private volatile Set<TSentryRole> roles = Sets.newHashSet();
+
+    @Override
+    public Object invoke(Object proxy, Method method, Object[] args) {
+      if ("listAllRolesWithPrivileges".equals(method.getName())) {
+        loads.incrementAndGet();
+        return roles;
+      } else if ("close".equals(method.getName())) {
+        return null;
+      }
+      throw new UnsupportedOperationException(method.getName());
+    }
+  }
+
+  /**
+   * Answers the policy version in place of the Sentry service.
+   */
+  private static class FakePolicyClient extends SentryClientInvocationHandler {
+    private volatile String policyVersion = "";
+    private volatile String propertyName;
+
+    @Override
+    public Object invokeImpl(Object proxy, Method method, Object[] args) {
+      if ("getConfigValue".equals(method.getName())) {
+        propertyName = (String) args[0];
+        return policyVersion;
+      }
+      throw new UnsupportedOperationException(method.getName());
+    }
+
+    @Override
+    public void close() {
+    }
+  }
+}
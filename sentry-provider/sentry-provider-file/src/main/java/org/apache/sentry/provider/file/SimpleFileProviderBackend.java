@@ -125,6 +125,12 @@ public class SimpleFileProviderBackend extends CacheProvider implements Provider
     return getPrivileges(groups, roleSet, authorizableHierarchy);
   }
 
+  @Override
+  public boolean isPrefixQuerySupported() {
+    // only the privileges which could imply the hierarchy are returned
+    return false;
+  }
+
   @Override
   public void close() {
     // SENTRY-847 will use HiveAuthBinding again, so groupRolePrivilegeTable shouldn't clear itself
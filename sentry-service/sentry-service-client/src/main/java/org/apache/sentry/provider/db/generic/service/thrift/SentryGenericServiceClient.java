@@ -140,6 +140,19 @@ public interface SentryGenericServiceClient {
   Set<TSentryRole> listAllRoles(String requestorUserName, String component)
       throws SentryUserException;
 
+  /**
+   * Gets all the roles along with their privileges on a service in one request.
+   * Servers which don't support it return the roles without their privileges,
+   * see {@link TSentryRole#isSetPrivileges()}.
+   * @param requestorUserName : user on whose behalf the request is issued
+   * @param component: The request is issued to which component
+   * @param serviceName: The privileges belong to which service
+   * @return Set of thrift sentry role objects
+   * @throws SentryUserException
+   */
+  Set<TSentryRole> listAllRolesWithPrivileges(String requestorUserName, String component,
+      String serviceName) throws SentryUserException;
+
   /**
    * Gets sentry privileges for a given roleName and Authorizable Hierarchy using the Sentry service
    * @param requestorUserName: user on whose behalf the request is issued
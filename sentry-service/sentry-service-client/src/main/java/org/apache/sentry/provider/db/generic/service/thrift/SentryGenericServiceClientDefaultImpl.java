@@ -450,6 +450,23 @@ public class SentryGenericServiceClientDefaultImpl implements SentryGenericServi
     return listRolesByGroupName(requestorUserName, null, component);
   }
 
+  public synchronized Set<TSentryRole> listAllRolesWithPrivileges(String requestorUserName,
+      String component, String serviceName) throws SentryUserException {
+    TListSentryRolesRequest request = new TListSentryRolesRequest();
+    request.setProtocol_version(sentry_common_serviceConstants.TSENTRY_SERVICE_V2);
+    request.setRequestorUserName(requestorUserName);
+    request.setComponent(component);
+    request.setServiceName(serviceName);
+    TListSentryRolesResponse response;
+    try {
+      response = client.list_sentry_roles_by_group(request);
+      Status.throwIfNotOk(response.getStatus());
+      return response.getRoles();
+    } catch (TException e) {
+      throw new SentryUserException(THRIFT_EXCEPTION_MESSAGE, e);
+    }
+  }
+
   /**
    * Gets sentry privileges for a given roleName and Authorizable Hirerchys using the Sentry service
    * @param requestorUserName: user on whose behalf the request is issued
@@ -141,6 +141,35 @@ public class PoolClientInvocationHandler extends SentryClientInvocationHandler {
     }
   }
 
+  /**
+   * @return the number of clients borrowed from the pool since its creation
+   */
+  public long getBorrowedCount() {
+    return pool.getBorrowedCount();
+  }
+
+  /**
+   * @return the number of clients created by the pool since its creation, a borrow
+   *         which doesn't create a client reuses an open connection
+   */
+  public long getCreatedCount() {
+    return pool.getCreatedCount();
+  }
+
+  /**
+   * @return the mean time spent waiting for a client of the pool
+   */
+  public long getMeanBorrowWaitTimeMillis() {
+    return pool.getMeanBorrowWaitTimeMillis();
+  }
+
+  /**
+   * @return the maximum time spent waiting for a client of the pool
+   */
+  public long getMaxBorrowWaitTimeMillis() {
+    return pool.getMaxBorrowWaitTimeMillis();
+  }
+
   private void readConfiguration() {
     poolConfig = new GenericObjectPoolConfig();
     // config the pool size for commons-pool
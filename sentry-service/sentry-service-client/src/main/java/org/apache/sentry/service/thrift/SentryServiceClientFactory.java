@@ -35,18 +35,22 @@ public final class SentryServiceClientFactory {
     boolean haEnabled = conf.getBoolean(ClientConfig.SERVER_HA_ENABLED, false);
     boolean pooled = conf.getBoolean(ClientConfig.SENTRY_POOL_ENABLED, false);
     if (pooled) {
-      return (SentryPolicyServiceClient) Proxy
-          .newProxyInstance(SentryPolicyServiceClientDefaultImpl.class.getClassLoader(),
-              SentryPolicyServiceClientDefaultImpl.class.getInterfaces(),
-              new PoolClientInvocationHandler(conf));
+      return create(new PoolClientInvocationHandler(conf));
     } else if (haEnabled) {
-      return (SentryPolicyServiceClient) Proxy
-          .newProxyInstance(SentryPolicyServiceClientDefaultImpl.class.getClassLoader(),
-              SentryPolicyServiceClientDefaultImpl.class.getInterfaces(),
-              new HAClientInvocationHandler(conf));
+      return create(new HAClientInvocationHandler(conf));
     } else {
       return new SentryPolicyServiceClientDefaultImpl(conf);
     }
   }
 
+  /**
+   * Create a client which delegates all its calls to the given handler, eg. to
+   * share a {@link PoolClientInvocationHandler} whose pool statistics are needed.
+   */
+  public static SentryPolicyServiceClient create(SentryClientInvocationHandler handler) {
+    return (SentryPolicyServiceClient) Proxy
+        .newProxyInstance(SentryPolicyServiceClientDefaultImpl.class.getClassLoader(),
+            SentryPolicyServiceClientDefaultImpl.class.getInterfaces(), handler);
+  }
+
 }
\ No newline at end of file
@@ -42,6 +42,7 @@ public class TListSentryRolesRequest implements org.apache.thrift.TBase<TListSen
   private static final org.apache.thrift.protocol.TField REQUESTOR_USER_NAME_FIELD_DESC = new org.apache.thrift.protocol.TField("requestorUserName", org.apache.thrift.protocol.TType.STRING, (short)2);
   private static final org.apache.thrift.protocol.TField GROUP_NAME_FIELD_DESC = new org.apache.thrift.protocol.TField("groupName", org.apache.thrift.protocol.TType.STRING, (short)3);
   private static final org.apache.thrift.protocol.TField COMPONENT_FIELD_DESC = new org.apache.thrift.protocol.TField("component", org.apache.thrift.protocol.TType.STRING, (short)4);
+  private static final org.apache.thrift.protocol.TField SERVICE_NAME_FIELD_DESC = new org.apache.thrift.protocol.TField("serviceName", org.apache.thrift.protocol.TType.STRING, (short)5);
 
   private static final Map<Class<? extends IScheme>, SchemeFactory> schemes = new HashMap<Class<? extends IScheme>, SchemeFactory>();
   static {
@@ -53,13 +54,15 @@ public class TListSentryRolesRequest implements org.apache.thrift.TBase<TListSen
   private String requestorUserName; // required
   private String groupName; // optional
   private String component; // required
+  private String serviceName; // optional
 
   /** The set of fields this struct contains, along with convenience methods for finding and manipulating them. */
   public enum _Fields implements org.apache.thrift.TFieldIdEnum {
     PROTOCOL_VERSION((short)1, "protocol_version"),
     REQUESTOR_USER_NAME((short)2, "requestorUserName"),
     GROUP_NAME((short)3, "groupName"),
-    COMPONENT((short)4, "component");
+    COMPONENT((short)4, "component"),
+    SERVICE_NAME((short)5, "serviceName");
 
     private static final Map<String, _Fields> byName = new HashMap<String, _Fields>();
 
@@ -82,6 +85,8 @@ public class TListSentryRolesRequest implements org.apache.thrift.TBase<TListSen
           return GROUP_NAME;
         case 4: // COMPONENT
           return COMPONENT;
+        case 5: // SERVICE_NAME
+          return SERVICE_NAME;
         default:
           return null;
       }
@@ -124,7 +129,7 @@ public class TListSentryRolesRequest implements org.apache.thrift.TBase<TListSen
   // isset id assignments
   private static final int __PROTOCOL_VERSION_ISSET_ID = 0;
   private byte __isset_bitfield = 0;
-  private static final _Fields optionals[] = {_Fields.GROUP_NAME};
+  private static final _Fields optionals[] = {_Fields.GROUP_NAME,_Fields.SERVICE_NAME};
   public static final Map<_Fields, org.apache.thrift.meta_data.FieldMetaData> metaDataMap;
   static {
     Map<_Fields, org.apache.thrift.meta_data.FieldMetaData> tmpMap = new EnumMap<_Fields, org.apache.thrift.meta_data.FieldMetaData>(_Fields.class);
@@ -136,6 +141,8 @@ public class TListSentryRolesRequest implements org.apache.thrift.TBase<TListSen
         new org.apache.thrift.meta_data.FieldValueMetaData(org.apache.thrift.protocol.TType.STRING)));
     tmpMap.put(_Fields.COMPONENT, new org.apache.thrift.meta_data.FieldMetaData("component", org.apache.thrift.TFieldRequirementType.REQUIRED, 
         new org.apache.thrift.meta_data.FieldValueMetaData(org.apache.thrift.protocol.TType.STRING)));
+    tmpMap.put(_Fields.SERVICE_NAME, new org.apache.thrift.meta_data.FieldMetaData("serviceName", org.apache.thrift.TFieldRequirementType.OPTIONAL, 
+        new org.apache.thrift.meta_data.FieldValueMetaData(org.apache.thrift.protocol.TType.STRING)));
     metaDataMap = Collections.unmodifiableMap(tmpMap);
     org.apache.thrift.meta_data.FieldMetaData.addStructMetaDataMap(TListSentryRolesRequest.class, metaDataMap);
   }
@@ -172,6 +179,9 @@ public class TListSentryRolesRequest implements org.apache.thrift.TBase<TListSen
     if (other.isSetComponent()) {
       this.component = other.component;
     }
+    if (other.isSetServiceName()) {
+      this.serviceName = other.serviceName;
+    }
   }
 
   public TListSentryRolesRequest deepCopy() {
@@ -185,6 +195,7 @@ public class TListSentryRolesRequest implements org.apache.thrift.TBase<TListSen
     this.requestorUserName = null;
     this.groupName = null;
     this.component = null;
+    this.serviceName = null;
   }
 
   public int getProtocol_version() {
@@ -278,6 +289,29 @@ public class TListSentryRolesRequest implements org.apache.thrift.TBase<TListSen
     }
   }
 
+  public String getServiceName() {
+    return this.serviceName;
+  }
+
+  public void setServiceName(String serviceName) {
+    this.serviceName = serviceName;
+  }
+
+  public void unsetServiceName() {
+    this.serviceName = null;
+  }
+
+  /** Returns true if field serviceName is set (has been assigned a value) and false otherwise */
+  public boolean isSetServiceName() {
+    return this.serviceName != null;
+  }
+
+  public void setServiceNameIsSet(boolean value) {
+    if (!value) {
+      this.serviceName = null;
+    }
+  }
+
   public void setFieldValue(_Fields field, Object value) {
     switch (field) {
     case PROTOCOL_VERSION:
@@ -312,6 +346,14 @@ public class TListSentryRolesRequest implements org.apache.thrift.TBase<TListSen
       }
       break;
 
+    case SERVICE_NAME:
+      if (value == null) {
+        unsetServiceName();
+      } else {
+        setServiceName((String)value);
+      }
+      break;
+
     }
   }
 
@@ -329,6 +371,9 @@ public class TListSentryRolesRequest implements org.apache.thrift.TBase<TListSen
     case COMPONENT:
       return getComponent();
 
+    case SERVICE_NAME:
+      return getServiceName();
+
     }
     throw new IllegalStateException();
   }
@@ -348,6 +393,8 @@ public class TListSentryRolesRequest implements org.apache.thrift.TBase<TListSen
       return isSetGroupName();
     case COMPONENT:
       return isSetComponent();
+    case SERVICE_NAME:
+      return isSetServiceName();
     }
     throw new IllegalStateException();
   }
@@ -401,6 +448,15 @@ public class TListSentryRolesRequest implements org.apache.thrift.TBase<TListSen
         return false;
     }
 
+    boolean this_present_serviceName = true && this.isSetServiceName();
+    boolean that_present_serviceName = true && that.isSetServiceName();
+    if (this_present_serviceName || that_present_serviceName) {
+      if (!(this_present_serviceName && that_present_serviceName))
+        return false;
+      if (!this.serviceName.equals(that.serviceName))
+        return false;
+    }
+
     return true;
   }
 
@@ -428,6 +484,11 @@ public class TListSentryRolesRequest implements org.apache.thrift.TBase<TListSen
     if (present_component)
       list.add(component);
 
+    boolean present_serviceName = true && (isSetServiceName());
+    list.add(present_serviceName);
+    if (present_serviceName)
+      list.add(serviceName);
+
     return list.hashCode();
   }
 
@@ -479,6 +540,16 @@ public class TListSentryRolesRequest implements org.apache.thrift.TBase<TListSen
         return lastComparison;
       }
     }
+    lastComparison = Boolean.valueOf(isSetServiceName()).compareTo(other.isSetServiceName());
+    if (lastComparison != 0) {
+      return lastComparison;
+    }
+    if (isSetServiceName()) {
+      lastComparison = org.apache.thrift.TBaseHelper.compareTo(this.serviceName, other.serviceName);
+      if (lastComparison != 0) {
+        return lastComparison;
+      }
+    }
     return 0;
   }
 
@@ -528,6 +599,16 @@ public class TListSentryRolesRequest implements org.apache.thrift.TBase<TListSen
       sb.append(this.component);
     }
     first = false;
+    if (isSetServiceName()) {
+      if (!first) sb.append(", ");
+      sb.append("serviceName:");
+      if (this.serviceName == null) {
+        sb.append("null");
+      } else {
+        sb.append(this.serviceName);
+      }
+      first = false;
+    }
     sb.append(")");
     return sb.toString();
   }
@@ -617,6 +698,14 @@ public class TListSentryRolesRequest implements org.apache.thrift.TBase<TListSen
               org.apache.thrift.protocol.TProtocolUtil.skip(iprot, schemeField.type);
             }
             break;
+          case 5: // SERVICE_NAME
+            if (schemeField.type == org.apache.thrift.protocol.TType.STRING) {
+              struct.serviceName = iprot.readString();
+              struct.setServiceNameIsSet(true);
+            } else { 
+              org.apache.thrift.protocol.TProtocolUtil.skip(iprot, schemeField.type);
+            }
+            break;
           default:
             org.apache.thrift.protocol.TProtocolUtil.skip(iprot, schemeField.type);
         }
@@ -650,6 +739,13 @@ public class TListSentryRolesRequest implements org.apache.thrift.TBase<TListSen
         oprot.writeString(struct.component);
         oprot.writeFieldEnd();
       }
+      if (struct.serviceName != null) {
+        if (struct.isSetServiceName()) {
+          oprot.writeFieldBegin(SERVICE_NAME_FIELD_DESC);
+          oprot.writeString(struct.serviceName);
+          oprot.writeFieldEnd();
+        }
+      }
       oprot.writeFieldStop();
       oprot.writeStructEnd();
     }
@@ -674,10 +770,16 @@ public class TListSentryRolesRequest implements org.apache.thrift.TBase<TListSen
       if (struct.isSetGroupName()) {
         optionals.set(0);
       }
-      oprot.writeBitSet(optionals, 1);
+      if (struct.isSetServiceName()) {
+        optionals.set(1);
+      }
+      oprot.writeBitSet(optionals, 2);
       if (struct.isSetGroupName()) {
         oprot.writeString(struct.groupName);
       }
+      if (struct.isSetServiceName()) {
+        oprot.writeString(struct.serviceName);
+      }
     }
 
     @Override
@@ -689,11 +791,15 @@ public class TListSentryRolesRequest implements org.apache.thrift.TBase<TListSen
       struct.setRequestorUserNameIsSet(true);
       struct.component = iprot.readString();
       struct.setComponentIsSet(true);
-      BitSet incoming = iprot.readBitSet(1);
+      BitSet incoming = iprot.readBitSet(2);
       if (incoming.get(0)) {
         struct.groupName = iprot.readString();
         struct.setGroupNameIsSet(true);
       }
+      if (incoming.get(1)) {
+        struct.serviceName = iprot.readString();
+        struct.setServiceNameIsSet(true);
+      }
     }
   }
 
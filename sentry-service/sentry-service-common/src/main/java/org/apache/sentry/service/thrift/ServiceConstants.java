@@ -69,6 +69,24 @@ public class ServiceConstants {
     public static final int RPC_MIN_THREADS_DEFAULT = 10;
     public static final String ALLOW_CONNECT = "sentry.service.allow.connect";
 
+    /**
+     * Pseudo configuration property answered by get_sentry_config_value with
+     * the current policy version, see SentryStore#getPolicyVersion. This is a
+     * client contract: the value is an opaque string which changes whenever
+     * the roles, groups, users or privileges change, and which is the same on
+     * all the servers sharing a database, so clients may fail over between
+     * them. Clients must only compare it for equality. Servers which don't
+     * know the property answer with the requested default value.
+     */
+    public static final String SENTRY_POLICY_VERSION = "sentry.service.policy.version";
+    /**
+     * Prefix of the pseudo configuration properties answered with the version
+     * of the policy of a generic component, see SentryStore#getPolicyVersion(String).
+     * The version only changes with the roles, groups and users, and the
+     * privileges of the component, which is appended to the prefix.
+     */
+    public static final String SENTRY_POLICY_VERSION_COMPONENT_PREFIX = SENTRY_POLICY_VERSION + ".";
+
     public static final String SENTRY_POLICY_STORE_PLUGINS = "sentry.policy.store.plugins";
     public static final String SENTRY_POLICY_STORE_PLUGINS_DEFAULT = "";
 
@@ -106,9 +124,26 @@ public class ServiceConstants {
     public static final String SENTRY_STORE_HADOOP_GROUP_MAPPING = "org.apache.sentry.provider.common.HadoopGroupMappingService";
     public static final String SENTRY_STORE_LOCAL_GROUP_MAPPING = "org.apache.sentry.provider.file.LocalGroupMappingService";
     public static final String SENTRY_STORE_GROUP_MAPPING_DEFAULT = SENTRY_STORE_HADOOP_GROUP_MAPPING;
+    // cache of the groups resolved by the group mapping, see CachedGroupMappingService
+    public static final String SENTRY_STORE_GROUP_MAPPING_CACHE_ENABLED = "sentry.store.group.mapping.cache.enabled";
+    public static final boolean SENTRY_STORE_GROUP_MAPPING_CACHE_ENABLED_DEFAULT = false;
+    public static final String SENTRY_STORE_GROUP_MAPPING_CACHE_MAX_SIZE = "sentry.store.group.mapping.cache.max.size";
+    public static final int SENTRY_STORE_GROUP_MAPPING_CACHE_MAX_SIZE_DEFAULT = 10000;
+    public static final String SENTRY_STORE_GROUP_MAPPING_CACHE_TTL_MS = "sentry.store.group.mapping.cache.ttl.ms";
+    public static final long SENTRY_STORE_GROUP_MAPPING_CACHE_TTL_MS_DEFAULT = 300000;
+    public static final String SENTRY_STORE_GROUP_MAPPING_CACHE_REFRESH_MS = "sentry.store.group.mapping.cache.refresh.ms";
+    public static final long SENTRY_STORE_GROUP_MAPPING_CACHE_REFRESH_MS_DEFAULT = 60000;
+    public static final String SENTRY_STORE_GROUP_MAPPING_CACHE_NEGATIVE_TTL_MS = "sentry.store.group.mapping.cache.negative.ttl.ms";
+    public static final long SENTRY_STORE_GROUP_MAPPING_CACHE_NEGATIVE_TTL_MS_DEFAULT = 30000;
 
     public static final String SENTRY_STORE_ORPHANED_PRIVILEGE_REMOVAL = "sentry.store.orphaned.privilege.removal";
     public static final String SENTRY_STORE_ORPHANED_PRIVILEGE_REMOVAL_DEFAULT = "false";
+    // Serve the read RPCs from an in-memory image of the policy. It is not used when
+    // HA is enabled, the other servers update the database behind its back. The roles
+    // changed by a write are applied to the image before the write commits, the reads
+    // never wait for it; the reads query the database while it is loaded at startup.
+    public static final String SENTRY_STORE_POLICY_IMAGE_ENABLED = "sentry.store.policy.image.enabled";
+    public static final boolean SENTRY_STORE_POLICY_IMAGE_ENABLED_DEFAULT = false;
     public static final String SENTRY_HA_ENABLED = "sentry.ha.enabled";
     public static final boolean SENTRY_HA_ENABLED_DEFAULT = false;
     public static final String SENTRY_HA_ZK_PROPERTY_PREFIX = "sentry.ha.zookeeper.";
@@ -231,6 +266,19 @@ public class ServiceConstants {
     public static final String RETRY_INTERVAL_SEC_CONF = "sentry.provider.backend.db.retry.interval.seconds";
     public static final int RETRY_INTERVAL_SEC_DEFAULT = 30;
 
+    // db provider backend cache settings
+    public static final String DB_CACHE_ENABLED = "sentry.provider.backend.db.cache.enabled";
+    public static final boolean DB_CACHE_ENABLED_DEFAULT = false;
+    public static final String DB_CACHE_MAX_ENTRIES = "sentry.provider.backend.db.cache.max.entries";
+    public static final int DB_CACHE_MAX_ENTRIES_DEFAULT = 10000;
+    public static final String DB_CACHE_TTL_MS = "sentry.provider.backend.db.cache.ttl.ms";
+    public static final long DB_CACHE_TTL_MS_DEFAULT = 30000;
+    public static final String DB_CACHE_VERSION_CHECK_INTERVAL_MS = "sentry.provider.backend.db.cache.version.check.interval.ms";
+    public static final long DB_CACHE_VERSION_CHECK_INTERVAL_MS_DEFAULT = 1000;
+    public static final String SENTRY_POLICY_VERSION = ServerConfig.SENTRY_POLICY_VERSION;
+    public static final String SENTRY_POLICY_VERSION_COMPONENT_PREFIX =
+        ServerConfig.SENTRY_POLICY_VERSION_COMPONENT_PREFIX;
+
     // provider backend cache settings
     public static final String ENABLE_CACHING = "sentry.provider.backend.generic.cache.enabled";
     public static final boolean ENABLE_CACHING_DEFAULT = false;
@@ -238,6 +286,11 @@ public class ServiceConstants {
     public static final long CACHING_TTL_MS_DEFAULT = 30000;
     public static final String CACHE_UPDATE_FAILURES_BEFORE_PRIV_REVOKE = "sentry.provider.backend.generic.cache.update.failures.count";
     public static final int CACHE_UPDATE_FAILURES_BEFORE_PRIV_REVOKE_DEFAULT = 3;
+    // the cache is only reloaded when the policy version of its component changed,
+    // once its TTL expired; a non-positive interval disables the checks and the
+    // cache is reloaded on every expiry of its TTL
+    public static final String CACHE_VERSION_CHECK_INTERVAL_MS = "sentry.provider.backend.generic.cache.version.check.interval.ms";
+    public static final long CACHE_VERSION_CHECK_INTERVAL_MS_DEFAULT = 5000;
     public static final String PRIVILEGE_CONVERTER = "sentry.provider.backend.generic.privilege.converter";
   }
 
@@ -134,12 +134,16 @@ struct TListSentryRolesRequest {
 1: required i32 protocol_version = sentry_common_service.TSENTRY_SERVICE_V2,
 2: required string requestorUserName, # user on whose behalf the request is issued
 3: optional string groupName, # for this group, or all roles for all groups if null
-4: required string component # The request is issued to which component
+4: required string component, # The request is issued to which component
+# If set, the privileges of every role on this service are returned along with
+# the role, so that a cache of all the roles is built with one request
+5: optional string serviceName
 }
 # used only for TListSentryRolesResponse
 struct TSentryRole {
 1: required string roleName,
-2: required set<string> groups
+2: required set<string> groups,
+3: optional set<TSentryPrivilege> privileges # set if the request has a serviceName
 }
 
 struct TListSentryRolesResponse {
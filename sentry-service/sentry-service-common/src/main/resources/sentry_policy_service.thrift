@@ -252,7 +252,12 @@ struct TListSentryPrivilegesByAuthResponse {
 2: optional map<TSentryAuthorizable, TSentryPrivilegeMap> privilegesMapByAuth # will not be set in case of an error
 }
 
-# Obtain a config value from the Sentry service
+# Obtain a config value from the Sentry service. The pseudo property
+# "sentry.service.policy.version" returns the policy version: an opaque value,
+# the same on all the servers sharing a database, which changes whenever the
+# policy changes. Clients compare it for equality to know when their cached
+# privileges are stale. "sentry.service.policy.version.<component>" returns the
+# version of the roles and the privileges of a generic model component only.
 struct TSentryConfigValueRequest {
 1: required i32 protocol_version = sentry_common_service.TSENTRY_SERVICE_V2,
 2: required string propertyName, # Config attribute to obtain
@@ -22,8 +22,10 @@ import java.util.Arrays;
 import java.util.HashSet;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
+import javax.jdo.FetchGroup;
 import javax.jdo.PersistenceManager;
 import javax.jdo.Query;
 
@@ -82,8 +84,17 @@ public class DelegateSentryStore implements SentryStoreLayer {
     return delegate.openTransaction();
   }
 
-  private CommitContext commitUpdateTransaction(PersistenceManager pm) {
-    return delegate.commitUpdateTransaction(pm);
+  private CommitContext commitUpdateTransaction(PersistenceManager pm, String policyVersion,
+      Set<String> changedRoles) {
+    return delegate.commitUpdateTransaction(pm, policyVersion, changedRoles);
+  }
+
+  /**
+   * Commits a change of the privileges of a component, which are not part of
+   * the policy image of the SentryStore.
+   */
+  private CommitContext commitPrivilegeTransaction(PersistenceManager pm, String component) {
+    return commitUpdateTransaction(pm, toTrimmedLower(component), ImmutableSet.<String>of());
   }
 
   private void rollbackTransaction(PersistenceManager pm) {
@@ -129,7 +140,8 @@ public class DelegateSentryStore implements SentryStoreLayer {
         sentryRole.removePrivileges();
         pm.deletePersistent(sentryRole);
       }
-      CommitContext commit = commitUpdateTransaction(pm);
+      CommitContext commit = commitUpdateTransaction(pm, SentryStore.ROLES_POLICY_VERSION,
+          ImmutableSet.of(trimmedRole));
       rollbackTransaction = false;
       return commit;
     } finally {
@@ -177,7 +189,7 @@ public class DelegateSentryStore implements SentryStoreLayer {
 
       privilegeOperator.grantPrivilege(privilege, mRole, pm);
 
-      CommitContext commitContext = delegate.commitUpdateTransaction(pm);
+      CommitContext commitContext = commitPrivilegeTransaction(pm, component);
       rollbackTransaction = false;
       return commitContext;
 
@@ -208,7 +220,7 @@ public class DelegateSentryStore implements SentryStoreLayer {
 
       privilegeOperator.revokePrivilege(privilege, mRole, pm);
 
-      CommitContext commitContext = commitUpdateTransaction(pm);
+      CommitContext commitContext = commitPrivilegeTransaction(pm, component);
       rollbackTransaction = false;
       return commitContext;
 
@@ -244,7 +256,7 @@ public class DelegateSentryStore implements SentryStoreLayer {
       privilegeOperator.renamePrivilege(toTrimmedLower(component), toTrimmedLower(service),
           oldAuthorizables, newAuthorizables, requestor, pm);
 
-      CommitContext commitContext = commitUpdateTransaction(pm);
+      CommitContext commitContext = commitPrivilegeTransaction(pm, component);
       rollbackTransaction = false;
       return commitContext;
     } finally {
@@ -266,7 +278,7 @@ public class DelegateSentryStore implements SentryStoreLayer {
 
       privilegeOperator.dropPrivilege(privilege, pm);
 
-      CommitContext commitContext = commitUpdateTransaction(pm);
+      CommitContext commitContext = commitPrivilegeTransaction(pm, component);
       rollbackTransaction = false;
       return commitContext;
     } finally {
@@ -428,6 +440,50 @@ public class DelegateSentryStore implements SentryStoreLayer {
     return privileges;
   }
 
+  @Override
+  @SuppressWarnings("unchecked")
+  public Set<RoleObject> getRolesWithPrivileges(String component, String service,
+      Set<String> roles) throws SentryUserException {
+    Preconditions.checkNotNull(component);
+    Preconditions.checkNotNull(service);
+
+    Set<String> trimmedRoles = toTrimmedLower(roles);
+    Set<RoleObject> result = Sets.newHashSet();
+    if (trimmedRoles.isEmpty()) {
+      return result;
+    }
+
+    PersistenceManager pm = null;
+    try {
+      pm = openTransaction();
+      // the requested roles, with their groups in the same fetch
+      FetchGroup grp = pm.getFetchGroup(MSentryRole.class, "fetchGroups");
+      grp.addMember("groups");
+      pm.getFetchPlan().addGroup("fetchGroups");
+      Query query = pm.newQuery(MSentryRole.class);
+      query.setFilter("r.contains(roleName)");
+      query.declareParameters("java.util.Collection r");
+      List<MSentryRole> mRoles = (List<MSentryRole>) query.execute(trimmedRoles);
+      // and their privileges on the service, filtered by the database
+      Map<String, Set<PrivilegeObject>> privilegesByRole = privilegeOperator.getPrivilegesByService(
+          toTrimmedLower(component), toTrimmedLower(service), trimmedRoles, pm);
+      for (MSentryRole mRole : mRoles) {
+        Set<String> groups = Sets.newHashSet();
+        for (MSentryGroup group : mRole.getGroups()) {
+          groups.add(group.getGroupName());
+        }
+        Set<PrivilegeObject> privileges = privilegesByRole.get(mRole.getRoleName());
+        result.add(new RoleObject(mRole.getRoleName(), groups,
+            privileges == null ? new HashSet<PrivilegeObject>() : privileges));
+      }
+    } finally {
+      if (pm != null) {
+        commitTransaction(pm);
+      }
+    }
+    return result;
+  }
+
   @Override
   public Set<MSentryGMPrivilege> getPrivilegesByAuthorizable(String component, String service,
       Set<String> validActiveRoles, List<? extends Authorizable> authorizables)
@@ -531,7 +587,7 @@ public class DelegateSentryStore implements SentryStoreLayer {
       pm.newQuery(MSentryRole.class).deletePersistentAll();
       pm.newQuery(MSentryGroup.class).deletePersistentAll();
       pm.newQuery(MSentryGMPrivilege.class).deletePersistentAll();
-      commitUpdateTransaction(pm);
+      commitUpdateTransaction(pm, SentryStore.ROLES_POLICY_VERSION, null);
       rollbackTransaction = false;
     } finally {
       if (rollbackTransaction) {
@@ -377,6 +377,42 @@ public class PrivilegeOperatePersistence {
     return privileges;
   }
 
+  /**
+   * Get the privileges on a service of the given roles with one query.
+   * @returns the privileges by role name
+   */
+  @SuppressWarnings("unchecked")
+  public Map<String, Set<PrivilegeObject>> getPrivilegesByService(String component,
+      String service, Set<String> roleNames, PersistenceManager pm) {
+    Map<String, Set<PrivilegeObject>> privileges = Maps.newHashMap();
+    Query query = pm.newQuery(MSentryGMPrivilege.class);
+    query.declareVariables("MSentryRole role");
+    query.setFilter("serviceName == s && componentName == c "
+        + "&& roles.contains(role) && r.contains(role.roleName)");
+    query.declareParameters("java.lang.String s, java.lang.String c, java.util.Collection r");
+    // a row per privilege and role holding it
+    query.setResult("role.roleName, this");
+    List<Object[]> rows = (List<Object[]>) query.execute(service, component, roleNames);
+    for (Object[] row : rows) {
+      String roleName = (String) row[0];
+      MSentryGMPrivilege mPrivilege = (MSentryGMPrivilege) row[1];
+      PrivilegeObject privilege = new Builder()
+                               .setComponent(mPrivilege.getComponentName())
+                               .setService(mPrivilege.getServiceName())
+                               .setAction(mPrivilege.getAction())
+                               .setAuthorizables(mPrivilege.getAuthorizables())
+                               .withGrantOption(mPrivilege.getGrantOption())
+                               .build();
+      Set<PrivilegeObject> rolePrivileges = privileges.get(roleName);
+      if (rolePrivileges == null) {
+        rolePrivileges = Sets.newHashSet();
+        privileges.put(roleName, rolePrivileges);
+      }
+      rolePrivileges.add(privilege);
+    }
+    return privileges;
+  }
+
   public Set<MSentryGMPrivilege> getPrivilegesByAuthorizable(String component,
       String service, Set<MSentryRole> roles,
       List<? extends Authorizable> authorizables, PersistenceManager pm) {
@@ -0,0 +1,53 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.sentry.provider.db.generic.service.persistent;
+
+import java.util.Set;
+
+/**
+ * A role along with its groups and its privileges on a service.
+ */
+public final class RoleObject {
+  private final String roleName;
+  private final Set<String> groups;
+  private final Set<PrivilegeObject> privileges;
+
+  public RoleObject(String roleName, Set<String> groups, Set<PrivilegeObject> privileges) {
+    this.roleName = roleName;
+    this.groups = groups;
+    this.privileges = privileges;
+  }
+
+  public String getRoleName() {
+    return roleName;
+  }
+
+  public Set<String> getGroups() {
+    return groups;
+  }
+
+  public Set<PrivilegeObject> getPrivileges() {
+    return privileges;
+  }
+
+  @Override
+  public String toString() {
+    return "RoleObject [roleName=" + roleName + ", groups=" + groups
+        + ", privileges=" + privileges + "]";
+  }
+}
@@ -169,6 +169,19 @@ public interface SentryStoreLayer {
        Set<String> groups, List<? extends Authorizable> authorizables)
        throws SentryUserException;
 
+  /**
+   * Get the groups and the privileges on a service of roles. They are read in
+   * one transaction, so that a cache of all the roles is built from a consistent
+   * snapshot with one request.
+   * @param component: The request respond to which component
+   * @param service: The name of service
+   * @param roles: The name of roles
+   * @returns the set of existing roles with their groups and privileges
+   * @throws SentryUserException
+   */
+  Set<RoleObject> getRolesWithPrivileges(String component, String service, Set<String> roles)
+      throws SentryUserException;
+
   /**
    * Get all roles name.
    *
@@ -41,6 +41,7 @@ import org.apache.sentry.core.common.exception.SentryNoSuchObjectException;
 import org.apache.sentry.core.common.exception.SentryThriftAPIMismatchException;
 import org.apache.sentry.provider.db.generic.service.persistent.PrivilegeObject;
 import org.apache.sentry.provider.db.generic.service.persistent.PrivilegeObject.Builder;
+import org.apache.sentry.provider.db.generic.service.persistent.RoleObject;
 import org.apache.sentry.provider.db.generic.service.persistent.SentryStoreLayer;
 import org.apache.sentry.provider.db.log.entity.JsonLogEntityFactory;
 import org.apache.sentry.provider.db.log.util.Constants;
@@ -587,6 +588,20 @@ public class SentryGenericPolicyProcessor implements SentryGenericPolicyService.
 
         Set<String> roleNames = store.getRolesByGroups(request.getComponent(), groups);
         Set<TSentryRole> tSentryRoles = Sets.newHashSet();
+        if (request.isSetServiceName()) {
+          // the groups and the privileges of all the roles at once
+          for (RoleObject role : store.getRolesWithPrivileges(request.getComponent(),
+              request.getServiceName(), roleNames)) {
+            TSentryRole tSentryRole = new TSentryRole(role.getRoleName(), role.getGroups());
+            Set<TSentryPrivilege> tSentryPrivileges = Sets.newHashSet();
+            for (PrivilegeObject privilege : role.getPrivileges()) {
+              tSentryPrivileges.add(fromPrivilegeObject(privilege));
+            }
+            tSentryRole.setPrivileges(tSentryPrivileges);
+            tSentryRoles.add(tSentryRole);
+          }
+          return new Response<Set<TSentryRole>>(Status.OK(), tSentryRoles);
+        }
         for (String roleName : roleNames) {
           Set<String> groupsForRoleName = store.getGroupsByRoles(request.getComponent(), Sets.newHashSet(roleName));
           tSentryRoles.add(new TSentryRole(roleName, groupsForRoleName));
@@ -0,0 +1,63 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.sentry.provider.db.service.model;
+
+import javax.jdo.annotations.PersistenceCapable;
+
+/**
+ * Database backed version of a part of the policy: the roles with their
+ * groups and users, the privileges of the db model, or the privileges of a
+ * component of the generic model. Each update transaction increments the
+ * versions of the parts it changes, so that all the Sentry servers sharing
+ * the database report the same versions.
+ */
+@PersistenceCapable
+public class MSentryPolicyVersion {
+  private String componentName;
+  private long version;
+
+  public MSentryPolicyVersion() {
+  }
+
+  public MSentryPolicyVersion(String componentName, long version) {
+    this.componentName = componentName;
+    this.version = version;
+  }
+
+  public String getComponentName() {
+    return componentName;
+  }
+
+  public void setComponentName(String componentName) {
+    this.componentName = componentName;
+  }
+
+  public long getVersion() {
+    return version;
+  }
+
+  public void setVersion(long version) {
+    this.version = version;
+  }
+
+  @Override
+  public String toString() {
+    return "MSentryPolicyVersion [componentName=" + componentName + ", version=" + version + "]";
+  }
+}
@@ -0,0 +1,450 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.sentry.provider.db.service.persistent;
+
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+import org.apache.sentry.core.common.exception.SentryNoSuchObjectException;
+import org.apache.sentry.core.model.db.AccessConstants;
+import org.apache.sentry.provider.db.service.model.MSentryPrivilege;
+import org.apache.sentry.provider.db.service.thrift.TSentryAuthorizable;
+import org.apache.sentry.provider.db.service.thrift.TSentryGroup;
+import org.apache.sentry.provider.db.service.thrift.TSentryPrivilege;
+import org.apache.sentry.provider.db.service.thrift.TSentryRole;
+
+import com.google.common.collect.HashMultimap;
+import com.google.common.collect.ImmutableListMultimap;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.ImmutableSetMultimap;
+import com.google.common.collect.Maps;
+import com.google.common.collect.SetMultimap;
+import com.google.common.collect.Sets;
+
+/**
+ * An immutable in-memory copy of the roles, groups, users and privileges of the
+ * SentryStore. It is indexed to answer the read RPCs without a database round
+ * trip, the filters applied to the privileges are the same as the JDOQL queries
+ * of the SentryStore.
+ *
+ * The image is kept per role, so that an update of the store replaces the roles
+ * it changed, see {@link #withRoles(Map)}, and shares the others with the
+ * previous image. The privileges of a role are grouped by database name, the
+ * server and URI privileges being grouped under {@link SentryStore#NULL_COL}.
+ */
+final class PolicyImage {
+
+  private final ImmutableMap<String, Role> roles;
+  private final ImmutableSet<String> groupNames;
+  private final ImmutableSetMultimap<String, String> groupRoles;
+  private final ImmutableSetMultimap<String, String> userRoles;
+
+  private PolicyImage(Map<String, Role> roles, Set<String> groupNames) {
+    this.roles = ImmutableMap.copyOf(roles);
+    ImmutableSet.Builder<String> allGroups = ImmutableSet.builder();
+    ImmutableSetMultimap.Builder<String, String> groupRolesBuilder = ImmutableSetMultimap.builder();
+    ImmutableSetMultimap.Builder<String, String> userRolesBuilder = ImmutableSetMultimap.builder();
+    allGroups.addAll(groupNames);
+    for (Role role : roles.values()) {
+      allGroups.addAll(role.groups);
+      for (String group : role.groups) {
+        groupRolesBuilder.put(group, role.name);
+      }
+      for (String user : role.users) {
+        userRolesBuilder.put(user, role.name);
+      }
+    }
+    this.groupNames = allGroups.build();
+    this.groupRoles = groupRolesBuilder.build();
+    this.userRoles = userRolesBuilder.build();
+  }
+
+  private PolicyImage(ImmutableMap<String, Role> roles, ImmutableSet<String> groupNames,
+      ImmutableSetMultimap<String, String> groupRoles,
+      ImmutableSetMultimap<String, String> userRoles) {
+    this.roles = roles;
+    this.groupNames = groupNames;
+    this.groupRoles = groupRoles;
+    this.userRoles = userRoles;
+  }
+
+  /**
+   * @return the number of privileges granted to the roles of this image
+   */
+  int getPrivilegeCount() {
+    int count = 0;
+    for (Role role : roles.values()) {
+      count += role.privileges.size();
+    }
+    return count;
+  }
+
+  /**
+   * Returns a copy of this image with some roles replaced. The indexes are
+   * copied, the roles which didn't change are shared with this image.
+   * @param changedRoles the new state of the roles by name, a null state for
+   *        the roles which were dropped
+   */
+  PolicyImage withRoles(Map<String, Role> changedRoles) {
+    Map<String, Role> newRoles = Maps.newHashMap(roles);
+    Set<String> newGroupNames = Sets.newHashSet(groupNames);
+    SetMultimap<String, String> newGroupRoles = HashMultimap.create(groupRoles);
+    SetMultimap<String, String> newUserRoles = HashMultimap.create(userRoles);
+    for (Map.Entry<String, Role> change : changedRoles.entrySet()) {
+      String roleName = change.getKey();
+      Role oldRole = roles.get(roleName);
+      if (oldRole != null) {
+        for (String group : oldRole.groups) {
+          newGroupRoles.remove(group, roleName);
+        }
+        for (String user : oldRole.users) {
+          newUserRoles.remove(user, roleName);
+        }
+      }
+      Role role = change.getValue();
+      if (role == null) {
+        newRoles.remove(roleName);
+        continue;
+      }
+      newRoles.put(roleName, role);
+      // the groups are not dropped with their last role, like in the database
+      newGroupNames.addAll(role.groups);
+      for (String group : role.groups) {
+        newGroupRoles.put(group, roleName);
+      }
+      for (String user : role.users) {
+        newUserRoles.put(user, roleName);
+      }
+    }
+    return new PolicyImage(ImmutableMap.copyOf(newRoles), ImmutableSet.copyOf(newGroupNames),
+        ImmutableSetMultimap.copyOf(newGroupRoles), ImmutableSetMultimap.copyOf(newUserRoles));
+  }
+
+  /**
+   * Same as SentryStore#getRolesForGroups, by role names
+   */
+  Set<String> getRoleNamesForGroups(Set<String> groups) {
+    Set<String> result = Sets.newHashSet();
+    if (groups != null) {
+      for (String group : groups) {
+        result.addAll(groupRoles.get(group.trim()));
+      }
+    }
+    return result;
+  }
+
+  /**
+   * Same as SentryStore#getRolesForUsers, by role names
+   */
+  Set<String> getRoleNamesForUsers(Set<String> users) {
+    Set<String> result = Sets.newHashSet();
+    if (users != null) {
+      for (String user : users) {
+        result.addAll(userRoles.get(user.trim()));
+      }
+    }
+    return result;
+  }
+
+  /**
+   * Same as SentryStore#getMSentryRolesByGroupName, converted to thrift roles
+   * @param groupName the group to look up, all the roles are returned if null
+   * @throws SentryNoSuchObjectException if the group doesn't exist
+   */
+  Set<TSentryRole> getRolesByGroupName(String groupName) throws SentryNoSuchObjectException {
+    Set<String> roleNames;
+    if (groupName == null) {
+      roleNames = roles.keySet();
+    } else {
+      String trimmedGroupName = groupName.trim();
+      if (!groupNames.contains(trimmedGroupName)) {
+        throw new SentryNoSuchObjectException("Group: " + trimmedGroupName + " doesn't exist");
+      }
+      roleNames = groupRoles.get(trimmedGroupName);
+    }
+    Set<TSentryRole> result = new HashSet<TSentryRole>();
+    for (String roleName : roleNames) {
+      TSentryRole role = new TSentryRole();
+      role.setRoleName(roleName);
+      role.setGrantorPrincipal("--");
+      Set<TSentryGroup> groups = new HashSet<TSentryGroup>();
+      for (String group : roles.get(roleName).groups) {
+        TSentryGroup tGroup = new TSentryGroup();
+        tGroup.setGroupName(group);
+        groups.add(tGroup);
+      }
+      role.setGroups(groups);
+      result.add(role);
+    }
+    return result;
+  }
+
+  /**
+   * Same as SentryStore#getMSentryPrivileges, converted to authorizable strings
+   * @param roleNames the roles to look up
+   * @param authHierarchy filter on the authorizable hierarchy, can be null
+   */
+  Set<String> listPrivilegesForProvider(Set<String> roleNames,
+      TSentryAuthorizable authHierarchy) {
+    Set<String> result = Sets.newHashSet();
+    if (roleNames == null) {
+      return result;
+    }
+    String dbName = null;
+    if (authHierarchy != null && authHierarchy.getServer() != null
+        && authHierarchy.getDb() != null) {
+      dbName = authHierarchy.getDb().toLowerCase();
+    }
+    for (String roleName : roleNames) {
+      Role role = roles.get(roleName.trim().toLowerCase());
+      if (role == null) {
+        continue;
+      }
+      if (dbName == null) {
+        addProviderPrivileges(result, role.privileges.values(), authHierarchy);
+      } else {
+        addProviderPrivileges(result, role.privileges.get(dbName), authHierarchy);
+        addProviderPrivileges(result, role.privileges.get(SentryStore.NULL_COL), authHierarchy);
+      }
+    }
+    return result;
+  }
+
+  private static void addProviderPrivileges(Set<String> result, Collection<Entry> entries,
+      TSentryAuthorizable authHierarchy) {
+    for (Entry entry : entries) {
+      if (entry.matchesProvider(authHierarchy)) {
+        result.add(entry.authorizable);
+      }
+    }
+  }
+
+  /**
+   * Same as SentryStore#getMSentryPrivilegesByAuth, grouped by the roles
+   * holding the privileges
+   * @param roleNames the roles to look up, all the roles if empty
+   * @param authHierarchy filter on the authorizable hierarchy
+   */
+  Map<String, Set<TSentryPrivilege>> listPrivilegesByAuthorizable(Set<String> roleNames,
+      TSentryAuthorizable authHierarchy) {
+    Map<String, Set<TSentryPrivilege>> result = Maps.newTreeMap();
+    if (authHierarchy.getServer() == null) {
+      return result;
+    }
+    String dbName = authHierarchy.getDb() == null ? SentryStore.NULL_COL
+        : authHierarchy.getDb().toLowerCase();
+    // Like the query, the matching privileges of the given roles are returned
+    // with all the roles they are granted to
+    Set<TSentryPrivilege> matching = null;
+    if (roleNames != null && !roleNames.isEmpty()) {
+      matching = Sets.newHashSet();
+      for (String roleName : roleNames) {
+        Role role = roles.get(roleName.trim().toLowerCase());
+        if (role == null) {
+          continue;
+        }
+        for (Entry entry : role.privileges.get(dbName)) {
+          if (entry.matchesAuthorizable(authHierarchy)) {
+            matching.add(entry.privilege);
+          }
+        }
+      }
+      if (matching.isEmpty()) {
+        return result;
+      }
+    }
+    for (Role role : roles.values()) {
+      for (Entry entry : role.privileges.get(dbName)) {
+        if (matching == null ? entry.matchesAuthorizable(authHierarchy)
+            : matching.contains(entry.privilege)) {
+          Set<TSentryPrivilege> rolePrivs = result.get(role.name);
+          if (rolePrivs == null) {
+            rolePrivs = Sets.newTreeSet();
+            result.put(role.name, rolePrivs);
+          }
+          rolePrivs.add(new TSentryPrivilege(entry.privilege));
+        }
+      }
+    }
+    return result;
+  }
+
+  /**
+   * A role with its groups, users and privileges.
+   */
+  static final class Role {
+    private final String name;
+    private final ImmutableSet<String> groups;
+    private final ImmutableSet<String> users;
+    private final ImmutableListMultimap<String, Entry> privileges;
+
+    private Role(Builder builder) {
+      this.name = builder.name;
+      this.groups = builder.groups.build();
+      this.users = builder.users.build();
+      this.privileges = builder.privileges.build();
+    }
+
+    /**
+     * Collects the content of a role.
+     */
+    static final class Builder {
+      private final String name;
+      private final ImmutableSet.Builder<String> groups = ImmutableSet.builder();
+      private final ImmutableSet.Builder<String> users = ImmutableSet.builder();
+      private final ImmutableListMultimap.Builder<String, Entry> privileges =
+          ImmutableListMultimap.builder();
+
+      Builder(String name) {
+        this.name = name;
+      }
+
+      Builder addGroup(String groupName) {
+        groups.add(groupName);
+        return this;
+      }
+
+      Builder addUser(String userName) {
+        users.add(userName);
+        return this;
+      }
+
+      Builder addPrivilege(Entry entry) {
+        privileges.put(entry.dbName, entry);
+        return this;
+      }
+
+      Role build() {
+        return new Role(this);
+      }
+    }
+  }
+
+  /**
+   * A granted privilege, with the columns as stored in the database.
+   */
+  static final class Entry {
+    private final String serverName;
+    private final String dbName;
+    private final String tableName;
+    private final String columnName;
+    private final String uri;
+    private final String authorizable;
+    private final TSentryPrivilege privilege;
+
+    /**
+     * @param mPrivilege the privilege as stored in the database
+     * @param privilege its thrift form, returned by the read RPCs
+     */
+    Entry(MSentryPrivilege mPrivilege, TSentryPrivilege privilege) {
+      this.serverName = mPrivilege.getServerName();
+      this.dbName = mPrivilege.getDbName();
+      this.tableName = mPrivilege.getTableName();
+      this.columnName = mPrivilege.getColumnName();
+      this.uri = mPrivilege.getURI();
+      this.authorizable = SentryStore.toAuthorizable(mPrivilege);
+      this.privilege = privilege;
+    }
+
+    // Same filter as the query of SentryStore#getMSentryPrivileges
+    boolean matchesProvider(TSentryAuthorizable authHierarchy) {
+      if (authHierarchy == null || authHierarchy.getServer() == null) {
+        return true;
+      }
+      if (!serverName.equals(authHierarchy.getServer().toLowerCase())) {
+        return false;
+      }
+      if (authHierarchy.getDb() != null) {
+        if (!isNullOrEquals(dbName, authHierarchy.getDb().toLowerCase()) || !isNull(uri)) {
+          return false;
+        }
+        String table = authHierarchy.getTable();
+        if (table != null && !AccessConstants.ALL.equalsIgnoreCase(table)) {
+          if (!AccessConstants.SOME.equalsIgnoreCase(table)
+              && !isNullOrEquals(tableName, table.toLowerCase())) {
+            return false;
+          }
+          String column = authHierarchy.getColumn();
+          if (column != null
+              && !AccessConstants.ALL.equalsIgnoreCase(column)
+              && !AccessConstants.SOME.equalsIgnoreCase(column)
+              && !isNullOrEquals(columnName, column.toLowerCase())) {
+            return false;
+          }
+        }
+      }
+      if (authHierarchy.getUri() != null) {
+        if (!(isNull(uri) || authHierarchy.getUri().startsWith(uri)) || !isNull(dbName)) {
+          return false;
+        }
+      }
+      return true;
+    }
+
+    // Same filter as the query of SentryStore#getMSentryPrivilegesByAuth
+    boolean matchesAuthorizable(TSentryAuthorizable authHierarchy) {
+      if (!serverName.equals(authHierarchy.getServer().toLowerCase())) {
+        return false;
+      }
+      if (authHierarchy.getDb() != null) {
+        if (!dbName.equals(authHierarchy.getDb().toLowerCase()) || !isNull(uri)) {
+          return false;
+        }
+        return authHierarchy.getTable() != null
+            ? tableName.equals(authHierarchy.getTable().toLowerCase()) : isNull(tableName);
+      } else if (authHierarchy.getUri() != null) {
+        return !isNull(uri) && authHierarchy.getUri().startsWith(uri) && isNull(dbName);
+      }
+      return isNull(dbName) && isNull(uri);
+    }
+
+    private static boolean isNull(String column) {
+      return SentryStore.NULL_COL.equals(column);
+    }
+
+    private static boolean isNullOrEquals(String column, String value) {
+      return isNull(column) || column.equals(value);
+    }
+  }
+
+  /**
+   * Collects the content of the whole store.
+   */
+  static final class Builder {
+    private final Map<String, Role> roles = Maps.newHashMap();
+    private final Set<String> groupNames = Sets.newHashSet();
+
+    Builder addRole(Role role) {
+      roles.put(role.name, role);
+      return this;
+    }
+
+    Builder addGroup(String groupName) {
+      groupNames.add(groupName);
+      return this;
+    }
+
+    PolicyImage build() {
+      return new PolicyImage(roles, groupNames);
+    }
+  }
+}
@@ -32,11 +32,14 @@ import java.util.Map;
 import java.util.Properties;
 import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.Callable;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.locks.Condition;
 import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReentrantLock;
 
 import javax.jdo.FetchGroup;
+import javax.jdo.JDOException;
 import javax.jdo.JDODataStoreException;
 import javax.jdo.JDOHelper;
 import javax.jdo.PersistenceManager;
@@ -57,6 +60,7 @@ import org.apache.sentry.core.common.exception.SentryGrantDeniedException;
 import org.apache.sentry.core.common.exception.SentryInvalidInputException;
 import org.apache.sentry.core.common.exception.SentryNoSuchObjectException;
 import org.apache.sentry.provider.db.service.model.MSentryGroup;
+import org.apache.sentry.provider.db.service.model.MSentryPolicyVersion;
 import org.apache.sentry.provider.db.service.model.MSentryPrivilege;
 import org.apache.sentry.provider.db.service.model.MSentryUser;
 import org.apache.sentry.provider.db.service.model.MSentryVersion;
@@ -99,6 +103,16 @@ public class SentryStore {
           .getLogger(SentryStore.class);
 
   public static final String NULL_COL = "__NULL__";
+  /**
+   * Policy version of the roles with their groups and users. They apply to
+   * all the components, so every policy version includes it.
+   */
+  public static final String ROLES_POLICY_VERSION = "__roles__";
+  /**
+   * Policy version of the privileges of the db model. The privileges of the
+   * generic model are versioned by component name.
+   */
+  public static final String DB_POLICY_VERSION = "__db__";
   public static int INDEX_GROUP_ROLES_MAP = 0;
   public static int INDEX_USER_ROLES_MAP = 1;
   static final String DEFAULT_DATA_DIR = "sentry_policy_db";
@@ -118,10 +132,28 @@ public class SentryStore {
    * Commit order sequence id. This is used by notification handlers
    * to know the order in which events where committed to the database.
    * This instance variable is incremented in incrementGetSequenceId
-   * and read in commitUpdateTransaction. Synchronization on this
-   * is required to read commitSequenceId.
+   * and read in commitUpdateTransaction, while holding commitLock so that
+   * the sequence ids follow the commit order.
    */
-  private long commitSequenceId;
+  private final AtomicLong commitSequenceId = new AtomicLong();
+  /**
+   * Serializes the commits of the update transactions with the generation of
+   * their sequence ids. Read transactions never take it. It is shared with
+   * the other stores of the policy image, so that the image follows the
+   * commit order.
+   */
+  private final Lock commitLock;
+  /**
+   * In-memory image of the policy serving the read RPCs, or null if disabled.
+   * The update transactions apply the roles they change to it.
+   */
+  private final SharedPolicyImage policyImage;
+  private final Callable<PolicyImage> policyImageLoader = new Callable<PolicyImage>() {
+    @Override
+    public PolicyImage call() {
+      return loadPolicyImage();
+    }
+  };
   private final PersistenceManagerFactory pmf;
   private Configuration conf;
   private PrivCleaner privCleaner = null;
@@ -129,7 +161,6 @@ public class SentryStore {
 
   public SentryStore(Configuration conf) throws SentryNoSuchObjectException,
   SentryAccessDeniedException, SentrySiteConfigurationException, IOException {
-    commitSequenceId = 0;
     this.conf = conf;
     Properties prop = new Properties();
     prop.putAll(ServerConfig.SENTRY_STORE_DEFAULTS);
@@ -182,6 +213,18 @@ public class SentryStore {
     pmf = JDOHelper.getPersistenceManagerFactory(prop);
     verifySentryStoreSchema(checkSchemaVersion);
 
+    // Other servers of an HA setup update the database without the knowledge of this store
+    if (conf.getBoolean(ServerConfig.SENTRY_STORE_POLICY_IMAGE_ENABLED,
+            ServerConfig.SENTRY_STORE_POLICY_IMAGE_ENABLED_DEFAULT)
+        && !conf.getBoolean(ServerConfig.SENTRY_HA_ENABLED,
+            ServerConfig.SENTRY_HA_ENABLED_DEFAULT)) {
+      policyImage = SharedPolicyImage.acquire(jdbcUrl, policyImageLoader);
+      commitLock = policyImage.getCommitLock();
+    } else {
+      policyImage = null;
+      commitLock = new ReentrantLock();
+    }
+
     // Kick off the thread that cleans orphaned privileges (unless told not to)
     privCleaner = this.new PrivCleaner();
     if (conf.get(ServerConfig.SENTRY_STORE_ORPHANED_PRIVILEGE_REMOVAL,
@@ -218,6 +261,9 @@ public class SentryStore {
         // Ignore...
       }
     }
+    if (policyImage != null) {
+      policyImage.release();
+    }
     if (pmf != null) {
       pmf.close();
     }
@@ -232,11 +278,10 @@ public class SentryStore {
    * transaction.
    *
    * Note that there's only one instance of PersistenceManagerFactory object
-   * for the service.
-   *
-   * Synchronized because we obtain persistence manager
+   * for the service. PersistenceManagerFactory is thread safe, so transactions
+   * are opened concurrently.
    */
-  public synchronized PersistenceManager openTransaction() {
+  public PersistenceManager openTransaction() {
     PersistenceManager pm = pmf.getPersistenceManager();
     Transaction currentTransaction = pm.currentTransaction();
     currentTransaction.begin();
@@ -244,11 +289,103 @@ public class SentryStore {
   }
 
   /**
-   * Synchronized due to sequence id generation
+   * Commits an update transaction and assigns its sequence id. The commit and
+   * the sequence id generation are serialized by commitLock, so that the
+   * sequence ids handed to the notification handlers follow the commit order.
+   *
+   * @param policyVersion the policy version changed by the transaction:
+   *        ROLES_POLICY_VERSION, DB_POLICY_VERSION or a generic component name
+   * @param changedRoles the names of the roles whose groups, users or db
+   *        privileges the transaction changed, or null if unknown, in which
+   *        case the whole policy image is reloaded
    */
-  public synchronized CommitContext commitUpdateTransaction(PersistenceManager pm) {
-    commitTransaction(pm);
-    return new CommitContext(SERVER_UUID, incrementGetSequenceId());
+  public CommitContext commitUpdateTransaction(PersistenceManager pm, String policyVersion,
+      Set<String> changedRoles) {
+    commitLock.lock();
+    try {
+      commitPolicyTransaction(pm, policyVersion, changedRoles);
+      return new CommitContext(SERVER_UUID, incrementGetSequenceId());
+    } finally {
+      commitLock.unlock();
+    }
+  }
+
+  /**
+   * Commits an update transaction which is not sent to the notification
+   * handlers, such as the privilege changes following the Hive metastore.
+   */
+  private void commitPolicyTransaction(PersistenceManager pm, String policyVersion,
+      Set<String> changedRoles) {
+    commitLock.lock();
+    try {
+      incrementPolicyVersion(pm, policyVersion);
+      Map<String, PolicyImage.Role> imageRoles = null;
+      if (policyImage != null && changedRoles != null) {
+        imageRoles = loadImageRoles(pm, changedRoles);
+      }
+      commitTransaction(pm);
+      if (policyImage != null) {
+        if (imageRoles != null) {
+          policyImage.update(imageRoles);
+        } else {
+          policyImage.reload(policyImageLoader);
+        }
+      }
+    } finally {
+      commitLock.unlock();
+    }
+  }
+
+  /**
+   * Increments a policy version in the database. The version is read with a
+   * lock that is held until the end of the transaction, so that the
+   * concurrent updates of all the servers sharing the database get distinct
+   * versions.
+   * Note: Should be called inside a transaction
+   */
+  private void incrementPolicyVersion(PersistenceManager pm, String policyVersion) {
+    MSentryPolicyVersion mVersion = getMSentryPolicyVersion(pm, policyVersion);
+    if (mVersion == null) {
+      createPolicyVersion(policyVersion);
+      mVersion = getMSentryPolicyVersion(pm, policyVersion);
+    }
+    mVersion.setVersion(mVersion.getVersion() + 1);
+    pm.makePersistent(mVersion);
+  }
+
+  private MSentryPolicyVersion getMSentryPolicyVersion(PersistenceManager pm,
+      String policyVersion) {
+    Query query = pm.newQuery(MSentryPolicyVersion.class);
+    query.setFilter("this.componentName == t");
+    query.declareParameters("java.lang.String t");
+    query.setUnique(true);
+    query.setSerializeRead(true);
+    return (MSentryPolicyVersion) query.execute(policyVersion);
+  }
+
+  /**
+   * Creates a policy version in its own transaction, so that the update
+   * transaction which needs it doesn't fail when another server creates it
+   * at the same time.
+   */
+  private void createPolicyVersion(String policyVersion) {
+    boolean rollbackTransaction = true;
+    PersistenceManager pm = null;
+    try {
+      pm = openTransaction();
+      if (getMSentryPolicyVersion(pm, policyVersion) == null) {
+        pm.makePersistent(new MSentryPolicyVersion(policyVersion, 0));
+      }
+      commitTransaction(pm);
+      rollbackTransaction = false;
+    } catch (JDOException e) {
+      // Created concurrently, the caller reads the new version
+      LOGGER.debug("Policy version " + policyVersion + " already created", e);
+    } finally {
+      if (rollbackTransaction) {
+        rollbackTransaction(pm);
+      }
+    }
   }
 
   /**
@@ -257,8 +394,151 @@ public class SentryStore {
    *
    * @return sequence id
    */
-  private synchronized long incrementGetSequenceId() {
-    return ++commitSequenceId;
+  private long incrementGetSequenceId() {
+    return commitSequenceId.incrementAndGet();
+  }
+
+  /**
+   * @return the version of the policy, which changes whenever the policy is
+   *         updated. It is kept in the database, so all the servers sharing
+   *         the database report the same version, across their restarts.
+   */
+  public String getPolicyVersion() {
+    PersistenceManager pm = null;
+    try {
+      pm = openTransaction();
+      Query query = pm.newQuery(MSentryPolicyVersion.class);
+      query.setResult("sum(version)");
+      Long version = (Long) query.execute();
+      return String.valueOf(version == null ? 0 : version.longValue());
+    } finally {
+      if (pm != null) {
+        commitTransaction(pm);
+      }
+    }
+  }
+
+  /**
+   * @return the version of the policy of a generic model component, which
+   *         only changes with the roles, their groups and users, and the
+   *         privileges of the component
+   */
+  public String getPolicyVersion(String component) {
+    PersistenceManager pm = null;
+    try {
+      pm = openTransaction();
+      Query query = pm.newQuery(MSentryPolicyVersion.class);
+      query.setFilter("this.componentName == r || this.componentName == c");
+      query.declareParameters("java.lang.String r, java.lang.String c");
+      query.setResult("sum(version)");
+      Long version = (Long) query.execute(ROLES_POLICY_VERSION, trimAndLower(component));
+      return String.valueOf(version == null ? 0 : version.longValue());
+    } finally {
+      if (pm != null) {
+        commitTransaction(pm);
+      }
+    }
+  }
+
+  /**
+   * @return the in-memory image of the policy, or null if the image is
+   *         disabled or being loaded, in which case the reads query the
+   *         database
+   */
+  private PolicyImage getPolicyImage() {
+    return policyImage == null ? null : policyImage.get();
+  }
+
+  @VisibleForTesting
+  public boolean isPolicyImageLoaded() {
+    return getPolicyImage() != null;
+  }
+
+  @SuppressWarnings("unchecked")
+  private PolicyImage loadPolicyImage() {
+    long start = System.currentTimeMillis();
+    boolean rollbackTransaction = true;
+    PersistenceManager pm = null;
+    try {
+      pm = openTransaction();
+      Map<String, PolicyImage.Role.Builder> roles = Maps.newHashMap();
+      for (MSentryRole role : (List<MSentryRole>) pm.newQuery(MSentryRole.class).execute()) {
+        roles.put(role.getRoleName(), new PolicyImage.Role.Builder(role.getRoleName()));
+      }
+      PolicyImage.Builder builder = new PolicyImage.Builder();
+      for (MSentryGroup group : (List<MSentryGroup>) pm.newQuery(MSentryGroup.class).execute()) {
+        builder.addGroup(group.getGroupName());
+        for (MSentryRole role : group.getRoles()) {
+          roles.get(role.getRoleName()).addGroup(group.getGroupName());
+        }
+      }
+      for (MSentryUser user : (List<MSentryUser>) pm.newQuery(MSentryUser.class).execute()) {
+        for (MSentryRole role : user.getRoles()) {
+          roles.get(role.getRoleName()).addUser(user.getUserName());
+        }
+      }
+      FetchGroup grp = pm.getFetchGroup(MSentryPrivilege.class, "fetchRole");
+      grp.addMember("roles");
+      pm.getFetchPlan().addGroup("fetchRole");
+      Query query = pm.newQuery(MSentryPrivilege.class);
+      query.setFilter("!roles.isEmpty()");
+      for (MSentryPrivilege privilege : (List<MSentryPrivilege>) query.execute()) {
+        PolicyImage.Entry entry = new PolicyImage.Entry(privilege,
+            convertToTSentryPrivilege(privilege));
+        for (MSentryRole role : privilege.getRoles()) {
+          roles.get(role.getRoleName()).addPrivilege(entry);
+        }
+      }
+      for (PolicyImage.Role.Builder role : roles.values()) {
+        builder.addRole(role.build());
+      }
+      PolicyImage image = builder.build();
+      rollbackTransaction = false;
+      commitTransaction(pm);
+      LOGGER.debug("Loaded the policy image with " + image.getPrivilegeCount()
+          + " privileges in " + (System.currentTimeMillis() - start) + " ms");
+      return image;
+    } finally {
+      if (rollbackTransaction) {
+        rollbackTransaction(pm);
+      }
+    }
+  }
+
+  /**
+   * Reads the roles changed by an update transaction for the policy image.
+   * Note: Should be called inside the update transaction, before its commit,
+   * to include its changes
+   * @return the new state of the roles by name, null for the dropped roles
+   */
+  private Map<String, PolicyImage.Role> loadImageRoles(PersistenceManager pm,
+      Set<String> roleNames) {
+    Map<String, PolicyImage.Role> roles = Maps.newHashMap();
+    if (roleNames.isEmpty()) {
+      return roles;
+    }
+    pm.flush();
+    for (String roleName : roleNames) {
+      MSentryRole mRole = getMSentryRole(pm, roleName);
+      if (mRole == null) {
+        roles.put(roleName, null);
+        continue;
+      }
+      // The other sides of the relations may not be up to date in memory
+      pm.refresh(mRole);
+      PolicyImage.Role.Builder role = new PolicyImage.Role.Builder(roleName);
+      for (MSentryGroup group : mRole.getGroups()) {
+        role.addGroup(group.getGroupName());
+      }
+      for (MSentryUser user : mRole.getUsers()) {
+        role.addUser(user.getUserName());
+      }
+      for (MSentryPrivilege privilege : mRole.getPrivileges()) {
+        role.addPrivilege(new PolicyImage.Entry(privilege, convertToTSentryPrivilege(privilege)));
+      }
+      roles.put(roleName, role.build());
+    }
+    return roles;
   }
 
   public void commitTransaction(PersistenceManager pm) {
@@ -315,7 +595,8 @@ public class SentryStore {
     try {
       pm = openTransaction();
       createSentryRoleCore(pm, roleName);
-      CommitContext commit = commitUpdateTransaction(pm);
+      CommitContext commit = commitUpdateTransaction(pm, ROLES_POLICY_VERSION,
+          ImmutableSet.of(trimAndLower(roleName)));
       rollbackTransaction = false;
       return commit;
     } finally {
@@ -410,7 +691,7 @@ public class SentryStore {
       pm.newQuery(MSentryGroup.class).deletePersistentAll();
       pm.newQuery(MSentryUser.class).deletePersistentAll();
       pm.newQuery(MSentryPrivilege.class).deletePersistentAll();
-      commitUpdateTransaction(pm);
+      commitUpdateTransaction(pm, ROLES_POLICY_VERSION, null);
       rollbackTransaction = false;
     } finally {
       if (rollbackTransaction) {
@@ -444,7 +725,8 @@ public class SentryStore {
           convertToTSentryPrivilege(mPrivilege, privilege);
         }
       }
-      CommitContext commit = commitUpdateTransaction(pm);
+      CommitContext commit = commitUpdateTransaction(pm, DB_POLICY_VERSION,
+          ImmutableSet.of(trimmedRoleName));
       rollbackTransaction = false;
       return commit;
     } finally {
@@ -532,7 +814,8 @@ public class SentryStore {
         alterSentryRoleRevokePrivilegeCore(pm, trimmedRoleName, tPrivilege);
       }
 
-      CommitContext commit = commitUpdateTransaction(pm);
+      CommitContext commit = commitUpdateTransaction(pm, DB_POLICY_VERSION,
+          ImmutableSet.of(trimmedRoleName));
       rollbackTransaction = false;
       return commit;
     } finally {
@@ -795,7 +1078,8 @@ public class SentryStore {
     try {
       pm = openTransaction();
       dropSentryRoleCore(pm, roleName);
-      CommitContext commit = commitUpdateTransaction(pm);
+      CommitContext commit = commitUpdateTransaction(pm, ROLES_POLICY_VERSION,
+          ImmutableSet.of(trimAndLower(roleName)));
       rollbackTransaction = false;
       return commit;
     } finally {
@@ -834,7 +1118,8 @@ public class SentryStore {
     try {
       pm = openTransaction();
       alterSentryRoleAddGroupsCore(pm, roleName, groupNames);
-      CommitContext commit = commitUpdateTransaction(pm);
+      CommitContext commit = commitUpdateTransaction(pm, ROLES_POLICY_VERSION,
+          ImmutableSet.of(trimAndLower(roleName)));
       rollbackTransaction = false;
       return commit;
     } finally {
@@ -880,7 +1165,8 @@ public class SentryStore {
     try {
       pm = openTransaction();
       alterSentryRoleAddUsersCore(pm, roleName, userNames);
-      CommitContext commit = commitUpdateTransaction(pm);
+      CommitContext commit = commitUpdateTransaction(pm, ROLES_POLICY_VERSION,
+          ImmutableSet.of(trimAndLower(roleName)));
       rollbackTransaction = false;
       return commit;
     } finally {
@@ -940,7 +1226,8 @@ public class SentryStore {
           }
         }
         pm.makePersistentAll(users);
-        CommitContext commit = commitUpdateTransaction(pm);
+        CommitContext commit = commitUpdateTransaction(pm, ROLES_POLICY_VERSION,
+            ImmutableSet.of(trimmedRoleName));
         rollbackTransaction = false;
         return commit;
       }
@@ -981,7 +1268,8 @@ public class SentryStore {
           }
         }
         pm.makePersistentAll(groups);
-        CommitContext commit = commitUpdateTransaction(pm);
+        CommitContext commit = commitUpdateTransaction(pm, ROLES_POLICY_VERSION,
+            ImmutableSet.of(trimmedRoleName));
         rollbackTransaction = false;
         return commit;
       }
@@ -1159,7 +1447,8 @@ public class SentryStore {
       TSentryAuthorizable authHierarchy, boolean isAdmin)
       throws SentryInvalidInputException {
     Map<String, Set<TSentryPrivilege>> resultPrivilegeMap = Maps.newTreeMap();
-    Set<String> roles = getRolesToQuery(groups, null, new TSentryActiveRoleSet(true, null));
+    PolicyImage image = getPolicyImage();
+    Set<String> roles = getRolesToQuery(image, groups, null, new TSentryActiveRoleSet(true, null));
 
     if (activeRoles != null && !activeRoles.isAll()) {
       // need to check/convert to lowercase here since this is from user input
@@ -1170,6 +1459,12 @@ public class SentryStore {
 
     // An empty 'roles' is a treated as a wildcard (in case of admin role)..
     // so if not admin, don't return anything if 'roles' is empty..
+    if (image != null) {
+      if (isAdmin || !roles.isEmpty()) {
+        resultPrivilegeMap = image.listPrivilegesByAuthorizable(roles, authHierarchy);
+      }
+      return new TSentryPrivilegeMap(resultPrivilegeMap);
+    }
     if (isAdmin || !roles.isEmpty()) {
       List<MSentryPrivilege> mSentryPrivileges = getMSentryPrivilegesByAuth(roles,
           authHierarchy);
@@ -1281,6 +1576,20 @@ public class SentryStore {
    */
   public Set<TSentryRole> getTSentryRolesByGroupName(Set<String> groupNames,
       boolean checkAllGroups) throws SentryNoSuchObjectException {
+    PolicyImage image = getPolicyImage();
+    if (image != null) {
+      Set<TSentryRole> result = Sets.newHashSet();
+      for (String groupName : groupNames) {
+        try {
+          result.addAll(image.getRolesByGroupName(groupName));
+        } catch (SentryNoSuchObjectException e) {
+          if (!checkAllGroups) {
+            throw e;
+          }
+        }
+      }
+      return result;
+    }
     Set<MSentryRole> roleSet = Sets.newHashSet();
     for (String groupName : groupNames) {
       try {
@@ -1402,8 +1711,12 @@ public class SentryStore {
 
   public Set<String> listSentryPrivilegesForProvider(Set<String> groups, Set<String> users,
       TSentryActiveRoleSet roleSet, TSentryAuthorizable authHierarchy) throws SentryInvalidInputException {
+    PolicyImage image = getPolicyImage();
+    Set<String> rolesToQuery = getRolesToQuery(image, groups, users, roleSet);
+    if (image != null) {
+      return image.listPrivilegesForProvider(rolesToQuery, authHierarchy);
+    }
     Set<String> result = Sets.newHashSet();
-    Set<String> rolesToQuery = getRolesToQuery(groups, users, roleSet);
     List<MSentryPrivilege> mSentryPrivileges = getMSentryPrivileges(rolesToQuery, authHierarchy);
     for (MSentryPrivilege priv : mSentryPrivileges) {
       result.add(toAuthorizable(priv));
@@ -1414,15 +1727,21 @@ public class SentryStore {
 
   public boolean hasAnyServerPrivileges(Set<String> groups, Set<String> users,
       TSentryActiveRoleSet roleSet, String server) {
-    Set<String> rolesToQuery = getRolesToQuery(groups, users, roleSet);
+    Set<String> rolesToQuery = getRolesToQuery(getPolicyImage(), groups, users, roleSet);
     return hasAnyServerPrivileges(rolesToQuery, server);
   }
 
-  private Set<String> getRolesToQuery(Set<String> groups, Set<String> users,
+  private Set<String> getRolesToQuery(PolicyImage image, Set<String> groups, Set<String> users,
       TSentryActiveRoleSet roleSet) {
     Set<String> activeRoleNames = toTrimedLower(roleSet.getRoles());
 
     Set<String> roleNames = Sets.newHashSet();
+    if (image != null) {
+      roleNames.addAll(toTrimedLower(image.getRoleNamesForGroups(groups)));
+      roleNames.addAll(toTrimedLower(image.getRoleNamesForUsers(users)));
+      return roleSet.isAll() ? roleNames : Sets.intersection(activeRoleNames,
+          roleNames);
+    }
     boolean rollbackTransaction = true;
     PersistenceManager pm = null;
     try {
@@ -1677,16 +1996,17 @@ public class SentryStore {
     try {
       pm = openTransaction();
 
+      Set<String> changedRoles = Sets.newHashSet();
       if (isMultiActionsSupported(tPrivilege)) {
         for (String privilegeAction : ALL_ACTIONS) {
           tPrivilege.setAction(privilegeAction);
-          dropPrivilegeForAllRoles(pm, new TSentryPrivilege(tPrivilege));
+          changedRoles.addAll(dropPrivilegeForAllRoles(pm, new TSentryPrivilege(tPrivilege)));
         }
       } else {
-        dropPrivilegeForAllRoles(pm, new TSentryPrivilege(tPrivilege));
+        changedRoles.addAll(dropPrivilegeForAllRoles(pm, new TSentryPrivilege(tPrivilege)));
       }
+      commitPolicyTransaction(pm, DB_POLICY_VERSION, changedRoles);
       rollbackTransaction = false;
-      commitTransaction(pm);
     } catch (JDODataStoreException e) {
       throw new SentryInvalidInputException("Failed to get privileges: "
           + e.getMessage());
@@ -1716,17 +2036,18 @@ public class SentryStore {
     try {
       pm = openTransaction();
       // In case of tables or DBs, check all actions
+      Set<String> changedRoles = Sets.newHashSet();
       if (isMultiActionsSupported(tPrivilege)) {
         for (String privilegeAction : ALL_ACTIONS) {
           tPrivilege.setAction(privilegeAction);
           newPrivilege.setAction(privilegeAction);
-          renamePrivilegeForAllRoles(pm, tPrivilege, newPrivilege);
+          changedRoles.addAll(renamePrivilegeForAllRoles(pm, tPrivilege, newPrivilege));
         }
       } else {
-        renamePrivilegeForAllRoles(pm, tPrivilege, newPrivilege);
+        changedRoles.addAll(renamePrivilegeForAllRoles(pm, tPrivilege, newPrivilege));
       }
+      commitPolicyTransaction(pm, DB_POLICY_VERSION, changedRoles);
       rollbackTransaction = false;
-      commitTransaction(pm);
     } catch (JDODataStoreException e) {
       throw new SentryInvalidInputException("Failed to get privileges: "
           + e.getMessage());
@@ -1743,33 +2064,35 @@ public class SentryStore {
 
   }
   // wrapper for dropOrRename
-  private void renamePrivilegeForAllRoles(PersistenceManager pm,
+  private Set<String> renamePrivilegeForAllRoles(PersistenceManager pm,
       TSentryPrivilege tPrivilege,
       TSentryPrivilege newPrivilege) throws SentryNoSuchObjectException,
       SentryInvalidInputException {
-    dropOrRenamePrivilegeForAllRoles(pm, tPrivilege, newPrivilege);
+    return dropOrRenamePrivilegeForAllRoles(pm, tPrivilege, newPrivilege);
   }
 
   /**
    * Drop given privilege from all roles
    * @param tPrivilege
+   * @return the names of the roles the privilege was dropped from
    * @throws SentryNoSuchObjectException
    * @throws SentryInvalidInputException
    */
-  private void dropPrivilegeForAllRoles(PersistenceManager pm,
+  private Set<String> dropPrivilegeForAllRoles(PersistenceManager pm,
       TSentryPrivilege tPrivilege)
       throws SentryNoSuchObjectException, SentryInvalidInputException {
-    dropOrRenamePrivilegeForAllRoles(pm, tPrivilege, null);
+    return dropOrRenamePrivilegeForAllRoles(pm, tPrivilege, null);
   }
 
   /**
    * Drop given privilege from all roles Create the new privilege if asked
    * @param tPrivilege
    * @param pm
+   * @return the names of the roles the privilege was dropped from
    * @throws SentryNoSuchObjectException
    * @throws SentryInvalidInputException
    */
-  private void dropOrRenamePrivilegeForAllRoles(PersistenceManager pm,
+  private Set<String> dropOrRenamePrivilegeForAllRoles(PersistenceManager pm,
       TSentryPrivilege tPrivilege,
       TSentryPrivilege newTPrivilege) throws SentryNoSuchObjectException,
       SentryInvalidInputException {
@@ -1808,6 +2131,7 @@ public class SentryStore {
         }
       }
     }
+    return convertToRoleNameSet(roleSet);
   }
 
   private TSentryPrivilege toSentryPrivilege(TSentryAuthorizable tAuthorizable)
@@ -2529,7 +2853,7 @@ public class SentryStore {
       // import the mapping data for [role,user], the existRoleNames will be updated
       importRoleUserMapping(pm, existRoleNames, importedRoleUsersMap);
 
-      commitTransaction(pm);
+      commitPolicyTransaction(pm, ROLES_POLICY_VERSION, null);
       rollbackTransaction = false;
     } finally {
       if (rollbackTransaction) {
@@ -0,0 +1,169 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.sentry.provider.db.service.persistent;
+
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.collect.Maps;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+/**
+ * The policy image of a database, shared by the SentryStores of the process
+ * which use it: the generic model store, see DelegateSentryStore, writes
+ * through its own SentryStore, and its changes must be seen by the Hive store.
+ *
+ * The stores commit their update transactions under the shared commit lock,
+ * and apply the roles they changed to the image before releasing it, so the
+ * image follows the commit order. The readers get the current image without
+ * locking. The whole image is only loaded at startup and after the updates
+ * which don't say what they changed, in the background; the image is null
+ * meanwhile and the readers query the database.
+ */
+final class SharedPolicyImage {
+  private static final Logger LOGGER = LoggerFactory.getLogger(SharedPolicyImage.class);
+
+  // By JDBC URL, guarded by itself
+  private static final Map<String, SharedPolicyImage> IMAGES = Maps.newHashMap();
+
+  private final String jdbcUrl;
+  private final Lock commitLock = new ReentrantLock();
+  private final ExecutorService loader;
+  private volatile PolicyImage image;
+  // Number of policy changes, to discard the images loaded during a change.
+  // Guarded by this.
+  private long changes;
+  // Number of stores using this image, guarded by IMAGES
+  private int references;
+
+  private SharedPolicyImage(String jdbcUrl) {
+    this.jdbcUrl = jdbcUrl;
+    this.loader = Executors.newSingleThreadExecutor(new ThreadFactoryBuilder()
+        .setDaemon(true).setNameFormat("policy-image-loader-%d").build());
+  }
+
+  /**
+   * @param imageLoader loads the whole image from the database, the first
+   *        time the image of the database is acquired
+   * @return the image of the given database, to release when the store stops
+   */
+  static SharedPolicyImage acquire(String jdbcUrl, Callable<PolicyImage> imageLoader) {
+    synchronized (IMAGES) {
+      SharedPolicyImage shared = IMAGES.get(jdbcUrl);
+      if (shared == null) {
+        shared = new SharedPolicyImage(jdbcUrl);
+        IMAGES.put(jdbcUrl, shared);
+        shared.reload(imageLoader);
+      }
+      shared.references++;
+      return shared;
+    }
+  }
+
+  void release() {
+    synchronized (IMAGES) {
+      if (--references == 0) {
+        IMAGES.remove(jdbcUrl);
+        loader.shutdownNow();
+      }
+    }
+  }
+
+  /**
+   * @return the lock serializing the commits of the stores sharing the image
+   */
+  Lock getCommitLock() {
+    return commitLock;
+  }
+
+  /**
+   * @return the current image, or null while it is loaded
+   */
+  PolicyImage get() {
+    return image;
+  }
+
+  /**
+   * Applies a committed update. Must be called under the commit lock, after
+   * the commit of the update.
+   * @param changedRoles the new state of the roles changed by the update,
+   *        see PolicyImage#withRoles
+   */
+  synchronized void update(Map<String, PolicyImage.Role> changedRoles) {
+    if (changedRoles.isEmpty()) {
+      return;
+    }
+    changes++;
+    if (image != null) {
+      image = image.withRoles(changedRoles);
+    }
+  }
+
+  /**
+   * Drops the image after an update which can't be applied to it, and loads
+   * it again in the background.
+   * @param imageLoader loads the whole image from the database
+   */
+  void reload(final Callable<PolicyImage> imageLoader) {
+    synchronized (this) {
+      changes++;
+      image = null;
+    }
+    loader.execute(new Runnable() {
+      @Override
+      public void run() {
+        load(imageLoader);
+      }
+    });
+  }
+
+  private void load(Callable<PolicyImage> imageLoader) {
+    while (true) {
+      long loadedChanges;
+      synchronized (this) {
+        if (image != null) {
+          // Loaded by a previous task
+          return;
+        }
+        loadedChanges = changes;
+      }
+      PolicyImage loaded;
+      try {
+        loaded = imageLoader.call();
+      } catch (Exception e) {
+        LOGGER.error("Failed to load the policy image, the reads query the database", e);
+        return;
+      }
+      synchronized (this) {
+        // An update committed while loading may be missing from the loaded image
+        if (changes == loadedChanges) {
+          image = loaded;
+          return;
+        }
+      }
+    }
+  }
+}
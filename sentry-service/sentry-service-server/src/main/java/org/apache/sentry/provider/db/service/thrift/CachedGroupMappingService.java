@@ -0,0 +1,195 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.sentry.provider.db.service.thrift;
+
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.sentry.core.common.exception.SentryGroupNotFoundException;
+import org.apache.sentry.core.common.service.GroupMappingService;
+import org.apache.sentry.service.thrift.ServiceConstants.ServerConfig;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.codahale.metrics.Timer;
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Throwables;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheLoader;
+import com.google.common.cache.LoadingCache;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.ListenableFutureTask;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.google.common.util.concurrent.UncheckedExecutionException;
+
+/**
+ * A GroupMappingService which caches the groups resolved by another one.
+ * Cached groups are refreshed in the background once they are older than
+ * {@link ServerConfig#SENTRY_STORE_GROUP_MAPPING_CACHE_REFRESH_MS}, the RPC
+ * threads keep getting the cached groups meanwhile. If a refresh fails, the
+ * cached groups are kept until they expire. Users without groups are cached
+ * for {@link ServerConfig#SENTRY_STORE_GROUP_MAPPING_CACHE_NEGATIVE_TTL_MS}.
+ */
+public class CachedGroupMappingService implements GroupMappingService {
+
+  private static final Logger LOGGER = LoggerFactory
+      .getLogger(CachedGroupMappingService.class);
+  private static final int REFRESH_THREADS = 2;
+
+  private final GroupMappingService groupMappingService;
+  private final LoadingCache<String, UserGroups> cache;
+  private final ExecutorService refreshExecutor;
+  private final long negativeTtlMs;
+  private final SentryMetrics sentryMetrics;
+
+  public CachedGroupMappingService(GroupMappingService groupMappingService,
+      Configuration conf) {
+    this.groupMappingService = groupMappingService;
+    this.sentryMetrics = SentryMetrics.getInstance();
+    this.negativeTtlMs = conf.getLong(
+        ServerConfig.SENTRY_STORE_GROUP_MAPPING_CACHE_NEGATIVE_TTL_MS,
+        ServerConfig.SENTRY_STORE_GROUP_MAPPING_CACHE_NEGATIVE_TTL_MS_DEFAULT);
+    this.refreshExecutor = Executors.newFixedThreadPool(REFRESH_THREADS,
+        new ThreadFactoryBuilder().setDaemon(true)
+            .setNameFormat("group-mapping-refresh-%d").build());
+    this.cache = CacheBuilder.newBuilder()
+        .maximumSize(conf.getInt(ServerConfig.SENTRY_STORE_GROUP_MAPPING_CACHE_MAX_SIZE,
+            ServerConfig.SENTRY_STORE_GROUP_MAPPING_CACHE_MAX_SIZE_DEFAULT))
+        .expireAfterWrite(conf.getLong(ServerConfig.SENTRY_STORE_GROUP_MAPPING_CACHE_TTL_MS,
+            ServerConfig.SENTRY_STORE_GROUP_MAPPING_CACHE_TTL_MS_DEFAULT), TimeUnit.MILLISECONDS)
+        .refreshAfterWrite(conf.getLong(ServerConfig.SENTRY_STORE_GROUP_MAPPING_CACHE_REFRESH_MS,
+            ServerConfig.SENTRY_STORE_GROUP_MAPPING_CACHE_REFRESH_MS_DEFAULT), TimeUnit.MILLISECONDS)
+        .build(new UserGroupsLoader());
+  }
+
+  @Override
+  public Set<String> getGroups(String user) {
+    UserGroups userGroups = cache.getIfPresent(user);
+    if (userGroups != null && userGroups.isExpired(negativeTtlMs)) {
+      cache.invalidate(user);
+      userGroups = null;
+    }
+    if (userGroups == null) {
+      sentryMetrics.groupMappingCacheMisses.inc();
+    } else {
+      sentryMetrics.groupMappingCacheHits.inc();
+    }
+    try {
+      // also schedules the refresh of the cached groups when they are due
+      return cache.getUnchecked(user).getGroups();
+    } catch (UncheckedExecutionException e) {
+      throw Throwables.propagate(e.getCause());
+    }
+  }
+
+  /**
+   * Stop the refresh threads. The cached groups are still served, but they are
+   * no longer refreshed in the background.
+   */
+  public void close() {
+    refreshExecutor.shutdownNow();
+  }
+
+  /**
+   * Drop all the cached groups.
+   */
+  @VisibleForTesting
+  void invalidateAll() {
+    cache.invalidateAll();
+  }
+
+  private UserGroups loadGroups(String user) {
+    final Timer.Context timerContext = sentryMetrics.groupMappingLoadTimer.time();
+    try {
+      return new UserGroups(ImmutableSet.copyOf(groupMappingService.getGroups(user)), null);
+    } catch (SentryGroupNotFoundException e) {
+      return new UserGroups(null, e.getMessage());
+    } finally {
+      timerContext.stop();
+    }
+  }
+
+  private class UserGroupsLoader extends CacheLoader<String, UserGroups> {
+    @Override
+    public UserGroups load(String user) {
+      return loadGroups(user);
+    }
+
+    @Override
+    public ListenableFuture<UserGroups> reload(final String user, final UserGroups oldValue) {
+      if (oldValue.groups == null) {
+        // negative entries are expired by getGroups, don't refresh them
+        return Futures.immediateFuture(oldValue);
+      }
+      ListenableFutureTask<UserGroups> task = ListenableFutureTask.create(
+          new Callable<UserGroups>() {
+            @Override
+            public UserGroups call() {
+              UserGroups userGroups = loadGroups(user);
+              if (userGroups.groups == null) {
+                // a failed refresh keeps the cached groups until they expire
+                LOGGER.warn("Unable to refresh the groups of " + user + ": "
+                    + userGroups.notFoundMessage);
+                throw new SentryGroupNotFoundException(userGroups.notFoundMessage);
+              }
+              return userGroups;
+            }
+          });
+      try {
+        refreshExecutor.execute(task);
+      } catch (RejectedExecutionException e) {
+        // closed, the cached groups are kept until they expire
+        return Futures.immediateFailedFuture(e);
+      }
+      return task;
+    }
+  }
+
+  /**
+   * The groups of a user, or the reason why the user has no groups.
+   */
+  private static final class UserGroups {
+    private final ImmutableSet<String> groups;
+    private final String notFoundMessage;
+    private final long loadTimeMs = System.currentTimeMillis();
+
+    UserGroups(ImmutableSet<String> groups, String notFoundMessage) {
+      this.groups = groups;
+      this.notFoundMessage = notFoundMessage;
+    }
+
+    Set<String> getGroups() {
+      if (groups == null) {
+        throw new SentryGroupNotFoundException(notFoundMessage);
+      }
+      return groups;
+    }
+
+    boolean isExpired(long negativeTtlMs) {
+      return groups == null && System.currentTimeMillis() - loadTimeMs >= negativeTtlMs;
+    }
+  }
+}
@@ -22,6 +22,7 @@ import com.codahale.metrics.Counter;
 import com.codahale.metrics.Gauge;
 import com.codahale.metrics.Histogram;
 import com.codahale.metrics.JmxReporter;
+import com.codahale.metrics.Meter;
 import com.codahale.metrics.Metric;
 import com.codahale.metrics.MetricRegistry;
 import com.codahale.metrics.MetricSet;
@@ -71,6 +72,13 @@ public final class SentryMetrics {
   public final Timer listPrivilegesByAuthorizableTimer = SentryMetricsServletContextListener.METRIC_REGISTRY.timer(
       MetricRegistry.name(SentryPolicyStoreProcessor.class, "list-privileges-by-authorizable"));
 
+  public final Counter groupMappingCacheHits = SentryMetricsServletContextListener.METRIC_REGISTRY.counter(
+      MetricRegistry.name(CachedGroupMappingService.class, "cache-hits"));
+  public final Counter groupMappingCacheMisses = SentryMetricsServletContextListener.METRIC_REGISTRY.counter(
+      MetricRegistry.name(CachedGroupMappingService.class, "cache-misses"));
+  public final Timer groupMappingLoadTimer = SentryMetricsServletContextListener.METRIC_REGISTRY.timer(
+      MetricRegistry.name(CachedGroupMappingService.class, "load"));
+
   /**
    * Return a Timer with name.
    */
@@ -92,6 +100,13 @@ public final class SentryMetrics {
     return SentryMetricsServletContextListener.METRIC_REGISTRY.counter(name);
   }
 
+  /**
+   * Return a Meter with name.
+   */
+  public Meter getMeter(String name) {
+    return SentryMetricsServletContextListener.METRIC_REGISTRY.meter(name);
+  }
+
   private SentryMetrics() {
     registerMetricSet("gc", new GarbageCollectorMetricSet(), SentryMetricsServletContextListener.METRIC_REGISTRY);
     registerMetricSet("buffers", new BufferPoolMetricSet(ManagementFactory.getPlatformMBeanServer()),
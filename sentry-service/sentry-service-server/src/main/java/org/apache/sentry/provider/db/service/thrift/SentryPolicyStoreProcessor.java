@@ -25,6 +25,7 @@ import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.TreeMap;
 import java.util.regex.Pattern;
 
 import org.apache.commons.lang.StringUtils;
@@ -74,6 +75,12 @@ import com.google.common.collect.Sets;
 public class SentryPolicyStoreProcessor implements SentryPolicyService.Iface {
   private static final Logger LOGGER = LoggerFactory.getLogger(SentryPolicyStoreProcessor.class);
   private static final Logger AUDIT_LOGGER = LoggerFactory.getLogger(Constants.AUDIT_LOGGER_NAME);
+  // the settings of the group mappings, the configurations which agree on all of
+  // them share a cached group mapping service
+  private static final String GROUP_MAPPING_CONF_REGEX =
+      "^(sentry\\.store\\.group\\.mapping|hadoop\\.security\\.group\\.mapping)";
+  private static final Map<Map<String, String>, CachedGroupMappingService>
+      CACHED_GROUP_MAPPING_SERVICES = Maps.newHashMap();
 
   public static volatile SentryPolicyStoreProcessor instance;
 
@@ -150,6 +157,7 @@ public class SentryPolicyStoreProcessor implements SentryPolicyService.Iface {
     if (isReady) {
       sentryStore.stop();
     }
+    closeGroupMappingServices();
     if (haContext != null) {
       try {
         haContext.getCuratorFramework().close();
@@ -827,18 +835,61 @@ public class SentryPolicyStoreProcessor implements SentryPolicyService.Iface {
 
   public static Set<String> getGroupsFromUserName(Configuration conf,
       String userName) throws SentryUserException {
+    return getGroupMappingService(conf).getGroups(userName);
+  }
+
+  /**
+   * @return the group mapping service of the configuration. When
+   *         {@link ServerConfig#SENTRY_STORE_GROUP_MAPPING_CACHE_ENABLED} is set, a
+   *         single {@link CachedGroupMappingService} is shared by all the callers
+   *         whose configurations have the same group mapping settings, otherwise
+   *         a new service is created per call.
+   */
+  static GroupMappingService getGroupMappingService(Configuration conf)
+      throws SentryUserException {
+    if (!conf.getBoolean(ServerConfig.SENTRY_STORE_GROUP_MAPPING_CACHE_ENABLED,
+        ServerConfig.SENTRY_STORE_GROUP_MAPPING_CACHE_ENABLED_DEFAULT)) {
+      return createGroupMappingService(conf);
+    }
+    Map<String, String> settings =
+        new TreeMap<String, String>(conf.getValByRegex(GROUP_MAPPING_CONF_REGEX));
+    synchronized (CACHED_GROUP_MAPPING_SERVICES) {
+      CachedGroupMappingService groupMappingService = CACHED_GROUP_MAPPING_SERVICES.get(settings);
+      if (groupMappingService == null) {
+        groupMappingService = new CachedGroupMappingService(
+            createGroupMappingService(conf), conf);
+        CACHED_GROUP_MAPPING_SERVICES.put(settings, groupMappingService);
+      }
+      return groupMappingService;
+    }
+  }
+
+  /**
+   * Close the cached group mapping services, the following callers get new ones.
+   */
+  @VisibleForTesting
+  static void closeGroupMappingServices() {
+    synchronized (CACHED_GROUP_MAPPING_SERVICES) {
+      for (CachedGroupMappingService groupMappingService : CACHED_GROUP_MAPPING_SERVICES.values()) {
+        groupMappingService.close();
+      }
+      CACHED_GROUP_MAPPING_SERVICES.clear();
+    }
+  }
+
+  private static GroupMappingService createGroupMappingService(Configuration conf)
+      throws SentryUserException {
     String groupMapping = conf.get(ServerConfig.SENTRY_STORE_GROUP_MAPPING,
         ServerConfig.SENTRY_STORE_GROUP_MAPPING_DEFAULT);
     String authResoruce = conf
         .get(ServerConfig.SENTRY_STORE_GROUP_MAPPING_RESOURCE);
 
     // load the group mapping provider class
-    GroupMappingService groupMappingService;
     try {
       Constructor<?> constrctor = Class.forName(groupMapping)
           .getDeclaredConstructor(Configuration.class, String.class);
       constrctor.setAccessible(true);
-      groupMappingService = (GroupMappingService) constrctor
+      return (GroupMappingService) constrctor
           .newInstance(new Object[] { conf, authResoruce });
     } catch (NoSuchMethodException e) {
       throw new SentryUserException("Unable to instantiate group mapping", e);
@@ -855,7 +906,6 @@ public class SentryPolicyStoreProcessor implements SentryPolicyService.Iface {
     } catch (InvocationTargetException e) {
       throw new SentryUserException("Unable to instantiate group mapping", e);
     }
-    return groupMappingService.getGroups(userName);
   }
 
   @Override
@@ -987,7 +1037,12 @@ public class SentryPolicyStoreProcessor implements SentryPolicyService.Iface {
   /**
    * Respond to a request for a config value in the sentry server.  The client
    * can request any config value that starts with "sentry." and doesn't contain
-   * "keytab".
+   * "keytab". The pseudo property {@link ServerConfig#SENTRY_POLICY_VERSION}
+   * returns the current policy version of the store, read from the database
+   * so that it doesn't change when the client fails over to another server,
+   * and the properties starting with
+   * {@link ServerConfig#SENTRY_POLICY_VERSION_COMPONENT_PREFIX} the version of
+   * a generic model component.
    * @param request Contains config parameter sought and default if not found
    * @return The response, containing the value and status
    * @throws TException
@@ -1019,7 +1074,14 @@ public class SentryPolicyStoreProcessor implements SentryPolicyService.Iface {
       return response;
     }
 
-    response.setValue(conf.get(attr,request.getDefaultValue()));
+    if (ServerConfig.SENTRY_POLICY_VERSION.equals(attr)) {
+      response.setValue(sentryStore.getPolicyVersion());
+    } else if (attr.startsWith(ServerConfig.SENTRY_POLICY_VERSION_COMPONENT_PREFIX)) {
+      response.setValue(sentryStore.getPolicyVersion(
+          attr.substring(ServerConfig.SENTRY_POLICY_VERSION_COMPONENT_PREFIX.length())));
+    } else {
+      response.setValue(conf.get(attr,request.getDefaultValue()));
+    }
     response.setStatus(Status.OK());
     return response;
   }
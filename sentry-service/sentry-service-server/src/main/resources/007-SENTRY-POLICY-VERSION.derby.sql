@@ -0,0 +1,10 @@
+CREATE TABLE SENTRY_POLICY_VERSION
+(
+    VERSION_ID BIGINT NOT NULL generated always as identity (start with 1),
+    COMPONENT_NAME VARCHAR(128) NOT NULL,
+    POLICY_VERSION BIGINT NOT NULL
+);
+
+ALTER TABLE SENTRY_POLICY_VERSION ADD CONSTRAINT SENTRY_POLICY_VERSION_PK PRIMARY KEY (VERSION_ID);
+
+CREATE UNIQUE INDEX SENTRYPOLICYVERSIONCOMPONENT ON SENTRY_POLICY_VERSION (COMPONENT_NAME);
\ No newline at end of file
@@ -0,0 +1,11 @@
+CREATE TABLE `SENTRY_POLICY_VERSION` (
+	  `VERSION_ID` BIGINT  NOT NULL,
+	  `COMPONENT_NAME` VARCHAR(128) CHARACTER SET utf8 COLLATE utf8_bin NOT NULL,
+	  `POLICY_VERSION` BIGINT NOT NULL
+) ENGINE=InnoDB DEFAULT CHARSET=utf8;
+
+ALTER TABLE `SENTRY_POLICY_VERSION`
+	 ADD CONSTRAINT `SENTRY_POLICY_VERSION_PK` PRIMARY KEY (`VERSION_ID`);
+
+ALTER TABLE `SENTRY_POLICY_VERSION`
+	 ADD CONSTRAINT `SENTRY_POLICY_VERSION_COMPONENT_UNIQUE` UNIQUE (`COMPONENT_NAME`);
\ No newline at end of file
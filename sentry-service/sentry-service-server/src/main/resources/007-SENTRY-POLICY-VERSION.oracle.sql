@@ -0,0 +1,11 @@
+CREATE TABLE "SENTRY_POLICY_VERSION" (
+  "VERSION_ID" NUMBER  NOT NULL,
+  "COMPONENT_NAME" VARCHAR2(128) NOT NULL,
+  "POLICY_VERSION" NUMBER NOT NULL
+);
+
+ALTER TABLE "SENTRY_POLICY_VERSION"
+  ADD CONSTRAINT "SENTRY_POLICY_VERSION_PK" PRIMARY KEY ("VERSION_ID");
+
+ALTER TABLE "SENTRY_POLICY_VERSION"
+  ADD CONSTRAINT "SENTRY_POLICY_VER_COMP_UNIQUE" UNIQUE ("COMPONENT_NAME");
\ No newline at end of file
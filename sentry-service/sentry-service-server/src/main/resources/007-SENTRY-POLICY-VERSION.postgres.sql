@@ -0,0 +1,11 @@
+CREATE TABLE "SENTRY_POLICY_VERSION" (
+  "VERSION_ID" BIGINT  NOT NULL,
+  "COMPONENT_NAME" character varying(128) NOT NULL,
+  "POLICY_VERSION" BIGINT NOT NULL
+);
+
+ALTER TABLE ONLY "SENTRY_POLICY_VERSION"
+  ADD CONSTRAINT "SENTRY_POLICY_VERSION_PK" PRIMARY KEY ("VERSION_ID");
+
+ALTER TABLE ONLY "SENTRY_POLICY_VERSION"
+  ADD CONSTRAINT "SENTRY_POLICY_VERSION_COMPONENT_UNIQUE" UNIQUE ("COMPONENT_NAME");
\ No newline at end of file
@@ -182,3 +182,14 @@ ALTER TABLE SENTRY_ROLE_USER_MAP ADD CONSTRAINT SENTRY_ROLE_USER_MAP_FK2 FOREIGN
 
 ALTER TABLE SENTRY_ROLE_USER_MAP ADD CONSTRAINT SENTRY_ROLE_USER_MAP_FK1 FOREIGN KEY (USER_ID) REFERENCES SENTRY_USER (USER_ID) ;
 
+
+CREATE TABLE SENTRY_POLICY_VERSION
+(
+    VERSION_ID BIGINT NOT NULL generated always as identity (start with 1),
+    COMPONENT_NAME VARCHAR(128) NOT NULL,
+    POLICY_VERSION BIGINT NOT NULL
+);
+
+ALTER TABLE SENTRY_POLICY_VERSION ADD CONSTRAINT SENTRY_POLICY_VERSION_PK PRIMARY KEY (VERSION_ID);
+
+CREATE UNIQUE INDEX SENTRYPOLICYVERSIONCOMPONENT ON SENTRY_POLICY_VERSION (COMPONENT_NAME);
@@ -221,3 +221,15 @@ ALTER TABLE `SENTRY_ROLE_USER_MAP`
 	 ADD CONSTRAINT `SEN_ROLE_USER_MAP_SEN_USER_FK`
 	 FOREIGN KEY (`USER_ID`) REFERENCES `SENTRY_USER`(`USER_ID`);
 
+
+CREATE TABLE `SENTRY_POLICY_VERSION` (
+	  `VERSION_ID` BIGINT  NOT NULL,
+	  `COMPONENT_NAME` VARCHAR(128) CHARACTER SET utf8 COLLATE utf8_bin NOT NULL,
+	  `POLICY_VERSION` BIGINT NOT NULL
+) ENGINE=InnoDB DEFAULT CHARSET=utf8;
+
+ALTER TABLE `SENTRY_POLICY_VERSION`
+	 ADD CONSTRAINT `SENTRY_POLICY_VERSION_PK` PRIMARY KEY (`VERSION_ID`);
+
+ALTER TABLE `SENTRY_POLICY_VERSION`
+	 ADD CONSTRAINT `SENTRY_POLICY_VERSION_COMPONENT_UNIQUE` UNIQUE (`COMPONENT_NAME`);
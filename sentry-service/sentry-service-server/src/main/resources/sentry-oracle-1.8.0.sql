@@ -195,3 +195,15 @@ ALTER TABLE "SENTRY_ROLE_USER_MAP"
 ALTER TABLE "SENTRY_ROLE_USER_MAP"
   ADD CONSTRAINT "SEN_ROLE_USER_MAP_SEN_USER_FK"
   FOREIGN KEY ("USER_ID") REFERENCES "SENTRY_USER"("USER_ID") INITIALLY DEFERRED;
+
+CREATE TABLE "SENTRY_POLICY_VERSION" (
+  "VERSION_ID" NUMBER  NOT NULL,
+  "COMPONENT_NAME" VARCHAR2(128) NOT NULL,
+  "POLICY_VERSION" NUMBER NOT NULL
+);
+
+ALTER TABLE "SENTRY_POLICY_VERSION"
+  ADD CONSTRAINT "SENTRY_POLICY_VERSION_PK" PRIMARY KEY ("VERSION_ID");
+
+ALTER TABLE "SENTRY_POLICY_VERSION"
+  ADD CONSTRAINT "SENTRY_POLICY_VER_COMP_UNIQUE" UNIQUE ("COMPONENT_NAME");
@@ -208,4 +208,16 @@ ALTER TABLE ONLY "SENTRY_ROLE_USER_MAP"
   ADD CONSTRAINT "SEN_ROLE_USER_MAP_SEN_USER_FK"
   FOREIGN KEY ("USER_ID") REFERENCES "SENTRY_USER"("USER_ID") DEFERRABLE;
 
+CREATE TABLE "SENTRY_POLICY_VERSION" (
+  "VERSION_ID" BIGINT  NOT NULL,
+  "COMPONENT_NAME" character varying(128) NOT NULL,
+  "POLICY_VERSION" BIGINT NOT NULL
+);
+
+ALTER TABLE ONLY "SENTRY_POLICY_VERSION"
+  ADD CONSTRAINT "SENTRY_POLICY_VERSION_PK" PRIMARY KEY ("VERSION_ID");
+
+ALTER TABLE ONLY "SENTRY_POLICY_VERSION"
+  ADD CONSTRAINT "SENTRY_POLICY_VERSION_COMPONENT_UNIQUE" UNIQUE ("COMPONENT_NAME");
+
 COMMIT;
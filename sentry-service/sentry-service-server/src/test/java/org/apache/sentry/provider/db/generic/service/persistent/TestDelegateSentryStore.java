@@ -20,11 +20,18 @@ package org.apache.sentry.provider.db.generic.service.persistent;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.fail;
 
+import java.util.HashSet;
 import java.util.Set;
 
+import org.apache.hadoop.conf.Configuration;
 import org.apache.sentry.core.common.exception.SentryAlreadyExistsException;
 import org.apache.sentry.core.common.exception.SentryNoSuchObjectException;
 import org.apache.sentry.core.common.utils.PolicyFile;
+import org.apache.sentry.provider.db.service.persistent.SentryStore;
+import org.apache.sentry.provider.db.service.thrift.TSentryActiveRoleSet;
+import org.apache.sentry.provider.db.service.thrift.TSentryAuthorizable;
+import org.apache.sentry.provider.db.service.thrift.TSentryPrivilege;
+import org.apache.sentry.service.thrift.ServiceConstants.ServerConfig;
 import org.junit.Before;
 import org.junit.Test;
 
@@ -51,6 +58,53 @@ public class TestDelegateSentryStore extends SentryStoreIntegrationBase{
     assertEquals(seqId + 1, sentryStore.dropRole(SEARCH, roleName, grantor).getSequenceId());
   }
 
+  /**
+   * The Hive store doesn't serve the roles and groups changed by the generic
+   * store from a stale image.
+   */
+  @Test
+  public void testHiveStoreSeesGenericChanges() throws Exception {
+    String roleName = "generic-role";
+    String grantor = "grantor";
+    Set<String> groups = Sets.newHashSet("g1");
+    TSentryActiveRoleSet allRoles = new TSentryActiveRoleSet(true, new HashSet<String>());
+    TSentryAuthorizable server = new TSentryAuthorizable("server1");
+    // both stores have to update the image shared by the stores of the database
+    Configuration imageConf = new Configuration(conf);
+    imageConf.setBoolean(ServerConfig.SENTRY_STORE_POLICY_IMAGE_ENABLED, true);
+    SentryStore hiveStore = new SentryStore(imageConf);
+    DelegateSentryStore genericStore = new DelegateSentryStore(imageConf);
+    try {
+      long deadline = System.currentTimeMillis() + 30000;
+      while (!hiveStore.isPolicyImageLoaded()) {
+        assertTrue("The policy image is not loaded", System.currentTimeMillis() < deadline);
+        Thread.sleep(10);
+      }
+      genericStore.createRole(SEARCH, roleName, grantor);
+      genericStore.alterRoleAddGroups(SEARCH, roleName, groups, grantor);
+      TSentryPrivilege privilege = new TSentryPrivilege("Database", "server1", "all");
+      privilege.setDbName("db1");
+      hiveStore.alterSentryRoleGrantPrivilege(grantor, roleName, privilege);
+      assertEquals(Sets.newHashSet("server=server1->db=db1->action=all"),
+          hiveStore.listSentryPrivilegesForProvider(groups, null, allRoles, server));
+
+      genericStore.alterRoleDeleteGroups(SEARCH, roleName, groups, grantor);
+      assertEquals(Sets.newHashSet(),
+          hiveStore.listSentryPrivilegesForProvider(groups, null, allRoles, server));
+
+      genericStore.alterRoleAddGroups(SEARCH, roleName, groups, grantor);
+      assertEquals(Sets.newHashSet("server=server1->db=db1->action=all"),
+          hiveStore.listSentryPrivilegesForProvider(groups, null, allRoles, server));
+
+      genericStore.dropRole(SEARCH, roleName, grantor);
+      assertEquals(Sets.newHashSet(),
+          hiveStore.listSentryPrivilegesForProvider(groups, null, allRoles, server));
+    } finally {
+      genericStore.close();
+      hiveStore.stop();
+    }
+  }
+
   @Test
   public void testCaseInsensitiveCreateDropRole() throws Exception {
     String roleName1 = "test";
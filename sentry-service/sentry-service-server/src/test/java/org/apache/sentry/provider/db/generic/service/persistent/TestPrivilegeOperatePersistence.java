@@ -23,6 +23,7 @@ import static org.junit.Assert.fail;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
+import java.util.Set;
 
 import com.google.common.collect.Lists;
 import org.apache.hadoop.conf.Configuration;
@@ -71,6 +72,59 @@ public class TestPrivilegeOperatePersistence extends SentryStoreIntegrationBase
     writePolicyFile();
   }
 
+  /**
+   * List the roles of the search service along with their groups and privileges
+   */
+  @Test
+  public void testGetRolesWithPrivileges() throws Exception {
+    String roleName1 = "r1";
+    String roleName2 = "r2";
+    String roleName3 = "r3";
+    String grantor = ADMIN_USER;
+
+    PrivilegeObject queryPrivilege = new Builder()
+        .setComponent(SEARCH)
+        .setAction(SearchConstants.QUERY)
+        .setService(SERVICE)
+        .setAuthorizables(Arrays.asList(new Collection(COLLECTION_NAME)))
+        .build();
+    PrivilegeObject updatePrivilege = new Builder(queryPrivilege)
+        .setAction(SearchConstants.UPDATE)
+        .build();
+    PrivilegeObject otherServicePrivilege = new Builder(queryPrivilege)
+        .setService("other_service")
+        .build();
+
+    sentryStore.createRole(SEARCH, roleName1, grantor);
+    sentryStore.createRole(SEARCH, roleName2, grantor);
+    sentryStore.createRole(SEARCH, roleName3, grantor);
+    sentryStore.alterRoleAddGroups(SEARCH, roleName1, Sets.newHashSet("g1", "g2"), grantor);
+    sentryStore.alterRoleAddGroups(SEARCH, roleName2, Sets.newHashSet("g2"), grantor);
+
+    sentryStore.alterRoleGrantPrivilege(SEARCH, roleName1, queryPrivilege, grantor);
+    sentryStore.alterRoleGrantPrivilege(SEARCH, roleName1, updatePrivilege, grantor);
+    sentryStore.alterRoleGrantPrivilege(SEARCH, roleName2, otherServicePrivilege, grantor);
+    // held by a role which is not requested
+    sentryStore.alterRoleGrantPrivilege(SEARCH, roleName3, queryPrivilege, grantor);
+
+    // a role which doesn't exist is not returned
+    Set<RoleObject> roles = sentryStore.getRolesWithPrivileges(SEARCH, SERVICE,
+        Sets.newHashSet(roleName1, roleName2.toUpperCase(), "r4"));
+    assertEquals(2, roles.size());
+    for (RoleObject role : roles) {
+      if (roleName1.equals(role.getRoleName())) {
+        assertEquals(Sets.newHashSet("g1", "g2"), role.getGroups());
+        assertEquals(Sets.newHashSet(queryPrivilege, updatePrivilege), role.getPrivileges());
+      } else {
+        assertEquals(roleName2, role.getRoleName());
+        assertEquals(Sets.newHashSet("g2"), role.getGroups());
+        assertEquals(0, role.getPrivileges().size());
+      }
+    }
+    assertEquals(0, sentryStore.getRolesWithPrivileges(SEARCH, SERVICE,
+        Sets.<String>newHashSet()).size());
+  }
+
   /**
    * Grant query privilege to role r1
    */
@@ -18,6 +18,7 @@
 package org.apache.sentry.provider.db.generic.service.thrift;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 
@@ -32,6 +33,9 @@ import org.apache.sentry.core.common.Authorizable;
 import org.apache.sentry.core.model.search.Collection;
 import org.apache.sentry.core.model.search.Field;
 import org.apache.sentry.core.model.search.SearchConstants;
+import org.apache.sentry.provider.db.service.thrift.SentryPolicyServiceClient;
+import org.apache.sentry.service.thrift.SentryServiceClientFactory;
+import org.apache.sentry.service.thrift.ServiceConstants.ClientConfig;
 import org.junit.Test;
 
 import com.google.common.collect.Lists;
@@ -136,6 +140,54 @@ public class TestSentryGenericServiceIntegration extends SentryGenericServiceInt
       }});
   }
 
+  /**
+   * The generic model changes are seen by the clients caching the privileges,
+   * which poll the policy version of the server.
+   */
+  @Test
+  public void testGrantChangesPolicyVersion() throws Exception {
+    runTestAsSubject(new TestOperation(){
+      @Override
+      public void runTestAsSubject() throws Exception {
+        String requestorUserName = ADMIN_USER;
+        Set<String> requestorUserGroupNames = Sets.newHashSet(ADMIN_GROUP);
+        setLocalGroupMapping(requestorUserName, requestorUserGroupNames);
+        writePolicyFile();
+        String roleName = "admin_r1";
+
+        client.dropRoleIfExists(requestorUserName, roleName, SOLR);
+        client.createRole(requestorUserName, roleName, SOLR);
+
+        SentryPolicyServiceClient policyClient = SentryServiceClientFactory.create(conf);
+        try {
+          String version = policyClient.getConfigValue(ClientConfig.SENTRY_POLICY_VERSION, "");
+          assertFalse(version.isEmpty());
+          String solrVersion = policyClient.getConfigValue(
+              ClientConfig.SENTRY_POLICY_VERSION_COMPONENT_PREFIX + SOLR, "");
+          String sqoopVersion = policyClient.getConfigValue(
+              ClientConfig.SENTRY_POLICY_VERSION_COMPONENT_PREFIX + "sqoop", "");
+
+          TSentryPrivilege queryPrivilege = new TSentryPrivilege(SOLR, "service1",
+              fromAuthorizable(Arrays.asList(new Collection("c1"), new Field("f1"))),
+              SearchConstants.QUERY);
+          client.grantPrivilege(requestorUserName, roleName, SOLR, queryPrivilege);
+          String grantVersion = policyClient.getConfigValue(ClientConfig.SENTRY_POLICY_VERSION, "");
+          assertFalse(version.equals(grantVersion));
+          // the version of a component doesn't change with the others
+          assertFalse(solrVersion.equals(policyClient.getConfigValue(
+              ClientConfig.SENTRY_POLICY_VERSION_COMPONENT_PREFIX + SOLR, "")));
+          assertEquals(sqoopVersion, policyClient.getConfigValue(
+              ClientConfig.SENTRY_POLICY_VERSION_COMPONENT_PREFIX + "sqoop", ""));
+
+          client.revokePrivilege(requestorUserName, roleName, SOLR, queryPrivilege);
+          assertFalse(grantVersion.equals(
+              policyClient.getConfigValue(ClientConfig.SENTRY_POLICY_VERSION, "")));
+        } finally {
+          policyClient.close();
+        }
+      }});
+  }
+
   @Test
   public void testMultipleRolesSamePrivilege() throws Exception {
     runTestAsSubject(new TestOperation(){
@@ -0,0 +1,155 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.sentry.provider.db.service.persistent;
+
+import java.io.File;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.sentry.core.common.utils.PolicyFile;
+import org.apache.sentry.provider.db.service.thrift.TSentryActiveRoleSet;
+import org.apache.sentry.provider.db.service.thrift.TSentryAuthorizable;
+import org.apache.sentry.provider.db.service.thrift.TSentryGroup;
+import org.apache.sentry.provider.db.service.thrift.TSentryPrivilege;
+import org.apache.sentry.service.thrift.ServiceConstants.ServerConfig;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import com.google.common.collect.Sets;
+import com.google.common.io.Files;
+
+/**
+ * Measures the throughput of the SentryStore calls made by the RPC handlers of
+ * the Sentry service when they are invoked by a growing number of worker
+ * threads, as TThreadPoolServer does. The read benchmark is what
+ * list_sentry_privileges_for_provider does, the write benchmark grants and
+ * revokes a privilege through update transactions.
+ *
+ * Run with the policy image disabled to see the scaling of the database
+ * transactions themselves. It is not run as part of the unit tests, run
+ * {@link #main(String[])} with the test classpath of this module instead.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SentryStoreThroughputBenchmark {
+
+  private static final int NUM_ROLES = 100;
+  private static final int NUM_PRIVILEGES_PER_ROLE = 10;
+  private static final String GRANTOR = "g1";
+  private static final String ADMIN_GROUP = "adminGroup1";
+
+  @Param({"true", "false"})
+  private boolean policyImage;
+
+  private File dataDir;
+  private SentryStore sentryStore;
+  private final AtomicLong requests = new AtomicLong();
+
+  @Setup
+  public void setup() throws Exception {
+    dataDir = new File(Files.createTempDir(), "sentry_policy_db");
+    Configuration conf = new Configuration(false);
+    conf.set(ServerConfig.SENTRY_VERIFY_SCHEM_VERSION, "false");
+    conf.set(ServerConfig.SENTRY_STORE_JDBC_URL, "jdbc:derby:;databaseName=" + dataDir.getPath()
+        + ";create=true");
+    conf.set(ServerConfig.SENTRY_STORE_JDBC_PASS, "sentry");
+    conf.setStrings(ServerConfig.ADMIN_GROUPS, ADMIN_GROUP);
+    conf.set(ServerConfig.SENTRY_STORE_GROUP_MAPPING, ServerConfig.SENTRY_STORE_LOCAL_GROUP_MAPPING);
+    File policyFilePath = new File(dataDir, "local_policy_file.ini");
+    conf.set(ServerConfig.SENTRY_STORE_GROUP_MAPPING_RESOURCE, policyFilePath.getPath());
+    conf.setBoolean(ServerConfig.SENTRY_STORE_POLICY_IMAGE_ENABLED, policyImage);
+    sentryStore = new SentryStore(conf);
+    new PolicyFile().addGroupsToUser(GRANTOR, ADMIN_GROUP).write(policyFilePath);
+    for (int r = 0; r < NUM_ROLES; r++) {
+      String roleName = "role" + r;
+      sentryStore.createSentryRole(roleName);
+      sentryStore.alterSentryRoleAddGroups(GRANTOR, roleName,
+          Sets.newHashSet(new TSentryGroup("group" + (r % 10))));
+      for (int p = 0; p < NUM_PRIVILEGES_PER_ROLE; p++) {
+        sentryStore.alterSentryRoleGrantPrivilege(GRANTOR, roleName,
+            tablePrivilege("db" + (p % 5), "table" + r + "_" + p));
+      }
+    }
+  }
+
+  @TearDown
+  public void teardown() {
+    if (sentryStore != null) {
+      sentryStore.stop();
+    }
+    FileUtils.deleteQuietly(dataDir);
+  }
+
+  @Benchmark
+  public Set<String> listPrivilegesForProvider() throws Exception {
+    long request = requests.incrementAndGet();
+    TSentryAuthorizable authorizable = new TSentryAuthorizable("server1");
+    authorizable.setDb("db" + (request % 5));
+    return sentryStore.listSentryPrivilegesForProvider(
+        Sets.newHashSet("group" + (request % 10)), null,
+        new TSentryActiveRoleSet(true, null), authorizable);
+  }
+
+  @Benchmark
+  public CommitContext grantRevokePrivilege() throws Exception {
+    long request = requests.incrementAndGet();
+    String roleName = "role" + (request % NUM_ROLES);
+    TSentryPrivilege privilege = tablePrivilege("db_bench", "table" + request);
+    sentryStore.alterSentryRoleGrantPrivilege(GRANTOR, roleName, privilege);
+    return sentryStore.alterSentryRoleRevokePrivilege(GRANTOR, roleName, privilege);
+  }
+
+  private static TSentryPrivilege tablePrivilege(String dbName, String tableName) {
+    TSentryPrivilege privilege = new TSentryPrivilege("TABLE", "server1", "select");
+    privilege.setDbName(dbName);
+    privilege.setTableName(tableName);
+    return privilege;
+  }
+
+  public static void main(String[] args) throws RunnerException {
+    for (int threads : new int[] {1, 2, 4, 8, 16}) {
+      Options opt = new OptionsBuilder()
+          .include(SentryStoreThroughputBenchmark.class.getSimpleName())
+          .threads(threads)
+          .build();
+      new Runner(opt).run();
+    }
+  }
+}
@@ -60,7 +60,7 @@ import com.google.common.io.Files;
 public class TestSentryStore extends org.junit.Assert {
 
   private static File dataDir;
-  private static SentryStore sentryStore;
+  protected static SentryStore sentryStore;
   private static String[] adminGroups = { "adminGroup1" };
   private static PolicyFile policyFile;
   private static File policyFilePath;
@@ -70,6 +70,13 @@ public class TestSentryStore extends org.junit.Assert {
 
   @BeforeClass
   public static void setup() throws Exception {
+    setup(false);
+  }
+
+  /**
+   * @param policyImage whether the read RPCs are served from the policy image
+   */
+  protected static void setup(boolean policyImage) throws Exception {
     conf = new Configuration(false);
     final String ourUrl = UserProvider.SCHEME_NAME + ":///";
     conf.set(CredentialProviderFactory.CREDENTIAL_PROVIDER_PATH, ourUrl);
@@ -89,6 +96,7 @@ public class TestSentryStore extends org.junit.Assert {
     policyFilePath = new File(dataDir, "local_policy_file.ini");
     conf.set(ServerConfig.SENTRY_STORE_GROUP_MAPPING_RESOURCE,
         policyFilePath.getPath());
+    conf.setBoolean(ServerConfig.SENTRY_STORE_POLICY_IMAGE_ENABLED, policyImage);
     sentryStore = new SentryStore(conf);
   }
 
@@ -228,6 +236,72 @@ public class TestSentryStore extends org.junit.Assert {
     assertEquals(seqId + 1, sentryStore.dropSentryRole(roleName).getSequenceId());
   }
 
+  @Test
+  public void testPolicyVersion() throws Exception {
+    String roleName = "test-version-role";
+    String grantor = "g1";
+    String version = sentryStore.getPolicyVersion();
+    sentryStore.createSentryRole(roleName);
+    assertFalse(version.equals(sentryStore.getPolicyVersion()));
+    TSentryPrivilege privilege = new TSentryPrivilege("TABLE", "server1", "select");
+    privilege.setDbName("db1");
+    privilege.setTableName("tbl1");
+    sentryStore.alterSentryRoleGrantPrivilege(grantor, roleName, privilege);
+    version = sentryStore.getPolicyVersion();
+    assertEquals(version, sentryStore.getPolicyVersion());
+    TSentryAuthorizable tableAuthorizable = new TSentryAuthorizable("server1");
+    tableAuthorizable.setDb("db1");
+    tableAuthorizable.setTable("tbl1");
+    // privileges dropped without a commit context change the version too
+    sentryStore.dropPrivilege(tableAuthorizable);
+    assertFalse(version.equals(sentryStore.getPolicyVersion()));
+    // another server on the same database reports the same version
+    SentryStore otherStore = new SentryStore(conf);
+    try {
+      assertEquals(sentryStore.getPolicyVersion(), otherStore.getPolicyVersion());
+      otherStore.dropSentryRole(roleName);
+      assertEquals(otherStore.getPolicyVersion(), sentryStore.getPolicyVersion());
+    } finally {
+      otherStore.stop();
+    }
+  }
+
+  @Test
+  public void testReadsSeePolicyChanges() throws Exception {
+    String roleName = "test-image-role";
+    String grantor = "g1";
+    Set<String> groups = Sets.newHashSet("group1");
+    TSentryActiveRoleSet allRoles = new TSentryActiveRoleSet(true, new HashSet<String>());
+    sentryStore.createSentryRole(roleName);
+    sentryStore.alterSentryRoleAddGroups(grantor, roleName,
+        Sets.newHashSet(new TSentryGroup("group1")));
+    TSentryPrivilege privilege = new TSentryPrivilege("TABLE", "server1", "select");
+    privilege.setDbName("db1");
+    privilege.setTableName("tbl1");
+    sentryStore.alterSentryRoleGrantPrivilege(grantor, roleName, privilege);
+    assertEquals(Sets.newHashSet("server=server1->db=db1->table=tbl1->action=select"),
+        sentryStore.listAllSentryPrivilegesForProvider(groups, null, allRoles));
+    assertEquals(1, sentryStore.getTSentryRolesByGroupName(groups, false).size());
+
+    TSentryAuthorizable oldTable = new TSentryAuthorizable("server1");
+    oldTable.setDb("db1");
+    oldTable.setTable("tbl1");
+    TSentryAuthorizable newTable = new TSentryAuthorizable("server1");
+    newTable.setDb("db1");
+    newTable.setTable("tbl2");
+    sentryStore.renamePrivilege(oldTable, newTable);
+    assertEquals(Sets.newHashSet("server=server1->db=db1->table=tbl2->action=select"),
+        sentryStore.listAllSentryPrivilegesForProvider(groups, null, allRoles));
+    assertEquals(1, sentryStore.listSentryPrivilegesByAuthorizable(groups, allRoles,
+        newTable, false).getPrivilegeMapSize());
+
+    sentryStore.dropPrivilege(newTable);
+    assertEquals(0, sentryStore.listAllSentryPrivilegesForProvider(groups, null,
+        allRoles).size());
+    sentryStore.alterSentryRoleDeleteGroups(roleName, Sets.newHashSet(new TSentryGroup("group1")));
+    assertEquals(0, sentryStore.getTSentryRolesByGroupName(groups, true).size());
+  }
+
   @Test
   public void testAddDeleteGroupsNonExistantRole()
       throws Exception {
@@ -0,0 +1,47 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.sentry.provider.db.service.persistent;
+
+import org.junit.Before;
+import org.junit.BeforeClass;
+
+/**
+ * Runs the tests of TestSentryStore with the read RPCs served from the
+ * policy image.
+ */
+public class TestSentryStoreWithPolicyImage extends TestSentryStore {
+
+  @BeforeClass
+  public static void setup() throws Exception {
+    setup(true);
+  }
+
+  /**
+   * The image is loaded in the background at startup and after clearing the
+   * tables, the reads query the database meanwhile.
+   */
+  @Before
+  public void waitForPolicyImage() throws Exception {
+    long deadline = System.currentTimeMillis() + 30000;
+    while (!sentryStore.isPolicyImageLoaded()) {
+      assertTrue("The policy image is not loaded", System.currentTimeMillis() < deadline);
+      Thread.sleep(10);
+    }
+  }
+}
@@ -0,0 +1,131 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.sentry.provider.db.service.thrift;
+
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.sentry.core.common.exception.SentryGroupNotFoundException;
+import org.apache.sentry.core.common.service.GroupMappingService;
+import org.apache.sentry.service.thrift.ServiceConstants.ServerConfig;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.google.common.collect.Sets;
+
+public class TestCachedGroupMappingService {
+
+  private Configuration conf;
+  private CountingGroupMappingService groupMappingService;
+
+  @Before
+  public void setup() {
+    conf = new Configuration(false);
+    groupMappingService = new CountingGroupMappingService();
+  }
+
+  @Test
+  public void testGroupsAreCached() throws Exception {
+    CachedGroupMappingService cached = new CachedGroupMappingService(groupMappingService, conf);
+    Assert.assertEquals(Sets.newHashSet("group1"), cached.getGroups("user1"));
+    Assert.assertEquals(Sets.newHashSet("group1"), cached.getGroups("user1"));
+    Assert.assertEquals(1, groupMappingService.lookups.get());
+    cached.invalidateAll();
+    Assert.assertEquals(Sets.newHashSet("group1"), cached.getGroups("user1"));
+    Assert.assertEquals(2, groupMappingService.lookups.get());
+  }
+
+  @Test
+  public void testUnknownUsersAreCached() throws Exception {
+    CachedGroupMappingService cached = new CachedGroupMappingService(groupMappingService, conf);
+    for (int i = 0; i < 2; i++) {
+      try {
+        cached.getGroups("unknown");
+        Assert.fail("Expected SentryGroupNotFoundException");
+      } catch (SentryGroupNotFoundException e) {
+        // expected
+      }
+    }
+    Assert.assertEquals(1, groupMappingService.lookups.get());
+  }
+
+  @Test
+  public void testUnknownUsersExpire() throws Exception {
+    conf.setLong(ServerConfig.SENTRY_STORE_GROUP_MAPPING_CACHE_NEGATIVE_TTL_MS, 0);
+    CachedGroupMappingService cached = new CachedGroupMappingService(groupMappingService, conf);
+    for (int i = 0; i < 2; i++) {
+      try {
+        cached.getGroups("unknown");
+        Assert.fail("Expected SentryGroupNotFoundException");
+      } catch (SentryGroupNotFoundException e) {
+        // expected
+      }
+    }
+    Assert.assertEquals(2, groupMappingService.lookups.get());
+  }
+
+  @Test
+  public void testSharedPerConfiguration() throws Exception {
+    conf.setBoolean(ServerConfig.SENTRY_STORE_GROUP_MAPPING_CACHE_ENABLED, true);
+    conf.set(ServerConfig.SENTRY_STORE_GROUP_MAPPING,
+        CountingGroupMappingService.class.getName());
+    GroupMappingService service = SentryPolicyStoreProcessor.getGroupMappingService(conf);
+    Assert.assertTrue(service instanceof CachedGroupMappingService);
+    Assert.assertSame(service, SentryPolicyStoreProcessor.getGroupMappingService(conf));
+    // a new configuration with the same group mapping settings
+    Assert.assertSame(service,
+        SentryPolicyStoreProcessor.getGroupMappingService(new Configuration(conf)));
+    Configuration otherConf = new Configuration(conf);
+    otherConf.setLong(ServerConfig.SENTRY_STORE_GROUP_MAPPING_CACHE_TTL_MS, 1000);
+    Assert.assertNotSame(service, SentryPolicyStoreProcessor.getGroupMappingService(otherConf));
+
+    SentryPolicyStoreProcessor.closeGroupMappingServices();
+    Assert.assertNotSame(service, SentryPolicyStoreProcessor.getGroupMappingService(conf));
+    SentryPolicyStoreProcessor.closeGroupMappingServices();
+  }
+
+  @Test
+  public void testGroupsServedAfterClose() throws Exception {
+    CachedGroupMappingService cached = new CachedGroupMappingService(groupMappingService, conf);
+    Assert.assertEquals(Sets.newHashSet("group1"), cached.getGroups("user1"));
+    cached.close();
+    Assert.assertEquals(Sets.newHashSet("group1"), cached.getGroups("user1"));
+    Assert.assertEquals(1, groupMappingService.lookups.get());
+  }
+
+  public static class CountingGroupMappingService implements GroupMappingService {
+    private final AtomicInteger lookups = new AtomicInteger();
+
+    public CountingGroupMappingService() {
+    }
+
+    public CountingGroupMappingService(Configuration conf, String resource) {
+    }
+
+    @Override
+    public Set<String> getGroups(String user) {
+      lookups.incrementAndGet();
+      if ("user1".equals(user)) {
+        return Sets.newHashSet("group1");
+      }
+      throw new SentryGroupNotFoundException("Unable to obtain groups for " + user);
+    }
+  }
+}